@@ -52,12 +52,16 @@ func (a *ApplicationContainer) Discriminator() string {
 	return md5Hex(fmt.Sprintf("%d", pid))
 }
 
+func (a *ApplicationContainer) homeDir() string {
+	containerParentDir := defaults.UnderVespaHome("var/jdisc_container")
+	return fmt.Sprintf("%s/%s", containerParentDir, a.Discriminator())
+}
+
 func (a *ApplicationContainer) addJdiscProperties() {
 	cfgId := a.ConfigId()
 	opts := a.jvmOpts
 	opts.AddCommonJdiscProperties()
-	containerParentDir := defaults.UnderVespaHome("var/jdisc_container")
-	containerHomeDir := fmt.Sprintf("%s/%s", containerParentDir, a.Discriminator())
+	containerHomeDir := a.homeDir()
 	bCacheDir := fmt.Sprintf("%s/%s", containerHomeDir, "bundlecache")
 	propsFile := fmt.Sprintf("%s/%s.properties", containerHomeDir, "jdisc")
 	opts.fixSpec.FixDir(containerHomeDir)
@@ -140,6 +144,12 @@ func (a *ApplicationContainer) configureClasspath(qc *QrStartConfig) {
 	}
 }
 
+func (a *ApplicationContainer) configureClassDataSharing(qc *QrStartConfig) {
+	if qc.Jvm.ClassDataSharing {
+		a.JvmOptions().AddClassDataSharing(a.homeDir())
+	}
+}
+
 func (a *ApplicationContainer) configureCPU(qc *QrStartConfig) {
 	cnt := qc.Jvm.AvailableProcessors
 	if cnt > 0 {
@@ -164,6 +174,7 @@ func (a *ApplicationContainer) configureOptions() {
 	a.configureGC(qrStartCfg)
 	a.configureClasspath(qrStartCfg)
 	a.addJdiscProperties()
+	a.configureClassDataSharing(qrStartCfg)
 	svcName := a.ServiceName()
 	if svcName == "container" || svcName == "container-clustercontroller" {
 		RemoveStaleZkLocks(a)
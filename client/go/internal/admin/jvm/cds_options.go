@@ -0,0 +1,98 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+package jvm
+
+import (
+	"bytes"
+	"crypto/sha256"
+	"encoding/binary"
+	"fmt"
+	"io"
+	"os"
+	"os/exec"
+	"path/filepath"
+
+	"github.com/vespa-engine/vespa/client/go/internal/admin/trace"
+	"github.com/vespa-engine/vespa/client/go/internal/build"
+)
+
+const (
+	CDS_ARCHIVE_PREFIX = "classes-"
+	CDS_ARCHIVE_SUFFIX = ".jsa"
+
+	// The magic number a dynamic class-data sharing archive starts with
+	CDS_DYNAMIC_ARCHIVE_MAGIC = 0xf00baba8
+)
+
+// Makes the JVM map the classes it loaded the last time it ran from an application
+// class-data sharing archive in dir, instead of loading and verifying them again.
+// The archive is specific to the Vespa version, the JDK and the class path, which are
+// all part of its name; if it does not exist yet, or was not completely written, the
+// JVM is asked to dump the classes it has loaded to it when it exits.
+func (opts *Options) AddClassDataSharing(dir string) {
+	archive := fmt.Sprintf("%s/%s%s-%s%s", dir, CDS_ARCHIVE_PREFIX, build.Version, archiveKey(opts.ClassPath()), CDS_ARCHIVE_SUFFIX)
+	removeStaleArchives(dir, archive)
+	if isCompleteArchive(archive) {
+		trace.Trace("using class data sharing archive:", archive)
+		opts.AddOption("-XX:SharedArchiveFile=" + archive)
+	} else {
+		trace.Trace("creating class data sharing archive on exit:", archive)
+		opts.AddOption("-XX:ArchiveClassesAtExit=" + archive)
+	}
+}
+
+// Returns a short hash of the JDK which will run, and the given class path, as the
+// JVM ignores an archive made by another JDK or for another class path.
+func archiveKey(classPath string) string {
+	h := sha256.New()
+	io.WriteString(h, classPath)
+	if java, err := exec.LookPath("java"); err == nil {
+		if resolved, err := filepath.EvalSymlinks(java); err == nil {
+			java = resolved
+		}
+		io.WriteString(h, "\n"+java)
+		if info, err := os.Stat(java); err == nil {
+			fmt.Fprintf(h, "\n%d\n%d", info.Size(), info.ModTime().UnixNano())
+		}
+	} else {
+		trace.Trace("could not find java for class data sharing archive name:", err)
+	}
+	return fmt.Sprintf("%x", h.Sum(nil)[:8])
+}
+
+// The JVM writes the header of an archive after its content, so an archive which was
+// not completely written, e.g., because the JVM was killed while writing it, does not
+// start with the magic number. Such an archive is removed, so it is written again.
+func isCompleteArchive(archive string) bool {
+	f, err := os.Open(archive)
+	if err != nil {
+		return false
+	}
+	magic := make([]byte, 4)
+	_, err = io.ReadFull(f, magic)
+	f.Close()
+	if err == nil && bytes.Equal(magic, binary.NativeEndian.AppendUint32(nil, CDS_DYNAMIC_ARCHIVE_MAGIC)) {
+		return true
+	}
+	trace.Trace("removing incomplete class data sharing archive:", archive)
+	if err := os.Remove(archive); err != nil {
+		trace.Warning("could not remove", archive, ":", err)
+	}
+	return false
+}
+
+func removeStaleArchives(dir, current string) {
+	archives, err := filepath.Glob(fmt.Sprintf("%s/%s*%s", dir, CDS_ARCHIVE_PREFIX, CDS_ARCHIVE_SUFFIX))
+	if err != nil {
+		return
+	}
+	for _, archive := range archives {
+		if archive == current {
+			continue
+		}
+		trace.Trace("removing stale class data sharing archive:", archive)
+		if err := os.Remove(archive); err != nil {
+			trace.Warning("could not remove", archive, ":", err)
+		}
+	}
+}
@@ -0,0 +1,46 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package jvm
+
+import (
+	"encoding/binary"
+	"os"
+	"testing"
+
+	"github.com/stretchr/testify/assert"
+	"github.com/vespa-engine/vespa/client/go/internal/build"
+)
+
+func TestClassDataSharing(t *testing.T) {
+	dir := t.TempDir()
+	stale := dir + "/classes-7.0.0.jsa"
+	o := newDummyContainer().JvmOptions()
+	archive := dir + "/classes-" + build.Version + "-" + archiveKey(o.ClassPath()) + ".jsa"
+	assert.Nil(t, os.WriteFile(stale, []byte("stale"), 0644))
+
+	o.AddClassDataSharing(dir)
+	assert.Equal(t, 1, len(o.jvmArgs))
+	assert.Equal(t, "-XX:ArchiveClassesAtExit="+archive, o.jvmArgs[0])
+	_, err := os.Stat(stale)
+	assert.True(t, os.IsNotExist(err))
+
+	assert.Nil(t, os.WriteFile(archive, []byte("truncated"), 0644))
+	o = newDummyContainer().JvmOptions()
+	o.AddClassDataSharing(dir)
+	assert.Equal(t, "-XX:ArchiveClassesAtExit="+archive, o.jvmArgs[0])
+	_, err = os.Stat(archive)
+	assert.True(t, os.IsNotExist(err))
+
+	assert.Nil(t, os.WriteFile(archive, binary.NativeEndian.AppendUint32(nil, CDS_DYNAMIC_ARCHIVE_MAGIC), 0644))
+	o = newDummyContainer().JvmOptions()
+	o.AddClassDataSharing(dir)
+	assert.Equal(t, 1, len(o.jvmArgs))
+	assert.Equal(t, "-XX:SharedArchiveFile="+archive, o.jvmArgs[0])
+
+	o = newDummyContainer().JvmOptions()
+	o.classPath = append(o.classPath, "/extra.jar")
+	o.AddClassDataSharing(dir)
+	assert.Contains(t, o.jvmArgs[0], "-XX:ArchiveClassesAtExit=")
+	assert.NotEqual(t, "-XX:ArchiveClassesAtExit="+archive, o.jvmArgs[0])
+	_, err = os.Stat(archive)
+	assert.True(t, os.IsNotExist(err), "archive for the previous class path is removed")
+}
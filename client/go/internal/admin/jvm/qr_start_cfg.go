@@ -24,6 +24,7 @@ type QrStartConfig struct {
 		DirectMemorySizeCache                int    `json:"directMemorySizeCache"`
 		HeapSizeAsPercentageOfPhysicalMemory int    `json:"heapSizeAsPercentageOfPhysicalMemory"`
 		AvailableProcessors                  int    `json:"availableProcessors"`
+		ClassDataSharing                     bool   `json:"classDataSharing"`
 	} `json:"jvm"`
 	Qrs struct {
 		Env string `json:"env"`
@@ -0,0 +1,123 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.model.ml;
+
+import com.yahoo.config.application.api.ApplicationPackage;
+import com.yahoo.path.Path;
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Information derived from ONNX model files, kept across deployments by the content of the model file,
+ * as reading the model, and in particular probing it, is expensive for large models, while the models
+ * typically stay the same from one deployment to the next.
+ *
+ * Only ONNX model information is kept. Derived schema configs and rank profiles are built anew for each
+ * deployment, as they register files with the file registry of that deployment.
+ */
+final class OnnxModelCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Map<FileKey, String> contentHashes = lruMap();
+    private static final Map<String, String> modelInfo = lruMap();
+    private static final Map<String, ProbeResult> probeResults = lruMap();
+
+    private OnnxModelCache() { }
+
+    /** Returns the model info json of the given model, computing and remembering it if it is not known */
+    static String modelInfo(ApplicationPackage app, Path modelPath, Supplier<String> computer) {
+        Optional<String> key = contentHash(app, modelPath).map(hash -> hash + ":" + modelPath);
+        if (key.isEmpty()) return computer.get();
+
+        String cached = get(modelInfo, key.get());
+        if (cached != null) return cached;
+
+        String json = computer.get();
+        put(modelInfo, key.get(), json);
+        return json;
+    }
+
+    /** Returns the result of probing the given model in the given context, if this has been done before */
+    static Optional<ProbeResult> probeResult(ApplicationPackage app, Path modelPath, String contextKey) {
+        return contentHash(app, modelPath).map(hash -> get(probeResults, hash + ":" + contextKey));
+    }
+
+    static void putProbeResult(ApplicationPackage app, Path modelPath, String contextKey, ProbeResult result) {
+        contentHash(app, modelPath).ifPresent(hash -> put(probeResults, hash + ":" + contextKey, result));
+    }
+
+    /**
+     * Returns a hash of the content of the given file, or empty if it is not a file on disk.
+     * Hashes are remembered by file, size and modification time, so each file is read only once.
+     */
+    static Optional<String> contentHash(ApplicationPackage app, Path path) {
+        File file;
+        try {
+            file = app.getFileReference(path);
+        }
+        catch (UnsupportedOperationException e) { // Not a file application package
+            return Optional.empty();
+        }
+        if ( ! file.isFile()) return Optional.empty();
+
+        FileKey key = new FileKey(file.getAbsolutePath(), file.length(), file.lastModified());
+        String hash = get(contentHashes, key);
+        if (hash != null) return Optional.of(hash);
+
+        try (InputStream in = Files.newInputStream(file.toPath());
+             StreamingXXHash64 hasher = XXHashFactory.fastestInstance().newStreamingHash64(0)) {
+            byte[] buffer = new byte[1 << 16];
+            for (int read; (read = in.read(buffer)) >= 0; )
+                hasher.update(buffer, 0, read);
+            hash = Long.toHexString(hasher.getValue()) + "-" + key.size();
+        }
+        catch (IOException e) {
+            return Optional.empty();
+        }
+        put(contentHashes, key, hash);
+        return Optional.of(hash);
+    }
+
+    /** Clears all information, for testing */
+    static void clear() {
+        synchronized (OnnxModelCache.class) {
+            contentHashes.clear();
+            modelInfo.clear();
+            probeResults.clear();
+        }
+    }
+
+    private static <K, V> V get(Map<K, V> map, K key) {
+        synchronized (OnnxModelCache.class) {
+            return map.get(key);
+        }
+    }
+
+    private static <K, V> void put(Map<K, V> map, K key, V value) {
+        synchronized (OnnxModelCache.class) {
+            map.put(key, value);
+        }
+    }
+
+    private static <K, V> Map<K, V> lruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) { return size() > MAX_ENTRIES; }
+        };
+    }
+
+    /** The output type and memory stats json from probing a model */
+    record ProbeResult(String outputType, String memoryStats) { }
+
+    private record FileKey(String path, long size, long lastModified) { }
+
+}
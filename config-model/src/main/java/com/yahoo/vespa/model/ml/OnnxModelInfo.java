@@ -16,6 +16,7 @@ import onnx.Onnx;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -163,14 +164,23 @@ public class OnnxModelInfo {
     }
 
     static private OnnxModelInfo loadFromFile(Path path, ApplicationPackage app) {
-        try (InputStream inputStream = app.getFile(path).createInputStream()) {
-            Onnx.ModelProto model = Onnx.ModelProto.parseFrom(inputStream);
-            String json = onnxModelToJson(model, path);
+        try {
+            String json = OnnxModelCache.modelInfo(app, path, () -> readModelInfo(path, app));
             storeGeneratedInfo(json, path, app);
             return jsonToModelInfo(json, app);
-
         } catch (IOException e) {
             throw new IllegalArgumentException("Unable to parse ONNX model", e);
+        } catch (UncheckedIOException e) {
+            throw new IllegalArgumentException("Unable to parse ONNX model", e.getCause());
+        }
+    }
+
+    static private String readModelInfo(Path path, ApplicationPackage app) {
+        try (InputStream inputStream = app.getFile(path).createInputStream()) {
+            Onnx.ModelProto model = Onnx.ModelProto.parseFrom(inputStream);
+            return onnxModelToJson(model, path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -40,12 +40,24 @@ public class OnnxModelProbe {
             // Check if output type has already been probed
             outputType = readProbedOutputType(app, modelPath, contextKey);
 
-            // Otherwise, run vespa-analyze-onnx-model if the model is available
+            // Otherwise, reuse the result of probing the same model in an earlier deployment,
+            // or run vespa-analyze-onnx-model if the model is available
             if (outputType.equals(TensorType.empty) && app.getFile(modelPath).exists()) {
-                String jsonInput = createJsonInput(app.getFileReference(modelPath).getAbsolutePath(), inputTypes);
-                var jsonOutput = callVespaAnalyzeOnnxModel(jsonInput);
-                outputType = outputTypeFromJson(jsonOutput, outputName);
-                writeMemoryStats(app, modelPath, OnnxMemoryStats.fromJson(jsonOutput));
+                var probed = OnnxModelCache.probeResult(app, modelPath, contextKey);
+                if (probed.isPresent()) {
+                    outputType = TensorType.fromSpec(probed.get().outputType());
+                    writeMemoryStats(app, modelPath, probed.get().memoryStats());
+                }
+                else {
+                    String jsonInput = createJsonInput(app.getFileReference(modelPath).getAbsolutePath(), inputTypes);
+                    var jsonOutput = callVespaAnalyzeOnnxModel(jsonInput);
+                    outputType = outputTypeFromJson(jsonOutput, outputName);
+                    String memoryStats = OnnxMemoryStats.fromJson(jsonOutput).toJson().toPrettyString();
+                    writeMemoryStats(app, modelPath, memoryStats);
+                    if ( ! outputType.equals(TensorType.empty))
+                        OnnxModelCache.putProbeResult(app, modelPath, contextKey,
+                                                      new OnnxModelCache.ProbeResult(outputType.toString(), memoryStats));
+                }
                 if ( ! outputType.equals(TensorType.empty)) {
                     writeProbedOutputType(app, modelPath, contextKey, outputType);
                 }
@@ -56,9 +68,9 @@ public class OnnxModelProbe {
         return outputType;
     }
 
-    private static void writeMemoryStats(ApplicationPackage app, Path modelPath, OnnxMemoryStats memoryStats) throws IOException {
+    private static void writeMemoryStats(ApplicationPackage app, Path modelPath, String memoryStats) throws IOException {
         String path = app.getFileReference(OnnxMemoryStats.memoryStatsFilePath(modelPath)).getAbsolutePath();
-        IOUtils.writeFile(path, memoryStats.toJson().toPrettyString(), false);
+        IOUtils.writeFile(path, memoryStats, false);
     }
 
     private static String createContextKey(String onnxName, Map<String, TensorType> inputTypes) {
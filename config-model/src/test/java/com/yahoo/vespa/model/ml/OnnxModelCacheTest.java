@@ -0,0 +1,56 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.model.ml;
+
+import com.yahoo.config.application.api.ApplicationPackage;
+import com.yahoo.config.model.application.provider.FilesApplicationPackage;
+import com.yahoo.io.IOUtils;
+import com.yahoo.path.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OnnxModelCacheTest {
+
+    private static final Path modelPath = Path.fromString("files/dynamic_model.onnx");
+
+    @Test
+    void model_information_is_reused_for_models_with_the_same_content(@TempDir File tmp) throws IOException {
+        OnnxModelCache.clear();
+        ApplicationPackage first = copyApplication(new File(tmp, "first"));
+        ApplicationPackage second = copyApplication(new File(tmp, "second"));
+        assertEquals(OnnxModelCache.contentHash(first, modelPath), OnnxModelCache.contentHash(second, modelPath));
+
+        OnnxModelInfo info = OnnxModelInfo.load(modelPath.toString(), first);
+        assertTrue(info.getInputs().contains("input1"));
+        AtomicInteger computations = new AtomicInteger();
+        OnnxModelCache.modelInfo(second, modelPath, () -> "info " + computations.incrementAndGet());
+        assertEquals(0, computations.get());
+        assertEquals(info.getInputs(), OnnxModelInfo.load(modelPath.toString(), second).getInputs());
+
+        assertTrue(OnnxModelCache.probeResult(first, modelPath, "out:input1").isEmpty());
+        OnnxModelCache.putProbeResult(first, modelPath, "out:input1", new OnnxModelCache.ProbeResult("tensor<float>(d0[1])", "{}"));
+        assertEquals("tensor<float>(d0[1])", OnnxModelCache.probeResult(second, modelPath, "out:input1").orElseThrow().outputType());
+        assertTrue(OnnxModelCache.probeResult(second, modelPath, "out:input2").isEmpty());
+
+        File changed = second.getFileReference(modelPath);
+        Files.write(changed.toPath(), new byte[] { 1, 2, 3 });
+        assertTrue(changed.setLastModified(changed.lastModified() + 1000));
+        assertNotEquals(OnnxModelCache.contentHash(first, modelPath), OnnxModelCache.contentHash(second, modelPath));
+        assertTrue(OnnxModelCache.probeResult(second, modelPath, "out:input1").isEmpty());
+        OnnxModelCache.clear();
+    }
+
+    private static ApplicationPackage copyApplication(File to) throws IOException {
+        IOUtils.copyDirectory(new File("src/test/cfg/application/onnx_probe"), to);
+        return FilesApplicationPackage.fromFile(to);
+    }
+
+}
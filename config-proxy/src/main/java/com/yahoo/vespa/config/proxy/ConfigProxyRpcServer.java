@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.config.proxy;
 
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.jrt.Acceptor;
 import com.yahoo.jrt.Int32Value;
 import com.yahoo.jrt.ListenFailedException;
@@ -18,6 +19,7 @@ import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 
 import java.util.Arrays;
 import java.util.Iterator;
@@ -25,6 +27,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,6 +48,8 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
     private final Supervisor supervisor;
     private final ProxyServer proxyServer;
     private final ExecutorService rpcExecutor = Executors.newFixedThreadPool(8);
+    private final ScheduledExecutorService batchExecutor =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("config request batches"));
 
     ConfigProxyRpcServer(ProxyServer proxyServer, Supervisor supervisor, Spec spec) {
         this.proxyServer = proxyServer;
@@ -69,6 +74,8 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
         try {
             rpcExecutor.shutdownNow();
             rpcExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            batchExecutor.shutdownNow();
+            batchExecutor.awaitTermination(10, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -82,6 +89,8 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
     private void declareConfigMethods() {
         supervisor.addMethod(JRTMethods.createConfigV3GetConfigMethod(this::getConfigV3)
                                      .requireCapabilities(Capability.CONFIGPROXY__CONFIG_API));
+        supervisor.addMethod(JRTMethods.createConfigV3GetConfigsMethod(this::getConfigsV3)
+                                     .requireCapabilities(Capability.CONFIGPROXY__CONFIG_API));
         supervisor.addMethod(new Method("ping", "", "i",
                 this::ping)
                 .requireCapabilities(CapabilitySet.none())
@@ -102,6 +111,11 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
                 .requireCapabilities(Capability.CONFIGPROXY__CONFIG_API)
                 .methodDesc("list config source connections)")
                 .returnDesc(0, "data", "string array of source connections"));
+        supervisor.addMethod(new Method("listStatistics", "", "S",
+                this::listStatistics)
+                .requireCapabilities(Capability.CONFIGPROXY__CONFIG_API)
+                .methodDesc("list statistics about config responses")
+                .returnDesc(0, "data", "string array of statistics"));
         supervisor.addMethod(new Method("invalidateCache", "", "S",
                 this::invalidateCache)
                 .requireCapabilities(Capability.CONFIGPROXY__MANAGEMENT_API)
@@ -145,6 +159,26 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
         });
     }
 
+    /**
+     * Handles RPC method "config.v3.getConfigs" requests, where each config request in the batch
+     * is handled like a "config.v3.getConfig" request.
+     *
+     * @param req a Request
+     */
+    private void getConfigsV3(Request req) {
+        dispatchRpcRequest(req, () -> {
+            ConfigRequestBatch batch = ConfigRequestBatch.createFromRequest(req, batchExecutor, proxyServer.delayedResponses());
+            req.target().addWatcher(this);
+            // Getting a config which is not cached may block, so each request is handled separately, like single requests
+            for (JRTServerConfigRequest request : batch.parts())
+                rpcExecutor.execute(() -> {
+                    if ( ! batch.isReturned())
+                        getConfigImpl(request);
+                });
+            batch.returnIfEmpty();
+        });
+    }
+
     /**
      * Returns 0 if server is alive.
      *
@@ -175,6 +209,17 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
         });
     }
 
+    private void listStatistics(Request req) {
+        dispatchRpcRequest(req, () -> {
+            PayloadDeltas payloadDeltas = proxyServer.payloadDeltas();
+            String[] ret = new String[2];
+            ret[0] = "Delta responses: " + payloadDeltas.deltaResponses();
+            ret[1] = "Delta bytes saved: " + payloadDeltas.bytesSaved();
+            req.returnValues().add(new StringArray(ret));
+            req.returnRequest();
+        });
+    }
+
     private void updateSources(Request req) {
         dispatchRpcRequest(req, () -> {
             String sources = req.parameters().get(0).asString();
@@ -261,7 +306,7 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
      * @param request a Request
      */
     private void getConfigImpl(JRTServerConfigRequest request) {
-        ResponseHandler responseHandler = new ResponseHandler();
+        ResponseHandler responseHandler = new ResponseHandler(proxyServer.payloadDeltas());
         request.getRequestTrace().trace(TRACELEVEL, "Config proxy getConfig()");
         log.log(Level.FINE, () ->"getConfig: " + request);
         if (!request.validateParameters()) {
@@ -333,7 +378,7 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
         for (Iterator<DelayedResponse> it = proxyServer.delayedResponses().responses().iterator(); it.hasNext(); ) {
             DelayedResponse delayed = it.next();
             JRTServerConfigRequest request = delayed.getRequest();
-            if (request.getRequest().target().equals(target)) {
+            if (request.target().equals(target)) {
                 log.log(Level.FINE, () -> "Removing " + request.getShortDescription());
                 it.remove();
             }
@@ -0,0 +1,117 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.proxy;
+
+import com.yahoo.jrt.DataArray;
+import com.yahoo.jrt.Int32Array;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringArray;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Target;
+import com.yahoo.vespa.config.JRTMethods;
+import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of config requests received in one {@link JRTMethods#configV3getConfigsMethodName} request.
+ * Each config request in the batch is handled as if it was received by itself, and the batch is returned
+ * with the responses to the requests which are returned within a short time after the first one.
+ * The client sends the requests without a response again in its next batch.
+ */
+class ConfigRequestBatch {
+
+    /** How long to wait for more responses after the first one, before returning the batch */
+    static final Duration linger = Duration.ofMillis(100);
+
+    private final Request request;
+    private final ScheduledExecutorService scheduler;
+    private final DelayedResponses delayedResponses;
+    private final List<Part> parts = new ArrayList<>();
+    private final List<Response> responses = new ArrayList<>();
+    private boolean returned = false;
+
+    private ConfigRequestBatch(Request request, ScheduledExecutorService scheduler, DelayedResponses delayedResponses) {
+        this.request = request;
+        this.scheduler = scheduler;
+        this.delayedResponses = delayedResponses;
+        String[] requests = request.parameters().get(0).asStringArray();
+        for (int i = 0; i < requests.length; i++)
+            parts.add(new Part(i, requests[i]));
+    }
+
+    static ConfigRequestBatch createFromRequest(Request request, ScheduledExecutorService scheduler, DelayedResponses delayedResponses) {
+        return new ConfigRequestBatch(request, scheduler, delayedResponses);
+    }
+
+    /** Returns the config requests in this batch, which are returned to this when they are returned */
+    List<? extends JRTServerConfigRequestV3> parts() { return parts; }
+
+    /** Returns this batch right away if there are no requests in it */
+    void returnIfEmpty() {
+        if (parts.isEmpty()) returnBatch();
+    }
+
+    /** Returns whether this batch has been returned, after which its remaining requests need not be handled */
+    synchronized boolean isReturned() { return returned; }
+
+    private synchronized void partReturned(Part part) {
+        if (returned || part.done) return;
+
+        part.done = true;
+        Request partRequest = part.getRequest();
+        responses.add(partRequest.isError()
+                      ? new Response(part.index, partRequest.errorCode(), partRequest.errorMessage(), new byte[0])
+                      : new Response(part.index, 0, partRequest.returnValues().get(0).asString(), partRequest.returnValues().get(1).asData()));
+        if (responses.size() == parts.size())
+            returnBatch();
+        else if (responses.size() == 1)
+            scheduler.schedule(this::returnBatch, linger.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void returnBatch() {
+        if (returned) return;
+
+        returned = true;
+        // Requests without a response are sent again by the client, and must not be answered as part of this batch
+        delayedResponses.responses().removeIf(delayed -> delayed.getRequest() instanceof Part part && part.batch() == this);
+        request.returnValues().add(new Int32Array(responses.stream().mapToInt(Response::index).toArray()));
+        request.returnValues().add(new Int32Array(responses.stream().mapToInt(Response::errorCode).toArray()));
+        request.returnValues().add(new StringArray(responses.stream().map(Response::response).toArray(String[]::new)));
+        request.returnValues().add(new DataArray(responses.stream().map(Response::payload).toArray(byte[][]::new)));
+        request.returnRequest();
+    }
+
+    /** A config request in a batch, which is returned to the batch instead of to the client */
+    private class Part extends JRTServerConfigRequestV3 {
+
+        private final int index;
+        private boolean done = false;
+
+        Part(int index, String request) {
+            super(createRequest(request));
+            this.index = index;
+        }
+
+        ConfigRequestBatch batch() { return ConfigRequestBatch.this; }
+
+        @Override
+        public void returnRequest() { partReturned(this); }
+
+        @Override
+        public Target target() { return ConfigRequestBatch.this.request.target(); }
+
+    }
+
+    private static Request createRequest(String parameter) {
+        Request request = new Request(JRTMethods.configV3getConfigMethodName);
+        request.parameters().add(new StringValue(parameter));
+        return request;
+    }
+
+    private record Response(int index, int errorCode, String response, byte[] payload) { }
+
+}
@@ -3,6 +3,7 @@ package com.yahoo.vespa.config.proxy;
 
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 
 import java.util.List;
 import java.util.Optional;
@@ -21,6 +22,9 @@ interface ConfigSourceClient {
 
     void shutdownSourceConnections();
 
+    /** Removes configs which have not been used for a while from the cache, and stops getting changes to them */
+    void evictUnusedConfigs();
+
     String getActiveSourceConnection();
 
     List<String> getSourceConnections();
@@ -29,4 +33,7 @@ interface ConfigSourceClient {
 
     MemoryCache memoryCache();
 
+    /** Returns the payloads recently sent to clients, which later responses may be sent as deltas against */
+    PayloadDeltas payloadDeltas();
+
 }
@@ -2,24 +2,53 @@
 package com.yahoo.vespa.config.proxy;
 
 import com.yahoo.io.IOUtils;
+import com.yahoo.slime.ArrayTraverser;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.RawConfig;
+import com.yahoo.vespa.config.protocol.CompressionInfo;
 import com.yahoo.vespa.config.protocol.CompressionType;
 import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.vespa.config.protocol.VespaVersion;
 import com.yahoo.vespa.defaults.Defaults;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static com.yahoo.vespa.config.PayloadChecksum.Type.MD5;
+import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
 
 /**
+ * A cache of config, which may be persisted, so it can be served immediately after a restart of the proxy.
+ * Persisted entries are written by {@link #persist()}, which should be called regularly, and entries which
+ * have not been read for a while, or the least recently read ones when above the size limit, are removed
+ * by {@link #evict()}.
+ *
  * @author hmusum
  */
 public class MemoryCache {
@@ -29,11 +58,42 @@ public class MemoryCache {
     // Separator in file names between different fields of config key
     private final static String separator = ":";
     private static final String DEFAULT_DUMP_DIR = Defaults.getDefaults().underVespaHome("var/vespa/cache/config");
+    static final Path DEFAULT_PERSISTENT_DIR = Path.of(Defaults.getDefaults().underVespaHome("var/vespa/cache/config-proxy"));
+    static final Duration DEFAULT_MAX_IDLE = Duration.ofDays(1);
+    static final long DEFAULT_MAX_BYTES = 256L << 20;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final ConcurrentHashMap<ConfigCacheKey, Entry> cache = new ConcurrentHashMap<>(500, 0.75f);
+    private final Set<ConfigCacheKey> dirty = ConcurrentHashMap.newKeySet();
+    private final Optional<Path> directory;
+    private final Duration maxIdle;
+    private final long maxBytes;
+    private final Clock clock;
+
+    /** Creates a cache which is not persisted, and never evicts entries */
+    public MemoryCache() {
+        this(Optional.empty(), Duration.ofMillis(Long.MAX_VALUE), Long.MAX_VALUE, Clock.systemUTC());
+    }
+
+    MemoryCache(Optional<Path> directory, Duration maxIdle, long maxBytes, Clock clock) {
+        this.directory = directory;
+        this.maxIdle = maxIdle;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        directory.ifPresent(this::load);
+    }
 
-    private final ConcurrentHashMap<ConfigCacheKey, RawConfig> cache = new ConcurrentHashMap<>(500, 0.75f);
+    /** Creates a cache persisted in the given directory, containing the entries already persisted there */
+    public static MemoryCache persistent(Path directory) {
+        return new MemoryCache(Optional.of(directory), DEFAULT_MAX_IDLE, DEFAULT_MAX_BYTES, Clock.systemUTC());
+    }
 
     public Optional<RawConfig> get(ConfigCacheKey key) {
-        return Optional.ofNullable(cache.get(key));
+        Entry entry = cache.get(key);
+        if (entry == null) return Optional.empty();
+
+        entry.lastAccess = clock.millis();
+        return Optional.of(entry.config);
     }
 
     /**
@@ -47,12 +107,14 @@ public class MemoryCache {
 
         // Do not cache empty configs (which have generation 0), remove everything in cache
         if (config.getGeneration() == 0) {
-            cache.clear();
+            clear();
             return;
         }
 
         log.log(Level.FINE, () -> "Putting '" + config + "' into memory cache");
-        cache.put(new ConfigCacheKey(config.getKey(), config.getDefMd5()), config);
+        ConfigCacheKey key = new ConfigCacheKey(config.getKey(), config.getDefMd5());
+        cache.put(key, new Entry(config, clock.millis()));
+        if (directory.isPresent()) dirty.add(key);
     }
 
     boolean containsKey(ConfigCacheKey key) {
@@ -60,15 +122,66 @@ public class MemoryCache {
     }
 
     Collection<RawConfig> values() {
-        return cache.values();
+        return cache.values().stream().map(entry -> entry.config).toList();
     }
 
     public int size() {
         return cache.size();
     }
 
+    /** Removes all entries, including the persisted ones */
     public void clear() {
         cache.clear();
+        dirty.clear();
+        directory.ifPresent(this::deleteAll);
+    }
+
+    /**
+     * Removes the entries which have not been read for the max idle time, and then the least recently read
+     * entries until the total payload size is within the limit.
+     *
+     * @return the keys of the removed entries
+     */
+    Set<ConfigCacheKey> evict() {
+        long idleLimit = clock.millis() - maxIdle.toMillis();
+        List<Map.Entry<ConfigCacheKey, Entry>> entries = new ArrayList<>(cache.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        long bytes = entries.stream().mapToLong(entry -> entry.getValue().size()).sum();
+        List<ConfigCacheKey> evicted = new ArrayList<>();
+        for (Map.Entry<ConfigCacheKey, Entry> entry : entries) {
+            if (entry.getValue().lastAccess >= idleLimit && bytes <= maxBytes) break;
+            if (cache.remove(entry.getKey(), entry.getValue())) {
+                bytes -= entry.getValue().size();
+                evicted.add(entry.getKey());
+                if (directory.isPresent()) dirty.add(entry.getKey());
+            }
+        }
+        if ( ! evicted.isEmpty())
+            log.log(Level.FINE, () -> "Evicted " + evicted + " from memory cache");
+        return evicted.stream().collect(Collectors.toUnmodifiableSet());
+    }
+
+    /** Writes entries changed since the last call to disk, if this cache is persisted */
+    synchronized void persist() {
+        if (directory.isEmpty()) return;
+
+        for (ConfigCacheKey key : List.copyOf(dirty)) {
+            dirty.remove(key);
+            Path file = directory.get().resolve(createCacheFileName(key));
+            Entry entry = cache.get(key);
+            try {
+                if (entry == null || entry.config.getPayload() == null) {
+                    Files.deleteIfExists(file);
+                }
+                else {
+                    Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+                    Files.write(temporary, BinaryFormat.encode(toSlime(entry.config)));
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Could not persist '" + key + "' to '" + file + "': " + e.getMessage());
+            }
+        }
     }
 
     @Override
@@ -76,6 +189,79 @@ public class MemoryCache {
         return cache.toString();
     }
 
+    private synchronized void load(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    try {
+                        if (file.getFileName().toString().endsWith(TEMPORARY_SUFFIX))
+                            throw new IllegalArgumentException("incomplete write");
+
+                        RawConfig config = fromSlime(BinaryFormat.decode(Files.readAllBytes(file)));
+                        cache.put(new ConfigCacheKey(config.getKey(), config.getDefMd5()), new Entry(config, clock.millis()));
+                    } catch (RuntimeException e) {
+                        log.log(Level.INFO, "Removing invalid config cache file '" + file + "': " + e.getMessage());
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+            log.log(Level.INFO, "Loaded " + cache.size() + " configs from '" + directory + "'");
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Could not load config cache from '" + directory + "': " + e.getMessage());
+        }
+    }
+
+    private synchronized void deleteAll(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files)
+                Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Could not delete config cache files in '" + directory + "': " + e.getMessage());
+        }
+    }
+
+    private static Slime toSlime(RawConfig config) {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("name", config.getName());
+        root.setString("namespace", config.getNamespace());
+        root.setString("configId", config.getConfigId());
+        root.setString("defMd5", config.getDefMd5());
+        Cursor defContent = root.setArray("defContent");
+        config.getDefContent().forEach(defContent::addString);
+        root.setString("md5", config.getPayloadChecksums().getForType(MD5).asString());
+        root.setString("xxhash64", config.getPayloadChecksums().getForType(XXHASH64).asString());
+        root.setLong("generation", config.getGeneration());
+        root.setBool("applyOnRestart", config.applyOnRestart());
+        config.getVespaVersion().ifPresent(version -> root.setString("vespaVersion", version.toString()));
+        Payload payload = config.getPayload();
+        root.setString("compression", payload.getCompressionInfo().getCompressionType().name());
+        root.setLong("uncompressedSize", payload.getCompressionInfo().getUncompressedSize());
+        ByteBuffer data = payload.getData().wrap();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        root.setData("payload", bytes);
+        return slime;
+    }
+
+    private static RawConfig fromSlime(Slime slime) {
+        Inspector root = slime.get();
+        List<String> defContent = new ArrayList<>();
+        root.field("defContent").traverse((ArrayTraverser) (index, entry) -> defContent.add(entry.asString()));
+        CompressionInfo compressionInfo = CompressionInfo.create(CompressionType.valueOf(root.field("compression").asString()),
+                                                                 (int) root.field("uncompressedSize").asLong());
+        Inspector vespaVersion = root.field("vespaVersion");
+        return new RawConfig(new ConfigKey<>(root.field("name").asString(), root.field("configId").asString(), root.field("namespace").asString()),
+                             root.field("defMd5").asString(),
+                             Payload.from(new Utf8Array(root.field("payload").asData()), compressionInfo),
+                             PayloadChecksums.from(root.field("md5").asString(), root.field("xxhash64").asString()),
+                             root.field("generation").asLong(),
+                             root.field("applyOnRestart").asBool(),
+                             defContent,
+                             vespaVersion.valid() ? Optional.of(VespaVersion.fromString(vespaVersion.asString())) : Optional.empty());
+    }
+
     String dumpCacheToDisk(String path, MemoryCache cache) {
         if (path == null || path.isEmpty()) {
             path = DEFAULT_DUMP_DIR;
@@ -151,4 +337,21 @@ public class MemoryCache {
                 separator + key.getDefMd5();
     }
 
+    private static class Entry {
+
+        private final RawConfig config;
+        private volatile long lastAccess;
+
+        Entry(RawConfig config, long lastAccess) {
+            this.config = config;
+            this.lastAccess = lastAccess;
+        }
+
+        long size() { return config.getPayload() == null ? 0 : config.getPayload().getData().getByteLength(); }
+
+        @Override
+        public String toString() { return config.toString(); }
+
+    }
+
 }
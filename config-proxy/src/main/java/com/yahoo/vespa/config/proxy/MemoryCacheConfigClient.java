@@ -5,6 +5,7 @@ import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 
 import java.util.List;
 import java.util.Optional;
@@ -21,9 +22,15 @@ class MemoryCacheConfigClient implements ConfigSourceClient {
     private final static Logger log = Logger.getLogger(MemoryCacheConfigClient.class.getName());
     private final MemoryCache cache;
     private final DelayedResponses delayedResponses = new DelayedResponses();
+    private final PayloadDeltas payloadDeltas;
 
     MemoryCacheConfigClient(MemoryCache cache) {
+        this(cache, new PayloadDeltas());
+    }
+
+    MemoryCacheConfigClient(MemoryCache cache, PayloadDeltas payloadDeltas) {
         this.cache = cache;
+        this.payloadDeltas = payloadDeltas;
     }
 
     /**
@@ -48,6 +55,10 @@ class MemoryCacheConfigClient implements ConfigSourceClient {
     @Override
     public void shutdownSourceConnections() {}
 
+    /** Does nothing, as configs removed from the cache can not be fetched again in this mode */
+    @Override
+    public void evictUnusedConfigs() {}
+
     @Override
     public String getActiveSourceConnection() {
         return "N/A";
@@ -66,4 +77,7 @@ class MemoryCacheConfigClient implements ConfigSourceClient {
     @Override
     public MemoryCache memoryCache() { return cache; }
 
+    @Override
+    public PayloadDeltas payloadDeltas() { return payloadDeltas; }
+
 }
@@ -8,8 +8,10 @@ import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Transport;
 import com.yahoo.log.LogSetup;
 import com.yahoo.log.event.Event;
+import com.yahoo.net.HostName;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 import com.yahoo.vespa.config.proxy.filedistribution.FileDistributionAndUrlDownload;
 import com.yahoo.yolean.system.CatchSignals;
 
@@ -20,12 +22,15 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.yahoo.vespa.config.proxy.Mode.ModeName.DEFAULT;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * A proxy server that handles RPC config requests. The proxy can run in two modes:
@@ -48,6 +53,9 @@ public class ProxyServer implements Runnable {
 
     private final ConfigProxyRpcServer rpcServer;
     private final FileDistributionAndUrlDownload fileDistributionAndUrlDownload;
+    // Persists the cache, and evicts unused configs from it, for the config client of the current mode
+    private final ScheduledExecutorService cacheMaintainer =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("cache maintainer"));
 
     private ConfigSourceSet configSource;
     private volatile ConfigSourceClient configClient;
@@ -59,7 +67,10 @@ public class ProxyServer implements Runnable {
         this.supervisor = new Supervisor(new Transport("proxy-server", JRT_TRANSPORT_THREADS)).setDropEmptyBuffers(true);
         this.rpcServer = createRpcServer(spec);
         this.configClient = Objects.requireNonNull(configClient);
-        this.fileDistributionAndUrlDownload = new FileDistributionAndUrlDownload(supervisor, source);
+        this.fileDistributionAndUrlDownload = new FileDistributionAndUrlDownload(supervisor, source,
+                                                                                 Optional.ofNullable(spec).map(s -> new Spec(HostName.getLocalhost(), s.port())));
+        cacheMaintainer.scheduleWithFixedDelay(() -> this.configClient.memoryCache().persist(), 1, 1, SECONDS);
+        cacheMaintainer.scheduleWithFixedDelay(this::evictUnusedConfigs, 1, 1, MINUTES);
     }
 
     @Override
@@ -94,13 +105,13 @@ public class ProxyServer implements Runnable {
         Mode newMode = new Mode(modeName);
         switch (newMode.getMode()) {
             case MEMORYCACHE:
-                configClient.shutdownSourceConnections();
-                configClient = new MemoryCacheConfigClient(configClient.memoryCache());
+                configClient.shutdown();
+                configClient = new MemoryCacheConfigClient(configClient.memoryCache(), configClient.payloadDeltas());
                 this.mode = new Mode(modeName);
                 break;
             case DEFAULT:
                 flush();
-                configClient = createRpcClient(configSource);
+                configClient = createRpcClient(configSource, configClient.memoryCache(), configClient.payloadDeltas());
                 this.mode = new Mode(modeName);
                 break;
             default:
@@ -109,12 +120,16 @@ public class ProxyServer implements Runnable {
         log.log(Level.INFO, "Switched from '" + oldMode.name().toLowerCase() + "' mode to '" + getMode().name().toLowerCase() + "' mode");
     }
 
+    void evictUnusedConfigs() {
+        configClient.evictUnusedConfigs();
+    }
+
     private ConfigProxyRpcServer createRpcServer(Spec spec) {
         return  (spec == null) ? null : new ConfigProxyRpcServer(this, supervisor, spec); // TODO: Try to avoid first argument being 'this'
     }
 
-    private static RpcConfigSourceClient createRpcClient(ConfigSourceSet source) {
-        return new RpcConfigSourceClient(new ResponseHandler(), source);
+    private static RpcConfigSourceClient createRpcClient(ConfigSourceSet source, MemoryCache memoryCache, PayloadDeltas payloadDeltas) {
+        return new RpcConfigSourceClient(new ResponseHandler(payloadDeltas), source, memoryCache);
     }
 
     private void setupSignalHandler() {
@@ -157,7 +172,9 @@ public class ProxyServer implements Runnable {
         Event.started("configproxy");
 
         ConfigSourceSet configSources = new ConfigSourceSet(properties.configSources);
-        ProxyServer proxyServer = new ProxyServer(new Spec(null, port), configSources, createRpcClient(configSources));
+        ProxyServer proxyServer = new ProxyServer(new Spec(null, port), configSources,
+                                              createRpcClient(configSources, MemoryCache.persistent(MemoryCache.DEFAULT_PERSISTENT_DIR),
+                                                              new PayloadDeltas()));
         // catch termination and interrupt signal
         proxyServer.setupSignalHandler();
         Thread proxyserverThread = threadFactory.newThread(proxyServer);
@@ -191,9 +208,11 @@ public class ProxyServer implements Runnable {
         Event.stopping("configproxy", "shutdown rpcServer");
         if (rpcServer != null) rpcServer.shutdown();
         Event.stopping("configproxy", "cancel configClient");
+        cacheMaintainer.shutdownNow();
         configClient.shutdown();
-        Event.stopping("configproxy", "flush");
-        flush();
+        // Keep the cache, so config can be served from it when starting again
+        Event.stopping("configproxy", "persist cache");
+        configClient.memoryCache().persist();
         Event.stopping("configproxy", "close fileDistribution");
         fileDistributionAndUrlDownload.close();
         Event.stopping("configproxy", "stop complete");
@@ -203,6 +222,10 @@ public class ProxyServer implements Runnable {
         return configClient.memoryCache();
     }
 
+    ConfigSourceClient configClient() {
+        return configClient;
+    }
+
     String getActiveSourceConnection() {
         return configClient.getActiveSourceConnection();
     }
@@ -214,11 +237,15 @@ public class ProxyServer implements Runnable {
     void updateSourceConnections(List<String> sources) {
         configSource = new ConfigSourceSet(sources);
         flush();
-        configClient = createRpcClient(configSource);
+        configClient = createRpcClient(configSource, configClient.memoryCache(), configClient.payloadDeltas());
     }
 
     DelayedResponses delayedResponses() {
         return configClient.delayedResponses();
     }
 
+    PayloadDeltas payloadDeltas() {
+        return configClient.payloadDeltas();
+    }
+
 }
@@ -3,6 +3,7 @@ package com.yahoo.vespa.config.proxy;
 
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
@@ -19,14 +20,24 @@ import static com.yahoo.vespa.config.proxy.ConfigProxyRpcServer.TRACELEVEL;
 public class ResponseHandler  {
 
     private final Optional<AtomicLong> sentResponses;
+    private final PayloadDeltas payloadDeltas;
 
     public ResponseHandler() {
-        this(false);
+        this(new PayloadDeltas());
+    }
+
+    public ResponseHandler(PayloadDeltas payloadDeltas) {
+        this(payloadDeltas, false);
     }
 
     // For testing only
     ResponseHandler(boolean trackResponses) {
-        sentResponses = trackResponses ? Optional.of(new AtomicLong()) : Optional.empty();
+        this(new PayloadDeltas(), trackResponses);
+    }
+
+    private ResponseHandler(PayloadDeltas payloadDeltas, boolean trackResponses) {
+        this.payloadDeltas = payloadDeltas;
+        this.sentResponses = trackResponses ? Optional.of(new AtomicLong()) : Optional.empty();
     }
 
     private final static Logger log = Logger.getLogger(ResponseHandler.class.getName());
@@ -36,7 +47,8 @@ public class ResponseHandler  {
         request.addOkResponse(config.getPayload(),
                               config.getGeneration(),
                               config.applyOnRestart(),
-                              config.getPayloadChecksums());
+                              config.getPayloadChecksums(),
+                              payloadDeltas);
         log.log(Level.FINE, () -> "Return response: " + request.getShortDescription() + ",config checksums=" + config.getPayloadChecksums() +
                 ",generation=" + config.getGeneration() + ",applyOnRestart=" + config.applyOnRestart());
         log.log(Level.FINEST, () -> "Config payload in response for " + request.getShortDescription() + ":" + config.getPayload());
@@ -45,7 +57,7 @@ public class ResponseHandler  {
         // TODO Catch exception for now, since the request might have been returned in CheckDelayedResponse
         // TODO Move logic so that all requests are returned in CheckDelayedResponse
         try {
-            request.getRequest().returnRequest();
+            request.returnRequest();
         } catch (IllegalStateException e) {
             log.log(Level.FINE, () -> "Something bad happened when sending response for '" + request.getShortDescription() + "':" + e.getMessage());
         }
@@ -55,9 +67,12 @@ public class ResponseHandler  {
     public void returnErrorResponse(JRTServerConfigRequest request, int errorCode, String message) {
         request.getRequestTrace().trace(TRACELEVEL, "Config proxy returnErrorResponse()");
         request.addErrorResponse(errorCode, message);
-        request.getRequest().returnRequest();
+        request.returnRequest();
     }
 
     public long sentResponses() { return sentResponses.map(AtomicLong::get).orElse(0L); }
 
+    /** Returns the payloads recently sent, which later responses may be sent as deltas against */
+    public PayloadDeltas payloadDeltas() { return payloadDeltas; }
+
 }
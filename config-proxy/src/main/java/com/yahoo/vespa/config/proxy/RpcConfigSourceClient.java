@@ -16,6 +16,7 @@ import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.TimingValues;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -23,6 +24,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Executors;
@@ -62,9 +64,13 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
     private final ScheduledFuture<?> delayedResponsesFuture;
 
     RpcConfigSourceClient(ResponseHandler responseHandler, ConfigSourceSet configSourceSet) {
+        this(responseHandler, configSourceSet, new MemoryCache());
+    }
+
+    RpcConfigSourceClient(ResponseHandler responseHandler, ConfigSourceSet configSourceSet, MemoryCache memoryCache) {
         this.responseHandler = responseHandler;
         this.configSourceSet = configSourceSet;
-        this.memoryCache = new MemoryCache();
+        this.memoryCache = memoryCache;
         this.delayedResponses = new DelayedResponses();
         checkConfigSources();
         nextConfigFuture = nextConfigScheduler.scheduleAtFixedRate(this, 0, SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(10)).toMillis(), MILLISECONDS);
@@ -132,7 +138,8 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
                     return cachedConfig;
                 }
             }
-            if (!config.isError() && config.getGeneration() > 0) {
+            // Config loaded from disk when starting has no subscriber yet, which must be created to get changes
+            if (!config.isError() && config.getGeneration() > 0 && subscribers.containsKey(configCacheKey)) {
                 needToGetConfig = false;
             }
         }
@@ -159,6 +166,19 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
         }
     }
 
+    @Override
+    public void evictUnusedConfigs() {
+        Set<ConfigCacheKey> evicted = memoryCache.evict();
+        if (evicted.isEmpty()) return;
+
+        synchronized (subscribersLock) {
+            for (ConfigCacheKey key : evicted) {
+                Subscriber subscriber = subscribers.remove(key);
+                if (subscriber != null) subscriber.cancel();
+            }
+        }
+    }
+
     @Override
     public void run() {
         Collection<Subscriber> s;
@@ -203,6 +223,11 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
         requesters.close();
     }
 
+    /** Returns whether this has been shut down, and has stopped all its tasks */
+    boolean isShutdown() {
+        return nextConfigScheduler.isShutdown() && delayedResponsesScheduler.isShutdown();
+    }
+
     @Override
     public String getActiveSourceConnection() {
         return requesters.getRequester(configSourceSet, timingValues).getConnectionPool().getCurrent().getAddress();
@@ -261,6 +286,9 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
     @Override
     public MemoryCache memoryCache() { return memoryCache; }
 
+    @Override
+    public PayloadDeltas payloadDeltas() { return responseHandler.payloadDeltas(); }
+
     private void updateWithNewConfig(RawConfig newConfig) {
         log.log(Level.FINE, () -> "config to be returned for '" + newConfig.getKey() +
                                   "', generation=" + newConfig.getGeneration() +
@@ -2,10 +2,12 @@
 package com.yahoo.vespa.config.proxy.filedistribution;
 
 import com.yahoo.config.subscription.ConfigSourceSet;
+import com.yahoo.jrt.Spec;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.vespa.filedistribution.FileDistributionConnectionPool;
 import com.yahoo.vespa.filedistribution.FileDownloader;
 import java.time.Duration;
+import java.util.Optional;
 
 /**
  * Keeps track of file distribution and url download rpc servers.
@@ -18,8 +20,18 @@ public class FileDistributionAndUrlDownload {
     private final UrlDownloadRpcServer urlDownloadRpcServer;
     private final FileReferencesAndDownloadsMaintainer maintainer;
 
-    public FileDistributionAndUrlDownload(Supervisor supervisor, ConfigSourceSet source) {
-        fileDistributionRpcServer = new FileDistributionRpcServer(supervisor, createDownloader(supervisor, source));
+    // Undocumented on purpose, might change or be removed at any time
+    private static final boolean downloadFromPeers = Boolean.parseBoolean(System.getenv("VESPA_FILE_DOWNLOAD_FROM_PEERS"));
+
+    /**
+     * @param ownSpec the spec other nodes can use to connect to the given supervisor, used to download
+     *                file references from peers when enabled
+     */
+    public FileDistributionAndUrlDownload(Supervisor supervisor, ConfigSourceSet source, Optional<Spec> ownSpec) {
+        FileDownloader downloader = createDownloader(supervisor, source);
+        if (downloadFromPeers)
+            ownSpec.ifPresent(downloader::enablePeerDownloads);
+        fileDistributionRpcServer = new FileDistributionRpcServer(supervisor, downloader);
         urlDownloadRpcServer = new UrlDownloadRpcServer(supervisor);
         maintainer = new FileReferencesAndDownloadsMaintainer();
     }
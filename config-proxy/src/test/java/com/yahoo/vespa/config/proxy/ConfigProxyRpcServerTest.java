@@ -6,10 +6,12 @@ import com.yahoo.jrt.Acceptor;
 import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringArray;
 import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Target;
 import com.yahoo.jrt.Transport;
+import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.RawConfig;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -20,8 +22,10 @@ import java.io.File;
 import java.io.IOException;
 import java.time.Duration;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author hmusum
@@ -146,6 +150,22 @@ public class ConfigProxyRpcServerTest {
         assertEquals("All sources:\n" + configSourceAddress + "\n", ret[1]);
     }
 
+    /**
+     * Tests listStatistics RPC command
+     */
+    @Test
+    void testRpcMethodListStatistics() {
+        Request req = new Request("listStatistics");
+        client.invoke(req);
+
+        assertFalse(req.isError(), req.errorMessage());
+        assertEquals(1, req.returnValues().size());
+        final String[] ret = req.returnValues().get(0).asStringArray();
+        assertEquals(2, ret.length);
+        assertEquals("Delta responses: 0", ret[0]);
+        assertEquals("Delta bytes saved: 0", ret[1]);
+    }
+
     /**
      * Tests invalidateCache RPC command
      */
@@ -256,6 +276,38 @@ public class ConfigProxyRpcServerTest {
         assertEquals("success", req.returnValues().get(0).asString());
     }
 
+    /**
+     * Tests config.v3.getConfigs RPC command
+     */
+    @Test
+    void testRpcMethodGetConfigs() throws ListenFailedException {
+        reset();
+        ConfigTester tester = new ConfigTester();
+        RawConfig cached = ConfigTester.fooConfig;
+        RawConfig notCached = ConfigTester.barConfig;
+        server.proxyServer().memoryCache().update(cached);
+
+        Request req = new Request(JRTMethods.configV3getConfigsMethodName);
+        req.parameters().add(new StringArray(new String[] {
+                requestParameter(tester, notCached),
+                requestParameter(tester, cached) }));
+        client.invoke(req);
+
+        // Only the cached config is returned, and the client must ask again for the other
+        assertFalse(req.isError(), req.errorMessage());
+        assertEquals(4, req.returnValues().size());
+        assertArrayEquals(new int[] { 1 }, req.returnValues().get(0).asInt32Array());
+        assertArrayEquals(new int[] { 0 }, req.returnValues().get(1).asInt32Array());
+        assertTrue(req.returnValues().get(2).asStringArray()[0].contains("\"" + cached.getName() + "\""));
+        assertTrue(req.returnValues().get(3).asDataArray()[0].length > 0);
+        assertEquals(0, server.proxyServer().delayedResponses().size());
+    }
+
+    private static String requestParameter(ConfigTester tester, RawConfig config) {
+        return tester.createRequest(config.getName(), config.getConfigId(), config.getNamespace(), 10000)
+                     .getRequest().parameters().get(0).asString();
+    }
+
     private static ProxyServer createTestServer(ConfigSourceSet source) {
         return new ProxyServer(null, source, new RpcConfigSourceClient(new ResponseHandler(), source));
     }
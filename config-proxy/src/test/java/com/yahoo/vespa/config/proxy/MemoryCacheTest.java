@@ -10,11 +10,23 @@ import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.Payload;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -118,4 +130,74 @@ public class MemoryCacheTest {
         cache.clear();
         assertEquals(0, cache.size());
     }
+
+    @Test
+    void persisted_configs_are_loaded_when_starting(@TempDir Path directory) throws Exception {
+        MemoryCache cache = MemoryCache.persistent(directory);
+        cache.update(config);
+        cache.update(config2);
+        assertEquals(0, fileCount(directory));
+        cache.persist();
+        assertEquals(2, fileCount(directory));
+
+        MemoryCache restarted = MemoryCache.persistent(directory);
+        assertEquals(2, restarted.size());
+        assertEquals(config, restarted.get(cacheKey).orElseThrow());
+        assertEquals(config2, restarted.get(cacheKey2).orElseThrow());
+        assertEquals(payload2.toString(), restarted.get(cacheKey2).orElseThrow().getPayload().toString());
+
+        Files.write(directory.resolve("invalid"), new byte[] { 1, 2, 3 });
+        assertEquals(2, MemoryCache.persistent(directory).size());
+        assertFalse(Files.exists(directory.resolve("invalid")));
+
+        restarted.clear();
+        assertEquals(0, fileCount(directory));
+        assertEquals(0, MemoryCache.persistent(directory).size());
+    }
+
+    @Test
+    void unused_configs_are_evicted(@TempDir Path directory) throws Exception {
+        MutableClock clock = new MutableClock();
+        MemoryCache cache = new MemoryCache(Optional.of(directory), Duration.ofHours(1), Long.MAX_VALUE, clock);
+        cache.update(config);
+        cache.update(config2);
+        cache.persist();
+
+        clock.advance(Duration.ofMinutes(40));
+        cache.get(cacheKey);
+        assertEquals(Set.of(), cache.evict());
+
+        clock.advance(Duration.ofMinutes(40));
+        assertEquals(Set.of(cacheKey2), cache.evict());
+        assertEquals(1, cache.size());
+        cache.persist();
+        assertEquals(1, fileCount(directory));
+
+        long size = config.getPayload().getData().getByteLength();
+        MemoryCache bounded = new MemoryCache(Optional.empty(), Duration.ofHours(1), 2 * size - 1, clock);
+        bounded.update(config);
+        clock.advance(Duration.ofMinutes(1));
+        bounded.update(configDifferentMd5);
+        assertEquals(Set.of(cacheKey), bounded.evict());
+        assertTrue(bounded.containsKey(cacheKeyDifferentMd5));
+    }
+
+    private static long fileCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    static class MutableClock extends Clock {
+
+        private Instant instant = Instant.EPOCH;
+
+        void advance(Duration duration) { instant = instant.plus(duration); }
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return instant; }
+
+    }
+
 }
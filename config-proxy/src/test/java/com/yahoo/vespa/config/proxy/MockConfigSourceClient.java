@@ -4,6 +4,7 @@ package com.yahoo.vespa.config.proxy;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,10 +18,15 @@ public class MockConfigSourceClient implements ConfigSourceClient{
     private final MockConfigSource configSource;
     private final MemoryCache memoryCache;
     private final DelayedResponses delayedResponses = new DelayedResponses();
+    private final PayloadDeltas payloadDeltas = new PayloadDeltas();
 
     MockConfigSourceClient(MockConfigSource configSource) {
+        this(configSource, new MemoryCache());
+    }
+
+    MockConfigSourceClient(MockConfigSource configSource, MemoryCache memoryCache) {
         this.configSource = configSource;
-        this.memoryCache = new MemoryCache();
+        this.memoryCache = memoryCache;
     }
 
     @Override
@@ -43,6 +49,11 @@ public class MockConfigSourceClient implements ConfigSourceClient{
     public void shutdownSourceConnections() {
     }
 
+    @Override
+    public void evictUnusedConfigs() {
+        memoryCache.evict();
+    }
+
     @Override
     public String getActiveSourceConnection() {
         return "N/A";
@@ -59,4 +70,7 @@ public class MockConfigSourceClient implements ConfigSourceClient{
     @Override
     public MemoryCache memoryCache() { return memoryCache; }
 
+    @Override
+    public PayloadDeltas payloadDeltas() { return payloadDeltas; }
+
 }
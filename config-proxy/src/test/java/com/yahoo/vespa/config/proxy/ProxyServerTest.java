@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -100,6 +101,30 @@ public class ProxyServerTest {
         proxy.stop();
     }
 
+    @Test
+    void unused_configs_are_evicted_only_in_default_mode() {
+        MemoryCacheTest.MutableClock clock = new MemoryCacheTest.MutableClock();
+        MemoryCache cache = new MemoryCache(Optional.empty(), Duration.ofHours(1), Long.MAX_VALUE, clock);
+        ProxyServer proxy = createTestServer(source, new MockConfigSourceClient(source, cache));
+        cache.update(fooConfig);
+        clock.advance(Duration.ofHours(2));
+
+        proxy.setMode("memorycache");
+        proxy.evictUnusedConfigs();
+        assertEquals(1, proxy.memoryCache().size());
+
+        proxy.setMode("default");
+        RpcConfigSourceClient rpcClient = (RpcConfigSourceClient) proxy.configClient();
+        proxy.memoryCache().update(fooConfig);
+        clock.advance(Duration.ofHours(2));
+        proxy.evictUnusedConfigs();
+        assertEquals(0, proxy.memoryCache().size());
+
+        proxy.setMode("memorycache");
+        assertTrue(rpcClient.isShutdown(), "Tasks of the client for the previous mode are stopped");
+        proxy.stop();
+    }
+
     /**
      * Verifies that config is retrieved from the real server when it is not found in the cache,
      * that the cache is populated with the config and that the entry in the cache is used
@@ -14,6 +14,7 @@ const Method methods[] = {
     { "cachefull", "listCachedConfigFull", 0 },
     { "sources", "listSourceConnections", 0 },
     { "setmode", "setMode", 1 }, // { default | memorycache }
+    { "statistics", "listStatistics", 0 },
     { "updatesources", "updateSources", 1 },
     { 0, 0, 0}
 };
@@ -0,0 +1,166 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.config.subscription.impl;
+
+import com.yahoo.jrt.DataValue;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.jrt.StringArray;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.vespa.config.Connection;
+import com.yahoo.vespa.config.ConnectionPool;
+import com.yahoo.vespa.config.JRTMethods;
+import com.yahoo.vespa.config.util.ConfigUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static com.yahoo.jrt.ErrorCode.NO_SUCH_METHOD;
+import static com.yahoo.jrt.ErrorCode.WRONG_RETURN;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.INFO;
+
+/**
+ * Sends the config requests of all subscriptions in this process to the same config sources as one
+ * {@link JRTMethods#configV3getConfigsMethodName} request, instead of one long-polling request per subscription.
+ * The response to each request in a batch is handled by its {@link JRTConfigRequester} as if it was sent alone,
+ * so checksums and generations are still tracked per config.
+ *
+ * Requests which are due within a short time of each other are sent in the same batch, so the requests in a
+ * batch, which are rescheduled with slightly different delays, stay in the same batch.
+ * If the config source does not support batched requests, requests are sent one by one, as before.
+ */
+class JRTConfigRequestBatcher implements RequestWaiter {
+
+    private static final Logger log = Logger.getLogger(JRTConfigRequestBatcher.class.getName());
+    private static final String VESPA_CONFIG_BATCH_REQUESTS = "VESPA_CONFIG_BATCH_REQUESTS";
+    /** Requests due within this time after the first are sent together with it */
+    private static final Duration batchWindow = Duration.ofSeconds(2);
+
+    private final ConnectionPool connectionPool;
+    private final ScheduledExecutorService scheduler;
+    private final List<Part> pending = new ArrayList<>();
+    private ScheduledFuture<?> nextFlush = null;
+    private Instant nextFlushTime = Instant.MAX;
+    private volatile boolean enabled = true;
+
+    JRTConfigRequestBatcher(ConnectionPool connectionPool, ScheduledExecutorService scheduler) {
+        this.connectionPool = connectionPool;
+        this.scheduler = scheduler;
+    }
+
+    /** Returns whether batched requests are enabled for this process, which is off by default */
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigUtils.getEnvValue("false",
+                                                            System.getenv(VESPA_CONFIG_BATCH_REQUESTS),
+                                                            System.getProperty(VESPA_CONFIG_BATCH_REQUESTS)));
+    }
+
+    /** Returns whether requests should be sent to this, which is false if the config source does not support batches */
+    boolean enabled() { return enabled; }
+
+    /**
+     * Adds a config request to be sent in a batch after the given delay. When there is a response to it,
+     * the request is passed to {@link JRTConfigRequester#handleRequestDone(Request)} of the given requester.
+     *
+     * @param request the config request, with its context set by the requester
+     * @param requester the requester to hand the response to
+     * @param timeout the client timeout of the request
+     * @param delay the delay before sending the request, in milliseconds
+     */
+    synchronized void add(Request request, JRTConfigRequester requester, Duration timeout, long delay) {
+        Part part = new Part(request, requester, timeout, Instant.now().plusMillis(Math.max(0, delay)));
+        pending.add(part);
+        if (part.due().isBefore(nextFlushTime)) {
+            if (nextFlush != null) nextFlush.cancel(false);
+            nextFlushTime = part.due();
+            nextFlush = scheduler.schedule(this::flush, Duration.between(Instant.now(), nextFlushTime).toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        List<Part> batch = new ArrayList<>();
+        synchronized (this) {
+            Instant end = Instant.now().plus(batchWindow);
+            pending.removeIf(part -> part.due().isBefore(end) && batch.add(part));
+            nextFlush = null;
+            nextFlushTime = Instant.MAX;
+            pending.stream().map(Part::due).min(Comparator.naturalOrder()).ifPresent(due -> {
+                nextFlushTime = due;
+                nextFlush = scheduler.schedule(this::flush, Duration.between(Instant.now(), due).toMillis(), TimeUnit.MILLISECONDS);
+            });
+        }
+        if (batch.isEmpty()) return;
+
+        if ( ! enabled) {
+            batch.forEach(this::sendAlone);
+            return;
+        }
+        Request request = new Request(JRTMethods.configV3getConfigsMethodName);
+        request.parameters().add(new StringArray(batch.stream()
+                                                      .map(part -> part.request().parameters().get(0).asString())
+                                                      .toArray(String[]::new)));
+        request.setContext(batch);
+        Duration timeout = batch.stream().map(Part::timeout).max(Comparator.naturalOrder()).get();
+        Connection connection = connectionPool.getCurrent();
+        log.log(FINE, () -> "Requesting " + batch.size() + " configs on connection " + connection + " with client timeout " + timeout);
+        connection.invokeAsync(request, timeout, this);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void handleRequestDone(Request request) {
+        List<Part> batch = (List<Part>) request.getContext();
+        if (request.errorCode() == NO_SUCH_METHOD) {
+            log.log(INFO, "Config source does not support batched config requests, sending requests one by one");
+            enabled = false;
+            batch.forEach(this::sendAlone);
+            return;
+        }
+        if ( ! request.isError() && ! JRTMethods.checkV3BatchReturnTypes(request))
+            request.setError(WRONG_RETURN, "Invalid return types for batched config response: " + request.returnValues());
+        if (request.isError()) {
+            for (Part part : batch) {
+                part.request().setError(request.errorCode(), request.errorMessage());
+                part.requester().handleRequestDone(part.request());
+            }
+            return;
+        }
+
+        int[] indexes = request.returnValues().get(0).asInt32Array();
+        int[] errorCodes = request.returnValues().get(1).asInt32Array();
+        String[] responses = request.returnValues().get(2).asStringArray();
+        byte[][] payloads = request.returnValues().get(3).asDataArray();
+        boolean[] answered = new boolean[batch.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            if (indexes[i] < 0 || indexes[i] >= batch.size() || answered[indexes[i]]) continue;
+
+            answered[indexes[i]] = true;
+            Part part = batch.get(indexes[i]);
+            if (errorCodes[i] != 0)
+                part.request().setError(errorCodes[i], responses[i]);
+            else
+                part.request().returnValues().add(new StringValue(responses[i])).add(new DataValue(payloads[i]));
+            part.requester().handleRequestDone(part.request());
+        }
+        // Requests without a response have not changed, and are sent again along with the others
+        for (int i = 0; i < batch.size(); i++)
+            if ( ! answered[i])
+                batch.get(i).requester().requestAgain(batch.get(i).request());
+    }
+
+    private void sendAlone(Part part) {
+        connectionPool.getCurrent().invokeAsync(part.request(), part.timeout(), part.requester());
+    }
+
+    synchronized int pending() { return pending.size(); }
+
+    private record Part(Request request, JRTConfigRequester requester, Duration timeout, Instant due) { }
+
+}
@@ -18,6 +18,7 @@ import com.yahoo.vespa.config.protocol.Trace;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -53,6 +54,7 @@ public class JRTConfigRequester implements RequestWaiter {
 
     private final ConnectionPool connectionPool;
     private final ConfigSourceSet configSourceSet;
+    private final Optional<JRTConfigRequestBatcher> batcher;
 
     private Instant timeForLastLogWarning;
     private int failures = 0;
@@ -63,13 +65,15 @@ public class JRTConfigRequester implements RequestWaiter {
      *
      * @param connectionPool the connectionPool this requester should use
      * @param timingValues   timeouts and delays used when sending JRT config requests
+     * @param batcher        the batcher to send requests with, or empty to send each request by itself
      */
     JRTConfigRequester(ConfigSourceSet configSourceSet, ScheduledThreadPoolExecutor scheduler,
-                       ConnectionPool connectionPool, TimingValues timingValues) {
+                       ConnectionPool connectionPool, TimingValues timingValues, Optional<JRTConfigRequestBatcher> batcher) {
         this.configSourceSet = configSourceSet;
         this.scheduler = scheduler;
         this.connectionPool = connectionPool;
         this.timingValues = timingValues;
+        this.batcher = batcher;
         // Adjust so that we wait 5 seconds with logging warning in case there are some errors just when starting up
         timeForLastLogWarning = Instant.now().minus(delayBetweenWarnings).plus(Duration.ofSeconds(5));
     }
@@ -78,7 +82,7 @@ public class JRTConfigRequester implements RequestWaiter {
      * Only for testing
      */
     public JRTConfigRequester(ConnectionPool connectionPool, TimingValues timingValues) {
-        this(null, new ScheduledThreadPoolExecutor(1), connectionPool, timingValues);
+        this(null, new ScheduledThreadPoolExecutor(1), connectionPool, timingValues, Optional.empty());
     }
 
     public static JRTConfigRequester create(ConfigSourceSet sourceSet, TimingValues timingValues) {
@@ -97,6 +101,10 @@ public class JRTConfigRequester implements RequestWaiter {
     }
 
     private <T extends ConfigInstance> void doRequest(JRTConfigSubscription<T> sub, JRTClientConfigRequest req) {
+        doRequest(sub, req, 0);
+    }
+
+    private <T extends ConfigInstance> void doRequest(JRTConfigSubscription<T> sub, JRTClientConfigRequest req, long delay) {
         Connection connection = connectionPool.getCurrent();
         Request request = req.getRequest();
         request.setContext(new RequestContext(sub, req, connection));
@@ -104,12 +112,25 @@ public class JRTConfigRequester implements RequestWaiter {
             throw new ConfigurationRuntimeException("Error in parameters for config request: " + req);
 
         Duration jrtClientTimeout = getClientTimeout(req);
+        if (batcher.isPresent() && batcher.get().enabled()) {
+            log.log(FINE, () -> "Adding request for config for " + sub + " to batch, to be sent in " + delay + " ms");
+            batcher.get().add(request, this, jrtClientTimeout, delay);
+            return;
+        }
         log.log(FINE, () -> "Requesting config for " + sub + " on connection " + connection
                 + " with client timeout " + jrtClientTimeout +
                 (log.isLoggable(FINEST) ? (",defcontent=" + req.getDefContent().asString()) : ""));
         connection.invokeAsync(request, jrtClientTimeout, this);
     }
 
+    /** Sends the given request, which had no response in its batch, again with the next batch */
+    void requestAgain(Request request) {
+        RequestContext context = (RequestContext) request.getContext();
+        if (context.sub.isClosed()) return;
+
+        batcher.ifPresent(batcher -> batcher.add(request, this, getClientTimeout(context.jrtReq), calculateSuccessDelay()));
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void handleRequestDone(Request req) {
@@ -133,10 +154,19 @@ public class JRTConfigRequester implements RequestWaiter {
         log.log(FINEST, trace::toString);
         if (validResponse)
             handleOKRequest(jrtReq, sub);
+        else if (jrtReq.deltaFailed())
+            handleFailedDelta(jrtReq, sub);
         else
             handleFailedRequest(jrtReq, sub, connection);
     }
 
+    // The server responded fine, so request the full config right away, from the same server
+    private void handleFailedDelta(JRTClientConfigRequest jrtReq, JRTConfigSubscription<ConfigInstance> sub) {
+        log.log(FINE, () -> "Could not apply config delta in response to " + jrtReq.getShortDescription() +
+                            ", requesting full config");
+        scheduleNextRequest(jrtReq, sub, 0, calculateSuccessTimeout());
+    }
+
     private void logFailingRequest(JRTClientConfigRequest jrtReq, Connection connection) {
         if (closed) return;
 
@@ -210,7 +240,7 @@ public class JRTConfigRequester implements RequestWaiter {
         return timingValues.getPlusMinusFractionRandom(timingValues.getSuccessTimeout(), randomFraction);
     }
 
-    private long calculateSuccessDelay() {
+    long calculateSuccessDelay() {
         return timingValues.getPlusMinusFractionRandom(timingValues.getFixedDelay(), randomFraction);
     }
 
@@ -219,7 +249,10 @@ public class JRTConfigRequester implements RequestWaiter {
         JRTClientConfigRequest jrtReqNew = jrtReq.nextRequest(timeout);
         log.log(FINEST, timingValues::toString);
         log.log(FINE, () -> "Scheduling new request " + delayBeforeSendingRequest + " millis from now for " + jrtReqNew.getConfigKey());
-        scheduler.schedule(new GetConfigTask(jrtReqNew, sub), delayBeforeSendingRequest, TimeUnit.MILLISECONDS);
+        if (batcher.isPresent() && batcher.get().enabled())
+            doRequest(sub, jrtReqNew, delayBeforeSendingRequest);
+        else
+            scheduler.schedule(new GetConfigTask(jrtReqNew, sub), delayBeforeSendingRequest, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -7,6 +7,7 @@ import com.yahoo.vespa.config.TimingValues;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -24,12 +25,16 @@ public class JRTManagedConnectionPools {
     private static class CountedPool {
         final JRTConnectionPool pool;
         final ScheduledThreadPoolExecutor scheduler;
+        final Optional<JRTConfigRequestBatcher> batcher;
         long count;
         CountedPool(JRTConnectionPool requester) {
             pool = requester;
             scheduler = new ScheduledThreadPoolExecutor(1, new JRTSourceThreadFactory());
             count = 0;
             scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            // All subscriptions to the same sources in this process share one batcher
+            batcher = JRTConfigRequestBatcher.isEnabled() ? Optional.of(new JRTConfigRequestBatcher(pool, scheduler))
+                                                          : Optional.empty();
         }
     }
 
@@ -45,7 +50,7 @@ public class JRTManagedConnectionPools {
             }
             countedPool.count++;
         }
-        return new JRTConfigRequester(sourceSet, countedPool.scheduler, countedPool.pool, timingValues);
+        return new JRTConfigRequester(sourceSet, countedPool.scheduler, countedPool.pool, timingValues, countedPool.batcher);
     }
 
     public synchronized void release(ConfigSourceSet sourceSet) {
@@ -13,6 +13,9 @@ public class JRTMethods {
     public static final String configV3getConfigMethodName = "config.v3.getConfig";
     private static final String configV3GetConfigRequestTypes = "s";
     private static final String configV3GetConfigResponseTypes = "sx";
+    public static final String configV3getConfigsMethodName = "config.v3.getConfigs";
+    private static final String configV3GetConfigsRequestTypes = "S";
+    private static final String configV3GetConfigsResponseTypes = "IISX";
 
     public static Method createConfigV3GetConfigMethod(MethodHandler methodHandler) {
         return addDescriptions(
@@ -26,7 +29,27 @@ public class JRTMethods {
                 .returnDesc(1, "payload", "config response payload");
     }
 
+    /**
+     * Creates the method for getting several configs in one request. The request contains the parameters of a
+     * {@link #configV3getConfigMethodName} request for each config, and is returned when there is a response to at
+     * least one of them. The response contains the index in the request, the error code, and the response (or error
+     * message) and payload, of each of the requests which have a response.
+     */
+    public static Method createConfigV3GetConfigsMethod(MethodHandler methodHandler) {
+        return new Method(configV3getConfigsMethodName, configV3GetConfigsRequestTypes, configV3GetConfigsResponseTypes, methodHandler)
+                .methodDesc("get several configs v3")
+                .paramDesc(0, "requests", "config requests")
+                .returnDesc(0, "indexes", "index of each request which has a response")
+                .returnDesc(1, "error codes", "error code of each response, 0 if OK")
+                .returnDesc(2, "responses", "config response of each request, or error message")
+                .returnDesc(3, "payloads", "config response payload of each request");
+    }
+
     public static boolean checkV3ReturnTypes(Request request) {
         return request.checkReturnTypes(JRTMethods.configV3GetConfigResponseTypes);
     }
+
+    public static boolean checkV3BatchReturnTypes(Request request) {
+        return request.checkReturnTypes(JRTMethods.configV3GetConfigsResponseTypes);
+    }
 }
@@ -17,6 +17,12 @@ public interface JRTClientConfigRequest extends JRTConfigRequest {
      */
     boolean validateResponse();
 
+    /**
+     * Returns whether the response was a delta which could not be applied to the payload held by the client.
+     * The {@link #nextRequest(long) next request} then asks for the full payload.
+     */
+    default boolean deltaFailed() { return false; }
+
     /**
      * Test whether ot not the returned config has an updated generation. This should return false if no response have
      * been given.
@@ -40,6 +40,9 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
     protected final SlimeRequestData requestData;
     protected final Request request;
     private final SlimeResponseData responseData;
+    private final Optional<Payload> basePayload;
+    private Payload newPayload = null;
+    private boolean deltaFailed = false;
 
     protected JRTClientConfigRequestV3(ConfigKey<?> key,
                                        String hostname,
@@ -49,7 +52,8 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                        long timeout,
                                        Trace trace,
                                        CompressionType compressionType,
-                                       Optional<VespaVersion> vespaVersion) {
+                                       Optional<VespaVersion> vespaVersion,
+                                       Optional<Payload> basePayload) {
         Slime data = SlimeRequestData.encodeRequest(key,
                                                     hostname,
                                                     defSchema,
@@ -59,13 +63,15 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                                     trace,
                                                     getProtocolVersion(),
                                                     compressionType,
-                                                    vespaVersion);
+                                                    vespaVersion,
+                                                    basePayload.isPresent());
         Request jrtReq = new Request(getJRTMethodName());
         jrtReq.parameters().add(new StringValue(encodeAsUtf8String(data)));
 
         this.requestData = new SlimeRequestData(jrtReq, data);
         this.responseData = new SlimeResponseData(jrtReq);
         this.request = jrtReq;
+        this.basePayload = basePayload;
     }
 
     protected static String encodeAsUtf8String(Slime data) {
@@ -86,11 +92,33 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
         return JRTMethods.checkV3ReturnTypes(request);
     }
 
+    /**
+     * Returns the payload in the response. If this is a delta against the payload held by the client,
+     * the full payload is returned, uncompressed.
+     *
+     * @throws IllegalArgumentException if the response is a delta which could not be applied
+     */
     @Override
     public Payload getNewPayload() {
-        CompressionInfo compressionInfo = getResponseData().getCompressionInfo();
-        Utf8Array payload = new Utf8Array(request.returnValues().get(1).asData());
-        return Payload.from(payload, compressionInfo);
+        if (newPayload == null) {
+            CompressionInfo compressionInfo = getResponseData().getCompressionInfo();
+            Utf8Array payload = new Utf8Array(request.returnValues().get(1).asData());
+            Optional<PayloadChecksum> deltaBase = getResponseData().getDeltaBase();
+            newPayload = deltaBase.isPresent() ? applyDelta(deltaBase.get(), Payload.from(payload, compressionInfo))
+                                               : Payload.from(payload, compressionInfo);
+        }
+        return newPayload;
+    }
+
+    private Payload applyDelta(PayloadChecksum deltaBase, Payload delta) {
+        if (basePayload.isEmpty() || ! deltaBase.equals(getRequestConfigChecksums().getForType(XXHASH64)))
+            throw new IllegalArgumentException("Got a delta against payload " + deltaBase + ", which is not held by " + this);
+        byte[] data = PayloadDelta.apply(PayloadDeltas.bytes(basePayload.get()), PayloadDeltas.bytes(delta));
+        Payload payload = Payload.from(new Utf8Array(data), CompressionInfo.create(CompressionType.UNCOMPRESSED, data.length));
+        PayloadChecksum expected = getNewChecksums().getForType(XXHASH64);
+        if (expected == null || ! expected.equals(PayloadChecksum.fromPayload(payload, XXHASH64)))
+            throw new IllegalArgumentException("Payload from delta does not match checksum " + expected);
+        return payload;
     }
 
     @Override
@@ -100,15 +128,29 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
 
     @Override
     public JRTClientConfigRequest nextRequest(long timeout) {
+        boolean failed = isError() || deltaFailed;
         return new JRTClientConfigRequestV3(getConfigKey(),
                 getClientHostName(),
                 getDefContent(),
-                isError() ? getRequestConfigChecksums() : newConfigChecksums(),
-                isError() ? getRequestGeneration() : newGen(),
+                failed ? getRequestConfigChecksums() : newConfigChecksums(),
+                failed ? getRequestGeneration() : newGen(),
                 timeout,
                 Trace.createNew(),
                 requestData.getCompressionType(),
-                requestData.getVespaVersion());
+                requestData.getVespaVersion(),
+                deltaFailed ? Optional.empty() : failed ? basePayload : nextBasePayload());
+    }
+
+    /** Returns the payload to hold as base for deltas after this response, if it is large enough for deltas to matter */
+    private Optional<Payload> nextBasePayload() {
+        if (getNewChecksums().isEmpty() || request.returnValues().size() < 2) return basePayload;
+        return deltaBasePayload(getNewPayload(), getNewChecksums());
+    }
+
+    private static Optional<Payload> deltaBasePayload(Payload payload, PayloadChecksums checksums) {
+        if (checksums.getForType(XXHASH64) == null || checksums.getForType(XXHASH64).isEmpty()) return Optional.empty();
+        Payload uncompressed = payload.withCompression(CompressionType.UNCOMPRESSED);
+        return uncompressed.getData().getByteLength() >= PayloadDeltas.MIN_PAYLOAD_SIZE ? Optional.of(uncompressed) : Optional.empty();
     }
 
     public static <T extends ConfigInstance> JRTClientConfigRequest createFromSub(JRTConfigSubscription<T> sub,
@@ -133,15 +175,17 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                                        CompressionType compressionType,
                                                        Optional<VespaVersion> vespaVersion) {
         String hostname = ConfigUtils.getCanonicalHostName();
-        return createWithParams(config.getKey(),
-                                DefContent.fromList(config.getDefContent()),
-                                hostname,
-                                config.getPayloadChecksums(),
-                                config.getGeneration(),
-                                serverTimeout,
-                                trace,
-                                compressionType,
-                                vespaVersion);
+        return new JRTClientConfigRequestV3(config.getKey(),
+                                            hostname,
+                                            DefContent.fromList(config.getDefContent()),
+                                            config.getPayloadChecksums(),
+                                            config.getGeneration(),
+                                            serverTimeout,
+                                            trace,
+                                            compressionType,
+                                            vespaVersion,
+                                            config.getPayload() == null ? Optional.empty()
+                                                                        : deltaBasePayload(config.getPayload(), config.getPayloadChecksums()));
     }
 
     public static JRTClientConfigRequest createWithParams(ConfigKey<?> reqKey,
@@ -161,7 +205,8 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                             serverTimeout,
                                             trace,
                                             compressionType,
-                                            vespaVersion);
+                                            vespaVersion,
+                                            Optional.empty());
     }
 
     @Override
@@ -290,10 +335,23 @@ public final class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
         } else if (!checkReturnTypes(request)) {
             log.warning("Invalid return types for config response: " + errorMessage());
             return false;
+        } else if (getResponseData().getDeltaBase().isPresent()) {
+            try {
+                getNewPayload();
+            } catch (IllegalArgumentException e) {
+                log.log(Level.FINE, () -> "Could not apply config delta, will request full config: " + e.getMessage());
+                deltaFailed = true;
+                return false;
+            }
         }
         return true;
     }
 
+    @Override
+    public boolean deltaFailed() {
+        return deltaFailed;
+    }
+
     @Override
     public boolean validateParameters() {
         int errorCode = RequestValidation.validateRequest(this);
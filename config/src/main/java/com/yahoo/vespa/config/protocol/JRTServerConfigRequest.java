@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.config.protocol;
 
+import com.yahoo.jrt.Target;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.GetConfigRequest;
 
@@ -39,6 +40,17 @@ public interface JRTServerConfigRequest extends JRTConfigRequest, GetConfigReque
      */
     void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums payloadChecksums);
 
+    /**
+     * As {@link #addOkResponse(Payload, long, boolean, PayloadChecksums)}, but sends the payload as a delta
+     * against the payload the client holds, if the client accepts that, and the given deltas has it.
+     *
+     * @param deltas the recently served payloads to make deltas against, which the given payload is added to
+     */
+    default void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums payloadChecksums,
+                               PayloadDeltas deltas) {
+        addOkResponse(payload, generation, applyOnRestart, payloadChecksums);
+    }
+
     /**
      * Returns the md5 of the config definition in the request.
      *
@@ -86,4 +98,17 @@ public interface JRTServerConfigRequest extends JRTConfigRequest, GetConfigReque
      */
     PayloadChecksums configPayloadChecksums();
 
+    /**
+     * Returns this request, with the response added to it, to the client. Requests which are part of a batch
+     * are returned with their batch.
+     */
+    default void returnRequest() {
+        getRequest().returnRequest();
+    }
+
+    /** Returns the target (connection) this request was received on. */
+    default Target target() {
+        return getRequest().target();
+    }
+
 }
@@ -10,6 +10,7 @@ import com.yahoo.jrt.Value;
 import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ErrorCode;
+import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
 
 import java.io.ByteArrayOutputStream;
@@ -27,6 +28,9 @@ import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
  * * A metadata field containing json data describing config generation, md5 and compression info
  * * A data field containing compressed or uncompressed json config payload
  *
+ * A client holding a payload may set acceptDelta in its request, and the data field may then instead contain a
+ * {@link PayloadDelta} against that payload, which is signalled by a deltaBaseXxhash64 field in the metadata.
+ *
  * The implementation of addOkResponse is optimized for doing as little copying of payload data as possible, ensuring
  * that we get a lower memory footprint.
  *
@@ -71,6 +75,29 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
 
     @Override
     public void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums checksums) {
+        addOkResponse(payload, generation, applyOnRestart, checksums, Optional.empty());
+    }
+
+    @Override
+    public void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums checksums,
+                              PayloadDeltas deltas) {
+        PayloadChecksum base = getRequestConfigChecksums().getForType(XXHASH64);
+        PayloadChecksum target = checksums.getForType(XXHASH64);
+        if (requestData.getAcceptDelta()) {
+            Optional<Payload> delta = deltas.delta(base, target, payload);
+            if (delta.isPresent()) {
+                addOkResponse(delta.get(), generation, applyOnRestart, checksums, Optional.of(base));
+                return;
+            }
+        }
+        else {
+            deltas.record(target, payload);
+        }
+        addOkResponse(payload, generation, applyOnRestart, checksums, Optional.empty());
+    }
+
+    private void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums checksums,
+                               Optional<PayloadChecksum> deltaBase) {
         this.applyOnRestart = applyOnRestart;
         Payload responsePayload = payload.withCompression(getCompressionType());
         if (responsePayload == null)
@@ -88,6 +115,8 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
             jsonGenerator.writeObjectFieldStart(SlimeResponseData.RESPONSE_COMPRESSION_INFO);
             responsePayload.getCompressionInfo().serialize(jsonGenerator);
             jsonGenerator.writeEndObject();
+            if (deltaBase.isPresent())
+                setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_DELTA_BASE_XXHASH64, deltaBase.get().asString());
 
             jsonGenerator.writeEndObject();
             jsonGenerator.close();
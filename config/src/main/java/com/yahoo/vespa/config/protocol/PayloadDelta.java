@@ -0,0 +1,215 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import java.util.Arrays;
+
+/**
+ * Binary deltas between two config payloads, as a sequence of instructions to either copy a range of the
+ * base payload, or insert literal bytes. Copies are found by looking up hashes of the bytes of the target
+ * in an index of the blocks of the base, like rsync does, so content which has moved is copied as well.
+ *
+ * The encoding is the size of the target, followed by the instructions: 0, offset and length for a copy,
+ * and 1, length and the bytes for an insert, with all numbers as unsigned variable length integers.
+ */
+final class PayloadDelta {
+
+    private static final int BLOCK_SIZE = 32;
+    private static final int MULTIPLIER = 31;
+    private static final byte COPY = 0;
+    private static final byte INSERT = 1;
+
+    private PayloadDelta() { }
+
+    /** Returns a delta which leaves a base of the given size unchanged when applied */
+    static byte[] unchanged(int size) {
+        Output out = new Output(16);
+        out.writeVarLong(size);
+        out.writeCopy(0, size);
+        return out.toByteArray();
+    }
+
+    /** Returns a delta which turns the given base into the given target when applied */
+    static byte[] create(byte[] base, byte[] target) {
+        Output out = new Output(Math.max(16, target.length / 8));
+        out.writeVarLong(target.length);
+        int[] index = index(base);
+        int mask = index.length - 1;
+        int literalStart = 0;
+        int pos = 0;
+        int hash = target.length >= BLOCK_SIZE ? hash(target, 0) : 0;
+        int outFactor = power();
+        while (pos + BLOCK_SIZE <= target.length) {
+            int candidate = index.length > 0 ? index[hash & mask] - 1 : -1;
+            if (candidate >= 0 && Arrays.equals(base, candidate, candidate + BLOCK_SIZE, target, pos, pos + BLOCK_SIZE)) {
+                int start = pos;
+                while (start > literalStart && candidate > 0 && base[candidate - 1] == target[start - 1]) {
+                    start--;
+                    candidate--;
+                }
+                int length = pos - start + BLOCK_SIZE;
+                int mismatch = Arrays.mismatch(base, candidate + length, base.length, target, start + length, target.length);
+                length += mismatch < 0 ? Math.min(base.length - candidate - length, target.length - start - length) : mismatch;
+                out.writeInsert(target, literalStart, start);
+                out.writeCopy(candidate, length);
+                pos = literalStart = start + length;
+                if (pos + BLOCK_SIZE <= target.length)
+                    hash = hash(target, pos);
+            }
+            else {
+                if (pos + BLOCK_SIZE < target.length)
+                    hash = (hash - target[pos] * outFactor) * MULTIPLIER + target[pos + BLOCK_SIZE];
+                pos++;
+            }
+        }
+        out.writeInsert(target, literalStart, target.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the target produced by applying the given delta to the given base.
+     *
+     * @throws IllegalArgumentException if the delta is malformed, or does not fit the given base
+     */
+    static byte[] apply(byte[] base, byte[] delta) {
+        Input in = new Input(delta);
+        long size = in.readVarLong();
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Delta target size " + size + " is too large");
+        byte[] target = new byte[(int) size];
+        int pos = 0;
+        while (in.hasMore()) {
+            byte op = in.readByte();
+            if (op == COPY) {
+                long offset = in.readVarLong();
+                int length = in.readLength(target.length - pos);
+                if (offset + length > base.length)
+                    throw new IllegalArgumentException("Delta copies outside base of size " + base.length);
+                System.arraycopy(base, (int) offset, target, pos, length);
+                pos += length;
+            }
+            else if (op == INSERT) {
+                int length = in.readLength(target.length - pos);
+                in.readBytes(target, pos, length);
+                pos += length;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown delta instruction " + op);
+            }
+        }
+        if (pos != target.length)
+            throw new IllegalArgumentException("Delta produced " + pos + " bytes, but should produce " + target.length);
+        return target;
+    }
+
+    /** Returns a hash table of the positions, plus one, of the whole blocks of the given data, by block hash */
+    private static int[] index(byte[] data) {
+        int blocks = data.length / BLOCK_SIZE;
+        if (blocks == 0) return new int[0];
+        int[] index = new int[Integer.highestOneBit(blocks) << 2];
+        int mask = index.length - 1;
+        for (int block = blocks - 1; block >= 0; block--) // Let earlier blocks win on collisions
+            index[hash(data, block * BLOCK_SIZE) & mask] = block * BLOCK_SIZE + 1;
+        return index;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++)
+            hash = hash * MULTIPLIER + data[i];
+        return hash;
+    }
+
+    /** Returns the factor of the byte leaving the hash window when rolling it one byte */
+    private static int power() {
+        int power = 1;
+        for (int i = 1; i < BLOCK_SIZE; i++)
+            power *= MULTIPLIER;
+        return power;
+    }
+
+    private static class Output {
+
+        private byte[] buffer;
+        private int size = 0;
+
+        Output(int capacity) { buffer = new byte[capacity]; }
+
+        void writeCopy(int offset, int length) {
+            writeByte(COPY);
+            writeVarLong(offset);
+            writeVarLong(length);
+        }
+
+        void writeInsert(byte[] data, int from, int to) {
+            if (from == to) return;
+            writeByte(INSERT);
+            writeVarLong(to - from);
+            ensureCapacity(to - from);
+            System.arraycopy(data, from, buffer, size, to - from);
+            size += to - from;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7fL) != 0) {
+                writeByte((byte) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((byte) value);
+        }
+
+        void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[size++] = value;
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (size + bytes > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+        }
+
+        byte[] toByteArray() { return Arrays.copyOf(buffer, size); }
+
+    }
+
+    private static class Input {
+
+        private final byte[] data;
+        private int pos = 0;
+
+        Input(byte[] data) { this.data = data; }
+
+        boolean hasMore() { return pos < data.length; }
+
+        byte readByte() {
+            if (pos >= data.length)
+                throw new IllegalArgumentException("Delta ends prematurely");
+            return data[pos++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed number in delta");
+        }
+
+        int readLength(int max) {
+            long length = readVarLong();
+            if (length > max)
+                throw new IllegalArgumentException("Delta instruction of length " + length + " exceeds the target size");
+            return (int) length;
+        }
+
+        void readBytes(byte[] target, int offset, int length) {
+            if (length > data.length - pos)
+                throw new IllegalArgumentException("Delta ends prematurely");
+            System.arraycopy(data, pos, target, offset, length);
+            pos += length;
+        }
+
+    }
+
+}
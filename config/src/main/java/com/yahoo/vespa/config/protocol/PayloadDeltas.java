@@ -0,0 +1,162 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.PayloadChecksum;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
+
+/**
+ * Keeps the recently served config payloads, by checksum, so a config response to a client holding one of
+ * these may be sent as a delta against it, instead of as the full payload. Deltas are cached, as many
+ * clients will typically ask for the same change. Only payloads of at least {@link #MIN_PAYLOAD_SIZE} are
+ * considered, and deltas are only used when they are less than half the size of the full payload.
+ * <p>
+ * This is thread safe.
+ */
+public class PayloadDeltas {
+
+    /** Payloads smaller than this are always sent in full */
+    public static final int MIN_PAYLOAD_SIZE = 4096;
+
+    private static final long DEFAULT_MAX_BYTES = 64L << 20;
+    private static final int MAX_CACHED_DELTAS = 64;
+
+    private final long maxBytes;
+    private final Map<PayloadChecksum, byte[]> payloads = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<DeltaKey, Optional<Payload>> deltas = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    private final AtomicLong deltaResponses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    public PayloadDeltas() { this(DEFAULT_MAX_BYTES); }
+
+    /** Creates an instance keeping at most the given total size of payloads */
+    public PayloadDeltas(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the given payload as a delta against the payload with the given checksum, if that is known,
+     * and the delta is worth sending. The given payload is also remembered, for later requests.
+     *
+     * @param base checksum of the payload the client holds
+     * @param target checksums of the given payload
+     * @param payload the payload to send
+     * @return an uncompressed delta payload, or empty to send the full payload
+     */
+    public Optional<Payload> delta(PayloadChecksum base, PayloadChecksum target, Payload payload) {
+        if ( ! isUsable(base) || ! isUsable(target)) return Optional.empty();
+        if (fullSize(payload) < MIN_PAYLOAD_SIZE) return Optional.empty();
+        if (base.equals(target)) { // Same payload at a new generation: the client only needs to keep what it has
+            record(target, payload);
+            return counted(deltaPayload(PayloadDelta.unchanged(fullSize(payload))), payload);
+        }
+
+        DeltaKey key = new DeltaKey(base, target);
+        Optional<Payload> delta;
+        byte[] baseData;
+        byte[] targetData;
+        synchronized (this) {
+            delta = deltas.get(key);
+            baseData = payloads.get(base);
+            targetData = payloads.get(target);
+        }
+        if (delta == null) {
+            if (targetData == null) {
+                targetData = bytes(payload);
+                record(target, targetData);
+            }
+            if (baseData == null) return Optional.empty();
+
+            byte[] deltaData = PayloadDelta.create(baseData, targetData);
+            delta = deltaData.length < targetData.length / 2 ? Optional.of(deltaPayload(deltaData)) : Optional.empty();
+            synchronized (this) {
+                deltas.put(key, delta);
+                if (deltas.size() > MAX_CACHED_DELTAS)
+                    removeEldest(deltas);
+            }
+        }
+        return delta.isPresent() ? counted(delta.get(), payload) : delta;
+    }
+
+    private Optional<Payload> counted(Payload delta, Payload payload) {
+        deltaResponses.incrementAndGet();
+        bytesSaved.addAndGet(fullSize(payload) - delta.getData().getByteLength());
+        return Optional.of(delta);
+    }
+
+    private static Payload deltaPayload(byte[] deltaData) {
+        return Payload.from(new Utf8Array(deltaData), CompressionInfo.create(CompressionType.UNCOMPRESSED, deltaData.length));
+    }
+
+    /** Remembers the given payload, so later responses may be sent as deltas against it */
+    public void record(PayloadChecksum checksum, Payload payload) {
+        if ( ! isUsable(checksum) || fullSize(payload) < MIN_PAYLOAD_SIZE) return;
+        synchronized (this) {
+            if (payloads.containsKey(checksum)) return;
+        }
+        record(checksum, bytes(payload));
+    }
+
+    private synchronized void record(PayloadChecksum checksum, byte[] data) {
+        if (data.length > maxBytes) return;
+        byte[] previous = payloads.put(checksum, data);
+        if (previous != null) bytes -= previous.length;
+        bytes += data.length;
+        while (bytes > maxBytes)
+            bytes -= removeEldest(payloads).length;
+    }
+
+    /** Returns the number of responses sent as deltas */
+    public long deltaResponses() { return deltaResponses.get(); }
+
+    /** Returns the total number of uncompressed payload bytes not sent, due to responses sent as deltas */
+    public long bytesSaved() { return bytesSaved.get(); }
+
+    /** Returns the number of payloads currently kept */
+    public synchronized int size() { return payloads.size(); }
+
+    private static boolean isUsable(PayloadChecksum checksum) {
+        return checksum != null && checksum.type() == XXHASH64 && ! checksum.isEmpty();
+    }
+
+    private static int fullSize(Payload payload) {
+        return payload.getCompressionInfo().getCompressionType() == CompressionType.UNCOMPRESSED
+               ? payload.getData().getByteLength()
+               : payload.getCompressionInfo().getUncompressedSize();
+    }
+
+    static byte[] bytes(Payload payload) {
+        ByteBuffer buffer = payload.withCompression(CompressionType.UNCOMPRESSED).getData().wrap();
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length)
+            return buffer.array();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static <V> V removeEldest(Map<?, V> map) {
+        Iterator<? extends Map.Entry<?, V>> eldest = map.entrySet().iterator();
+        V value = eldest.next().getValue();
+        eldest.remove();
+        return value;
+    }
+
+    private record DeltaKey(PayloadChecksum base, PayloadChecksum target) {
+        DeltaKey {
+            Objects.requireNonNull(base);
+            Objects.requireNonNull(target);
+        }
+    }
+
+}
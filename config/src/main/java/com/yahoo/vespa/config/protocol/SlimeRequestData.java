@@ -38,6 +38,7 @@ class SlimeRequestData {
     private static final String REQUEST_DEF_MD5 = "defMD5";
     private static final String REQUEST_COMPRESSION_TYPE = "compressionType";
     private static final String REQUEST_VESPA_VERSION = "vespaVersion";
+    private static final String REQUEST_ACCEPT_DELTA = "acceptDelta";
 
     private final Request request;
     private Slime data = null;
@@ -96,6 +97,11 @@ class SlimeRequestData {
         return PayloadChecksums.from(getRequestConfigMd5(), getRequestConfigXxhash64().asString());
     }
 
+    /** Returns whether the client accepts a payload delta against the payload with the checksums it sent */
+    boolean getAcceptDelta() {
+        return getRequestField(REQUEST_ACCEPT_DELTA).asBool();
+    }
+
     long getRequestGeneration() {
         return getRequestField(REQUEST_CURRENT_GENERATION).asLong();
     }
@@ -109,7 +115,8 @@ class SlimeRequestData {
                                Trace trace,
                                long protocolVersion,
                                CompressionType compressionType,
-                               Optional<VespaVersion> vespaVersion) {
+                               Optional<VespaVersion> vespaVersion,
+                               boolean acceptDelta) {
         Slime data = new Slime();
         Cursor request = data.setObject();
         request.setLong(REQUEST_VERSION, protocolVersion);
@@ -127,6 +134,8 @@ class SlimeRequestData {
         request.setLong(REQUEST_TIMEOUT, timeout);
         request.setString(REQUEST_COMPRESSION_TYPE, compressionType.name());
         vespaVersion.ifPresent(version -> request.setString(REQUEST_VESPA_VERSION, version.toString()));
+        if (acceptDelta)
+            request.setBool(REQUEST_ACCEPT_DELTA, true);
         trace.serialize(request.setObject(REQUEST_TRACE));
         return data;
     }
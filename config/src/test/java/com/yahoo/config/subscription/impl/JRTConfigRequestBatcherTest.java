@@ -0,0 +1,142 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.config.subscription.impl;
+
+import com.yahoo.foo.SimpletypesConfig;
+import com.yahoo.jrt.DataArray;
+import com.yahoo.jrt.Int32Array;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.jrt.StringArray;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.JRTMethods;
+import com.yahoo.vespa.config.PayloadChecksums;
+import com.yahoo.vespa.config.TimingValues;
+import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
+import com.yahoo.vespa.config.protocol.Payload;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static com.yahoo.jrt.ErrorCode.NO_SUCH_METHOD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JRTConfigRequestBatcherTest {
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    private final TimingValues timingValues = JRTConfigRequesterTest.getTestTimingValues();
+
+    @After
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void requests_are_sent_in_batches_and_requests_without_response_are_sent_again() throws Exception {
+        MockConnection connection = new MockConnection(new BatchResponseHandler(List.of(0)));
+        JRTConfigRequestBatcher batcher = new JRTConfigRequestBatcher(connection, scheduler);
+        JRTConfigRequester requester = new JRTConfigRequester(null, scheduler, connection, timingValues, Optional.of(batcher));
+        JRTConfigSubscription<SimpletypesConfig> first = createSubscription(requester, "first");
+        JRTConfigSubscription<SimpletypesConfig> second = createSubscription(requester, "second");
+
+        requestAll(requester, first, second);
+
+        assertEquals(1, connection.getNumberOfRequests());
+        Request batch = connection.getRequest();
+        assertEquals(JRTMethods.configV3getConfigsMethodName, batch.methodName());
+        assertEquals(2, batch.parameters().get(0).asStringArray().length);
+        assertTrue(first.nextConfig(1000));
+        assertEquals(0, requester.getFailures());
+        // The next request for the first config, and the unanswered request for the second, wait for the next batch
+        assertEquals(2, batcher.pending());
+    }
+
+    @Test
+    public void requests_are_sent_alone_when_batches_are_not_supported() throws Exception {
+        MockConnection connection = new MockConnection(new BatchResponseHandler(null));
+        JRTConfigRequestBatcher batcher = new JRTConfigRequestBatcher(connection, scheduler);
+        JRTConfigRequester requester = new JRTConfigRequester(null, scheduler, connection, timingValues, Optional.of(batcher));
+        JRTConfigSubscription<SimpletypesConfig> first = createSubscription(requester, "first");
+        JRTConfigSubscription<SimpletypesConfig> second = createSubscription(requester, "second");
+
+        requestAll(requester, first, second);
+
+        assertFalse(batcher.enabled());
+        assertEquals(3, connection.getNumberOfRequests());
+        assertEquals(JRTMethods.configV3getConfigMethodName, connection.getRequest().methodName());
+        assertTrue(first.nextConfig(1000));
+        assertTrue(second.nextConfig(1000));
+        assertEquals(0, batcher.pending());
+    }
+
+    /** Requests config for all the given subscriptions, while holding back the scheduler so they end up in the same batch */
+    @SafeVarargs
+    private void requestAll(JRTConfigRequester requester, JRTConfigSubscription<SimpletypesConfig> ... subscriptions) throws Exception {
+        CountDownLatch requested = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            try {
+                requested.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        for (JRTConfigSubscription<SimpletypesConfig> subscription : subscriptions)
+            requester.request(subscription);
+        requested.countDown();
+        // Wait for the batch to be sent
+        scheduler.submit(() -> { }).get();
+    }
+
+    private JRTConfigSubscription<SimpletypesConfig> createSubscription(JRTConfigRequester requester, String configId) {
+        return new JRTConfigSubscription<>(new ConfigKey<>(SimpletypesConfig.class, configId), requester, timingValues);
+    }
+
+    /** Answers the requests with the given indexes in each batch, or fails with NO_SUCH_METHOD if null */
+    private static class BatchResponseHandler extends MockConnection.OKResponseHandler {
+
+        private final List<Integer> answered;
+
+        BatchResponseHandler(List<Integer> answered) {
+            this.answered = answered;
+        }
+
+        @Override
+        public void handle(Request request, RequestWaiter requestWaiter) {
+            if ( ! request.methodName().equals(JRTMethods.configV3getConfigsMethodName)) {
+                super.handle(request, requestWaiter);
+                return;
+            }
+            if (answered == null) {
+                request.setError(NO_SUCH_METHOD, "No such method");
+                requestWaiter.handleRequestDone(request);
+                return;
+            }
+
+            String[] requests = request.parameters().get(0).asStringArray();
+            String[] responses = new String[answered.size()];
+            byte[][] payloads = new byte[answered.size()][];
+            for (int i = 0; i < answered.size(); i++) {
+                Request part = new Request(JRTMethods.configV3getConfigMethodName);
+                part.parameters().add(new StringValue(requests[answered.get(i)]));
+                Payload payload = Payload.from(ConfigPayload.empty());
+                JRTServerConfigRequestV3.createFromRequest(part).addOkResponse(payload, 1, false, PayloadChecksums.fromPayload(payload));
+                responses[i] = part.returnValues().get(0).asString();
+                payloads[i] = part.returnValues().get(1).asData();
+            }
+            request.returnValues().add(new Int32Array(answered.stream().mapToInt(Integer::intValue).toArray()));
+            request.returnValues().add(new Int32Array(new int[answered.size()]));
+            request.returnValues().add(new StringArray(responses));
+            request.returnValues().add(new DataArray(payloads));
+            requestWaiter.handleRequestDone(request);
+        }
+
+    }
+
+}
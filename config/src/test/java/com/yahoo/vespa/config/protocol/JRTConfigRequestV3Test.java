@@ -234,6 +234,74 @@ public class JRTConfigRequestV3Test {
         assertThat(serverRequest.getDefContent().asList(), is(rawConfig.getDefContent()));
     }
 
+    @Test
+    public void response_is_sent_as_delta_against_payload_held_by_client() {
+        Payload base = PayloadDeltaTest.createPayload(1000, "base");
+        Payload next = PayloadDeltaTest.createPayload(1000, "next");
+        PayloadChecksums baseChecksums = PayloadChecksums.fromPayload(base);
+        PayloadChecksums nextChecksums = PayloadChecksums.fromPayload(next);
+        RawConfig rawConfig = new RawConfig(new ConfigKey<>(defName, configId, defNamespace), defMd5, base, baseChecksums,
+                                            currentGeneration, false, List.of(configDefinition), vespaVersion);
+        PayloadDeltas deltas = new PayloadDeltas();
+        deltas.record(baseChecksums.getForType(XXHASH64), base);
+
+        JRTClientConfigRequest request = createFromRaw(rawConfig, timeout, Trace.createNew());
+        createReq(request.getRequest()).addOkResponse(next, 4L, false, nextChecksums, deltas);
+        assertEquals(1, deltas.deltaResponses());
+        assertTrue(request.getRequest().returnValues().get(1).asData().length < base.getData().getByteLength() / 2);
+        assertTrue(request.validateResponse());
+        assertTrue(request.hasUpdatedConfig());
+        assertEquals(next.getData().toString(), request.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+
+        // The server no longer holds the payload of the client, so sends it in full
+        JRTClientConfigRequest nextRequest = request.nextRequest(timeout);
+        createReq(nextRequest.getRequest()).addOkResponse(base, 5L, false, baseChecksums, new PayloadDeltas());
+        assertTrue(nextRequest.validateResponse());
+        assertEquals(base.getData().toString(), nextRequest.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+    }
+
+    @Test
+    public void unchanged_payload_at_new_generation_is_sent_as_delta() {
+        Payload base = PayloadDeltaTest.createPayload(1000, "base");
+        PayloadChecksums baseChecksums = PayloadChecksums.fromPayload(base);
+        RawConfig rawConfig = new RawConfig(new ConfigKey<>(defName, configId, defNamespace), defMd5, base, baseChecksums,
+                                            currentGeneration, false, List.of(configDefinition), vespaVersion);
+
+        JRTClientConfigRequest request = createFromRaw(rawConfig, timeout, Trace.createNew());
+        PayloadDeltas deltas = new PayloadDeltas();
+        createReq(request.getRequest()).addOkResponse(base, currentGeneration + 1, false, baseChecksums, deltas);
+        assertEquals(1, deltas.deltaResponses());
+        assertTrue(request.getRequest().returnValues().get(1).asData().length < 10);
+        assertTrue(request.validateResponse());
+        assertFalse(request.deltaFailed());
+        assertEquals(currentGeneration + 1, request.getNewGeneration());
+        assertEquals(base.getData().toString(), request.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+    }
+
+    @Test
+    public void delta_which_does_not_match_checksum_causes_full_request() {
+        Payload base = PayloadDeltaTest.createPayload(1000, "base");
+        Payload next = PayloadDeltaTest.createPayload(1000, "next");
+        PayloadChecksums baseChecksums = PayloadChecksums.fromPayload(base);
+        RawConfig rawConfig = new RawConfig(new ConfigKey<>(defName, configId, defNamespace), defMd5, base, baseChecksums,
+                                            currentGeneration, false, List.of(configDefinition), vespaVersion);
+        PayloadDeltas deltas = new PayloadDeltas();
+        deltas.record(baseChecksums.getForType(XXHASH64), base);
+
+        JRTClientConfigRequest request = createFromRaw(rawConfig, timeout, Trace.createNew());
+        createReq(request.getRequest()).addOkResponse(next, 4L, false, PayloadChecksums.fromPayload(createPayload()), deltas);
+        assertFalse(request.validateResponse());
+        assertTrue(request.deltaFailed());
+
+        Request nextRequest = request.nextRequest(timeout).getRequest();
+        JRTServerConfigRequest serverRequest = createReq(nextRequest);
+        assertTrue(serverRequest.validateParameters());
+        assertEquals(baseChecksums, serverRequest.getRequestConfigChecksums());
+        assertEquals(currentGeneration, serverRequest.getRequestGeneration());
+        Inspector requestData = SlimeUtils.jsonToSlime(nextRequest.parameters().get(0).asString()).get();
+        assertFalse(requestData.field("acceptDelta").asBool());
+    }
+
     @Test
     public void parameters_are_validated() {
         assertTrue(serverReq.validateParameters());
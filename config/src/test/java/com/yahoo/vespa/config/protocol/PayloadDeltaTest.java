@@ -0,0 +1,128 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.PayloadChecksum;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PayloadDeltaTest {
+
+    @Test
+    public void delta_turns_base_into_target() {
+        Random random = new Random(42);
+        byte[] base = new byte[10000];
+        random.nextBytes(base);
+
+        assertRoundTrip(base, base);
+        assertArrayEquals(base, PayloadDelta.apply(base, PayloadDelta.unchanged(base.length)));
+        assertRoundTrip(base, new byte[0]);
+        assertRoundTrip(new byte[0], base);
+        assertRoundTrip(new byte[] { 1, 2, 3 }, new byte[] { 3, 2, 1 });
+
+        byte[] changed = base.clone();
+        changed[17] ^= 1;
+        changed[5000] ^= 1;
+        changed[9999] ^= 1;
+        assertTrue(assertRoundTrip(base, changed).length < 100);
+
+        byte[] moved = new byte[base.length];
+        System.arraycopy(base, 4000, moved, 0, 6000);
+        System.arraycopy(base, 0, moved, 6000, 4000);
+        assertTrue(assertRoundTrip(base, moved).length < 100);
+
+        byte[] grown = Arrays.copyOf(base, base.length + 100);
+        assertTrue(assertRoundTrip(base, grown).length < 200);
+
+        byte[] unrelated = new byte[base.length];
+        random.nextBytes(unrelated);
+        assertRoundTrip(base, unrelated);
+    }
+
+    @Test
+    public void invalid_delta_is_rejected() {
+        byte[] base = "the base payload, which is longer than a block".getBytes(UTF_8);
+        byte[] delta = PayloadDelta.create(base, "the base payload, which is longer than a block, changed".getBytes(UTF_8));
+        assertInvalid(base, Arrays.copyOf(delta, delta.length - 1));
+        assertInvalid(Arrays.copyOf(base, 10), delta);
+        assertInvalid(base, new byte[] { 5, 7 });
+    }
+
+    @Test
+    public void deltas_are_sent_only_for_known_payloads() {
+        PayloadDeltas deltas = new PayloadDeltas();
+        Payload first = createPayload(1000, "first");
+        Payload second = createPayload(1000, "second");
+        PayloadChecksum firstChecksum = PayloadChecksum.fromPayload(first, XXHASH64);
+        PayloadChecksum secondChecksum = PayloadChecksum.fromPayload(second, XXHASH64);
+
+        assertFalse(deltas.delta(firstChecksum, secondChecksum, second).isPresent());
+        assertEquals(1, deltas.size());
+
+        deltas.record(firstChecksum, first);
+        assertEquals(2, deltas.size());
+        Optional<Payload> delta = deltas.delta(firstChecksum, secondChecksum, second.withCompression(CompressionType.LZ4));
+        assertTrue(delta.isPresent());
+        assertArrayEquals(PayloadDeltas.bytes(second), PayloadDelta.apply(PayloadDeltas.bytes(first), PayloadDeltas.bytes(delta.get())));
+        assertEquals(1, deltas.deltaResponses());
+        assertEquals(PayloadDeltas.bytes(second).length - delta.get().getData().getByteLength(), deltas.bytesSaved());
+
+        Optional<Payload> unchanged = deltas.delta(secondChecksum, secondChecksum, second);
+        assertTrue("Unchanged payload is sent as a delta", unchanged.isPresent());
+        assertTrue(unchanged.get().getData().getByteLength() < 10);
+        assertArrayEquals(PayloadDeltas.bytes(second), PayloadDelta.apply(PayloadDeltas.bytes(second), PayloadDeltas.bytes(unchanged.get())));
+        assertEquals(2, deltas.deltaResponses());
+
+        Payload small = createPayload(1, "small");
+        deltas.record(PayloadChecksum.fromPayload(small, XXHASH64), small);
+        assertEquals("Small payloads are not kept", 2, deltas.size());
+    }
+
+    @Test
+    public void payloads_are_evicted_when_full() {
+        Payload first = createPayload(1000, "first");
+        PayloadDeltas deltas = new PayloadDeltas(PayloadDeltas.bytes(first).length + 10);
+        deltas.record(PayloadChecksum.fromPayload(first, XXHASH64), first);
+        assertEquals(1, deltas.size());
+        Payload second = createPayload(1000, "second");
+        deltas.record(PayloadChecksum.fromPayload(second, XXHASH64), second);
+        assertEquals(1, deltas.size());
+        assertFalse(deltas.delta(PayloadChecksum.fromPayload(first, XXHASH64), PayloadChecksum.fromPayload(second, XXHASH64), second).isPresent());
+    }
+
+    static Payload createPayload(int entries, String changed) {
+        Slime slime = new Slime();
+        Cursor array = slime.setObject().setArray("entries");
+        for (int i = 0; i < entries; i++)
+            array.addString(i == entries / 2 ? changed : "entry " + i);
+        return Payload.from(new ConfigPayload(slime));
+    }
+
+    private static byte[] assertRoundTrip(byte[] base, byte[] target) {
+        byte[] delta = PayloadDelta.create(base, target);
+        assertArrayEquals(target, PayloadDelta.apply(base, delta));
+        return delta;
+    }
+
+    private static void assertInvalid(byte[] base, byte[] delta) {
+        try {
+            PayloadDelta.apply(base, delta);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) { }
+    }
+
+}
@@ -4,11 +4,21 @@ package com.yahoo.vespa.config.server;
 import com.yahoo.config.model.api.ConfigDefinitionRepo;
 import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigDefinitionKey;
+import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.GetConfigRequest;
 import com.yahoo.vespa.config.PayloadChecksum;
+import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.DefContent;
+import com.yahoo.vespa.config.protocol.VespaVersion;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
@@ -27,14 +37,14 @@ public class ServerCache {
     // NOTE: The reason we do a double mapping here is to de-dupe configs that have the same checksum.
     private final Map<ConfigCacheKey, PayloadChecksum> checksums = new ConcurrentHashMap<>();
     private final Map<PayloadChecksum, ConfigResponse> checksumToConfig = new ConcurrentHashMap<>();
-    private final Object [] stripedLocks = new Object[113];
+    // Configs being computed, so concurrent requests for the same config share one computation
+    private final Map<ConfigCacheKey, CompletableFuture<ConfigResponse>> computing = new ConcurrentHashMap<>();
+    // The requests which caused each config to be computed, used to precompute the same configs for the next generation
+    private final Map<ConfigCacheKey, GetConfigRequest> requests = new ConcurrentHashMap<>();
 
     public ServerCache(ConfigDefinitionRepo builtinConfigDefinitions, ConfigDefinitionRepo userConfigDefinitions) {
         this.builtinConfigDefinitions = builtinConfigDefinitions;
         this.userConfigDefinitions = userConfigDefinitions;
-        for (int i = 0; i < stripedLocks.length; i++) {
-            stripedLocks[i] = new Object();
-        }
     }
 
     // For testing only
@@ -59,14 +69,50 @@ public class ServerCache {
         if (config != null) {
             return config;
         }
-        synchronized (stripedLocks[Math.abs(key.hashCode()%stripedLocks.length)]) {
-            PayloadChecksum xxhash64 = checksums.get(key);
-            if (xxhash64 == null) {
+
+        CompletableFuture<ConfigResponse> computation = new CompletableFuture<>();
+        CompletableFuture<ConfigResponse> ongoing = computing.putIfAbsent(key, computation);
+        if (ongoing != null) {
+            return join(ongoing);
+        }
+        try {
+            config = get(key); // May have been computed since we checked above
+            if (config == null) {
                 config = mappingFunction.apply(key);
                 put(key, config);
-                return config;
             }
-            return checksumToConfig.get(xxhash64);
+            computation.complete(config);
+            return config;
+        } catch (RuntimeException | Error e) {
+            computation.completeExceptionally(e);
+            throw e;
+        } finally {
+            computing.remove(key, computation);
+        }
+    }
+
+    /** As {@link #computeIfAbsent(ConfigCacheKey, Function)}, and remembers the request for precomputing the config later */
+    public ConfigResponse computeIfAbsent(ConfigCacheKey key, GetConfigRequest request,
+                                         Function<ConfigCacheKey, ConfigResponse> mappingFunction) {
+        ConfigResponse config = computeIfAbsent(key, mappingFunction);
+        if ( ! requests.containsKey(key)) {
+            requests.putIfAbsent(key, CachedRequest.of(request));
+        }
+        return config;
+    }
+
+    /** Returns the requests for the configs in this, see {@link #computeIfAbsent(ConfigCacheKey, GetConfigRequest, Function)} */
+    public Collection<GetConfigRequest> requests() {
+        return List.copyOf(requests.values());
+    }
+
+    private static ConfigResponse join(CompletableFuture<ConfigResponse> computation) {
+        try {
+            return computation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
         }
     }
 
@@ -103,4 +149,21 @@ public class ServerCache {
         return checksums.size();
     }
 
+    /** The parts of a request needed to compute its config again, without holding on to the request itself */
+    private record CachedRequest(ConfigKey<?> getConfigKey, DefContent getDefContent, String getRequestDefMd5,
+                                 PayloadChecksums configPayloadChecksums) implements GetConfigRequest {
+
+        static CachedRequest of(GetConfigRequest request) {
+            return new CachedRequest(request.getConfigKey(), request.getDefContent(), request.getRequestDefMd5(),
+                                     request.configPayloadChecksums());
+        }
+
+        @Override
+        public Optional<VespaVersion> getVespaVersion() { return Optional.empty(); }
+
+        @Override
+        public boolean noCache() { return false; }
+
+    }
+
 }
@@ -29,6 +29,10 @@ import com.yahoo.vespa.config.server.tenant.TenantRepository;
 import com.yahoo.vespa.config.util.ConfigUtils;
 import com.yahoo.yolean.Exceptions;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.Objects;
 import java.util.Set;
@@ -102,21 +106,12 @@ public class Application implements ModelResult {
         long start = System.currentTimeMillis();
         metricUpdater.incrementRequests();
         ConfigKey<?> configKey = req.getConfigKey();
-        String defMd5 = req.getRequestDefMd5();
-        if (defMd5 == null || defMd5.isEmpty()) {
-            defMd5 = ConfigUtils.getDefMd5(req.getDefContent().asList());
-        }
-        ConfigCacheKey cacheKey = new ConfigCacheKey(configKey, defMd5);
+        ConfigCacheKey cacheKey = cacheKey(req);
         log.log(Level.FINE, () -> TenantRepository.logPre(getId()) + ("Resolving config " + cacheKey));
 
         ConfigResponse config;
         if (useCache(req)) {
-            config = cache.computeIfAbsent(cacheKey, (ConfigCacheKey key) -> {
-                var response = createConfigResponse(configKey, req, responseFactory);
-                metricUpdater.setCacheConfigElems(cache.configElems());
-                metricUpdater.setCacheChecksumElems(cache.checkSumElems());
-                return response;
-            });
+            config = resolveCachedConfig(cacheKey, req, responseFactory);
         } else {
             config = createConfigResponse(configKey, req, responseFactory);
         }
@@ -124,6 +119,46 @@ public class Application implements ModelResult {
         return config;
     }
 
+    /**
+     * Resolves the configs of the given requests in parallel and caches them, so they are ready before clients ask.
+     * Failures are ignored here, as they are reported when clients ask for the config.
+     *
+     * @return a future per config, which completes when it is resolved; cancelling one which has not started skips it
+     */
+    public List<CompletableFuture<Void>> precomputeConfigs(Collection<GetConfigRequest> requests,
+                                                           ConfigResponseFactory responseFactory,
+                                                           Executor executor) {
+        return requests.stream()
+                       .map(req -> CompletableFuture.runAsync(() -> precomputeConfig(req, responseFactory), executor))
+                       .toList();
+    }
+
+    private void precomputeConfig(GetConfigRequest req, ConfigResponseFactory responseFactory) {
+        try {
+            resolveCachedConfig(cacheKey(req), req, responseFactory);
+        } catch (RuntimeException e) {
+            log.log(Level.FINE, () -> TenantRepository.logPre(getId()) + "Failed precomputing config " + req.getConfigKey() +
+                                      ": " + Exceptions.toMessageString(e));
+        }
+    }
+
+    private ConfigResponse resolveCachedConfig(ConfigCacheKey cacheKey, GetConfigRequest req, ConfigResponseFactory responseFactory) {
+        return cache.computeIfAbsent(cacheKey, req, (ConfigCacheKey key) -> {
+            var response = createConfigResponse(req.getConfigKey(), req, responseFactory);
+            metricUpdater.setCacheConfigElems(cache.configElems());
+            metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+            return response;
+        });
+    }
+
+    private static ConfigCacheKey cacheKey(GetConfigRequest req) {
+        String defMd5 = req.getRequestDefMd5();
+        if (defMd5 == null || defMd5.isEmpty()) {
+            defMd5 = ConfigUtils.getDefMd5(req.getDefContent().asList());
+        }
+        return new ConfigCacheKey(req.getConfigKey(), defMd5);
+    }
+
     private ConfigResponse createConfigResponse(ConfigKey<?> configKey, GetConfigRequest req, ConfigResponseFactory responseFactory) {
         ConfigDefinition def = getTargetDef(req);
         if (def == null) {
@@ -36,14 +36,23 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -62,11 +71,14 @@ public class TenantApplications implements RequestHandler, HostValidator {
     private static final Logger log = Logger.getLogger(TenantApplications.class.getName());
     /* Time to wait for all config servers to get event when an application is removed */
     private static final Duration waitForAll = Duration.ofSeconds(5);
+    /* Max time to wait for configs to be precomputed before activating a new generation */
+    private static final Duration precomputeTimeout = Duration.ofSeconds(30);
 
     private final Curator curator;
     private final ApplicationCuratorDatabase database;
     private final Curator.DirectoryCache directoryCache;
     private final Executor zkWatcherExecutor;
+    private final Executor configPrecomputeExecutor;
     private final Metrics metrics;
     private final TenantName tenant;
     private final ConfigActivationListener configActivationListener;
@@ -78,9 +90,12 @@ public class TenantApplications implements RequestHandler, HostValidator {
     private final TenantFileSystemDirs tenantFileSystemDirs;
     private final String serverId;
     private final ListFlag<String> incompatibleVersions;
+    /** The latest session requested activated per application, to avoid activating an earlier one after precomputing configs */
+    private final Map<ApplicationId, Long> latestActivations = new ConcurrentHashMap<>();
 
     public TenantApplications(TenantName tenant, Curator curator, StripedExecutor<TenantName> zkWatcherExecutor,
-                              ExecutorService zkCacheExecutor, Metrics metrics, ConfigActivationListener configActivationListener,
+                              ExecutorService zkCacheExecutor, Executor configPrecomputeExecutor,
+                              Metrics metrics, ConfigActivationListener configActivationListener,
                               ConfigserverConfig configserverConfig, HostRegistry hostRegistry,
                               TenantFileSystemDirs tenantFileSystemDirs, Clock clock, FlagSource flagSource) {
         this.curator = curator;
@@ -90,6 +105,7 @@ public class TenantApplications implements RequestHandler, HostValidator {
         this.directoryCache = database.createApplicationsPathCache(zkCacheExecutor);
         this.directoryCache.addListener(this::childEvent);
         this.directoryCache.start();
+        this.configPrecomputeExecutor = configPrecomputeExecutor;
         this.metrics = metrics;
         this.configActivationListener = configActivationListener;
         this.responseFactory = ConfigResponseFactory.create(configserverConfig);
@@ -247,23 +263,86 @@ public class TenantApplications implements RequestHandler, HostValidator {
     }
 
     /**
-     * Activates the config of the given app. Notifies listeners
+     * Activates the config of the given app, and notifies listeners. If configs are precomputed for the new generation,
+     * this happens when precomputing completes or gives up, on the executor for ZooKeeper events for this tenant, so
+     * it is not queued behind precomputing of other applications.
      *
      * @param applicationVersions the {@link ApplicationVersions} to be activated
+     * @return a future which completes when the given app is active, or is skipped since a later one was activated
      */
-    public void activateApplication(ApplicationVersions applicationVersions, long activeSessionId) {
+    public CompletableFuture<Void> activateApplication(ApplicationVersions applicationVersions, long activeSessionId) {
+        latestActivations.merge(applicationVersions.getId(), activeSessionId, Math::max);
+        CompletableFuture<Void> precomputed = precomputeConfigs(applicationVersions);
+        if (precomputed.isDone()) {
+            activate(applicationVersions, activeSessionId);
+            return CompletableFuture.completedFuture(null);
+        }
+        return precomputed.thenRunAsync(() -> activate(applicationVersions, activeSessionId), zkWatcherExecutor);
+    }
+
+    private void activate(ApplicationVersions applicationVersions, long activeSessionId) {
         ApplicationId id = applicationVersions.getId();
         try (@SuppressWarnings("unused") Lock lock = lock(id)) {
             if ( ! exists(id))
                 return; // Application was deleted before activation.
             if (applicationVersions.applicationGeneration() != activeSessionId)
                 return; // Application activated a new session before we got here.
+            if (latestActivations.getOrDefault(id, activeSessionId) > activeSessionId)
+                return; // A later session was activated while configs were precomputed for this.
 
             setActiveApp(applicationVersions);
             notifyConfigActivationListeners(applicationVersions);
         }
     }
 
+    /**
+     * Resolves the configs clients have requested from the currently active generation of the given application
+     * in the new generation, so these are cached when clients are notified about the new generation, instead of all
+     * clients causing them to be resolved at once. The returned future completes when this is done, or after a
+     * while, as the configs will then be resolved when requested, as before, and those not yet started are skipped.
+     * It never completes exceptionally.
+     */
+    private CompletableFuture<Void> precomputeConfigs(ApplicationVersions applicationVersions) {
+        List<Application> active = applicationMapper.listApplications(applicationVersions.getId());
+        if (active.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        Instant start = clock.instant();
+        List<CompletableFuture<Void>> precomputed = new ArrayList<>();
+        int configs = 0;
+        for (Application application : applicationVersions.applications()) {
+            Application previous = active.stream()
+                                         .filter(app -> app.getVespaVersion().equals(application.getVespaVersion()))
+                                         .findFirst()
+                                         .orElseGet(() -> active.stream().max(Comparator.comparing(Application::getVespaVersion)).get());
+            if (previous.getApplicationGeneration().equals(application.getApplicationGeneration())) continue;
+
+            Collection<GetConfigRequest> requests = previous.getCache().requests();
+            configs += requests.size();
+            precomputed.addAll(application.precomputeConfigs(requests, responseFactory, configPrecomputeExecutor));
+        }
+        if (precomputed.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        int precomputedConfigs = configs;
+        return CompletableFuture.allOf(precomputed.toArray(CompletableFuture[]::new))
+                                .orTimeout(precomputeTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                                .handle((__, e) -> {
+                                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                                    if (cause == null)
+                                        log.log(Level.FINE, () -> TenantRepository.logPre(applicationVersions.getId()) + "Precomputed " + precomputedConfigs +
+                                                                  " configs for generation " + applicationVersions.applicationGeneration() +
+                                                                  " in " + Duration.between(start, clock.instant()));
+                                    else if (cause instanceof TimeoutException) {
+                                        precomputed.forEach(config -> config.cancel(false));
+                                        log.log(Level.INFO, TenantRepository.logPre(applicationVersions.getId()) + "Precomputing " + precomputedConfigs +
+                                                            " configs for generation " + applicationVersions.applicationGeneration() +
+                                                            " did not complete within " + precomputeTimeout + ", activating anyway");
+                                    }
+                                    else
+                                        log.log(Level.WARNING, TenantRepository.logPre(applicationVersions.getId()) + "Failed precomputing configs", cause);
+                                    return null;
+                                });
+    }
+
     // Note: Assumes that caller already holds the application lock
     // (when getting event from zookeeper to remove application,
     // the lock should be held by the thread that causes the event to happen)
@@ -276,6 +355,7 @@ public class TenantApplications implements RequestHandler, HostValidator {
 
         if (hasApplication(applicationId)) {
             applicationMapper.remove(applicationId);
+            latestActivations.remove(applicationId);
             hostRegistry.removeHosts(applicationId);
             configActivationListenersOnRemove(applicationId);
             tenantMetricUpdater.setApplications(applicationMapper.numApplications());
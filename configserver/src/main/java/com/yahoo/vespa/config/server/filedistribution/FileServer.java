@@ -12,11 +12,16 @@ import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Transport;
 import com.yahoo.vespa.config.ConnectionPool;
+import com.yahoo.vespa.filedistribution.ChunkedFileReferences;
 import com.yahoo.vespa.filedistribution.FileApiErrorCodes;
+import com.yahoo.vespa.filedistribution.FileChunks;
+import com.yahoo.vespa.filedistribution.FileChunks.ChunkedFile;
 import com.yahoo.vespa.filedistribution.FileDistributionConnectionPool;
 import com.yahoo.vespa.filedistribution.FileDownloader;
+import com.yahoo.vespa.filedistribution.FilePeerTracker;
 import com.yahoo.vespa.filedistribution.FileReferenceCompressor;
 import com.yahoo.vespa.filedistribution.FileReferenceData;
+import com.yahoo.vespa.filedistribution.FileReferenceDigest;
 import com.yahoo.vespa.filedistribution.FileReferenceDownload;
 import com.yahoo.vespa.filedistribution.LazyFileReferenceData;
 import com.yahoo.vespa.filedistribution.LazyTemporaryStorageFileReferenceData;
@@ -28,7 +33,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -45,6 +52,7 @@ import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.lz4;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.zstd;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.chunked;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.compressed;
 import static com.yahoo.yolean.Exceptions.uncheck;
 
@@ -62,6 +70,14 @@ public class FileServer {
     private final ExecutorService executor;
     private final FileDownloader downloader;
     private final List<CompressionType> compressionTypes; // compression types to use, in preferred order
+    private final FilePeerTracker peerTracker = new FilePeerTracker();
+    private final ChunkedFileReferences chunkedReferences = new ChunkedFileReferences();
+    private final Map<FileReference, String> digests = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FileReference, String> eldest) {
+            return size() > 64;
+        }
+    };
 
     public static class ReplayStatus {
         private final int code;
@@ -115,8 +131,13 @@ public class FileServer {
     FileDirectory getRootDir() { return fileDirectory; }
 
     void startFileServing(FileReference reference, File file, Receiver target, Set<CompressionType> acceptedCompressionTypes) {
+        startFileServing(reference, file, target, acceptedCompressionTypes, Optional.empty());
+    }
+
+    void startFileServing(FileReference reference, File file, Receiver target, Set<CompressionType> acceptedCompressionTypes,
+                          Optional<Set<Long>> knownChunks) {
         var absolutePath = file.getAbsolutePath();
-        try (FileReferenceData fileData = fileReferenceData(reference, acceptedCompressionTypes, file)) {
+        try (FileReferenceData fileData = fileReferenceData(reference, acceptedCompressionTypes, file, knownChunks)) {
             log.log(Level.FINE, () -> "Start serving " + reference.value() + " with file '" + absolutePath + "'");
             target.receive(fileData, new ReplayStatus(0, "OK"));
             log.log(Level.FINE, () -> "Done serving " + reference.value() + " with file '" + absolutePath + "'");
@@ -130,8 +151,18 @@ public class FileServer {
 
     private FileReferenceData fileReferenceData(FileReference reference,
                                                 Set<CompressionType> acceptedCompressionTypes,
-                                                File file) throws IOException {
-        if (file.isDirectory()) {
+                                                File file,
+                                                Optional<Set<Long>> knownChunks) throws IOException {
+        Optional<Map<File, ChunkedFile>> chunks = chunksKnownToClient(reference, file, knownChunks);
+        if (chunks.isPresent()) {
+            // Client has advertised that it already has some of the chunks, send only the missing ones
+            Path tempFile = Files.createTempFile(tempFilereferencedataDir, tempFilereferencedataPrefix, reference.value());
+            CompressionType compressionType = chooseCompressionType(acceptedCompressionTypes);
+            long leftOut = new FileReferenceCompressor(chunked, compressionType).compressChunks(file, chunks.get(), knownChunks.get(), tempFile.toFile());
+            log.log(Level.FINE, () -> "Serving " + reference.value() + " as chunks, leaving out " + leftOut +
+                                      " bytes already available at client, compression type " + compressionType);
+            return new LazyTemporaryStorageFileReferenceData(reference, file.getName(), chunked, tempFile.toFile(), compressionType);
+        } else if (file.isDirectory()) {
             Path tempFile = Files.createTempFile(tempFilereferencedataDir, tempFilereferencedataPrefix, reference.value());
             CompressionType compressionType = chooseCompressionType(acceptedCompressionTypes);
             log.log(Level.FINE, () -> "accepted compression types=" + acceptedCompressionTypes + ", compression type to use=" + compressionType);
@@ -142,15 +173,26 @@ public class FileServer {
         }
     }
 
+    /** Returns the chunks of the given file reference, if any of them are among the known chunks of the client */
+    private Optional<Map<File, ChunkedFile>> chunksKnownToClient(FileReference reference, File file,
+                                                              Optional<Set<Long>> knownChunks) throws IOException {
+        if (knownChunks.isEmpty() || knownChunks.get().isEmpty()) return Optional.empty();
+
+        Map<File, ChunkedFile> chunks = chunkedReferences.get(reference, file);
+        return FileChunks.containsAny(chunks, knownChunks.get()) ? Optional.of(chunks) : Optional.empty();
+    }
+
     public void serveFile(FileReference fileReference,
                           boolean downloadFromOtherSourceIfNotFound,
                           Set<CompressionType> acceptedCompressionTypes,
+                          Optional<Set<Long>> knownChunks,
                           Request request,
                           Receiver receiver) {
         log.log(Level.FINE, () -> "Received request for file reference '" + fileReference + "' from " + request.target());
         String client = request.target().toString();
         executor.execute(() -> {
-            var result = serveFileInternal(fileReference, downloadFromOtherSourceIfNotFound, client, receiver, acceptedCompressionTypes);
+            var result = serveFileInternal(fileReference, downloadFromOtherSourceIfNotFound, client, receiver,
+                                           acceptedCompressionTypes, knownChunks);
             request.returnValues()
                    .add(new Int32Value(result.code()))
                    .add(new StringValue(result.description()));
@@ -162,13 +204,14 @@ public class FileServer {
                                                 boolean downloadFromOtherSourceIfNotFound,
                                                 String client,
                                                 Receiver receiver,
-                                                Set<CompressionType> acceptedCompressionTypes) {
+                                                Set<CompressionType> acceptedCompressionTypes,
+                                                Optional<Set<Long>> knownChunks) {
         try {
             var fileReferenceDownload = new FileReferenceDownload(fileReference, client, downloadFromOtherSourceIfNotFound);
             var file = getFileDownloadIfNeeded(fileReferenceDownload);
             if (file.isEmpty()) return NOT_FOUND;
 
-            startFileServing(fileReference, file.get(), receiver, acceptedCompressionTypes);
+            startFileServing(fileReference, file.get(), receiver, acceptedCompressionTypes, knownChunks);
         } catch (Exception e) {
             log.warning("Failed serving file reference '" + fileReference + "', request from " + client + " failed with: " + e.getMessage());
             return TRANSFER_FAILED;
@@ -212,6 +255,35 @@ public class FileServer {
 
     public FileDownloader downloader() { return downloader; }
 
+    /** Returns the tracker of which nodes have downloaded file references, for downloads from peers */
+    public FilePeerTracker peerTracker() { return peerTracker; }
+
+    /**
+     * Returns the SHA-256 digest of the content of the given file reference, which nodes verify file references
+     * downloaded from peers against, or empty if this does not have the file reference
+     */
+    public Optional<String> digest(FileReference reference) {
+        synchronized (digests) {
+            String digest = digests.get(reference);
+            if (digest != null) return Optional.of(digest);
+        }
+        Optional<File> file = fileDirectory.getFile(reference);
+        if (file.isEmpty()) return Optional.empty();
+
+        // The content of a file reference never changes, so it is hashed once, rather than once per client
+        String digest;
+        try {
+            digest = FileReferenceDigest.sha256(file.get());
+        } catch (UncheckedIOException e) {
+            log.log(Level.WARNING, "Failed computing digest of " + reference + ": " + e.getMessage());
+            return Optional.empty();
+        }
+        synchronized (digests) {
+            digests.put(reference, digest);
+        }
+        return Optional.of(digest);
+    }
+
     public void close() {
         downloader.close();
         executor.shutdown();
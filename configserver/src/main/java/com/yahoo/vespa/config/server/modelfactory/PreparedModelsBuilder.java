@@ -144,9 +144,12 @@ public class PreparedModelsBuilder extends ModelsBuilder<PreparedModelsBuilder.P
         log.log(FINE, () -> "Create and validate model " + modelVersion + " for " + applicationId +
                 ", previous model " + (modelOf(modelVersion).isPresent() ? " exists" : "does not exist"));
         var validationParameters = new ValidationParameters(params.ignoreValidationErrors() ? TRUE : FALSE);
+        Instant start = Instant.now();
         var result = modelFactory.createAndValidateModel(modelContext, validationParameters);
+        Duration buildTime = Duration.between(start, Instant.now());
+        deployLogger().log(FINE, () -> "Built config model for Vespa version " + modelVersion + " in " + buildTime.toMillis() + " ms");
         validateModelHosts(hostValidator, applicationId, result.getModel());
-        log.log(FINE, () -> "Done building model " + modelVersion + " for " + applicationId);
+        log.log(FINE, () -> "Done building model " + modelVersion + " for " + applicationId + " in " + buildTime);
         params.getTimeoutBudget().assertNotTimedOut(() -> "prepare timed out after building model " + modelVersion +
                                                           " (timeout " + params.getTimeoutBudget().timeout() + "): " + applicationId);
         return result;
@@ -33,6 +33,8 @@ public class MetricUpdater {
     private static final String METRIC_CACHE_CONFIG_CHECKSUMS = getMetricName("cacheChecksumElems");
     private static final String METRIC_DELAYED_RESPONSES = getMetricName("delayedResponses");
     private static final String METRIC_RPCSERVER_WORK_QUEUE_SIZE = getMetricName("rpcServerWorkQueueSize");
+    private static final String METRIC_DELTA_RESPONSES = getMetricName("deltaResponses");
+    private static final String METRIC_DELTA_BYTES_SAVED = getMetricName("deltaBytesSaved");
 
 
     private final Metrics metrics;
@@ -85,7 +87,7 @@ public class MetricUpdater {
         staticMetrics.put(METRIC_DELAYED_RESPONSES, elems);
     }
 
-    private void setStaticMetric(String name, int size) {
+    private void setStaticMetric(String name, Number size) {
         staticMetrics.put(name, size);
     }
 
@@ -219,4 +221,12 @@ public class MetricUpdater {
     public void setRpcServerQueueSize(int numQueued) {
         metrics.set(METRIC_RPCSERVER_WORK_QUEUE_SIZE, numQueued, metricContext);
     }
+
+    /**
+     * Set the number of config responses sent as deltas, and the number of payload bytes saved by this.
+     */
+    public void setDeltaResponses(long numResponses, long bytesSaved) {
+        setStaticMetric(METRIC_DELTA_RESPONSES, numResponses);
+        setStaticMetric(METRIC_DELTA_BYTES_SAVED, bytesSaved);
+    }
 }
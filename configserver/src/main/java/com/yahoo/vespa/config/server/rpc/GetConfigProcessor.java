@@ -136,7 +136,9 @@ class GetConfigProcessor implements Runnable {
             }
 
             // debugLog(trace, "config response before encoding:" + config.toString());
-            request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.applyOnRestart(), config.getPayloadChecksums());
+            request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.applyOnRestart(),
+                                  config.getPayloadChecksums(), rpcServer.payloadDeltas());
+            rpcServer.updateDeltaResponseMetrics();
             debugLog(trace, "return response: " + request.getShortDescription());
             respond(request);
         } else {
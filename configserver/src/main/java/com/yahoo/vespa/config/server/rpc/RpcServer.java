@@ -9,9 +9,7 @@ import com.yahoo.config.FileReference;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.jrt.Acceptor;
-import com.yahoo.jrt.DataValue;
 import com.yahoo.jrt.Int32Value;
-import com.yahoo.jrt.Int64Value;
 import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.Method;
 import com.yahoo.jrt.Request;
@@ -26,6 +24,7 @@ import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
+import com.yahoo.vespa.config.protocol.PayloadDeltas;
 import com.yahoo.vespa.config.protocol.Trace;
 import com.yahoo.vespa.config.server.ConfigActivationListener;
 import com.yahoo.vespa.config.server.GetConfigContext;
@@ -41,16 +40,16 @@ import com.yahoo.vespa.config.server.tenant.Tenant;
 import com.yahoo.vespa.config.server.tenant.TenantListener;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
 import com.yahoo.vespa.filedistribution.FileDownloader;
-import com.yahoo.vespa.filedistribution.FileReceiver;
+import com.yahoo.vespa.filedistribution.FilePeerTracker;
 import com.yahoo.vespa.filedistribution.FileReferenceData;
 import com.yahoo.vespa.filedistribution.FileReferenceDownload;
+import com.yahoo.vespa.filedistribution.FileReferenceSender;
 
-import java.nio.ByteBuffer;
-import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
@@ -62,6 +61,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
@@ -92,6 +92,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
     private static final Logger log = Logger.getLogger(RpcServer.class.getName());
 
     private final DelayedConfigResponses delayedConfigResponses;
+    private final PayloadDeltas payloadDeltas = new PayloadDeltas();
 
     private final HostRegistry hostRegistry;
     private final Map<TenantName, Tenant> tenants = new ConcurrentHashMap<>();
@@ -220,6 +221,30 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
                                   .returnDesc(0, "statistics", "Statistics for server"));
         getSupervisor().addMethod(new Method("filedistribution.serveFile", "si*", "is", this::serveFile)
                                   .requireCapabilities(Capability.CONFIGSERVER__FILEDISTRIBUTION_API));
+        getSupervisor().addMethod(new Method(FilePeerTracker.GET_FILE_SOURCE_METHOD, "ss", "iss", this::getFileSource)
+                                  .requireCapabilities(Capability.CONFIGSERVER__FILEDISTRIBUTION_API)
+                                  .methodDesc("get where to download a file reference from")
+                                  .paramDesc(0, "file reference", "file reference to download")
+                                  .paramDesc(1, "client", "spec other nodes can use to download file references from the client, " +
+                                                          "of which only the port is used")
+                                  .returnDesc(0, "source", "0: this config server, 1: the peer in the next value, 2: busy, ask again later")
+                                  .returnDesc(1, "peer", "spec of the peer to download from")
+                                  .returnDesc(2, "digest", "SHA-256 of the file reference, to verify what is downloaded from the peer"));
+        getSupervisor().addMethod(new Method(FilePeerTracker.FILE_DOWNLOADED_METHOD, "ss", "i", this::fileDownloaded)
+                                  .requireCapabilities(Capability.CONFIGSERVER__FILEDISTRIBUTION_API)
+                                  .methodDesc("register that a client has downloaded a file reference, and can serve it to others")
+                                  .paramDesc(0, "file reference", "file reference downloaded")
+                                  .paramDesc(1, "client", "spec other nodes can use to download file references from the client, " +
+                                                          "of which only the port is used")
+                                  .returnDesc(0, "ret", "0 if success"));
+        getSupervisor().addMethod(new Method(FilePeerTracker.VERIFY_FILE_SOURCE_METHOD, "sss", "i", this::verifyFileSource)
+                                  .requireCapabilities(Capability.CONFIGSERVER__FILEDISTRIBUTION_API)
+                                  .methodDesc("check whether a node was told to download a file reference from the calling client")
+                                  .paramDesc(0, "file reference", "file reference to serve")
+                                  .paramDesc(1, "client", "spec other nodes can use to download file references from the client, " +
+                                                          "of which only the port is used")
+                                  .paramDesc(2, "host", "host of the node requesting the file reference from the client")
+                                  .returnDesc(0, "ret", "1 if the client should serve the file reference to the node, 0 otherwise"));
         getSupervisor().addMethod(new Method("filedistribution.setFileReferencesToDownload", "S", "i", this::setFileReferencesToDownload)
                                   .requireCapabilities(Capability.CONFIGSERVER__FILEDISTRIBUTION_API)
                                   .methodDesc("set which file references to download")
@@ -403,6 +428,13 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
                 .map(Tenant::getRequestHandler);
     }
 
+    /** Returns the payloads recently served, which config responses may be sent as deltas against */
+    PayloadDeltas payloadDeltas() { return payloadDeltas; }
+
+    void updateDeltaResponseMetrics() {
+        metrics.setDeltaResponses(payloadDeltas.deltaResponses(), payloadDeltas.bytesSaved());
+    }
+
     void delayResponse(JRTServerConfigRequest request, GetConfigContext context) {
         delayedConfigResponses.delayResponse(request, context);
     }
@@ -456,94 +488,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
 
         @Override
         public void receive(FileReferenceData fileData, FileServer.ReplayStatus status) {
-            int session = sendMeta(fileData);
-            sendParts(session, fileData);
-            sendEof(session, fileData, status);
-        }
-
-        private void sendParts(int session, FileReferenceData fileData) {
-            ByteBuffer bb = ByteBuffer.allocate(0x100000);
-            for (int partId = 0, read = fileData.nextContent(bb); read >= 0; partId++, read = fileData.nextContent(bb)) {
-                byte [] buf = bb.array();
-                if (buf.length != bb.position()) {
-                    buf = new byte [bb.position()];
-                    bb.flip();
-                    bb.get(buf);
-                }
-                sendPart(session, fileData.fileReference(), partId, buf);
-                bb.clear();
-            }
-        }
-
-        private int sendMeta(FileReferenceData fileData) {
-            Request request = createMetaRequest(fileData);
-            invokeRpcIfValidConnection(request);
-            if (request.isError()) {
-                log.log(WARNING, () -> "Failed delivering meta for reference '" + fileData.fileReference().value() +
-                        "' with file '" + fileData.filename() + "' to " +
-                        target.toString() + " with error: '" + request.errorMessage() + "'.");
-                return 1;
-            } else {
-                if (request.returnValues().get(0).asInt32() != 0) {
-                    throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
-                }
-                return request.returnValues().get(1).asInt32();
-            }
-        }
-
-        // non-private for testing
-        static Request createMetaRequest(FileReferenceData fileData) {
-            Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
-            request.parameters().add(new StringValue(fileData.fileReference().value()));
-            request.parameters().add(new StringValue(fileData.filename()));
-            request.parameters().add(new StringValue(fileData.type().name()));
-            request.parameters().add(new Int64Value(fileData.size()));
-            request.parameters().add(new StringValue(fileData.compressionType().name()));
-            return request;
-        }
-
-        private void sendPart(int session, FileReference ref, int partId, byte [] buf) {
-            Request request = new Request(FileReceiver.RECEIVE_PART_METHOD);
-            request.parameters().add(new StringValue(ref.value()));
-            request.parameters().add(new Int32Value(session));
-            request.parameters().add(new Int32Value(partId));
-            request.parameters().add(new DataValue(buf));
-            invokeRpcIfValidConnection(request);
-            if (request.isError()) {
-                throw new IllegalArgumentException("Failed delivering part of reference '" + ref.value() + "' to " +
-                                                           target.toString() + " with error: '" + request.errorMessage() + "'.");
-            } else {
-                if (request.returnValues().get(0).asInt32() != 0) {
-                    throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
-                }
-            }
-        }
-
-        private void sendEof(int session, FileReferenceData fileData, FileServer.ReplayStatus status) {
-            Request request = new Request(FileReceiver.RECEIVE_EOF_METHOD);
-            request.parameters().add(new StringValue(fileData.fileReference().value()));
-            request.parameters().add(new Int32Value(session));
-            request.parameters().add(new Int64Value(fileData.xxhash()));
-            request.parameters().add(new Int32Value(status.getCode()));
-            request.parameters().add(new StringValue(status.getDescription()));
-            invokeRpcIfValidConnection(request);
-            if (request.isError()) {
-                throw new IllegalArgumentException("Failed delivering eof for reference '" + fileData.fileReference().value() +
-                                                           "' with file '" + fileData.filename() + "' to " +
-                                                           target.toString() + " with error: '" + request.errorMessage() + "'.");
-            } else {
-                if (request.returnValues().get(0).asInt32() != 0) {
-                    throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
-                }
-            }
-        }
-
-        private void invokeRpcIfValidConnection(Request request) {
-            if (target.isValid()) {
-                target.invokeSync(request, Duration.ofMinutes(10));
-            } else {
-                throw new RuntimeException("Connection to " + target + " is invalid", target.getConnectionLostReason());
-            }
+            new FileReferenceSender(target).send(fileData, status.getCode(), status.getDescription());
         }
     }
 
@@ -556,11 +501,59 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
                     var acceptedCompressionTypes = Arrays.stream(request.parameters().get(2).asStringArray())
                             .map(CompressionType::valueOf)
                             .collect(Collectors.toSet());
+                    // Newer clients also send the chunks they already have, see ChunkIndex
+                    Optional<Set<Long>> knownChunks = request.parameters().size() > 3
+                            ? Optional.of(LongStream.of(request.parameters().get(3).asInt64Array()).boxed().collect(Collectors.toSet()))
+                            : Optional.empty();
                     var receiver = new ChunkedFileReceiver(request.target());
-                    fileServer.serveFile(reference, downloadFromOtherSourceIfNotFound, acceptedCompressionTypes, request, receiver);
+                    fileServer.serveFile(reference, downloadFromOtherSourceIfNotFound, acceptedCompressionTypes, knownChunks, request, receiver);
+                });
+    }
+
+    private void getFileSource(Request request) {
+        request.detach();
+        rpcAuthorizer.authorizeFileRequest(request)
+                .thenRun(() -> {
+                    var reference = new FileReference(request.parameters().get(0).asString());
+                    // Nodes verify what they download from peers against the digest of this copy, so without one they use this
+                    var digest = fileServer.digest(reference);
+                    var source = digest.isPresent() ? fileServer.peerTracker().source(reference, callerSpec(request))
+                                                    : FilePeerTracker.Source.server();
+                    request.returnValues().add(new Int32Value(source.type().ordinal()));
+                    request.returnValues().add(new StringValue(source.peer()));
+                    request.returnValues().add(new StringValue(digest.orElse("")));
+                    request.returnRequest();
                 });
     }
 
+    private void fileDownloaded(Request request) {
+        request.detach();
+        rpcAuthorizer.authorizeFileRequest(request)
+                .thenRun(() -> {
+                    fileServer.peerTracker().downloaded(new FileReference(request.parameters().get(0).asString()),
+                                                        callerSpec(request));
+                    request.returnValues().add(new Int32Value(0));
+                    request.returnRequest();
+                });
+    }
+
+    private void verifyFileSource(Request request) {
+        request.detach();
+        rpcAuthorizer.authorizeFileRequest(request)
+                .thenRun(() -> {
+                    boolean isSource = fileServer.peerTracker().isSourceFor(new FileReference(request.parameters().get(0).asString()),
+                                                                            callerSpec(request),
+                                                                            request.parameters().get(2).asString());
+                    request.returnValues().add(new Int32Value(isSource ? 1 : 0));
+                    request.returnRequest();
+                });
+    }
+
+    // The host of the connection the request came on, rather than the one the caller claims, with the port it serves file references on
+    private static String callerSpec(Request request) {
+        return new Spec(request.target().peerSpec().host(), new Spec(request.parameters().get(1).asString()).port()).toString();
+    }
+
     private void setFileReferencesToDownload(Request req) {
         req.detach();
         rpcAuthorizer.authorizeFileRequest(req)
@@ -156,7 +156,9 @@ public class SessionPreparer {
                 preparation.writeEndpointCertificateMetadataZK();
                 preparation.writeContainerEndpointsZK();
             }
-            log.log(Level.FINE, () -> "time used " + params.getTimeoutBudget().timesUsed() + " : " + applicationId);
+            String timesUsed = params.getTimeoutBudget().timesUsed();
+            log.log(Level.FINE, () -> "time used " + timesUsed + " : " + applicationId);
+            logger.log(Level.FINE, () -> "Prepare time used " + timesUsed);
             return preparation.result();
         }
         catch (IllegalArgumentException e) {
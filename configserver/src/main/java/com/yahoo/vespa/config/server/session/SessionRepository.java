@@ -454,10 +454,17 @@ public class SessionRepository {
 
         CompletionWaiter waiter = createSessionZooKeeperClient(sessionId).getActiveWaiter();
         log.log(Level.FINE, () -> session.logPre() + "Activating " + sessionId);
-        applicationRepo.activateApplication(ensureApplicationLoaded(session), sessionId);
-        log.log(Level.FINE, () -> session.logPre() + "Notifying " + waiter);
-        notifyCompletion(waiter);
-        log.log(Level.INFO, session.logPre() + "Session activated: " + sessionId);
+        // The waiter is notified only when the session is active here, which may be after configs are precomputed for it
+        applicationRepo.activateApplication(ensureApplicationLoaded(session), sessionId)
+                       .whenComplete((__, e) -> {
+                           if (e != null) {
+                               log.log(Level.WARNING, session.logPre() + "Failed activating session " + sessionId, e);
+                               return;
+                           }
+                           log.log(Level.FINE, () -> session.logPre() + "Notifying " + waiter);
+                           notifyCompletion(waiter);
+                           log.log(Level.INFO, session.logPre() + "Session activated: " + sessionId);
+                       });
     }
 
     private void loadSessionIfActive(RemoteSession session) {
@@ -465,8 +472,9 @@ public class SessionRepository {
             Optional<Long> activeSession = applicationRepo.activeSessionOf(applicationId);
             if (activeSession.isPresent() && activeSession.get() == session.getSessionId()) {
                 log.log(Level.FINE, () -> "Found active application for session " + session.getSessionId() + " , loading it");
-                applicationRepo.activateApplication(ensureApplicationLoaded(session), session.getSessionId());
-                log.log(Level.INFO, session.logPre() + "Application activated successfully: " + applicationId + " (generation " + session.getSessionId() + ")");
+                applicationRepo.activateApplication(ensureApplicationLoaded(session), session.getSessionId())
+                               .thenRun(() -> log.log(Level.INFO, session.logPre() + "Application activated successfully: " + applicationId +
+                                                                  " (generation " + session.getSessionId() + ")"));
                 return;
             }
         }
@@ -120,6 +120,8 @@ public class TenantRepository {
     private final ConfigActivationListener configActivationListener;
     private final ScheduledExecutorService checkForRemovedApplicationsService =
             new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("check for removed applications"));
+    private final ExecutorService configPrecomputeExecutor =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("config precompute"));
     private final Curator.DirectoryCache directoryCache;
     private final ZookeeperServerConfig zookeeperServerConfig;
     private final List<EndpointCertificateSecretStore> endpointCertificateSecretStores;
@@ -350,6 +352,7 @@ public class TenantRepository {
                                        curator,
                                        zkApplicationWatcherExecutor,
                                        zkCacheExecutor,
+                                       configPrecomputeExecutor,
                                        metrics,
                                        configActivationListener,
                                        configserverConfig,
@@ -565,6 +568,7 @@ public class TenantRepository {
         try {
             zkCacheExecutor.shutdown();
             checkForRemovedApplicationsService.shutdown();
+            configPrecomputeExecutor.shutdown();
             zkApplicationWatcherExecutor.shutdownAndWait();
             zkSessionWatcherExecutor.shutdownAndWait();
             zkCacheExecutor.awaitTermination(50, TimeUnit.SECONDS);
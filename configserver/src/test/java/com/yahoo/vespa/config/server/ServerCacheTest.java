@@ -1,21 +1,34 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.config.server;
 
+import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.GetConfigRequest;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.SlimeConfigResponse;
+import com.yahoo.vespa.config.server.http.HttpConfigRequest;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.yahoo.jdisc.http.HttpRequest.Method.GET;
 import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Ulf Lilleengen
@@ -77,6 +90,37 @@ public class ServerCacheTest {
         assertSame(cache.get(fooBarCacheKey), cache.get(bazQuuxCacheKey));
     }
 
+    @Test
+    public void testThatConcurrentRequestsForSameConfigShareComputation() throws Exception {
+        ConfigCacheKey key = new ConfigCacheKey(new ConfigKey<>("foo", "id3", "bar"), defMd5);
+        CountDownLatch computing = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        AtomicInteger computations = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ConfigResponse>> responses = executor.invokeAll(List.of(
+                    () -> cache.computeIfAbsent(key, __ -> { computations.incrementAndGet(); computing.countDown(); release.join(); return createResponse(xxhash64); }),
+                    () -> { computing.await(); return cache.computeIfAbsent(key, __ -> { computations.incrementAndGet(); return createResponse(xxhash64_2); }); },
+                    () -> { computing.await(); release.complete(null); return null; }));
+            assertEquals(1, computations.get());
+            assertSame(responses.get(0).get(), responses.get(1).get());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testThatRequestsAreRemembered() {
+        assertTrue(cache.requests().isEmpty());
+        GetConfigRequest request = HttpConfigRequest.createFromRequestV1(HttpRequest.createTestRequest("http://foo:1337/config/v1/bar.foo/id3", GET));
+        cache.computeIfAbsent(new ConfigCacheKey(request.getConfigKey(), request.getRequestDefMd5()), request, __ -> createResponse(xxhash64));
+        assertEquals(1, cache.requests().size());
+        GetConfigRequest remembered = cache.requests().iterator().next();
+        assertEquals(request.getConfigKey(), remembered.getConfigKey());
+        assertEquals(request.getRequestDefMd5(), remembered.getRequestDefMd5());
+    }
+
     SlimeConfigResponse createResponse(String xxhash64) {
         return SlimeConfigResponse.fromConfigPayload(ConfigPayload.empty(), 2, false,
                                                      PayloadChecksums.from("", xxhash64));
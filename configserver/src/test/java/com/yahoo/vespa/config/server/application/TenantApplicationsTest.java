@@ -5,18 +5,25 @@ import com.yahoo.cloud.config.ConfigserverConfig;
 import com.yahoo.component.Version;
 import com.yahoo.concurrent.InThreadExecutorService;
 import com.yahoo.concurrent.StripedExecutor;
+import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.config.model.NullConfigModelRegistry;
 import com.yahoo.config.model.application.provider.FilesApplicationPackage;
 import com.yahoo.config.model.deploy.DeployState;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.text.Utf8;
+import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.GetConfigRequest;
+import com.yahoo.vespa.config.PayloadChecksums;
+import com.yahoo.vespa.config.protocol.SlimeConfigResponse;
 import com.yahoo.vespa.config.server.ConfigActivationListener;
 import com.yahoo.vespa.config.server.ConfigServerDB;
 import com.yahoo.vespa.config.server.ServerCache;
 import com.yahoo.vespa.config.server.deploy.TenantFileSystemDirs;
 import com.yahoo.vespa.config.server.host.HostRegistry;
+import com.yahoo.vespa.config.server.http.HttpConfigRequest;
 import com.yahoo.vespa.config.server.model.TestModelFactory;
 import com.yahoo.vespa.config.server.modelfactory.ModelFactoryRegistry;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
@@ -45,9 +52,17 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
+import static com.yahoo.jdisc.http.HttpRequest.Method.GET;
+import static com.yahoo.yolean.Exceptions.uncheckInterrupted;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -149,13 +164,18 @@ public class TenantApplicationsTest {
     }
 
     private static ApplicationVersions createApplicationVersions(ApplicationId id, Version version) throws IOException, SAXException {
+        return createApplicationVersions(id, version, 1, new ServerCache());
+    }
+
+    private static ApplicationVersions createApplicationVersions(ApplicationId id, Version version, long generation, ServerCache cache)
+            throws IOException, SAXException {
         VespaModel model = new VespaModel(new NullConfigModelRegistry(),
                                           new DeployState.Builder().wantedNodeVespaVersion(version)
                                                                    .applicationPackage(FilesApplicationPackage.fromFile(new File("src/test/apps/app")))
                                                                    .build());
         return ApplicationVersions.from(new Application(model,
-                                                        new ServerCache(),
-                                                        1,
+                                                        cache,
+                                                        generation,
                                                         Version.emptyVersion,
                                                         MetricUpdater.createTestUpdater(),
                                                         id));
@@ -189,6 +209,40 @@ public class TenantApplicationsTest {
         assertTrue("Node is compatible after upgrading", applications.compatibleWith(Optional.of(nodeVersion1), app1));
     }
 
+    @Test
+    public void new_generation_is_activated_when_configs_are_precomputed() throws Exception {
+        CountDownLatch precomputeAllowed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Executor precomputeExecutor = command -> executor.execute(() -> {
+            uncheckInterrupted(() -> precomputeAllowed.await());
+            command.run();
+        });
+        MockConfigActivationListener listener = new MockConfigActivationListener();
+        TenantApplications applications = createTenantApplications(tenantName, curator, configserverConfig, listener,
+                                                                   new InMemoryFlagSource(), precomputeExecutor);
+        ApplicationId id = createApplicationId("myapp");
+        applications.createApplication(id);
+        writeActiveTransaction(applications, id, 1);
+        ServerCache cache = new ServerCache();
+        assertTrue("Nothing to precompute for the first generation",
+                   applications.activateApplication(createApplicationVersions(id, vespaVersion, 1, cache), 1).isDone());
+        assertEquals(1, listener.activated.get());
+
+        // A config requested from the active generation is precomputed for the next
+        GetConfigRequest request = HttpConfigRequest.createFromRequestV1(HttpRequest.createTestRequest("http://foo:1337/config/v1/cloud.config.sentinel/hosts", GET));
+        cache.computeIfAbsent(new ConfigCacheKey(request.getConfigKey(), request.getRequestDefMd5()), request,
+                              __ -> SlimeConfigResponse.fromConfigPayload(ConfigPayload.empty(), 1, false, PayloadChecksums.empty()));
+        writeActiveTransaction(applications, id, 2);
+        CompletableFuture<Void> activated = applications.activateApplication(createApplicationVersions(id, vespaVersion, 2, new ServerCache()), 2);
+        assertFalse(activated.isDone());
+        assertEquals(1, listener.activated.get());
+
+        precomputeAllowed.countDown();
+        activated.get(1, TimeUnit.MINUTES);
+        assertEquals(2, listener.activated.get());
+        executor.shutdown();
+    }
+
     public static class MockConfigActivationListener implements ConfigActivationListener {
         public final AtomicInteger activated = new AtomicInteger(0);
         final AtomicInteger removed = new AtomicInteger(0);
@@ -315,10 +369,20 @@ public class TenantApplicationsTest {
                                                         Curator curator,
                                                         ConfigserverConfig configserverConfig,
                                                         ConfigActivationListener configActivationListener, InMemoryFlagSource flagSource) {
+        return createTenantApplications(tenantName, curator, configserverConfig, configActivationListener, flagSource,
+                                        new InThreadExecutorService());
+    }
+
+    private TenantApplications createTenantApplications(TenantName tenantName,
+                                                        Curator curator,
+                                                        ConfigserverConfig configserverConfig,
+                                                        ConfigActivationListener configActivationListener, InMemoryFlagSource flagSource,
+                                                        Executor configPrecomputeExecutor) {
         return new TenantApplications(tenantName,
                                       curator,
                                       new StripedExecutor<>(new InThreadExecutorService()),
                                       new InThreadExecutorService(),
+                                      configPrecomputeExecutor,
                                       Metrics.createTestMetrics(),
                                       configActivationListener,
                                       configserverConfig,
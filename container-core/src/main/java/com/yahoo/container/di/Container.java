@@ -18,7 +18,6 @@ import com.yahoo.container.di.config.ApplicationBundlesConfig;
 import com.yahoo.container.di.config.PlatformBundlesConfig;
 import com.yahoo.container.di.config.SubscriberFactory;
 import com.yahoo.vespa.config.ConfigKey;
-import com.yahoo.yolean.UncheckedInterruptedException;
 import org.osgi.framework.Bundle;
 
 import java.util.ArrayList;
@@ -51,6 +50,7 @@ public class Container {
     private final Osgi osgi;
 
     private final ConfigRetriever retriever;
+    private final int constructionThreads;
     private List<String> platformBundles;  // Used to verify that platform bundles don't change.
     private long previousConfigGeneration = -1L;
     private long leastGeneration = -1L;
@@ -65,6 +65,18 @@ public class Container {
         componentsConfigKey = new ConfigKey<>(ComponentsConfig.class, configId);
         var bootstrapKeys = Set.of(applicationBundlesConfigKey, platformBundlesConfigKey, componentsConfigKey);
         this.retriever = new ConfigRetriever(bootstrapKeys, subscriberFactory);
+        this.constructionThreads = constructionThreads();
+    }
+
+    /** Returns the max number of components to construct concurrently, which may be set to 1 to construct them one by one */
+    private static int constructionThreads() {
+        String threads = System.getenv("VESPA_COMPONENT_CONSTRUCTION_THREADS");
+        try {
+            if (threads != null && ! threads.isBlank()) return Math.max(1, Integer.parseInt(threads.trim()));
+        } catch (NumberFormatException e) {
+            log.warning("Ignoring invalid VESPA_COMPONENT_CONSTRUCTION_THREADS '" + threads + "'");
+        }
+        return Math.min(Runtime.getRuntime().availableProcessors(), 16);
     }
 
     // TODO: try to simplify by returning the result even when the graph failed, instead of throwing here.
@@ -102,11 +114,7 @@ public class Container {
     }
 
     private void constructComponents(ComponentGraph graph) {
-        graph.nodes().forEach(n -> {
-            if (Thread.interrupted())
-                throw new UncheckedInterruptedException("Interrupted while constructing component graph", true);
-            n.constructInstance();
-        });
+        graph.constructInstances(constructionThreads);
     }
 
     private ComponentGraph waitForNewConfigGenAndCreateGraph(
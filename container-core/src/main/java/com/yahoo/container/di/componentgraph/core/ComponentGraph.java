@@ -11,26 +11,38 @@ import com.google.inject.Key;
 import com.yahoo.collections.Pair;
 import com.yahoo.component.ComponentId;
 import com.yahoo.component.provider.ComponentRegistry;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.config.ConfigInstance;
 import com.yahoo.container.di.componentgraph.Provider;
 import com.yahoo.container.di.componentgraph.cycle.CycleFinder;
 import com.yahoo.container.di.componentgraph.cycle.Graph;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.yolean.UncheckedInterruptedException;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -163,6 +175,127 @@ public class ComponentGraph {
         }
     }
 
+    /**
+     * Constructs the instances of all nodes in this which are not already constructed, using at most the given number
+     * of threads. A node is constructed when all the nodes it uses are, so independent nodes are constructed concurrently.
+     * If construction of a node fails, no more nodes are constructed, the nodes already being constructed are allowed
+     * to finish, and the failure of the first failed node in dependency order is thrown.
+     */
+    public void constructInstances(int threads) {
+        List<Node> ordered = topologicalSort(nodes());
+        Map<ComponentId, Integer> index = new HashMap<>();
+        Map<ComponentId, Integer> remainingDependencies = new HashMap<>();
+        Map<ComponentId, List<Node>> users = new HashMap<>();
+        for (Node node : ordered) {
+            index.put(node.componentId(), index.size());
+            Set<ComponentId> dependencies = new HashSet<>();
+            for (Node used : node.usedComponents())
+                if (dependencies.add(used.componentId()))
+                    users.computeIfAbsent(used.componentId(), __ -> new ArrayList<>()).add(node);
+            remainingDependencies.put(node.componentId(), dependencies.size());
+        }
+
+        Instant start = Instant.now();
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new DaemonThreadFactory("component-construction-"));
+        CompletionService<Construction> constructions = new ExecutorCompletionService<>(executor);
+        List<Construction> failures = new ArrayList<>();
+        boolean interrupted = false;
+        int running = 0;
+        try {
+            for (Node node : ordered) {
+                if (remainingDependencies.get(node.componentId()) == 0) {
+                    constructions.submit(() -> construct(node, contextClassLoader));
+                    running++;
+                }
+            }
+            while (running > 0) {
+                Future<Construction> done;
+                try {
+                    done = constructions.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+                running--;
+                Construction construction = getUninterruptibly(done);
+                if (construction.failure() != null)
+                    failures.add(construction);
+                if ( ! failures.isEmpty() || interrupted || Thread.currentThread().isInterrupted()) continue;
+
+                for (Node user : users.getOrDefault(construction.node().componentId(), List.of())) {
+                    if (remainingDependencies.merge(user.componentId(), -1, Integer::sum) == 0) {
+                        constructions.submit(() -> construct(user, contextClassLoader));
+                        running++;
+                    }
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        if ( ! failures.isEmpty()) {
+            failures.sort(Comparator.comparing(failure -> index.get(failure.node().componentId())));
+            for (Construction failure : failures.subList(1, failures.size()))
+                log.log(Level.WARNING, "Also failed constructing " + failure.node().idAndType() + ": " + failure.failure().getMessage());
+            Throwable failure = failures.get(0).failure();
+            if (failure instanceof RuntimeException runtimeException) throw runtimeException;
+            if (failure instanceof Error error) throw error;
+            throw new RuntimeException(failure);
+        }
+        if (interrupted || Thread.interrupted())
+            throw new UncheckedInterruptedException("Interrupted while constructing component graph", true);
+
+        logConstructionTimes(Duration.between(start, Instant.now()), threads);
+    }
+
+    private static Construction construct(Node node, ClassLoader contextClassLoader) {
+        Thread.currentThread().setContextClassLoader(contextClassLoader);
+        try {
+            node.constructInstance();
+            return new Construction(node, null);
+        } catch (Throwable t) {
+            return new Construction(node, t);
+        }
+    }
+
+    private static Construction getUninterruptibly(Future<Construction> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Unexpected failure constructing component", e.getCause());
+                }
+            }
+        }
+        finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private void logConstructionTimes(Duration elapsed, int threads) {
+        List<Node> constructed = nodes().stream()
+                                        .filter(node -> node.constructionTime().isPresent())
+                                        .sorted(Comparator.comparing((Node node) -> node.constructionTime().get()).reversed())
+                                        .toList();
+        if (constructed.isEmpty()) return;
+
+        Duration total = constructed.stream().map(node -> node.constructionTime().get()).reduce(Duration.ZERO, Duration::plus);
+        log.log(elapsed.compareTo(Duration.ofMinutes(1)) > 0 ? Level.INFO : Level.FINE,
+                () -> "Constructed " + constructed.size() + " components of generation " + generation + " in " + elapsed +
+                      " using " + threads + " threads (" + total + " in total). Slowest: " +
+                      constructed.stream().limit(5)
+                                 .map(node -> node.idAndType() + " in " + node.constructionTime().get())
+                                 .collect(Collectors.joining(", ")));
+    }
+
+    private record Construction(Node node, Throwable failure) { }
+
     /** All constructed components and providers of this, in reverse creation order, i.e., suited for ordered deconstruction. */
     public List<Object> allConstructedComponentsAndProviders() {
         List<Node> orderedNodes = topologicalSort(nodes());
@@ -417,6 +550,7 @@ public class ComponentGraph {
                 throw new IllegalStateException("There is a cycle in the component injection graph: " + findCycle(notReady));
             }
 
+            ready.sort(Comparator.comparing(Node::componentId));
             ready.forEach(node -> node.usedComponents()
                     .forEach(injectedNode -> numIncoming.merge(injectedNode.componentId(), -1, (a, b) -> a + b)));
             sorted.addAll(0, ready);
@@ -7,6 +7,8 @@ import com.yahoo.config.ConfigInstance;
 import com.yahoo.container.di.componentgraph.Provider;
 import com.yahoo.vespa.config.ConfigKey;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -23,6 +25,7 @@ public abstract class Node {
 
     private final ComponentId componentId;
     protected volatile Optional<Object> instance = Optional.empty();
+    private volatile Optional<Duration> constructionTime = Optional.empty();
     List<Node> componentsToInject = new ArrayList<>();
 
     public Node(ComponentId componentId) {
@@ -39,9 +42,12 @@ public abstract class Node {
     protected abstract Object newInstance();
 
     /** Constructs the instance represented by this node, if not already done. */
-    public void constructInstance() {
-        if ( ! instance.isPresent())
+    public synchronized void constructInstance() {
+        if ( ! instance.isPresent()) {
+            Instant start = Instant.now();
             instance = Optional.of(newInstance());
+            constructionTime = Optional.of(Duration.between(start, Instant.now()));
+        }
     }
 
     /**
@@ -52,7 +58,10 @@ public abstract class Node {
         constructInstance();
         if (instance.get() instanceof Provider) {
             Provider<?> provider = (Provider<?>) instance.get();
-            return provider.get();
+            // Components using the same provider may be constructed concurrently
+            synchronized (provider) {
+                return provider.get();
+            }
         } else {
             return instance.get();
         }
@@ -142,6 +151,11 @@ public abstract class Node {
         return instance;
     }
 
+    /** Returns the time spent constructing the instance of this, or empty if it was not constructed by this node */
+    public Optional<Duration> constructionTime() {
+        return constructionTime;
+    }
+
     /**
      * @param identityObject he identifying object that makes the Node unique
      */
@@ -11,6 +11,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -45,19 +46,29 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
         int maxThreads = maxThreads(config, cpus);
         int minThreads = minThreads(config, maxThreads, cpus);
         int queueSize = queueSize(config, maxThreads);
-        log.info(String.format("Threadpool '%s': min=%d, max=%d, queue=%d", name, minThreads, maxThreads, queueSize));
-
         ThreadPoolMetric threadPoolMetric = new ThreadPoolMetric(metric, name);
-        WorkerCompletionTimingThreadPoolExecutor executor =
-                new WorkerCompletionTimingThreadPoolExecutor(minThreads, maxThreads,
-                        (long) config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
-                        createQueue(queueSize),
-                        ThreadFactoryFactory.getThreadFactory(name),
-                        threadPoolMetric);
-        // Pre-start needed, if not all threads will be created by the fist N tasks and hence they might also
-        // get the dreaded thread locals initialized even if they will never run.
-        // That counters what we want to achieve with the Q that will prefer thread locality.
-        executor.prestartAllCoreThreads();
+        ThreadFactory virtualThreadFactory = config.virtualThreads() ? ThreadFactoryFactory.getVirtualThreadFactory(name + "-").orElse(null) : null;
+        InstrumentedExecutorService executor;
+        if (virtualThreadFactory != null) {
+            log.info(String.format("Threadpool '%s': virtual threads, max concurrent=%d, queue=%d", name, maxThreads, queueSize));
+            executor = new ThreadPerTaskExecutor(maxThreads, createQueue(queueSize), virtualThreadFactory, threadPoolMetric);
+        }
+        else {
+            if (config.virtualThreads())
+                log.warning(String.format("Threadpool '%s': virtual threads are not available in this JVM, using platform threads", name));
+            log.info(String.format("Threadpool '%s': min=%d, max=%d, queue=%d", name, minThreads, maxThreads, queueSize));
+            WorkerCompletionTimingThreadPoolExecutor threadPoolExecutor =
+                    new WorkerCompletionTimingThreadPoolExecutor(minThreads, maxThreads,
+                            (long) config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
+                            createQueue(queueSize),
+                            ThreadFactoryFactory.getThreadFactory(name),
+                            threadPoolMetric);
+            // Pre-start needed, if not all threads will be created by the fist N tasks and hence they might also
+            // get the dreaded thread locals initialized even if they will never run.
+            // That counters what we want to achieve with the Q that will prefer thread locality.
+            threadPoolExecutor.prestartAllCoreThreads();
+            executor = threadPoolExecutor;
+        }
         threadpool = new ExecutorServiceWrapper(
                 executor, threadPoolMetric, processTerminator, config.maxThreadExecutionTimeSeconds() * 1000L,
                 name);
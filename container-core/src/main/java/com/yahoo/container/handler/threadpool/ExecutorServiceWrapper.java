@@ -20,7 +20,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 class ExecutorServiceWrapper extends ForwardingExecutorService {
 
-    private final WorkerCompletionTimingThreadPoolExecutor wrapped;
+    private final InstrumentedExecutorService wrapped;
     private final ThreadPoolMetric metric;
     private final ProcessTerminator processTerminator;
     private final long maxThreadExecutionTimeMillis;
@@ -29,7 +29,7 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
     private final boolean threadPoolIsOnlyQ;
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
-    ExecutorServiceWrapper(WorkerCompletionTimingThreadPoolExecutor wrapped,
+    ExecutorServiceWrapper(InstrumentedExecutorService wrapped,
                            ThreadPoolMetric metric,
                            ProcessTerminator processTerminator,
                            long maxThreadExecutionTimeMillis,
@@ -38,10 +38,10 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
         this.metric = metric;
         this.processTerminator = processTerminator;
         this.maxThreadExecutionTimeMillis = maxThreadExecutionTimeMillis;
-        int maxQueueCapacity = wrapped.getQueue().remainingCapacity() + wrapped.getQueue().size();
+        int maxQueueCapacity = wrapped.queueCapacity();
         this.threadPoolIsOnlyQ = (maxQueueCapacity == 0);
         this.queueCapacity = threadPoolIsOnlyQ
-                ? wrapped.getMaximumPoolSize()
+                ? wrapped.maxPoolSize()
                 : maxQueueCapacity;
         reportMetrics();
         metricReporter = new Thread(this::reportMetricsRegularly);
@@ -50,11 +50,11 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
     }
 
     private void reportMetrics() {
-        int activeThreads = wrapped.getActiveCount();
-        metric.reportThreadPoolSize(wrapped.getPoolSize());
-        metric.reportMaxAllowedThreadPoolSize(wrapped.getMaximumPoolSize());
+        int activeThreads = wrapped.activeCount();
+        metric.reportThreadPoolSize(wrapped.poolSize());
+        metric.reportMaxAllowedThreadPoolSize(wrapped.maxPoolSize());
         metric.reportActiveThreads(activeThreads);
-        int queueSize = threadPoolIsOnlyQ ? activeThreads : wrapped.getQueue().size();
+        int queueSize = threadPoolIsOnlyQ ? activeThreads : wrapped.queueSize();
         metric.reportWorkQueueSize(queueSize);
         metric.reportWorkQueueCapacity(queueCapacity);
     }
@@ -101,7 +101,7 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
             super.execute(command);
         } catch (RejectedExecutionException e) {
             metric.reportRejectRequest();
-            long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis;
+            long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis();
             if (timeSinceLastReturnedThreadMillis > maxThreadExecutionTimeMillis)
                 processTerminator.logAndDie("No worker threads have been available for " +
                         timeSinceLastReturnedThreadMillis + " ms. Shutting down.", true);
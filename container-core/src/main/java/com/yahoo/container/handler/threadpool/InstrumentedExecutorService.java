@@ -0,0 +1,29 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An executor service which exposes what is reported as metrics for a container thread pool.
+ */
+interface InstrumentedExecutorService extends ExecutorService {
+
+    /** Returns the current number of worker threads */
+    int poolSize();
+
+    /** Returns the max number of tasks which may run concurrently */
+    int maxPoolSize();
+
+    /** Returns the number of tasks currently running */
+    int activeCount();
+
+    /** Returns the number of tasks waiting for a worker */
+    int queueSize();
+
+    /** Returns the max number of tasks which may wait for a worker, before new tasks are rejected */
+    int queueCapacity();
+
+    /** Returns the last time, in epoch milliseconds, a task was assigned to a worker */
+    long lastThreadAssignmentTimeMillis();
+
+}
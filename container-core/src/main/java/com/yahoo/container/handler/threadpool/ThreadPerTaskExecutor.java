@@ -0,0 +1,169 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor which runs tasks on new threads instead of on a pool of threads, intended for virtual threads,
+ * which are cheap to create and do not hold on to a platform thread while blocked.
+ * A semaphore bounds the number of concurrently running tasks instead of the number of threads:
+ * Tasks submitted when the bound is reached wait in a queue, and are rejected when the queue is full,
+ * just like with a thread pool. A thread continues with queued tasks before it exits.
+ */
+class ThreadPerTaskExecutor extends AbstractExecutorService implements InstrumentedExecutorService {
+
+    private final ThreadFactory threadFactory;
+    private final ThreadPoolMetric metric;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final BlockingQueue<Runnable> queue;
+    private final int queueCapacity;
+    private final AtomicInteger workers = new AtomicInteger();
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final Object monitor = new Object();
+    private volatile boolean shutdown = false;
+    private volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+
+    ThreadPerTaskExecutor(int maxConcurrent, BlockingQueue<Runnable> queue, ThreadFactory threadFactory, ThreadPoolMetric metric) {
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("Max concurrent tasks must be positive, but got " + maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.queue = queue;
+        this.queueCapacity = queue.remainingCapacity();
+        this.threadFactory = threadFactory;
+        this.metric = metric;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Objects.requireNonNull(task);
+        if (shutdown)
+            throw new RejectedExecutionException("Executor is shut down");
+        if (permits.tryAcquire()) {
+            startWorker(task);
+            return;
+        }
+        if ( ! queue.offer(task))
+            throw new RejectedExecutionException("Already running " + maxConcurrent + " tasks, and " + queue.size() + " tasks are queued");
+
+        // All workers may have exited between the failed acquire and queuing the task
+        if (permits.tryAcquire()) {
+            Runnable queued = queue.poll();
+            if (queued == null) { // Taken by a worker which is still running
+                permits.release();
+                return;
+            }
+            try {
+                startWorker(queued);
+            } catch (RejectedExecutionException e) {
+                requeueOrReject(queued, task, e);
+            }
+        }
+    }
+
+    /**
+     * Puts back a task which was taken from the queue, but could not be started. If the queue has filled up
+     * in the meantime, the given task is rejected in its place, so no task is dropped without its submitter knowing.
+     */
+    private void requeueOrReject(Runnable queued, Runnable task, RejectedExecutionException e) {
+        if (queued == task) throw e;
+        if (queue.offer(queued)) return;
+        if (queue.remove(task) && queue.offer(queued)) throw e;
+        throw new IllegalStateException("Lost a queued task after failing to start a worker thread", e);
+    }
+
+    /** Starts a worker thread holding a permit, which runs the given task, if any, and then the queued ones */
+    private void startWorker(Runnable first) {
+        workers.incrementAndGet();
+        try {
+            threadFactory.newThread(() -> work(first)).start();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            workers.decrementAndGet();
+            permits.release();
+            throw new RejectedExecutionException("Failed starting worker thread", e);
+        }
+    }
+
+    private void work(Runnable task) {
+        Thread thread = Thread.currentThread();
+        threads.add(thread);
+        try {
+            while (true) {
+                while (task != null) {
+                    run(thread, task);
+                    task = queue.poll();
+                }
+                permits.release();
+                // A task may have been queued after the queue was found empty, but before the permit was released
+                if (queue.isEmpty() || ! permits.tryAcquire()) break;
+                task = queue.poll();
+            }
+        } finally {
+            threads.remove(thread);
+            workers.decrementAndGet();
+            synchronized (monitor) { monitor.notifyAll(); }
+        }
+    }
+
+    private void run(Thread thread, Runnable task) {
+        lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+        try {
+            task.run();
+        } catch (Throwable t) {
+            // Report like a thread pool would, but keep the worker, which holds the permit
+            metric.reportUnhandledException(t);
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        }
+    }
+
+    @Override
+    public void shutdown() { shutdown = true; }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        threads.forEach(Thread::interrupt);
+        return queued;
+    }
+
+    @Override
+    public boolean isShutdown() { return shutdown; }
+
+    @Override
+    public boolean isTerminated() { return shutdown && workers.get() == 0 && queue.isEmpty(); }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (monitor) {
+            while ( ! isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override public int poolSize() { return workers.get(); }
+    @Override public int maxPoolSize() { return maxConcurrent; }
+    @Override public int activeCount() { return maxConcurrent - permits.availablePermits(); }
+    @Override public int queueSize() { return queue.size(); }
+    @Override public int queueCapacity() { return queueCapacity; }
+    @Override public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
+}
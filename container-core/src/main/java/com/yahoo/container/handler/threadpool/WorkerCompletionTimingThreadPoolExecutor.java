@@ -14,7 +14,7 @@ import java.util.concurrent.atomic.AtomicLong;
  * @author baldersheim
  * @author bratseth
  */
-class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor {
+class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor implements InstrumentedExecutorService {
 
     volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
     private final AtomicLong startedCount = new AtomicLong(0);
@@ -53,5 +53,12 @@ class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor {
         return (int)(startedCount.get() - completedCount.get());
     }
 
+    @Override public int poolSize() { return getPoolSize(); }
+    @Override public int maxPoolSize() { return getMaximumPoolSize(); }
+    @Override public int activeCount() { return getActiveCount(); }
+    @Override public int queueSize() { return getQueue().size(); }
+    @Override public int queueCapacity() { return getQueue().remainingCapacity() + getQueue().size(); }
+    @Override public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
 }
 
@@ -3,10 +3,10 @@ package com.yahoo.container.jdisc.state;
 
 import com.yahoo.json.Jackson;
 import ai.vespa.metrics.set.InfrastructureMetricSet;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.collections.Tuple2;
@@ -15,18 +15,18 @@ import com.yahoo.jdisc.Request;
 import com.yahoo.jdisc.Response;
 import com.yahoo.jdisc.Timer;
 import com.yahoo.jdisc.handler.AbstractRequestHandler;
+import com.yahoo.jdisc.handler.BufferedContentChannel;
 import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.FastContentOutputStream;
 import com.yahoo.jdisc.handler.ResponseDispatch;
 import com.yahoo.jdisc.handler.ResponseHandler;
 import com.yahoo.jdisc.http.HttpHeaders;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -80,61 +80,56 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
 
     @Override
     public ContentChannel handleRequest(Request request, ResponseHandler handler) {
-        new ResponseDispatch() {
+        // Rendered before the response is committed, so a failure gives an error response rather than truncated content
+        BufferedContentChannel content = new BufferedContentChannel();
+        try (OutputStream out = new FastContentOutputStream(content)) {
+            writeMetricOutput(request.getUri().getQuery(), out);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Bad JSON construction.", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Unexcpected IOException.", e);
+        }
+        content.connectTo(new ResponseDispatch() {
             @Override
             protected Response newResponse() {
                 Response response = new Response(Response.Status.OK);
                 response.headers().add(HttpHeaders.Names.CONTENT_TYPE, getContentType(request.getUri().getQuery()));
                 return response;
             }
-
-            @Override
-            protected Iterable<ByteBuffer> responseContent() {
-                return Set.of(ByteBuffer.wrap(buildMetricOutput(request.getUri().getQuery())));
-            }
-        }.dispatch(handler);
+        }.connect(handler));
 
         return null;
     }
 
-    private byte[] buildMetricOutput(String query) {
-        try {
-            var queryMap = parseQuery(query);
-            var metricSetId = queryMap.get("metric-set");
-            var format = queryMap.get("format");
-
-            if ("array".equals(format)) {
-                return getMetricsArray(metricSetId);
-            }
-            if ("prometheus".equals(format)) {
-                return buildPrometheusOutput(metricSetId);
-            }
+    /** Writes the metrics to the given stream one packet at a time, so only the rendered output is held in memory */
+    private void writeMetricOutput(String query, OutputStream out) throws IOException {
+        var queryMap = parseQuery(query);
+        var metricSetId = queryMap.get("metric-set");
+        var format = queryMap.get("format");
+        long timestamp = timer.currentTimeMillis();
 
-            String output = getAllMetricsPackets(metricSetId) + "\n";
-            return output.getBytes(StandardCharsets.UTF_8);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Bad JSON construction.", e);
-        } catch (IOException e) {
-            throw new RuntimeException("Unexcpected IOException.", e);
+        if ("array".equals(format)) {
+            writeMetricsArray(metricSetId, timestamp, out);
+        }
+        else if ("prometheus".equals(format)) {
+            writePacketsForSnapshot(getSnapshot(), metricSetId, applicationName, timestamp,
+                                    packet -> PrometheusHelper.writePrometheusOutput(packet, timestamp, out));
+        }
+        else {
+            writeAllMetricsPackets(metricSetId, timestamp, out);
+            out.write('\n');
         }
     }
 
-    private byte[] getMetricsArray(String metricSetId) throws JsonProcessingException {
-        ObjectNode root = jsonMapper.createObjectNode();
-        ArrayNode jsonArray = jsonMapper.createArrayNode();
-        getPacketsForSnapshot(getSnapshot(), metricSetId, applicationName, timer.currentTimeMillis())
-                .forEach(jsonArray::add);
-        root.set("metrics", jsonArray);
-        return jsonToString(root)
-                .getBytes(StandardCharsets.UTF_8);
-    }
-
-    /**
-     * Returns metrics in Prometheus format
-     */
-    private byte[] buildPrometheusOutput(String metricSetId) throws IOException {
-        var metrics = getPacketsForSnapshot(getSnapshot(), metricSetId, applicationName, timer.currentTimeMillis());
-        return PrometheusHelper.buildPrometheusOutput(metrics, timer.currentTimeMillis());
+    private void writeMetricsArray(String metricSetId, long timestamp, OutputStream out) throws IOException {
+        try (JsonGenerator json = jsonMapper.writerWithDefaultPrettyPrinter().createGenerator(out)) {
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            json.writeStartObject();
+            json.writeArrayFieldStart("metrics");
+            writePacketsForSnapshot(getSnapshot(), metricSetId, applicationName, timestamp, json::writeTree);
+            json.writeEndArray();
+            json.writeEndObject();
+        }
     }
 
     private static String jsonToString(JsonNode jsonObject) throws JsonProcessingException {
@@ -142,26 +137,23 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
                 .writeValueAsString(jsonObject);
     }
 
-    private String getAllMetricsPackets(String metricSetId) throws JsonProcessingException {
-        StringBuilder ret = new StringBuilder();
-        List<JsonNode> metricsPackets = getPacketsForSnapshot(getSnapshot(), metricSetId, applicationName, timer.currentTimeMillis());
-        String delimiter = "";
-        for (JsonNode packet : metricsPackets) {
-            ret.append(delimiter); // For legibility and parsing in unit tests
-            ret.append(jsonToString(packet));
-            delimiter = PACKET_SEPARATOR;
-        }
-        return ret.toString();
+    private void writeAllMetricsPackets(String metricSetId, long timestamp, OutputStream out) throws IOException {
+        boolean[] first = { true };
+        writePacketsForSnapshot(getSnapshot(), metricSetId, applicationName, timestamp, packet -> {
+            if ( ! first[0])
+                out.write(PACKET_SEPARATOR.getBytes(StandardCharsets.UTF_8)); // For legibility and parsing in unit tests
+            out.write(jsonToString(packet).getBytes(StandardCharsets.UTF_8));
+            first[0] = false;
+        });
     }
 
     private MetricSnapshot getSnapshot() {
         return snapshotProvider.latestSnapshot();
     }
 
-    private List<JsonNode> getPacketsForSnapshot(MetricSnapshot metricSnapshot, String application, long timestamp) {
-        if (metricSnapshot == null) return List.of();
-
-        List<JsonNode> packets = new ArrayList<>();
+    private void writePacketsForSnapshot(MetricSnapshot metricSnapshot, String application, long timestamp,
+                                         PacketWriter out) throws IOException {
+        if (metricSnapshot == null) return;
 
         for (Map.Entry<MetricDimensions, MetricSet> snapshotEntry : metricSnapshot) {
             MetricDimensions metricDimensions = snapshotEntry.getKey();
@@ -171,16 +163,18 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
             addMetaData(timestamp, application, packet);
             addDimensions(metricDimensions, packet);
             addMetrics(metricSet, packet);
-            packets.add(packet);
+            out.write(packet);
         }
-        return packets;
     }
 
-    private List<JsonNode> getPacketsForSnapshot(MetricSnapshot metricSnapshot, String metricSetId, String application, long timestamp) {
-        if (metricSnapshot == null) return List.of();
-        if (metricSetId == null) return getPacketsForSnapshot(metricSnapshot, application, timestamp);
+    private void writePacketsForSnapshot(MetricSnapshot metricSnapshot, String metricSetId, String application, long timestamp,
+                                         PacketWriter out) throws IOException {
+        if (metricSnapshot == null) return;
+        if (metricSetId == null) {
+            writePacketsForSnapshot(metricSnapshot, application, timestamp, out);
+            return;
+        }
         Set<String> configuredMetrics = metricSets.getOrDefault(metricSetId, Set.of());
-        List<JsonNode> packets = new ArrayList<>();
 
         for (Map.Entry<MetricDimensions, MetricSet> snapshotEntry : metricSnapshot) {
             MetricDimensions metricDimensions = snapshotEntry.getKey();
@@ -193,11 +187,10 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
             metrics.keySet().retainAll(configuredMetrics);
             if (!metrics.isEmpty()) {
                 addMetrics(metrics, packet);
-                packets.add(packet);
+                out.write(packet);
             }
         }
-        packets.add(HostLifeGatherer.getHostLifePacket());
-        return packets;
+        out.write(HostLifeGatherer.getHostLifePacket());
     }
 
     private void addMetaData(long timestamp, String application, ObjectNode packet) {
@@ -293,6 +286,13 @@ public class MetricsPacketsHandler extends AbstractRequestHandler {
                 .collect(Collectors.toMap(s -> s[0], s -> s.length < 2 ? "" : s[1]));
     }
 
+    /** Receives metrics packets as they are created */
+    private interface PacketWriter {
+
+        void write(JsonNode packet) throws IOException;
+
+    }
+
     private Map<String, Set<String>> getMetricSets() {
         // For now - single infrastructure metric set
         return Map.of(
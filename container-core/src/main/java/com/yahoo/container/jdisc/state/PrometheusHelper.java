@@ -3,9 +3,8 @@ package com.yahoo.container.jdisc.state;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
 
 
 /**
@@ -19,31 +18,27 @@ public class PrometheusHelper {
     private static final String METRIC_KEY = "metrics";
     private static final String APPLICATION_KEY = "application";
 
-    protected static byte[] buildPrometheusOutput(List<JsonNode> metrics, long timestamp) throws IOException {
-        var outputStream = new ByteArrayOutputStream();
-
-        for (var metric : metrics) {
-            var metricDimensions = metric.get(DIMENSION_KEY);
-            var dimensionBuilder = new StringBuilder();
-            for (var it = metricDimensions.fieldNames(); it.hasNext(); ) {
-                var dimension = it.next();
-                dimensionBuilder
-                        .append(sanitize(dimension))
-                        .append("=\"")
-                        .append(metricDimensions.get(dimension).asText())
-                        .append("\",");
-            }
-            var application = metric.get(APPLICATION_KEY).asText();
-            dimensionBuilder.append("vespa_service=\"").append(application).append("\",");
-            var dimensions = dimensionBuilder.toString();
-            var metricValues = metric.get(METRIC_KEY);
-            for (var it = metricValues.fieldNames(); it.hasNext(); ) {
-                var metricName = it.next();
-                var metricVal = metricValues.get(metricName).numberValue();
-                outputStream.write(getMetricLines(sanitize(metricName), dimensions, metricVal, timestamp));
-            }
+    /** Writes the metrics of the given packet to the given stream */
+    protected static void writePrometheusOutput(JsonNode metric, long timestamp, OutputStream outputStream) throws IOException {
+        var metricDimensions = metric.get(DIMENSION_KEY);
+        var dimensionBuilder = new StringBuilder();
+        for (var it = metricDimensions.fieldNames(); it.hasNext(); ) {
+            var dimension = it.next();
+            dimensionBuilder
+                    .append(sanitize(dimension))
+                    .append("=\"")
+                    .append(metricDimensions.get(dimension).asText())
+                    .append("\",");
+        }
+        var application = metric.get(APPLICATION_KEY).asText();
+        dimensionBuilder.append("vespa_service=\"").append(application).append("\",");
+        var dimensions = dimensionBuilder.toString();
+        var metricValues = metric.get(METRIC_KEY);
+        for (var it = metricValues.fieldNames(); it.hasNext(); ) {
+            var metricName = it.next();
+            var metricVal = metricValues.get(metricName).numberValue();
+            outputStream.write(getMetricLines(sanitize(metricName), dimensions, metricVal, timestamp));
         }
-        return outputStream.toByteArray();
     }
 
     private static byte[] getMetricLines(String metricName, String dimensions, Number value, long timestamp) {
@@ -3,6 +3,7 @@ package com.yahoo.container.jdisc.state;
 
 import com.yahoo.json.Jackson;
 import ai.vespa.metrics.ContainerMetrics;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -19,19 +20,27 @@ import com.yahoo.jdisc.Request;
 import com.yahoo.jdisc.Response;
 import com.yahoo.jdisc.Timer;
 import com.yahoo.jdisc.handler.AbstractRequestHandler;
+import com.yahoo.jdisc.handler.BufferedContentChannel;
 import com.yahoo.jdisc.handler.CompletionHandler;
 import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.FastContentOutputStream;
 import com.yahoo.jdisc.handler.ResponseDispatch;
 import com.yahoo.jdisc.handler.ResponseHandler;
 import com.yahoo.jdisc.http.HttpHeaders;
 import com.yahoo.security.tls.Capability;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +70,8 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
     private final Timer timer;
     private final JsonNode config;
     private final SnapshotProvider snapshotProvider;
+    /** The Prometheus labels of the dimensions in the last snapshot, which are mostly the same in the next */
+    private volatile Map<MetricDimensions, String> prometheusLabels = new HashMap<>();
 
     @Inject
     public StateHandler(StateMonitor monitor, Timer timer, ApplicationMetadataConfig config,
@@ -118,7 +129,28 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
                 return Collections.singleton(buildContent(request.getUri(), input));
             }
         };
-        return new MyContentChannel(input, () -> { respDisp.dispatch(handler); });
+        return new MyContentChannel(input, () -> respond(request.getUri(), respDisp, handler));
+    }
+
+    /**
+     * Writes metrics, which may be large, to the response in chunks, and other content all at once.
+     * Metrics are rendered before the response is committed, so a failure gives an error response
+     * rather than truncated content.
+     */
+    private void respond(URI requestUri, ResponseDispatch dispatch, ResponseHandler handler) {
+        String path = resolvePath(requestUri);
+        switch (path) {
+            case "", CONFIG_GENERATION_PATH, HISTOGRAMS_PATH, VERSION_PATH -> dispatch.dispatch(handler);
+            default -> { // XXX should possibly do something else than metrics for unknown paths
+                BufferedContentChannel content = new BufferedContentChannel();
+                try (OutputStream out = new FastContentOutputStream(content)) {
+                    writeMetricOutput(path, requestUri.getQuery(), out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                content.connectTo(dispatch.connect(handler));
+            }
+        }
     }
 
     private String resolveContentType(URI requestUri) {
@@ -138,9 +170,8 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
                 case "" -> ByteBuffer.wrap(apiLinks(requestUri));
                 case CONFIG_GENERATION_PATH -> ByteBuffer.wrap(toPrettyString(config));
                 case HISTOGRAMS_PATH -> ByteBuffer.wrap(buildHistogramsOutput());
-                case HEALTH_PATH, METRICS_PATH -> ByteBuffer.wrap(buildMetricOutput(suffix, requestUri.getQuery()));
                 case VERSION_PATH -> ByteBuffer.wrap(buildVersionOutput());
-                default -> ByteBuffer.wrap(buildMetricOutput(suffix, requestUri.getQuery())); // XXX should possibly do something else here
+                default -> throw new IllegalStateException("Metrics are written directly to the response");
             };
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Bad JSON construction", e);
@@ -195,10 +226,11 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
                 .put("version", Vtag.currentVersion.toString()));
     }
 
-    private byte[] buildMetricOutput(String consumer, String query) throws JsonProcessingException {
+    private void writeMetricOutput(String consumer, String query, OutputStream out) throws IOException {
         if (isPrometheusRequest(query))
-            return buildPrometheusForConsumer(consumer);
-        return toPrettyString(buildJsonForConsumer(consumer));
+            writePrometheusForConsumer(consumer, out);
+        else
+            writeJsonForConsumer(consumer, out);
     }
 
     private byte[] buildHistogramsOutput() {
@@ -209,26 +241,32 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
         return baos.toByteArray();
     }
 
-    private ObjectNode buildJsonForConsumer(String consumer) {
-        ObjectNode ret = jsonMapper.createObjectNode();
-        ret.put("time", timer.currentTimeMillis());
-        ret.set("status", jsonMapper.createObjectNode().put("code", getStatus().name()));
-        ret.set(METRICS_PATH, buildJsonForSnapshot(consumer, getSnapshot()));
-        return ret;
+    private void writeJsonForConsumer(String consumer, OutputStream out) throws IOException {
+        try (JsonGenerator json = jsonMapper.writerWithDefaultPrettyPrinter().createGenerator(out)) {
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            json.writeStartObject();
+            json.writeNumberField("time", timer.currentTimeMillis());
+            json.writeObjectFieldStart("status");
+            json.writeStringField("code", getStatus().name());
+            json.writeEndObject();
+            json.writeFieldName(METRICS_PATH);
+            writeJsonForSnapshot(consumer, getSnapshot(), json);
+            json.writeEndObject();
+        }
     }
 
-    private byte[] buildPrometheusForConsumer(String consumer) {
+    private void writePrometheusForConsumer(String consumer, OutputStream out) throws IOException {
         var snapshot = getSnapshot();
         if (snapshot == null)
-            return new byte[0];
+            return;
 
         var timestamp = snapshot.getToTime(TimeUnit.MILLISECONDS);
-        var builder = new StringBuilder();
-        builder.append("# NOTE: THIS API IS NOT INTENDED FOR PUBLIC USE\n");
         var metrics = new ArrayList<PrometheusEntry>();
-
+        var previousLabels = prometheusLabels;
+        var labels = new HashMap<MetricDimensions, String>();
         for (var tuple : collapseMetrics(snapshot, consumer)) {
-            var dims = toPrometheusDimensions(tuple.dim);
+            var dims = labels.computeIfAbsent(tuple.dim, dim -> previousLabels.containsKey(dim) ? previousLabels.get(dim)
+                                                                                                 : toPrometheusDimensions(dim));
             var metricName = prometheusSanitizedName(tuple.key) + "_";
             if (tuple.val instanceof GaugeMetric gauge) {
                 metrics.add(new PrometheusEntry(metricName + "max", dims, gauge.getMax()));
@@ -243,9 +281,13 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
                 metrics.add(new PrometheusEntry(metricName + "count", dims, count.getCount()));
             }
         }
+        prometheusLabels = labels;
         Collections.sort(metrics);
-        metrics.forEach(prometheusEntry -> prometheusEntry.appendPrometheusEntry(builder, timestamp));
-        return builder.toString().getBytes(UTF_8);
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        writer.write("# NOTE: THIS API IS NOT INTENDED FOR PUBLIC USE\n");
+        for (PrometheusEntry entry : metrics)
+            entry.writeTo(writer, timestamp);
+        writer.flush();
     }
 
     private String toPrometheusDimensions(MetricDimensions dimensions) {
@@ -268,62 +310,63 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
         return monitor.status();
     }
 
-    private ObjectNode buildJsonForSnapshot(String consumer, MetricSnapshot metricSnapshot) {
+    private void writeJsonForSnapshot(String consumer, MetricSnapshot metricSnapshot, JsonGenerator json) throws IOException {
+        json.writeStartObject();
         if (metricSnapshot == null) {
-            return jsonMapper.createObjectNode();
+            json.writeEndObject();
+            return;
         }
-        ObjectNode jsonMetric = jsonMapper.createObjectNode();
-        jsonMetric.set("snapshot", jsonMapper.createObjectNode()
-                .put("from", sanitizeDouble(metricSnapshot.getFromTime(TimeUnit.MILLISECONDS) / 1000.0))
-                .put("to", sanitizeDouble(metricSnapshot.getToTime(TimeUnit.MILLISECONDS) / 1000.0)));
+        json.writeObjectFieldStart("snapshot");
+        json.writeNumberField("from", sanitizeDouble(metricSnapshot.getFromTime(TimeUnit.MILLISECONDS) / 1000.0));
+        json.writeNumberField("to", sanitizeDouble(metricSnapshot.getToTime(TimeUnit.MILLISECONDS) / 1000.0));
+        json.writeEndObject();
 
         boolean includeDimensions = !consumer.equals(HEALTH_PATH);
         long periodInMillis = metricSnapshot.getToTime(TimeUnit.MILLISECONDS) -
                               metricSnapshot.getFromTime(TimeUnit.MILLISECONDS);
-        for (Tuple tuple : collapseMetrics(metricSnapshot, consumer)) {
-            ObjectNode jsonTuple = jsonMapper.createObjectNode();
-            jsonTuple.put("name", tuple.key);
+        List<Tuple> tuples = collapseMetrics(metricSnapshot, consumer);
+        if ( ! tuples.isEmpty())
+            json.writeArrayFieldStart("values");
+        for (Tuple tuple : tuples) {
+            json.writeStartObject();
+            json.writeStringField("name", tuple.key);
+            json.writeObjectFieldStart("values");
             if (tuple.val instanceof CountMetric count) {
-                jsonTuple.set("values", jsonMapper.createObjectNode()
-                        .put("count", count.getCount())
-                        .put("rate", sanitizeDouble(count.getCount() * 1000.0) / periodInMillis));
+                json.writeNumberField("count", count.getCount());
+                json.writeNumberField("rate", sanitizeDouble(count.getCount() * 1000.0) / periodInMillis);
             } else if (tuple.val instanceof GaugeMetric gauge) {
-                ObjectNode valueFields = jsonMapper.createObjectNode();
-                valueFields.put("average", sanitizeDouble(gauge.getAverage()))
-                        .put("sum", sanitizeDouble(gauge.getSum()))
-                        .put("count", gauge.getCount())
-                        .put("last", sanitizeDouble(gauge.getLast()))
-                        .put("max", sanitizeDouble(gauge.getMax()))
-                        .put("min", sanitizeDouble(gauge.getMin()))
-                        .put("rate", sanitizeDouble((gauge.getCount() * 1000.0) / periodInMillis));
+                json.writeNumberField("average", sanitizeDouble(gauge.getAverage()));
+                json.writeNumberField("sum", sanitizeDouble(gauge.getSum()));
+                json.writeNumberField("count", gauge.getCount());
+                json.writeNumberField("last", sanitizeDouble(gauge.getLast()));
+                json.writeNumberField("max", sanitizeDouble(gauge.getMax()));
+                json.writeNumberField("min", sanitizeDouble(gauge.getMin()));
+                json.writeNumberField("rate", sanitizeDouble((gauge.getCount() * 1000.0) / periodInMillis));
                 if (gauge.getPercentiles().isPresent()) {
                     for (Tuple2<String, Double> prefixAndValue : gauge.getPercentiles().get()) {
-                        valueFields.put(prefixAndValue.first + "percentile", sanitizeDouble(prefixAndValue.second));
+                        json.writeNumberField(prefixAndValue.first + "percentile", sanitizeDouble(prefixAndValue.second));
                     }
                 }
-                jsonTuple.set("values", valueFields);
             } else {
                 throw new UnsupportedOperationException(tuple.val.getClass().getName());
             }
+            json.writeEndObject();
             if (tuple.dim != null) {
                 Iterator<Map.Entry<String, String>> it = tuple.dim.iterator();
                 if (it.hasNext() && includeDimensions) {
-                    ObjectNode jsonDim = jsonMapper.createObjectNode();
+                    json.writeObjectFieldStart("dimensions");
                     while (it.hasNext()) {
                         Map.Entry<String, String> entry = it.next();
-                        jsonDim.put(entry.getKey(), entry.getValue());
+                        json.writeStringField(entry.getKey(), entry.getValue());
                     }
-                    jsonTuple.set("dimensions", jsonDim);
+                    json.writeEndObject();
                 }
             }
-            ArrayNode values = (ArrayNode) jsonMetric.get("values");
-            if (values == null) {
-                values = jsonMapper.createArrayNode();
-                jsonMetric.set("values", values);
-            }
-            values.add(jsonTuple);
+            json.writeEndObject();
         }
-        return jsonMetric;
+        if ( ! tuples.isEmpty())
+            json.writeEndArray();
+        json.writeEndObject();
     }
 
     private static List<Tuple> collapseMetrics(MetricSnapshot snapshot, String consumer) {
@@ -463,11 +506,11 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
             return comparison != 0 ? comparison : this.dimensions.compareTo(o.dimensions);
         }
 
-        public void appendPrometheusEntry(StringBuilder builder, long timestamp) {
-            builder.append(metricName)
-                    .append(dimensions)
-                    .append(" ").append(sanitizeIfDouble(value)).append(" ")
-                    .append(timestamp).append("\n");
+        public void writeTo(Writer writer, long timestamp) throws IOException {
+            writer.append(metricName)
+                  .append(dimensions)
+                  .append(" ").append(sanitizeIfDouble(value)).append(" ")
+                  .append(Long.toString(timestamp)).append("\n");
         }
     }
 
@@ -1,7 +1,12 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.container.core.AccessLogConfig;
+import com.yahoo.jdisc.Metric;
+
+import java.time.Duration;
+import java.util.Map;
 
 /**
  * @author Bjorn Borud
@@ -10,10 +15,22 @@ class AccessLogHandler {
 
     private final LogFileHandler<RequestLogEntry> logFileHandler;
 
-    AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<RequestLogEntry> logWriter) {
+    /**
+     * @param logName the name of the access log type, used as a metric dimension
+     */
+    AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<RequestLogEntry> logWriter, Metric metric, String logName) {
+        Metric.Context context = metric.createContext(Map.of("accessLog", logName));
         logFileHandler = new LogFileHandler<>(
                 toCompression(config), config.bufferSize(), config.pattern(), config.rotation(),
-                config.symlink(), queueSize(config), "request-logger", logWriter);
+                config.symlink(), queueSize(config), config.dropWhenFull(), Duration.ofMillis((long) (config.syncInterval() * 1000)),
+                "request-logger", logWriter, statistics -> reportStatistics(statistics, metric, context));
+    }
+
+    private static void reportStatistics(LogFileHandler.Statistics statistics, Metric metric, Metric.Context context) {
+        if (statistics.dropped() > 0)
+            metric.add(ContainerMetrics.JDISC_HTTP_ACCESS_LOG_DROPPED.baseName(), statistics.dropped(), context);
+        metric.set(ContainerMetrics.JDISC_HTTP_ACCESS_LOG_LAG.baseName(), statistics.maxLag().toMillis(), context);
+        metric.set(ContainerMetrics.JDISC_HTTP_ACCESS_LOG_QUEUE_SIZE.baseName(), statistics.pending(), context);
     }
 
     private static int queueSize(AccessLogConfig.FileHandler config) {
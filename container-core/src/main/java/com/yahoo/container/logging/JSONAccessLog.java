@@ -3,6 +3,7 @@ package com.yahoo.container.logging;
 
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.container.core.AccessLogConfig;
+import com.yahoo.jdisc.Metric;
 
 /**
  * Log a message in Vespa JSON access log format.
@@ -14,8 +15,8 @@ public final class JSONAccessLog extends AbstractComponent implements RequestLog
 
     private final AccessLogHandler logHandler;
 
-    public JSONAccessLog(AccessLogConfig config) {
-        logHandler = new AccessLogHandler(config.fileHandler(), new JSONFormatter());
+    public JSONAccessLog(AccessLogConfig config, Metric metric) {
+        logHandler = new AccessLogHandler(config.fileHandler(), new JSONFormatter(), metric, "json");
     }
 
     @Override
@@ -19,14 +19,20 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
@@ -34,6 +40,11 @@ import java.util.zip.GZIPOutputStream;
 /**
  * Implements log file naming/rotating logic for container logs.
  *
+ * Records are passed to the log thread through a ring buffer, which neither allocates nor locks, and are
+ * written in batches by the log thread to a buffered file stream. When the ring buffer is full, records are
+ * either dropped, or the publishing thread waits until the log thread signals it has made room. Records which
+ * are not published because the publishing thread is interrupted while waiting are counted as dropped.
+ *
  * @author Bob Travis
  * @author bjorncs
  */
@@ -41,11 +52,20 @@ class LogFileHandler <LOGTYPE> {
 
     enum Compression {NONE, GZIP, ZSTD}
 
+    /** Statistics of published log records since the previous statistics were reported */
+    record Statistics(long dropped, Duration maxLag, int pending) { }
+
     private final static Logger logger = Logger.getLogger(LogFileHandler.class.getName());
-    private final BlockingQueue<Operation<LOGTYPE>> logQueue;
-    final LogThread<LOGTYPE> logThread;
+    private static final Duration statisticsInterval = Duration.ofSeconds(1);
 
-    @FunctionalInterface private interface Pollable<T> { Operation<T> poll() throws InterruptedException; }
+    private final RingBuffer<LOGTYPE> records;
+    private final BlockingQueue<Operation> operations = new LinkedBlockingQueue<>();
+    private final boolean dropWhenFull;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger waitingPublishers = new AtomicInteger();
+    private final ReentrantLock roomLock = new ReentrantLock();
+    private final Condition roomAvailable = roomLock.newCondition();
+    final LogThread logThread;
 
     LogFileHandler(Compression compression, int bufferSize, String filePattern, String rotationTimes, String symlinkName,
                    int queueSize, String threadName, LogWriter<LOGTYPE> logWriter) {
@@ -54,13 +74,31 @@ class LogFileHandler <LOGTYPE> {
 
     LogFileHandler(Compression compression, int bufferSize, String filePattern, long[] rotationTimes, String symlinkName,
                    int queueSize, String threadName, LogWriter<LOGTYPE> logWriter) {
-        this.logQueue = new LinkedBlockingQueue<>(queueSize);
-        this.logThread = new LogThread<>(logWriter, filePattern, compression, bufferSize, rotationTimes, symlinkName, threadName, this::poll);
-        this.logThread.start();
+        this(compression, bufferSize, filePattern, rotationTimes, symlinkName, queueSize, false, Duration.ZERO,
+             threadName, logWriter, __ -> { });
+    }
+
+    /**
+     * @param queueSize the max number of records waiting to be written
+     * @param dropWhenFull whether to drop records published when the queue is full, instead of waiting for room
+     * @param syncInterval the max time between syncing written records to disk, or zero to never sync
+     * @param statisticsListener receives statistics of published records every second
+     */
+    LogFileHandler(Compression compression, int bufferSize, String filePattern, String rotationTimes, String symlinkName,
+                   int queueSize, boolean dropWhenFull, Duration syncInterval, String threadName, LogWriter<LOGTYPE> logWriter,
+                   Consumer<Statistics> statisticsListener) {
+        this(compression, bufferSize, filePattern, calcTimesMinutes(rotationTimes), symlinkName, queueSize, dropWhenFull,
+             syncInterval, threadName, logWriter, statisticsListener);
     }
 
-    private Operation<LOGTYPE> poll() throws InterruptedException {
-        return logQueue.poll(100, TimeUnit.MILLISECONDS);
+    LogFileHandler(Compression compression, int bufferSize, String filePattern, long[] rotationTimes, String symlinkName,
+                   int queueSize, boolean dropWhenFull, Duration syncInterval, String threadName, LogWriter<LOGTYPE> logWriter,
+                   Consumer<Statistics> statisticsListener) {
+        this.records = new RingBuffer<>(queueSize);
+        this.dropWhenFull = dropWhenFull;
+        this.logThread = new LogThread(logWriter, filePattern, compression, bufferSize, rotationTimes, symlinkName, threadName,
+                                       syncInterval, statisticsListener);
+        this.logThread.start();
     }
 
     /**
@@ -69,38 +107,74 @@ class LogFileHandler <LOGTYPE> {
      * @param r logrecord to publish
      */
     public void publish(LOGTYPE r) {
-        addOperation(new Operation<>(r));
+        if ( ! records.offer(r, System.nanoTime()) && ! publishWhenRoom(r)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        logThread.wakeUp();
+    }
+
+    /** Waits for the log thread to make room for the given record, and returns whether it was added */
+    private boolean publishWhenRoom(LOGTYPE r) {
+        if (dropWhenFull) return false;
+
+        waitingPublishers.incrementAndGet(); // Before offering again, so the log thread signals room made after that
+        roomLock.lock();
+        try {
+            while ( ! records.offer(r, System.nanoTime())) {
+                if ( ! logThread.isAlive()) return false;
+                logThread.wakeUp();
+                roomAvailable.await(100, TimeUnit.MILLISECONDS); // Times out to notice if the log thread has died
+            }
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally {
+            roomLock.unlock();
+            waitingPublishers.decrementAndGet();
+        }
+    }
+
+    /** Wakes up publishers waiting for room, if any. Called by the log thread after it has taken records. */
+    private void signalRoom() {
+        if (waitingPublishers.get() == 0) return;
+
+        roomLock.lock();
+        try {
+            roomAvailable.signalAll();
+        }
+        finally {
+            roomLock.unlock();
+        }
     }
 
     void publishAndWait(LOGTYPE r) {
-        addOperationAndWait(new Operation<>(r));
+        publish(r);
+        flush();
     }
 
     public void flush() {
-        addOperationAndWait(new Operation<>(Operation.Type.flush));
+        addOperationAndWait(new Operation(Operation.Type.flush));
     }
 
     /**
      * Force file rotation now, independent of schedule.
      */
     void rotateNow() {
-        addOperationAndWait(new Operation<>(Operation.Type.rotate));
+        addOperationAndWait(new Operation(Operation.Type.rotate));
     }
 
     public void close() {
-        addOperationAndWait(new Operation<>(Operation.Type.close));
+        addOperationAndWait(new Operation(Operation.Type.close));
     }
 
-    private void addOperation(Operation<LOGTYPE> op) {
+    private void addOperationAndWait(Operation op) {
         try {
-            logQueue.put(op);
-        } catch (InterruptedException e) {
-        }
-    }
-
-    private void addOperationAndWait(Operation<LOGTYPE> op) {
-        try {
-            logQueue.put(op);
+            operations.put(op);
+            logThread.wakeUp();
             op.countDownLatch.await();
         } catch (InterruptedException e) {
         }
@@ -182,9 +256,12 @@ class LogFileHandler <LOGTYPE> {
     /**
      * Handle logging and file operations
      */
-    static class LogThread<LOGTYPE> extends Thread {
-        private final Pollable<LOGTYPE> operationProvider;
+    class LogThread extends Thread {
         long lastFlush = 0;
+        private long lastSync = System.nanoTime();
+        private long lastStatistics = System.nanoTime();
+        private long maxLagNanos = 0;
+        private volatile boolean waiting = false;
         private PageCacheFriendlyFileOutputStream fileOutput = null;
         private long nextRotationTime = 0;
         private final String filePattern;  // default to current directory, ms time stamp
@@ -196,6 +273,8 @@ class LogFileHandler <LOGTYPE> {
         private final String symlinkName;
         private final ExecutorService executor = createCompressionTaskExecutor();
         private final NativeIO nativeIO = new NativeIO();
+        private final Duration syncInterval;
+        private final Consumer<Statistics> statisticsListener;
 
 
         LogThread(LogWriter<LOGTYPE> logWriter,
@@ -205,7 +284,8 @@ class LogFileHandler <LOGTYPE> {
                   long[] rotationTimes,
                   String symlinkName,
                   String threadName,
-                  Pollable<LOGTYPE> operationProvider) {
+                  Duration syncInterval,
+                  Consumer<Statistics> statisticsListener) {
             super(threadName);
             setDaemon(true);
             this.logWriter = logWriter;
@@ -214,7 +294,8 @@ class LogFileHandler <LOGTYPE> {
             this.bufferSize = bufferSize;
             this.rotationTimes = rotationTimes;
             this.symlinkName = (symlinkName != null && !symlinkName.isBlank()) ? symlinkName : null;
-            this.operationProvider = operationProvider;
+            this.syncInterval = syncInterval;
+            this.statisticsListener = statisticsListener;
         }
 
         private static ExecutorService createCompressionTaskExecutor() {
@@ -230,18 +311,20 @@ class LogFileHandler <LOGTYPE> {
         public void run() {
             try {
                 handleLogOperations();
-            } catch (InterruptedException e) {
             } catch (Exception e) {
                 Process.logAndDie("Failed storing log records", e);
             }
 
+            writeRecords();
             internalFlush();
         }
 
-        private void handleLogOperations() throws InterruptedException {
+        private void handleLogOperations() {
             while (!isInterrupted()) {
-                Operation<LOGTYPE> r = operationProvider.poll();
+                boolean wroteRecords = writeRecords();
+                Operation r = operations.poll();
                 if (r != null) {
+                    writeRecords(); // Records published before the operation was added must be written before it is done
                     if (r.type == Operation.Type.flush) {
                         internalFlush();
                     } else if (r.type == Operation.Type.close) {
@@ -249,17 +332,65 @@ class LogFileHandler <LOGTYPE> {
                     } else if (r.type == Operation.Type.rotate) {
                         internalRotateNow();
                         lastFlush = System.nanoTime();
-                    } else if (r.type == Operation.Type.log) {
-                        internalPublish(r.log.get());
-                        flushIfOld(3, TimeUnit.SECONDS);
                     }
                     r.countDownLatch.countDown();
+                } else if (wroteRecords) {
+                    flushIfOld(3, TimeUnit.SECONDS);
                 } else {
                     flushIfOld(100, TimeUnit.MILLISECONDS);
+                    waitForWork(100, TimeUnit.MILLISECONDS);
                 }
+                syncIfOld();
+                reportStatisticsIfOld();
             }
         }
 
+        /** Writes the records published so far, and returns whether there were any */
+        private boolean writeRecords() {
+            boolean wroteRecords = false;
+            for (LOGTYPE record; (record = records.poll()) != null; ) {
+                maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - records.lastOfferNanos());
+                signalRoom();
+                internalPublish(record);
+                wroteRecords = true;
+            }
+            return wroteRecords;
+        }
+
+        /** Wakes up this if it is waiting for records or operations */
+        void wakeUp() {
+            if (waiting) LockSupport.unpark(this);
+        }
+
+        private void waitForWork(long timeout, TimeUnit unit) {
+            waiting = true;
+            if (records.isEmpty() && operations.isEmpty())
+                LockSupport.parkNanos(this, unit.toNanos(timeout));
+            waiting = false;
+        }
+
+        private void syncIfOld() {
+            long now = System.nanoTime();
+            if (syncInterval.isZero() || fileOutput == null || now - lastSync < syncInterval.toNanos()) return;
+
+            try {
+                fileOutput.sync();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to sync file output: " + Exceptions.toMessageString(e), e);
+            }
+            lastSync = now;
+            lastFlush = now;
+        }
+
+        private void reportStatisticsIfOld() {
+            long now = System.nanoTime();
+            if (now - lastStatistics < statisticsInterval.toNanos()) return;
+
+            statisticsListener.accept(new Statistics(dropped.getAndSet(0), Duration.ofNanos(maxLagNanos), records.size()));
+            maxLagNanos = 0;
+            lastStatistics = now;
+        }
+
         private void flushIfOld(long age, TimeUnit unit) {
             long now = System.nanoTime();
             if (TimeUnit.NANOSECONDS.toMillis(now - lastFlush) > unit.toMillis(age)) {
@@ -479,25 +610,14 @@ class LogFileHandler <LOGTYPE> {
 
     }
 
-    private static class Operation<LOGTYPE> {
-        enum Type {log, flush, close, rotate}
+    private static class Operation {
+        enum Type {flush, close, rotate}
 
         final Type type;
-
-        final Optional<LOGTYPE> log;
         final CountDownLatch countDownLatch = new CountDownLatch(1);
 
         Operation(Type type) {
-            this(type, Optional.empty());
-        }
-
-        Operation(LOGTYPE log) {
-            this(Type.log, Optional.of(log));
-        }
-
-        private Operation(Type type, Optional<LOGTYPE> log) {
             this.type = type;
-            this.log = log;
         }
     }
 
@@ -522,6 +642,12 @@ class LogFileHandler <LOGTYPE> {
         @Override public void write(int b) throws IOException { bufferedOut.write(b); }
         @Override public void close() throws IOException { bufferedOut.close(); }
 
+        /** Flushes, and then forces written data to disk */
+        void sync() throws IOException {
+            flush();
+            fileOut.getFD().sync();
+        }
+
         @Override
         public void flush() throws IOException {
             bufferedOut.flush();
@@ -0,0 +1,66 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded queue of pre-allocated slots, for many producers and a single consumer, which does not allocate
+ * or take locks when items are added. Each item is stored with the time it was added, so the consumer may
+ * tell how long items waited.
+ */
+class RingBuffer<T> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<T> slots;
+    private final long[] offerNanos;
+    /** The sequence number of the next item to add */
+    private final AtomicLong tail = new AtomicLong();
+    /** The sequence number of the next item to take, only written by the consumer */
+    private volatile long head = 0;
+    /** The time the last taken item was added */
+    private long lastOfferNanos;
+
+    RingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.offerNanos = new long[capacity];
+    }
+
+    /** Adds the given item, added at the given time, unless this is full. Returns whether the item was added. */
+    boolean offer(T item, long nanoTime) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= capacity) return false;
+        } while ( ! tail.compareAndSet(sequence, sequence + 1));
+        int slot = (int) (sequence % capacity);
+        offerNanos[slot] = nanoTime;
+        slots.set(slot, item); // Publishes the item, and the time written above, to the consumer
+        return true;
+    }
+
+    /** Takes the next item, or returns null if there is none yet. Must only be called by the consumer. */
+    T poll() {
+        int slot = (int) (head % capacity);
+        T item = slots.get(slot);
+        if (item == null) return null;
+
+        lastOfferNanos = offerNanos[slot];
+        slots.set(slot, null);
+        head = head + 1; // Frees the slot for producers
+        return item;
+    }
+
+    /** Returns the time the item last returned by {@link #poll()} was added. Must only be called by the consumer. */
+    long lastOfferNanos() { return lastOfferNanos; }
+
+    /** Returns the number of items added but not yet taken */
+    int size() { return (int) Math.max(0, tail.get() - head); }
+
+    boolean isEmpty() { return size() == 0; }
+
+    int capacity() { return capacity; }
+
+}
@@ -3,6 +3,7 @@ package com.yahoo.container.logging;
 
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.container.core.AccessLogConfig;
+import com.yahoo.jdisc.Metric;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -21,8 +22,8 @@ public final class VespaAccessLog extends AbstractComponent implements RequestLo
 
     private final AccessLogHandler logHandler;
 
-    public VespaAccessLog(AccessLogConfig config) {
-        logHandler = new AccessLogHandler(config.fileHandler(), this);
+    public VespaAccessLog(AccessLogConfig config, Metric metric) {
+        logHandler = new AccessLogHandler(config.fileHandler(), this, metric, "vespa");
     }
 
     private static SimpleDateFormat createDateFormat() {
@@ -0,0 +1,165 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.http.ServerConfig;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of requests handled concurrently to a limit which adapts to request latency, so requests
+ * above the limit can be rejected right away instead of queuing until they time out.
+ *
+ * The limit is adjusted once per window by the gradient between the long-term and the current average latency:
+ * While latency is stable the limit grows slowly, and when requests start queuing, latency increases and
+ * the limit shrinks. Requests are prioritized by class: Monitoring requests are never rejected and do not count
+ * against the limit, read requests may use all of it, and write requests only a share of it, so feed is
+ * rejected before search.
+ */
+class ConcurrencyLimiter {
+
+    /** The class of a request, in order of decreasing priority, named as the request type dimension of the response metrics */
+    enum RequestClass {
+
+        monitoring, read, write;
+
+        /** Returns the class of requests of the given request type, where requests of unknown type are treated as reads */
+        static RequestClass of(String requestType) {
+            return switch (requestType) {
+                case "monitoring" -> monitoring;
+                case "write" -> write;
+                default -> read;
+            };
+        }
+
+    }
+
+    private static final long windowNanos = Duration.ofSeconds(1).toNanos();
+    private static final int minWindowSamples = 10;
+    /** The number of windows the long-term latency is averaged over */
+    private static final int longTermWindows = 60;
+    /** How much the current latency may exceed the long-term latency before the limit is reduced */
+    private static final double tolerance = 1.5;
+    private static final double smoothing = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double feedShare;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLongArray rejected = new AtomicLongArray(RequestClass.values().length);
+    private volatile double limit;
+
+    // Samples are added to the current window without locking, and the thread which ends a window adjusts the limit
+    private final AtomicLong windowStart;
+    private final LongAdder windowLatencySum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+    private volatile double longTermLatency = -1;
+
+    ConcurrencyLimiter(ServerConfig.ConcurrencyLimit config) {
+        this(config.initialLimit(), config.minLimit(), config.maxLimit(), config.feedShare(), System::nanoTime);
+    }
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double feedShare, LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit)
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max, but min is " + minLimit +
+                                               " and max is " + maxLimit);
+        if (feedShare <= 0 || feedShare > 1)
+            throw new IllegalArgumentException("Feed share of the concurrency limit must be in (0, 1], but is " + feedShare);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.feedShare = feedShare;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /** Returns a permit to handle a request of the given class, which must be released when done, or empty if it must be rejected */
+    Optional<Permit> tryAcquire(RequestClass requestClass) {
+        if (requestClass == RequestClass.monitoring) return Optional.of(new Permit(requestClass, 0));
+
+        double allowed = requestClass == RequestClass.write ? Math.max(1, limit * feedShare) : limit;
+        int current = inFlight.incrementAndGet();
+        if (current > allowed) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet(requestClass.ordinal());
+            return Optional.empty();
+        }
+        return Optional.of(new Permit(requestClass, current));
+    }
+
+    /** Returns the current concurrency limit */
+    int limit() { return (int) limit; }
+
+    /** Returns the number of requests counting against the limit which are currently being handled */
+    int inFlight() { return inFlight.get(); }
+
+    /** Returns the number of rejected requests of the given class since the last call to this, and resets it */
+    long takeRejected(RequestClass requestClass) { return rejected.getAndSet(requestClass.ordinal(), 0); }
+
+    private void sample(long latencyNanos, int inFlightAtStart) {
+        windowLatencySum.add(latencyNanos);
+        windowSamples.increment();
+        if (windowMaxInFlight.get() < inFlightAtStart)
+            windowMaxInFlight.accumulateAndGet(inFlightAtStart, Math::max);
+
+        long start = windowStart.get();
+        long now = nanoClock.getAsLong();
+        if (now - start < windowNanos || windowSamples.sum() < minWindowSamples) return;
+        if ( ! windowStart.compareAndSet(start, now)) return; // Another thread ends this window
+
+        // Samples added concurrently with this may be counted in the next window instead, which is fine
+        long samples = windowSamples.sumThenReset();
+        long latencySum = windowLatencySum.sumThenReset();
+        int maxInFlight = windowMaxInFlight.getAndSet(0);
+        if (samples == 0) return;
+
+        double latency = (double) latencySum / samples;
+        double longTerm = longTermLatency < 0 ? latency : longTermLatency + (latency - longTermLatency) / longTermWindows;
+        // Let the long-term latency recover quickly when the current latency is much lower, e.g., after an overload
+        if (longTerm > 2 * latency)
+            longTerm *= 0.95;
+        longTermLatency = longTerm;
+
+        // Don't grow the limit when it is far from being used, since latency says nothing about the capacity then
+        if (maxInFlight >= limit / 2) {
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longTerm / latency));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        }
+    }
+
+    /** A permit to handle a request */
+    class Permit {
+
+        private final RequestClass requestClass;
+        private final int inFlightAtStart;
+        private final long start = nanoClock.getAsLong();
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(RequestClass requestClass, int inFlightAtStart) {
+            this.requestClass = requestClass;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        RequestClass requestClass() { return requestClass; }
+
+        /** Releases this permit, when the request is done. Calling this more than once has no effect. */
+        void release() {
+            if (requestClass == RequestClass.monitoring || ! released.compareAndSet(false, true)) return;
+
+            inFlight.decrementAndGet();
+            sample(nanoClock.getAsLong() - start, inFlightAtStart);
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.http.ServerConfig;
+import com.yahoo.jdisc.http.server.jetty.ConcurrencyLimiter.Permit;
+import com.yahoo.jdisc.http.server.jetty.ConcurrencyLimiter.RequestClass;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A Jetty handler which rejects requests above the adaptive limit of a {@link ConcurrencyLimiter}:
+ * write requests with 429, and read requests with 503. Both are rejected with a Retry-After header.
+ * Permits are released when the exchange completes, by a listener which must be added to all connectors.
+ */
+class ConcurrencyLimitingHandler extends HandlerWrapper {
+
+    private static final String permitAttribute = ConcurrencyLimitingHandler.class.getName() + ".permit";
+
+    private final ConcurrencyLimiter limiter;
+    private final List<String> monitoringHandlerPaths;
+    private final List<String> searchHandlerPaths;
+    private final HttpChannel.Listener completionListener = new CompletionListener();
+
+    ConcurrencyLimitingHandler(ServerConfig config) {
+        this(new ConcurrencyLimiter(config.concurrencyLimit()),
+             config.metric().monitoringHandlerPaths(), config.metric().searchHandlerPaths());
+    }
+
+    ConcurrencyLimitingHandler(ConcurrencyLimiter limiter, List<String> monitoringHandlerPaths, List<String> searchHandlerPaths) {
+        this.limiter = limiter;
+        this.monitoringHandlerPaths = monitoringHandlerPaths;
+        this.searchHandlerPaths = searchHandlerPaths;
+    }
+
+    ConcurrencyLimiter limiter() { return limiter; }
+
+    /** Returns the listener which releases permits when requests complete, which must be added to all connectors */
+    HttpChannel.Listener completionListener() { return completionListener; }
+
+    @Override
+    public void handle(String target, Request request, HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws IOException, ServletException {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            _handler.handle(target, request, servletRequest, servletResponse);
+            return;
+        }
+        RequestClass requestClass = requestClass(request);
+        Optional<Permit> permit = limiter.tryAcquire(requestClass);
+        if (permit.isEmpty()) {
+            servletResponse.setHeader(HttpHeader.RETRY_AFTER.asString(), "1");
+            servletResponse.sendError(requestClass == RequestClass.write ? Response.Status.TOO_MANY_REQUESTS
+                                                                        : Response.Status.SERVICE_UNAVAILABLE,
+                                      "Too many concurrent requests");
+            return;
+        }
+        request.setAttribute(permitAttribute, permit.get());
+        _handler.handle(target, request, servletRequest, servletResponse);
+    }
+
+    /** Classifies requests by the request type dimension of the response metrics */
+    private RequestClass requestClass(Request request) {
+        return RequestClass.of(ResponseMetricAggregator.Dimensions.requestType(request, monitoringHandlerPaths, searchHandlerPaths));
+    }
+
+    private static class CompletionListener implements HttpChannel.Listener {
+
+        @Override
+        public void onComplete(Request request) {
+            if (request.getAttribute(permitAttribute) instanceof Permit permit)
+                permit.release();
+        }
+
+    }
+
+}
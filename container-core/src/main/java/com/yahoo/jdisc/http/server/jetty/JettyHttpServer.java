@@ -82,12 +82,15 @@ public class JettyHttpServer extends AbstractResource implements ServerProvider
             listenedPorts.add(connectorConfig.listenPort());
         }
         server.addBeanToAllConnectors(new ResponseMetricAggregator(serverConfig.metric()));
+        ConcurrencyLimitingHandler concurrencyLimiter = serverConfig.concurrencyLimit().enabled()
+                ? new ConcurrencyLimitingHandler(serverConfig) : null;
+        if (concurrencyLimiter != null) server.addBeanToAllConnectors(concurrencyLimiter.completionListener());
 
         ServletHolder jdiscServlet = new ServletHolder(new JDiscHttpServlet(this::newestContext));
         List<JDiscServerConnector> connectors = Arrays.stream(server.getConnectors())
                                                       .map(JDiscServerConnector.class::cast)
                                                       .toList();
-        server.setHandler(createRootHandler(connectors, jdiscServlet));
+        server.setHandler(createRootHandler(connectors, jdiscServlet, concurrencyLimiter));
         this.metricsReporter = new ServerMetricReporter(metric, server);
     }
 
@@ -134,7 +137,8 @@ public class JettyHttpServer extends AbstractResource implements ServerProvider
         }
     }
 
-    private Handler createRootHandler(List<JDiscServerConnector> connectors, ServletHolder jdiscServlet) {
+    private Handler createRootHandler(List<JDiscServerConnector> connectors, ServletHolder jdiscServlet,
+                                      ConcurrencyLimitingHandler concurrencyLimiter) {
         HandlerCollection perConnectorHandlers = new ContextHandlerCollection();
         for (JDiscServerConnector connector : connectors) {
             ConnectorConfig connectorCfg = connector.connectorConfig();
@@ -152,7 +156,11 @@ public class JettyHttpServer extends AbstractResource implements ServerProvider
             perConnectorHandlers.addHandler(connectorRoot);
         }
         StatisticsHandler root = newGenericStatisticsHandler();
-        addChainToRoot(root, List.of(newGzipHandler(), perConnectorHandlers));
+        List<Handler> rootChain = new ArrayList<>();
+        if (concurrencyLimiter != null) rootChain.add(concurrencyLimiter);
+        rootChain.add(newGzipHandler());
+        rootChain.add(perConnectorHandlers);
+        addChainToRoot(root, rootChain);
         return root;
     }
 
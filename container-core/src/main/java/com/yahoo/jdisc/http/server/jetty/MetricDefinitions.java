@@ -73,6 +73,10 @@ class MetricDefinitions {
     static final String JETTY_THREADPOOL_TOTAL_THREADS = ContainerMetrics.JETTY_THREADPOOL_TOTAL_THREADS.baseName();
     static final String JETTY_THREADPOOL_QUEUE_SIZE = ContainerMetrics.JETTY_THREADPOOL_QUEUE_SIZE.baseName();
 
+    static final String CONCURRENCY_LIMIT = ContainerMetrics.JDISC_HTTP_CONCURRENCY_LIMIT.baseName();
+    static final String CONCURRENCY_IN_FLIGHT = ContainerMetrics.JDISC_HTTP_CONCURRENCY_IN_FLIGHT.baseName();
+    static final String CONCURRENCY_SHED = ContainerMetrics.JDISC_HTTP_CONCURRENCY_SHED.baseName();
+
     static final String FILTERING_REQUEST_HANDLED = ContainerMetrics.JDISC_HTTP_FILTERING_REQUEST_HANDLED.baseName();
     static final String FILTERING_REQUEST_UNHANDLED = ContainerMetrics.JDISC_HTTP_FILTERING_REQUEST_UNHANDLED.baseName();
     static final String FILTERING_RESPONSE_HANDLED = ContainerMetrics.JDISC_HTTP_FILTERING_RESPONSE_HANDLED.baseName();
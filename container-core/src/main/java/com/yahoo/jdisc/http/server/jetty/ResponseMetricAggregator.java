@@ -159,8 +159,9 @@ class ResponseMetricAggregator extends AbstractLifeCycle implements HttpChannel.
             };
         }
 
-        private static String requestType(Request req, Collection<String> monitoringHandlerPaths,
-                                          Collection<String> searchHandlerPaths) {
+        /** Returns the type of the given request: monitoring, read, write, or none if it cannot be determined */
+        static String requestType(Request req, Collection<String> monitoringHandlerPaths,
+                                  Collection<String> searchHandlerPaths) {
             HttpRequest.RequestType requestType = (HttpRequest.RequestType)req.getAttribute(requestTypeAttribute);
             if (requestType != null) return requestType.name().toLowerCase();
             // Deduce from path and method:
@@ -11,6 +11,7 @@ import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 import java.time.Instant;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -66,6 +67,10 @@ class ServerMetricReporter {
             }
 
             setJettyThreadpoolMetrics();
+
+            ConcurrencyLimitingHandler concurrencyLimiter = ((AbstractHandlerContainer) jetty.getHandler())
+                    .getChildHandlerByClass(ConcurrencyLimitingHandler.class);
+            if (concurrencyLimiter != null) setConcurrencyLimitMetrics(concurrencyLimiter.limiter());
         }
 
         private void setServerMetrics(ResponseMetricAggregator statisticsCollector) {
@@ -90,6 +95,17 @@ class ServerMetricReporter {
             metric.set(MetricDefinitions.JETTY_THREADPOOL_QUEUE_SIZE, threadpool.getQueueSize(), null);
         }
 
+        private void setConcurrencyLimitMetrics(ConcurrencyLimiter limiter) {
+            metric.set(MetricDefinitions.CONCURRENCY_LIMIT, limiter.limit(), null);
+            metric.set(MetricDefinitions.CONCURRENCY_IN_FLIGHT, limiter.inFlight(), null);
+            for (ConcurrencyLimiter.RequestClass requestClass : ConcurrencyLimiter.RequestClass.values()) {
+                long rejected = limiter.takeRejected(requestClass);
+                if (rejected > 0)
+                    metric.add(MetricDefinitions.CONCURRENCY_SHED, rejected,
+                               metric.createContext(Map.of(MetricDefinitions.REQUEST_TYPE_DIMENSION, requestClass.name())));
+            }
+        }
+
         private void setConnectorMetrics(JDiscServerConnector connector) {
             ConnectionStatistics statistics = connector.getStatistics();
             metric.set(MetricDefinitions.NUM_CONNECTIONS, statistics.getConnectionsTotal(), connector.getConnectorMetricContext());
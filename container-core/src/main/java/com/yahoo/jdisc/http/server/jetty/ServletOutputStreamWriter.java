@@ -30,6 +30,8 @@ class ServletOutputStreamWriter {
      *    Multiple modification calls without interleaving isReady calls are not allowed.
      * 2) If isReady returned false, no other calls should be made until the write listener is invoked.
      * 3) If the write listener sees isReady == false, it must not do any modifications before its next invocation.
+     * 4) Writes are asynchronous, and the stream may use a written buffer until isReady returns true again,
+     *    so the completion handler of a buffer is not called until then, and the buffer is never copied.
      */
 
 
@@ -60,6 +62,10 @@ class ServletOutputStreamWriter {
     // GuardedBy("monitor")
     private final Deque<ResponseContentPart> responseContentQueue = new ArrayDeque<>();
 
+    // GuardedBy("monitor")
+    // The part which is written, but may still be in use by the output stream, or null if none
+    private ResponseContentPart inFlight = null;
+
     private final RequestMetricReporter metricReporter;
 
     /**
@@ -136,6 +142,7 @@ class ServletOutputStreamWriter {
         boolean lastOperationWasFlush = false;
 
         while (true) {
+            ResponseContentPart written;
             ResponseContentPart contentPart;
 
             synchronized (monitor) {
@@ -149,12 +156,36 @@ class ServletOutputStreamWriter {
                     return;
                 }
 
+                // The previous write is complete, so its buffer is handed back to its owner
+                written = inFlight;
+                inFlight = null;
+            }
+
+            // Completed before taking the next part, so buffers written from the handler are queued rather than
+            // written recursively
+            if (written != null) {
+                try {
+                    written.handler.completed();
+                } catch (Throwable t) {
+                    setFinished(t);
+                    return;
+                }
+            }
+
+            synchronized (monitor) {
+                if (state == State.FINISHED_OR_ERROR) {
+                    return;
+                }
+
                 contentPart = responseContentQueue.pollFirst();
 
                 if (contentPart == null && lastOperationWasFlush) {
                     state = State.WAITING_FOR_BUFFER;
                     return;
                 }
+                if (contentPart != null && contentPart.buf != CLOSE_STREAM_BUFFER) {
+                    inFlight = contentPart;
+                }
             }
 
             try {
@@ -183,6 +214,10 @@ class ServletOutputStreamWriter {
     private void setFinished(Throwable t) {
         synchronized (monitor) {
             state = State.FINISHED_OR_ERROR;
+            if (inFlight != null) {
+                responseContentQueue.addFirst(inFlight);
+                inFlight = null;
+            }
             if (!responseContentQueue.isEmpty()) {
                 failAllParts_holdingLock(t != null ? t : new IllegalStateException("ContentChannel closed."));
             }
@@ -211,24 +246,31 @@ class ServletOutputStreamWriter {
         janitor.scheduleTask(() -> failedParts.forEach(failCompletionHandler));
     }
 
+    /** Hands the buffer to the output stream without copying. The part is completed when the stream is ready again. */
     private void writeBufferToOutputStream(ResponseContentPart contentPart) throws Throwable {
-        callCompletionHandlerWhenDone(contentPart.handler, () -> {
-            ByteBuffer buffer = contentPart.buf;
-            final int bytesToSend = buffer.remaining();
-            try {
-                if (buffer.hasArray()) {
-                    outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
-                } else {
-                    final byte[] array = new byte[buffer.remaining()];
-                    buffer.get(array);
-                    outputStream.write(array);
-                }
-                metricReporter.successfulWrite(bytesToSend);
-            } catch (Throwable throwable) {
-                metricReporter.failedWrite();
-                throw throwable;
+        ByteBuffer buffer = contentPart.buf;
+        final int bytesToSend = buffer.remaining();
+        try {
+            if (buffer.hasArray()) {
+                outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else if (outputStream instanceof HttpOutput out) {
+                out.write(buffer);
+            } else {
+                final byte[] array = new byte[buffer.remaining()];
+                buffer.get(array);
+                outputStream.write(array);
             }
-        });
+            metricReporter.successfulWrite(bytesToSend);
+        } catch (Throwable throwable) {
+            metricReporter.failedWrite();
+            boolean owned;
+            synchronized (monitor) {
+                owned = inFlight == contentPart;
+                if (owned) inFlight = null;
+            }
+            if (owned) runCompletionHandler_logOnExceptions(() -> contentPart.handler.failed(throwable));
+            throw throwable;
+        }
     }
 
     private static void callCompletionHandlerWhenDone(CompletionHandler handler, IORunnable runnable) throws Exception {
@@ -12,6 +12,7 @@ import org.eclipse.jetty.server.Request;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
@@ -48,6 +49,14 @@ class ServletRequestReader {
 
     private static final int BUFFER_SIZE_BYTES = 8 * 1024;
 
+    /**
+     * Buffers to read into, reused across requests by each thread. Buffers passed to the request content channel
+     * are owned by the channel, and can't be reused: When a read fills less than half the buffer, which is typical
+     * for small requests, the channel gets a copy sized to the bytes read. Otherwise it gets the buffer itself,
+     * and the thread reads into a new one from then on.
+     */
+    private static final ThreadLocal<byte[]> readBuffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE_BYTES]);
+
     private final Object monitor = new Object();
 
     private final HttpServletRequest req;
@@ -156,12 +165,13 @@ class ServletRequestReader {
         public void onDataAvailable() throws IOException {
             ServletInputStream in;
             synchronized (monitor) { in = ServletRequestReader.this.in; }
+            byte[] readBuffer = readBuffers.get();
             while (in.isReady()) {
-                final byte[] buffer = new byte[BUFFER_SIZE_BYTES];
+                final byte[] buffer;
                 int numBytesRead;
 
                 synchronized (monitor) {
-                    numBytesRead = in.read(buffer);
+                    numBytesRead = in.read(readBuffer);
                     if (numBytesRead < 0) {
                         // End of stream; there should be no more data available, ever.
                         return;
@@ -176,6 +186,13 @@ class ServletRequestReader {
                     //  - the write completion handler to be called
                     numberOfOutstandingUserCalls += 2;
                     bytesRead += numBytesRead;
+                    if (numBytesRead < BUFFER_SIZE_BYTES / 2) {
+                        buffer = Arrays.copyOf(readBuffer, numBytesRead);
+                    } else {
+                        buffer = readBuffer;
+                        readBuffer = new byte[BUFFER_SIZE_BYTES];
+                        readBuffers.set(readBuffer);
+                    }
                 }
 
                 try {
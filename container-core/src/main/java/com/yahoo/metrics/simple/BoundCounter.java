@@ -0,0 +1,48 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import com.yahoo.api.annotations.Beta;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter bound to a single point in the metric space. Create one with
+ * {@link MetricReceiver#bindCounter(String)} or
+ * {@link MetricReceiver#bindCounter(String, Point)}.
+ * <p>
+ * Unlike {@link Counter}, the name and point are resolved once, when the counter is bound,
+ * and updates go to a striped cell, so updating does not allocate or contend between threads.
+ * Use this for metrics which are updated very often, with a small and known set of points.
+ */
+@Beta
+public class BoundCounter {
+
+    private final LongAdder count = new LongAdder();
+
+    BoundCounter() { }
+
+    /** Increase this counter by 1. */
+    public void add() {
+        count.increment();
+    }
+
+    /**
+     * Add to this counter.
+     *
+     * @param n the amount by which to increase this counter
+     */
+    public void add(long n) {
+        count.add(n);
+    }
+
+    /** Moves what was counted since the last call into the given bucket. Must only be called by a single thread. */
+    void harvest(Identifier id, Bucket bucket) {
+        long n = count.sumThenReset();
+        if (n == 0) return;
+
+        UntypedMetric value = new UntypedMetric(null);
+        value.add(n);
+        bucket.merge(id, value);
+    }
+
+}
@@ -0,0 +1,85 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import com.yahoo.api.annotations.Beta;
+import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.DoubleRecorder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A gauge bound to a single point in the metric space. Create one with
+ * {@link MetricReceiver#bindGauge(String)}, {@link MetricReceiver#bindGauge(String, Point)} or
+ * {@link MetricReceiver#bindGauge(String, Point, MetricSettings)}.
+ * <p>
+ * Unlike {@link Gauge}, the name and point are resolved once, when the gauge is bound,
+ * and samples go to striped cells, and a recorder if the metric has a histogram,
+ * so sampling does not allocate or contend between threads. The count, sum, min and max
+ * are read separately when collected, so a sample taken while collecting may be
+ * reported partly in one period and partly in the next.
+ */
+@Beta
+public class BoundGauge {
+
+    private static final VarHandle LAST;
+    static {
+        try {
+            LAST = MethodHandles.lookup().findVarHandle(BoundGauge.class, "last", double.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+    private final MetricSettings settings;
+    private final DoubleRecorder recorder;
+    private DoubleHistogram intervalHistogram = null;
+    @SuppressWarnings("unused") // Accessed through LAST
+    private double last = 0;
+
+    BoundGauge(MetricSettings settings) {
+        this.settings = settings;
+        this.recorder = settings != null && settings.isHistogram() ? new DoubleRecorder(settings.getSignificantdigits()) : null;
+    }
+
+    /**
+     * Record a sample.
+     *
+     * @param x sample value
+     */
+    public void sample(double x) {
+        if (recorder != null) recorder.recordValue(x);
+        sum.add(x);
+        min.accumulate(x);
+        max.accumulate(x);
+        LAST.setOpaque(this, x); // Atomic, but without the fences of a volatile write, as there is no ordering to keep
+        count.increment();
+    }
+
+    /** Moves what was sampled since the last call into the given bucket. Must only be called by a single thread. */
+    void harvest(Identifier id, Bucket bucket) {
+        long n = count.sumThenReset();
+        if (n == 0) return;
+
+        if (recorder != null)
+            intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        double last = (double) LAST.getOpaque(this);
+        double min = this.min.getThenReset();
+        double max = this.max.getThenReset();
+        if (min > max) { // The samples counted were collected in the previous period
+            min = last;
+            max = last;
+        }
+        UntypedMetric value = new UntypedMetric(settings);
+        value.put(n, sum.sumThenReset(), min, max, last, intervalHistogram);
+        bucket.merge(id, value);
+    }
+
+}
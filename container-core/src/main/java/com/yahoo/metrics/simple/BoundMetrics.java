@@ -0,0 +1,35 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The counters and gauges bound to a point through a {@link MetricReceiver}, which are collected
+ * into a bucket by the aggregator instead of going through the thread local buckets.
+ * A metric is bound once per name and point, and kept for the life of the receiver.
+ */
+class BoundMetrics {
+
+    private final Map<Identifier, BoundCounter> counters = new HashMap<>();
+    private final Map<Identifier, BoundGauge> gauges = new HashMap<>();
+
+    synchronized BoundCounter counter(Identifier id) {
+        if (gauges.containsKey(id))
+            throw new IllegalArgumentException(id + " is already bound as a gauge");
+        return counters.computeIfAbsent(id, __ -> new BoundCounter());
+    }
+
+    synchronized BoundGauge gauge(Identifier id, MetricSettings settings) {
+        if (counters.containsKey(id))
+            throw new IllegalArgumentException(id + " is already bound as a counter");
+        return gauges.computeIfAbsent(id, __ -> new BoundGauge(settings));
+    }
+
+    /** Moves the values of all bound metrics since the last call into the given bucket */
+    synchronized void harvest(Bucket bucket) {
+        counters.forEach((id, counter) -> counter.harvest(id, bucket));
+        gauges.forEach((id, gauge) -> gauge.harvest(id, bucket));
+    }
+
+}
@@ -25,6 +25,8 @@ public class Bucket {
 
     private static final Logger log = Logger.getLogger(Bucket.class.getName());
     private final Map<Identifier, UntypedMetric> values = LazyMap.newHashMap();
+    /** Names of metrics which failed to merge into this, to avoid spamming the log if there are a lot of mismatching threads */
+    private final Set<String> malformedMetrics = LazySet.newHashSet();
 
     boolean gotTimeStamps;
     long fromMillis;
@@ -65,24 +67,27 @@ public class Bucket {
         values.put(id, value);
     }
 
+    void merge(Identifier id, UntypedMetric value) {
+        merge(id, value, true);
+    }
+
     boolean hasIdentifier(Identifier id) {
         return values.containsKey(id);
     }
 
     void merge(Bucket other, boolean otherIsNewer) {
-        LazySet<String> malformedMetrics = LazySet.newHashSet();
-        for (Map.Entry<Identifier, UntypedMetric> entry : other.values.entrySet()) {
-            String metricName = entry.getKey().getName();
-            try {
-                if (!malformedMetrics.contains(metricName)) {
-                    get(entry.getKey(), entry.getValue()).merge(entry.getValue(), otherIsNewer);
-                }
-            } catch (IllegalArgumentException e) {
-                log.log(Level.WARNING, "Problems merging metric " + metricName + ", possibly ignoring data.");
-                // avoid spamming the log if there are a lot of mismatching
-                // threads
-                malformedMetrics.add(metricName);
-            }
+        for (Map.Entry<Identifier, UntypedMetric> entry : other.values.entrySet())
+            merge(entry.getKey(), entry.getValue(), otherIsNewer);
+    }
+
+    private void merge(Identifier id, UntypedMetric value, boolean otherIsNewer) {
+        String metricName = id.getName();
+        if (malformedMetrics.contains(metricName)) return;
+        try {
+            get(id, value).merge(value, otherIsNewer);
+        } catch (IllegalArgumentException e) {
+            log.log(Level.WARNING, "Problems merging metric " + metricName + ", possibly ignoring data.");
+            malformedMetrics.add(metricName);
         }
     }
 
@@ -13,7 +13,9 @@ import com.yahoo.concurrent.ThreadLocalDirectory;
 /**
  * The reception point for measurements. This is the class users should inject
  * in constructors for declaring instances of {@link Counter} and {@link Gauge}
- * for the actual measurement of metrics.
+ * for the actual measurement of metrics, or for binding instances of
+ * {@link BoundCounter} and {@link BoundGauge} to a point, for metrics which are
+ * updated very often.
  *
  * @author Steinar Knutsen
  */
@@ -22,6 +24,7 @@ public class MetricReceiver {
 
     public static final MetricReceiver nullImplementation = new NullReceiver();
     private final ThreadLocalDirectory<Bucket, Sample> metricsCollection;
+    private final BoundMetrics boundMetrics = new BoundMetrics();
 
     // A reference to the current snapshot. The *reference* is shared with MetricsAggregator and updated from there :-/
     private final AtomicReference<Bucket> currentSnapshot;
@@ -117,6 +120,77 @@ public class MetricReceiver {
         return new Gauge(name, defaultDimensions, this);
     }
 
+    /**
+     * Bind a counter metric to the zero-point.
+     *
+     * @param name the name of the metric
+     * @return a thread-safe counter, which does not allocate when updated
+     * @see BoundCounter
+     */
+    public BoundCounter bindCounter(String name) {
+        return bindCounter(name, null);
+    }
+
+    /**
+     * Bind a counter metric to the given point, which is resolved only once. Create
+     * the point argument by using a builder from {@link #pointBuilder()}. Binding the same
+     * name and point again returns the same counter.
+     *
+     * @param name the name of the metric
+     * @param point the point in the metric space to count at, or null for the zero-point
+     * @return a thread-safe counter, which does not allocate when updated
+     * @throws IllegalArgumentException if this name and point is already bound as a gauge
+     * @see BoundCounter
+     */
+    public BoundCounter bindCounter(String name, Point point) {
+        return boundMetrics.counter(new Identifier(name, point));
+    }
+
+    /**
+     * Bind a gauge metric to the zero-point.
+     *
+     * @param name the name of the metric
+     * @return a thread-safe gauge, which does not allocate when sampled
+     * @see BoundGauge
+     */
+    public BoundGauge bindGauge(String name) {
+        return bindGauge(name, null);
+    }
+
+    /**
+     * Bind a gauge metric to the given point, which is resolved only once. Create
+     * the point argument by using a builder from {@link #pointBuilder()}. Binding the same
+     * name and point again returns the same gauge.
+     *
+     * @param name the name of the metric
+     * @param point the point in the metric space to sample at, or null for the zero-point
+     * @return a thread-safe gauge, which does not allocate when sampled
+     * @throws IllegalArgumentException if this name and point is already bound as a counter
+     * @see BoundGauge
+     */
+    public BoundGauge bindGauge(String name, Point point) {
+        return bindGauge(name, point, null);
+    }
+
+    /**
+     * Bind a gauge metric to the given point, with settings as given. The settings of
+     * a gauge are fixed when it is first bound. MetricSettings instances are built using
+     * {@link MetricSettings.Builder}.
+     *
+     * @param name the name of the metric
+     * @param point the point in the metric space to sample at, or null for the zero-point
+     * @param customSettings any settings, or null
+     * @return a thread-safe gauge, which does not allocate when sampled
+     * @throws IllegalArgumentException if this name and point is already bound as a counter
+     * @see BoundGauge
+     */
+    public BoundGauge bindGauge(String name, Point point, MetricSettings customSettings) {
+        if (customSettings != null) {
+            addMetricDefinition(name, customSettings);
+        }
+        return boundMetrics.gauge(new Identifier(name, point), getMetricDefinition(name));
+    }
+
     /**
      * Create a PointBuilder instance with no default settings. PointBuilder
      * instances are not thread-safe.
@@ -139,6 +213,11 @@ public class MetricReceiver {
         return currentSnapshot.get();
     }
 
+    /** Returns the metrics bound to a point through this, which are collected separately from other metrics */
+    BoundMetrics boundMetrics() {
+        return boundMetrics;
+    }
+
     /**
      * Add how to build a histogram for a given metric.
      *
@@ -194,6 +273,30 @@ public class MetricReceiver {
         }
     }
 
+    private static final class NullBoundCounter extends BoundCounter {
+
+        @Override
+        public void add() {
+        }
+
+        @Override
+        public void add(long n) {
+        }
+
+    }
+
+    private static final class NullBoundGauge extends BoundGauge {
+
+        NullBoundGauge() {
+            super(null);
+        }
+
+        @Override
+        public void sample(double x) {
+        }
+
+    }
+
     private static final class NullGauge extends Gauge {
         NullGauge() {
             super(null, null, null);
@@ -233,6 +336,7 @@ public class MetricReceiver {
             for (Bucket b : collection.fetch()) {
                 merged.merge(b, true);
             }
+            boundMetrics().harvest(merged);
             return merged;
         }
 
@@ -278,6 +382,31 @@ public class MetricReceiver {
             return null;
         }
 
+        @Override
+        public BoundCounter bindCounter(String name) {
+            return new NullBoundCounter();
+        }
+
+        @Override
+        public BoundCounter bindCounter(String name, Point point) {
+            return new NullBoundCounter();
+        }
+
+        @Override
+        public BoundGauge bindGauge(String name) {
+            return new NullBoundGauge();
+        }
+
+        @Override
+        public BoundGauge bindGauge(String name, Point point) {
+            return new NullBoundGauge();
+        }
+
+        @Override
+        public BoundGauge bindGauge(String name, Point point, MetricSettings customSettings) {
+            return new NullBoundGauge();
+        }
+
         @Override
         public PointBuilder pointBuilder() {
             return null;
@@ -61,6 +61,24 @@ public class UntypedMetric {
         ++count;
     }
 
+    /** Adds gauge samples which were aggregated elsewhere, with a histogram of them, or null if there is none */
+    void put(long count, double sum, double min, double max, double last, DoubleHistogram samples) {
+        outputFormat = AssumedType.GAUGE;
+        current = last;
+        if (this.count > 0) {
+            this.max = Math.max(max, this.max);
+            this.min = Math.min(min, this.min);
+        } else {
+            this.max = max;
+            this.min = min;
+        }
+        this.sum += sum;
+        this.count += count;
+        if (histogram != null && samples != null) {
+            histogram.add(samples);
+        }
+    }
+
     UntypedMetric pruneData() {
         UntypedMetric pruned = new UntypedMetric(null);
         pruned.outputFormat = this.outputFormat;
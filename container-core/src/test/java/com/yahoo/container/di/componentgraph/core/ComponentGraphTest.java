@@ -25,8 +25,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static com.yahoo.container.di.componentgraph.core.ComponentGraph.isBindingAnnotation;
@@ -530,6 +532,59 @@ public class ComponentGraphTest {
     }
 
 
+    @Test
+    void independent_components_are_constructed_concurrently() {
+        ComponentWaitingForAnother.barrier = new CyclicBarrier(2);
+        Node first = mockComponentNodeWithId(ComponentWaitingForAnother.class, "first");
+        Node second = mockComponentNodeWithId(ComponentWaitingForAnother.class, "second");
+        ComponentGraph componentGraph = new ComponentGraph();
+        componentGraph.add(second);
+        componentGraph.add(first);
+        componentGraph.complete();
+
+        componentGraph.constructInstances(2);
+        for (Node node : List.of(first, second)) {
+            assertTrue(node.constructedInstance().isPresent());
+            assertTrue(node.constructionTime().isPresent());
+        }
+        assertEquals(List.of(second.constructedInstance().get(), first.constructedInstance().get()),
+                     componentGraph.allConstructedComponentsAndProviders());
+    }
+
+    @Test
+    void first_construction_failure_in_dependency_order_is_reported() {
+        Node user = mockComponentNodeWithId(ComponentTakingComponent.class, "user");
+        Node failing = mockComponentNodeWithId(ComponentThatThrows.class, "b-failing");
+        Node alsoFailing = mockComponentNodeWithId(ComponentThatThrows.class, "c-also-failing");
+        Node other = mockComponentNodeWithId(SimpleComponent.class, "a-other");
+        user.inject(other);
+        ComponentGraph componentGraph = new ComponentGraph();
+        componentGraph.add(user);
+        componentGraph.add(failing);
+        componentGraph.add(alsoFailing);
+        componentGraph.add(other);
+        componentGraph.complete();
+
+        for (int threads : List.of(1, 4)) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> componentGraph.constructInstances(threads));
+            assertTrue(e.getMessage().contains("'b-failing'"), e.getMessage());
+        }
+    }
+
+    public static class ComponentWaitingForAnother extends SimpleComponent {
+        static CyclicBarrier barrier;
+
+        public ComponentWaitingForAnother() throws Exception {
+            barrier.await(30, TimeUnit.SECONDS);
+        }
+    }
+
+    public static class ComponentThatThrows extends AbstractComponent {
+        public ComponentThatThrows() {
+            throw new RuntimeException("Failed");
+        }
+    }
+
     //Note that all Components must be defined in a static context,
     //otherwise their constructor will take the outer class as the first parameter.
     private static int counter = 0;
@@ -3,6 +3,7 @@ package com.yahoo.container.handler.threadpool;
 
 import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.collections.Tuple2;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.concurrent.Receiver;
 import com.yahoo.container.protect.ProcessTerminator;
 import com.yahoo.container.test.MetricMock;
@@ -10,11 +11,17 @@ import com.yahoo.jdisc.Metric;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -116,6 +123,47 @@ public class ContainerThreadPoolImplTest {
         assertEquals(CPUS * 4 * 100, executor.getQueue().remainingCapacity());
     }
 
+    @Test
+    void testThreadPerTaskExecutorBoundsConcurrentTasks() throws InterruptedException {
+        ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor(2, new ArrayBlockingQueue<>(1), new DaemonThreadFactory("test-"),
+                                                                   new ThreadPoolMetric(new MetricMock(), "test"));
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        Runnable task = () -> {
+            try {
+                blocked.await();
+                completed.incrementAndGet();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        executor.execute(task);
+        executor.execute(task);
+        executor.execute(task);
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(task));
+        assertEquals(2, executor.activeCount());
+        assertEquals(1, executor.queueSize());
+
+        blocked.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(3, completed.get());
+        assertEquals(0, executor.activeCount());
+        assertEquals(0, executor.poolSize());
+    }
+
+    @Test
+    void testVirtualThreadsConfig() throws InterruptedException {
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder().maxThreads(1)
+                                                                                                                .queueSize(1)
+                                                                                                                .virtualThreads(true));
+        ContainerThreadPool threadPool = new ContainerThreadpoolImpl(config, new MetricMock(), new MockProcessTerminator(), CPUS);
+        FlipIt command = new FlipIt();
+        threadPool.executor().execute(command);
+        assertEquals(Boolean.TRUE, command.didItRun.get(60_000).second);
+        threadPool.close();
+    }
+
     private static class FlipIt implements Runnable {
         public final Receiver<Boolean> didItRun = new Receiver<>();
 
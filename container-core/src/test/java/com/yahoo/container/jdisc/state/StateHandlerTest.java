@@ -2,12 +2,19 @@
 package com.yahoo.container.jdisc.state;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.yahoo.component.ComponentId;
 import com.yahoo.component.Vtag;
+import com.yahoo.component.provider.ComponentRegistry;
 import com.yahoo.container.jdisc.RequestHandlerTestDriver;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.http.HttpRequest;
 import com.yahoo.vespa.defaults.Defaults;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -110,6 +117,30 @@ public class StateHandlerTest extends StateHandlerTestBase {
         assertEquals(expectedResponse, response);
     }
 
+    @Test
+    void testLargePrometheusReportWithChangingDimensions() {
+        var snapshot = new MetricSnapshot(0L, SNAPSHOT_INTERVAL, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 1000; i++)
+            snapshot.add(StateMetricContext.newInstance(Map.of("id", "instance-" + i)), "some.counter", i);
+        snapshotProvider.setSnapshot(snapshot);
+
+        var response = requestAsString(V1_URI + "metrics?format=prometheus");
+        assertEquals(1001, response.lines().count());
+        assertTrue(response.contains("some_counter_count{id=\"instance-999\",} 999 300000\n"), response);
+
+        var next = new MetricSnapshot(SNAPSHOT_INTERVAL, 2 * SNAPSHOT_INTERVAL, TimeUnit.MILLISECONDS);
+        next.add(StateMetricContext.newInstance(Map.of("id", "instance-999")), "some.counter", 1);
+        next.add(StateMetricContext.newInstance(Map.of("id", "instance-1000")), "some.counter", 2);
+        snapshotProvider.setSnapshot(next);
+
+        var expectedResponse = """
+                # NOTE: THIS API IS NOT INTENDED FOR PUBLIC USE
+                some_counter_count{id="instance-1000",} 2 600000
+                some_counter_count{id="instance-999",} 1 600000
+                """;
+        assertEquals(expectedResponse, requestAsString(V1_URI + "metrics?format=prometheus"));
+    }
+
     private JsonNode getFirstMetricValueNode(JsonNode root) {
         assertEquals(1, root.get("metrics").get("values").size(), root.toString());
         JsonNode metricValues = root.get("metrics").get("values").get(0).get("values");
@@ -207,4 +238,24 @@ public class StateHandlerTest extends StateHandlerTestBase {
         JsonNode version = root.get("version");
         assertEquals(Vtag.currentVersion.toString(), version.asText());
     }
+
+    @Test
+    void testNoResponseIsCommittedWhenMetricsFailToRender() {
+        var failingProviders = new ComponentRegistry<SnapshotProvider>();
+        failingProviders.register(new ComponentId("failing"), new MockSnapshotProvider() {
+            @Override public MetricSnapshot latestSnapshot() { throw new IllegalStateException("no snapshot"); }
+        });
+        var handler = new StateHandler(monitor, timer, applicationMetadataConfig, failingProviders);
+        var responses = new ArrayList<Response>();
+        var request = HttpRequest.newServerRequest(testDriver.jDiscDriver(), URI.create(V1_URI + "metrics"));
+        try {
+            ContentChannel requestContent = handler.handleRequest(request, response -> { responses.add(response); return null; });
+            assertThrows(IllegalStateException.class, () -> requestContent.close(null));
+            assertTrue(responses.isEmpty(), "No response is committed, so the server can respond with an error");
+        }
+        finally {
+            request.release();
+        }
+    }
+
 }
@@ -17,7 +17,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.Date;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.BiFunction;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -206,6 +210,83 @@ public class LogFileHandlerTestCase {
         h.shutdown();
     }
 
+    @Test
+    @Timeout(300_000)
+    void records_are_dropped_when_queue_is_full_if_configured() throws IOException, InterruptedException {
+        File root = newFolder(temporaryFolder, "dropwhenfull");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        LogWriter<String> blockingWriter = (record, out) -> {
+            writing.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            out.write(record.getBytes(StandardCharsets.UTF_8));
+        };
+        BlockingQueue<LogFileHandler.Statistics> statistics = new LinkedBlockingQueue<>();
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.NONE, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s", new long[]{0}, null,
+                2, true, Duration.ofMillis(1), "thread-name", blockingWriter, statistics::add);
+        h.publish("first");
+        writing.await(); // The log thread has taken the first record, and is blocked writing it
+        h.publish("second");
+        h.publish("third");
+        h.publish("dropped");
+        blocked.countDown();
+        h.flush();
+        assertEquals("first\nsecond\nthird\n", Files.readString(Paths.get(h.getFileName())));
+
+        long dropped = 0;
+        while (dropped == 0) dropped += statistics.take().dropped();
+        assertEquals(1, dropped);
+        h.shutdown();
+    }
+
+    @Test
+    @Timeout(300_000)
+    void publishers_wait_for_room_when_queue_is_full_and_interrupted_publishes_are_dropped() throws IOException, InterruptedException {
+        File root = newFolder(temporaryFolder, "waitwhenfull");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        LogWriter<String> blockingWriter = (record, out) -> {
+            writing.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            out.write(record.getBytes(StandardCharsets.UTF_8));
+        };
+        BlockingQueue<LogFileHandler.Statistics> statistics = new LinkedBlockingQueue<>();
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.NONE, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s", new long[]{0}, null,
+                1, false, Duration.ofMillis(1), "thread-name", blockingWriter, statistics::add);
+        h.publish("first");
+        writing.await(); // The log thread has taken the first record, and is blocked writing it
+        h.publish("second");
+
+        Thread interrupted = new Thread(() -> h.publish("interrupted"));
+        interrupted.start();
+        while (interrupted.getState() != Thread.State.TIMED_WAITING) Thread.sleep(1);
+        interrupted.interrupt();
+        interrupted.join();
+
+        Thread waiting = new Thread(() -> h.publish("third"));
+        waiting.start();
+        while (waiting.getState() != Thread.State.TIMED_WAITING) Thread.sleep(1);
+        blocked.countDown();
+        waiting.join();
+        h.flush();
+        assertEquals("first\nsecond\nthird\n", Files.readString(Paths.get(h.getFileName())));
+
+        long dropped = 0;
+        while (dropped == 0) dropped += statistics.take().dropped();
+        assertEquals(1, dropped);
+        h.shutdown();
+    }
+
     static class StringLogWriter implements LogWriter<String> {
 
         @Override
@@ -0,0 +1,65 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferTest {
+
+    @Test
+    void items_are_taken_in_order_and_offers_fail_when_full() {
+        RingBuffer<String> buffer = new RingBuffer<>(2);
+        assertNull(buffer.poll());
+        assertTrue(buffer.offer("a", 1));
+        assertTrue(buffer.offer("b", 2));
+        assertFalse(buffer.offer("c", 3));
+        assertEquals(2, buffer.size());
+
+        assertEquals("a", buffer.poll());
+        assertEquals(1, buffer.lastOfferNanos());
+        assertTrue(buffer.offer("c", 3));
+        assertEquals("b", buffer.poll());
+        assertEquals("c", buffer.poll());
+        assertEquals(3, buffer.lastOfferNanos());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void all_items_from_concurrent_producers_are_taken() throws InterruptedException {
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        int producers = 4, itemsPerProducer = 1000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            new Thread(() -> {
+                for (int i = 0; i < itemsPerProducer; i++)
+                    while ( ! buffer.offer(producer * itemsPerProducer + i, System.nanoTime()))
+                        Thread.yield();
+                done.countDown();
+            }).start();
+        }
+
+        List<Integer> taken = new ArrayList<>();
+        int[] lastPerProducer = { -1, -1, -1, -1 };
+        while (taken.size() < producers * itemsPerProducer) {
+            Integer item = buffer.poll();
+            if (item == null) continue;
+            // Items from each producer are taken in the order they were added
+            assertTrue(item % itemsPerProducer > lastPerProducer[item / itemsPerProducer]);
+            lastPerProducer[item / itemsPerProducer] = item % itemsPerProducer;
+            taken.add(item);
+        }
+        done.await();
+        assertTrue(buffer.isEmpty());
+    }
+
+}
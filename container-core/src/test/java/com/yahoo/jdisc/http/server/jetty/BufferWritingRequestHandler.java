@@ -0,0 +1,71 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.AbstractRequestHandler;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.NullContent;
+import com.yahoo.jdisc.handler.ResponseHandler;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.yahoo.jdisc.Response.Status.OK;
+
+/**
+ * Responds with the given number of buffers of the given size, writing each buffer when the previous one is completed,
+ * and clearing each buffer when it is completed, so content will be corrupted if a buffer is used after completion.
+ */
+class BufferWritingRequestHandler extends AbstractRequestHandler {
+
+    private final int parts;
+    private final int partSize;
+    private final boolean direct;
+    final AtomicInteger completed = new AtomicInteger();
+
+    BufferWritingRequestHandler(int parts, int partSize, boolean direct) {
+        this.parts = parts;
+        this.partSize = partSize;
+        this.direct = direct;
+    }
+
+    /** Returns the content written by this */
+    String expectedContent() {
+        StringBuilder content = new StringBuilder(parts * partSize);
+        for (int i = 0; i < parts; i++)
+            for (int j = 0; j < partSize; j++)
+                content.append((char) ('a' + (i + j) % 26));
+        return content.toString();
+    }
+
+    @Override
+    public ContentChannel handleRequest(Request request, ResponseHandler handler) {
+        ContentChannel out = handler.handleResponse(new Response(OK));
+        write(out, 0);
+        return NullContent.INSTANCE;
+    }
+
+    private void write(ContentChannel out, int part) {
+        if (part == parts) {
+            out.close(null);
+            return;
+        }
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(partSize) : ByteBuffer.allocate(partSize);
+        for (int j = 0; j < partSize; j++)
+            buffer.put((byte) ('a' + (part + j) % 26));
+        buffer.flip();
+        out.write(buffer, new CompletionHandler() {
+            @Override
+            public void completed() {
+                buffer.clear();
+                while (buffer.hasRemaining()) buffer.put((byte) '-');
+                completed.incrementAndGet();
+                write(out, part + 1);
+            }
+            @Override public void failed(Throwable t) { }
+        });
+    }
+
+}
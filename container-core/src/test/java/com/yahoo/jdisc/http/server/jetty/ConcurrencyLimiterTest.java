@@ -0,0 +1,77 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.http.server.jetty.ConcurrencyLimiter.Permit;
+import com.yahoo.jdisc.http.server.jetty.ConcurrencyLimiter.RequestClass;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void writes_are_rejected_before_reads_and_monitoring_is_never_rejected() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 0.5, nanos::get);
+        List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            permits.add(limiter.tryAcquire(RequestClass.write).orElseThrow());
+        assertTrue(limiter.tryAcquire(RequestClass.write).isEmpty());
+
+        for (int i = 0; i < 5; i++)
+            permits.add(limiter.tryAcquire(RequestClass.read).orElseThrow());
+        assertTrue(limiter.tryAcquire(RequestClass.read).isEmpty());
+        assertTrue(limiter.tryAcquire(RequestClass.write).isEmpty());
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(limiter.tryAcquire(RequestClass.monitoring).isPresent());
+        assertEquals(10, limiter.inFlight());
+        assertEquals(2, limiter.takeRejected(RequestClass.write));
+        assertEquals(1, limiter.takeRejected(RequestClass.read));
+        assertEquals(0, limiter.takeRejected(RequestClass.monitoring));
+        assertEquals(0, limiter.takeRejected(RequestClass.write));
+
+        permits.get(0).release();
+        permits.get(0).release();
+        assertEquals(9, limiter.inFlight());
+        assertTrue(limiter.tryAcquire(RequestClass.read).isPresent());
+    }
+
+    @Test
+    void limit_grows_while_latency_is_stable_and_shrinks_when_latency_increases() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 10, 1000, 0.8, nanos::get);
+        for (int i = 0; i < 5; i++)
+            runWindow(limiter, limiter.limit(), Duration.ofSeconds(1));
+        int grown = limiter.limit();
+        assertTrue(grown > 20, "limit grows from 20, but is " + grown);
+
+        for (int i = 0; i < 5; i++)
+            runWindow(limiter, limiter.limit(), Duration.ofSeconds(3));
+        assertTrue(limiter.limit() < grown, "limit shrinks from " + grown + ", but is " + limiter.limit());
+    }
+
+    @Test
+    void limit_does_not_grow_when_it_is_far_from_being_used() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 10, 1000, 0.8, nanos::get);
+        for (int i = 0; i < 5; i++)
+            runWindow(limiter, 20, Duration.ofSeconds(1));
+        assertEquals(100, limiter.limit());
+    }
+
+    /** Runs a window with the given number of concurrent read requests, which all take the given time */
+    private void runWindow(ConcurrencyLimiter limiter, int concurrency, Duration latency) {
+        List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++)
+            permits.add(limiter.tryAcquire(RequestClass.read).orElseThrow());
+        nanos.addAndGet(latency.toNanos());
+        permits.forEach(Permit::release);
+    }
+
+}
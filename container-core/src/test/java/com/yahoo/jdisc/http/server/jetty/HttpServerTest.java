@@ -39,6 +39,7 @@ import org.apache.hc.client5.http.entity.mime.StringBody;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.core5.http.ConnectionClosedException;
 import org.apache.hc.core5.http.ContentType;
+import org.eclipse.jetty.server.handler.AbstractHandlerContainer;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -47,6 +48,7 @@ import javax.net.ssl.SSLContext;
 import java.io.File;
 import java.io.IOException;
 import java.net.BindException;
+import java.net.Socket;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -60,6 +62,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
@@ -71,6 +75,8 @@ import static com.yahoo.jdisc.Response.Status.NOT_FOUND;
 import static com.yahoo.jdisc.Response.Status.OK;
 import static com.yahoo.jdisc.Response.Status.REQUEST_TOO_LONG;
 import static com.yahoo.jdisc.Response.Status.REQUEST_URI_TOO_LONG;
+import static com.yahoo.jdisc.Response.Status.SERVICE_UNAVAILABLE;
+import static com.yahoo.jdisc.Response.Status.TOO_MANY_REQUESTS;
 import static com.yahoo.jdisc.Response.Status.UNAUTHORIZED;
 import static com.yahoo.jdisc.Response.Status.UNSUPPORTED_MEDIA_TYPE;
 import static com.yahoo.jdisc.http.HttpHeaders.Names.CONNECTION;
@@ -83,6 +89,7 @@ import static com.yahoo.jdisc.http.server.jetty.SimpleHttpClient.ResponseValidat
 import static com.yahoo.jdisc.http.server.jetty.Utils.createHttp2Client;
 import static com.yahoo.jdisc.http.server.jetty.Utils.createSslTestDriver;
 import static com.yahoo.jdisc.http.server.jetty.Utils.generatePrivateKeyAndCertificate;
+import static com.yahoo.yolean.Exceptions.uncheck;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
@@ -235,6 +242,41 @@ public class HttpServerTest {
         assertTrue(driver.close());
     }
 
+    @Test
+    void requireThatRequestContentLargerThanReadBufferIsIntact() throws Exception {
+        final JettyTestDriver driver = JettyTestDriver.newInstance(new EchoRequestHandler());
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; content.length() < 100_000; i++)
+            content.append(i).append(' ');
+        driver.client().newPost("/status.html")
+                .setContent(content.toString())
+                .execute()
+                .expectStatusCode(is(OK))
+                .expectContent(is(content.toString()));
+        driver.client().newPost("/status.html")
+                .setContent("small")
+                .execute()
+                .expectStatusCode(is(OK))
+                .expectContent(is("small"));
+        assertTrue(driver.close());
+    }
+
+    @Test
+    void requireThatResponsesWrittenFromCompletionHandlersAreIntact() throws Exception {
+        for (boolean direct : List.of(false, true)) {
+            for (int partSize : List.of(100, 1 << 20)) {
+                int parts = (4 << 20) / partSize;
+                BufferWritingRequestHandler handler = new BufferWritingRequestHandler(parts, partSize, direct);
+                JettyTestDriver driver = JettyTestDriver.newInstance(handler);
+                driver.client().get("/status.html")
+                      .expectStatusCode(is(OK))
+                      .expectContent(is(handler.expectedContent()));
+                assertEquals(parts, handler.completed.get());
+                assertTrue(driver.close());
+            }
+        }
+    }
+
     @Test
     void requireThatFormPostWorks() throws Exception {
         final JettyTestDriver driver = JettyTestDriver.newInstance(new ParameterPrinterRequestHandler());
@@ -848,6 +890,80 @@ public class HttpServerTest {
         assertTrue(driver.close());
     }
 
+    @Test
+    void requireThatRequestsAboveConcurrencyLimitAreRejectedWithRetryAfter() throws Exception {
+        HeldRequestHandler handler = new HeldRequestHandler();
+        JettyTestDriver driver = newDriverWithConcurrencyLimit(handler, 1);
+        CompletableFuture<ResponseValidator> held = CompletableFuture.supplyAsync(() -> uncheck(() -> driver.client().get("/status.html")));
+        handler.awaitRequest();
+
+        ResponseValidator read = driver.client().get("/status.html").expectStatusCode(is(SERVICE_UNAVAILABLE));
+        read.expectHeader("Retry-After", is("1"));
+        ResponseValidator write = driver.client().newPost("/status.html").execute().expectStatusCode(is(TOO_MANY_REQUESTS));
+        write.expectHeader("Retry-After", is("1"));
+
+        handler.respond();
+        held.get(1, TimeUnit.MINUTES).expectStatusCode(is(OK));
+        assertNoRequestsInFlight(driver);
+        driver.client().get("/status.html").expectStatusCode(is(OK));
+        assertTrue(driver.close());
+    }
+
+    @Test
+    void requireThatConcurrencyLimitPermitIsReleasedWhenRequestCompletes() throws Exception {
+        JettyTestDriver driver = newDriverWithConcurrencyLimit(new OkRequestHandler(), 1);
+        for (int i = 0; i < 3; i++) {
+            driver.client().get("/status.html").expectStatusCode(is(OK));
+            assertNoRequestsInFlight(driver);
+        }
+        assertTrue(driver.close());
+    }
+
+    @Test
+    void requireThatConcurrencyLimitPermitIsReleasedWhenRequestFails() throws Exception {
+        JettyTestDriver driver = newDriverWithConcurrencyLimit(new ThrowingHandler(), 1);
+        for (int i = 0; i < 3; i++) {
+            driver.client().get("/status.html").expectStatusCode(is(INTERNAL_SERVER_ERROR));
+            assertNoRequestsInFlight(driver);
+        }
+        assertTrue(driver.close());
+    }
+
+    @Test
+    void requireThatConcurrencyLimitPermitIsReleasedWhenClientDisconnects() throws Exception {
+        HeldRequestHandler handler = new HeldRequestHandler();
+        JettyTestDriver driver = newDriverWithConcurrencyLimit(handler, 1);
+        try (Socket socket = new Socket("localhost", driver.server().getListenPort())) {
+            socket.getOutputStream().write("GET /status.html HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(UTF_8));
+            socket.getOutputStream().flush();
+            handler.awaitRequest();
+        }
+        handler.respond();
+        assertNoRequestsInFlight(driver);
+        driver.client().get("/status.html").expectStatusCode(is(OK));
+        assertTrue(driver.close());
+    }
+
+    private static JettyTestDriver newDriverWithConcurrencyLimit(RequestHandler requestHandler, int limit) {
+        return JettyTestDriver.newConfiguredInstance(
+                requestHandler,
+                new ServerConfig.Builder().concurrencyLimit(new ServerConfig.ConcurrencyLimit.Builder()
+                                                                    .enabled(true)
+                                                                    .initialLimit(limit)
+                                                                    .minLimit(limit)
+                                                                    .maxLimit(limit)
+                                                                    .feedShare(1)),
+                new ConnectorConfig.Builder());
+    }
+
+    private static void assertNoRequestsInFlight(JettyTestDriver driver) throws InterruptedException {
+        ConcurrencyLimiter limiter = ((AbstractHandlerContainer) driver.server().server().getHandler())
+                .getChildHandlerByClass(ConcurrencyLimitingHandler.class).limiter();
+        for (int i = 0; i < 1000 && limiter.inFlight() > 0; i++)
+            Thread.sleep(10);
+        assertEquals(0, limiter.inFlight());
+    }
+
     private static JettyTestDriver createSslWithTlsClientAuthenticationEnforcer(Path certificateFile, Path privateKeyFile) {
         ConnectorConfig.Builder connectorConfig = new ConnectorConfig.Builder()
                 .tlsClientAuthEnforcer(
@@ -997,6 +1113,33 @@ public class HttpServerTest {
         }
     }
 
+    /** Responds to the first request when told to, and OK to later requests */
+    private static class HeldRequestHandler extends AbstractRequestHandler {
+
+        private final CountDownLatch received = new CountDownLatch(1);
+        private volatile ResponseHandler heldHandler;
+
+        @Override
+        public ContentChannel handleRequest(Request request, ResponseHandler handler) {
+            if (received.getCount() == 0) {
+                ResponseDispatch.newInstance(OK).dispatch(handler);
+            } else {
+                heldHandler = handler;
+                received.countDown();
+            }
+            return NullContent.INSTANCE;
+        }
+
+        void awaitRequest() throws InterruptedException {
+            assertTrue(received.await(1, TimeUnit.MINUTES));
+        }
+
+        void respond() {
+            ResponseDispatch.newInstance(OK).dispatch(heldHandler);
+        }
+
+    }
+
     private static class OkRequestHandler extends AbstractRequestHandler {
         @Override
         public ContentChannel handleRequest(Request request, ResponseHandler handler) {
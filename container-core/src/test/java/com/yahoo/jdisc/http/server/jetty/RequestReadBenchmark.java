@@ -0,0 +1,107 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.AbstractRequestHandler;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.ResponseDispatch;
+import com.yahoo.jdisc.handler.ResponseHandler;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.LongStream;
+
+/**
+ * Measures the throughput and heap allocation per request of reading request content of various sizes
+ * through the jdisc HTTP server.
+ */
+public class RequestReadBenchmark {
+
+    private static final int requests = 20_000;
+
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final byte[] readBuffer = new byte[1 << 12];
+
+    public void run(int contentSize) throws Exception {
+        JettyTestDriver driver = JettyTestDriver.newInstance(new DiscardingRequestHandler());
+        try {
+            int port = driver.server().getListenPort();
+            byte[] request = request(contentSize);
+            measure(port, request); // Warm-up
+            long allocatedBefore = allocatedBytes();
+            long startNanos = System.nanoTime();
+            measure(port, request);
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes() - allocatedBefore;
+            out(contentSize + " byte requests: " + requests * 1_000_000_000L / nanos + " requests/s, " +
+                allocated / requests + " bytes allocated per request");
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    private void measure(int port, byte[] request) throws Exception {
+        for (int i = 0; i < requests; i++) {
+            try (Socket socket = new Socket("localhost", port)) {
+                OutputStream out = socket.getOutputStream();
+                out.write(request);
+                out.flush();
+                InputStream in = socket.getInputStream();
+                while (in.read(readBuffer) != -1) { }
+            }
+        }
+    }
+
+    /** Returns the bytes allocated so far by the threads which are alive, which include the server's threads */
+    private long allocatedBytes() {
+        return LongStream.of(threads.getThreadAllocatedBytes(threads.getAllThreadIds())).filter(bytes -> bytes > 0).sum();
+    }
+
+    private static byte[] request(int contentSize) {
+        byte[] head = ("POST / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\nContent-Length: " + contentSize + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] request = new byte[head.length + contentSize];
+        System.arraycopy(head, 0, request, 0, head.length);
+        for (int i = head.length; i < request.length; i++)
+            request[i] = (byte) ('a' + i % 26);
+        return request;
+    }
+
+    private void out(String s) {
+        System.out.println(s);
+    }
+
+    private static class DiscardingRequestHandler extends AbstractRequestHandler {
+
+        @Override
+        public ContentChannel handleRequest(Request request, ResponseHandler handler) {
+            return new ContentChannel() {
+                @Override
+                public void write(ByteBuffer buf, CompletionHandler completion) {
+                    completion.completed();
+                }
+
+                @Override
+                public void close(CompletionHandler completion) {
+                    ResponseDispatch.newInstance(Response.Status.OK).dispatch(handler);
+                    completion.completed();
+                }
+            };
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        RequestReadBenchmark benchmark = new RequestReadBenchmark();
+        for (int contentSize : new int[] { 200, 2_000, 64_000 })
+            benchmark.run(contentSize);
+    }
+
+}
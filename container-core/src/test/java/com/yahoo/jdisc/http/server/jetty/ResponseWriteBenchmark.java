@@ -0,0 +1,63 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures the throughput of large responses written as heap and direct buffers through the jdisc HTTP server.
+ */
+public class ResponseWriteBenchmark {
+
+    private static final int partSize = 1 << 20;
+    private static final int requests = 20;
+    private static final byte[] request = "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] readBuffer = new byte[1 << 16];
+
+    public void run(int megabytes, boolean direct) throws Exception {
+        BufferWritingRequestHandler handler = new BufferWritingRequestHandler(megabytes, partSize, direct);
+        JettyTestDriver driver = JettyTestDriver.newInstance(handler);
+        try {
+            int port = driver.server().getListenPort();
+            measure(port, megabytes); // Warm-up
+            out(megabytes + " MB in " + (direct ? "direct" : "heap") + " buffers: " + measure(port, megabytes) + " MB/s");
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    private long measure(int port, int megabytes) throws Exception {
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long bytes = 0;
+            try (Socket socket = new Socket("localhost", port)) {
+                OutputStream out = socket.getOutputStream();
+                out.write(request);
+                out.flush();
+                InputStream in = socket.getInputStream();
+                for (int read; (read = in.read(readBuffer)) != -1; )
+                    bytes += read;
+            }
+            if (bytes < (long) megabytes * partSize)
+                throw new IllegalStateException("Got " + bytes + " bytes");
+        }
+        return (long) megabytes * requests * 1_000_000_000L / Math.max(1, System.nanoTime() - startNanos);
+    }
+
+    private void out(String s) {
+        System.out.println(s);
+    }
+
+    public static void main(String[] args) throws Exception {
+        ResponseWriteBenchmark benchmark = new ResponseWriteBenchmark();
+        for (int megabytes : new int[] { 1, 10, 50 }) {
+            benchmark.run(megabytes, false);
+            benchmark.run(megabytes, true);
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the cost of updating counters and gauges which are declared, and which are bound to a point,
+ * from many threads at once.
+ */
+public class BoundMetricsBenchmark {
+
+    private static final int updatesPerThread = 1_000_000;
+
+    private final MetricReceiver receiver = new MetricReceiver.MockReceiver();
+
+    public void run(int threads) throws InterruptedException {
+        Point point = receiver.pointBuilder().set("chain", "default").set("searcher", "benchmark").build();
+        Counter declaredCounter = receiver.declareCounter("declared.counter");
+        Gauge declaredGauge = receiver.declareGauge("declared.gauge");
+        BoundCounter boundCounter = receiver.bindCounter("bound.counter", point);
+        BoundGauge boundGauge = receiver.bindGauge("bound.gauge", point);
+
+        // Warm-up
+        out("Warming up...");
+        for (int i = 0; i < 3; i++) {
+            measure(threads, () -> declaredCounter.add(point));
+            measure(threads, () -> boundCounter.add());
+            receiver.getSnapshot();
+        }
+
+        out("Running with " + threads + " threads...");
+        out("Declared counter: " + measure(threads, () -> declaredCounter.add(point)) + " ns/update");
+        out("Bound counter:    " + measure(threads, () -> boundCounter.add()) + " ns/update");
+        out("Declared gauge:   " + measure(threads, () -> declaredGauge.sample(1.0, point)) + " ns/update");
+        out("Bound gauge:      " + measure(threads, () -> boundGauge.sample(1.0)) + " ns/update");
+        out("Ignore this: " + receiver.getSnapshot().getAllMetricNames()); // Make sure the updates are observable
+    }
+
+    /** Returns the average wall clock time per update, per thread, when all threads update concurrently */
+    private double measure(int threads, Runnable update) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for (int j = 0; j < updatesPerThread; j++)
+                    update.run();
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return (double) (System.nanoTime() - startNanos) / updatesPerThread;
+    }
+
+    private void out(String string) {
+        System.out.println(string);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new BoundMetricsBenchmark().run(args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors());
+    }
+
+}
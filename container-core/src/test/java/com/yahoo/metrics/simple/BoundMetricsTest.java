@@ -0,0 +1,94 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for counters and gauges bound to a point.
+ */
+public class BoundMetricsTest {
+
+    private final MetricReceiver receiver = new MetricReceiver.MockReceiver();
+
+    @Test
+    void bound_and_declared_metrics_are_merged_per_point() {
+        Point p = receiver.pointBuilder().set("x", "y").build();
+        BoundCounter counter = receiver.bindCounter("counter", p);
+        assertSame(counter, receiver.bindCounter("counter", receiver.pointBuilder().set("x", "y").build()));
+        counter.add();
+        counter.add(4);
+        receiver.declareCounter("counter", p).add(2);
+        receiver.bindCounter("counter").add();
+
+        Map<Point, UntypedMetric> counts = receiver.getSnapshot().getMapForMetric("counter");
+        assertEquals(2, counts.size());
+        assertTrue(counts.get(p).isCounter());
+        assertEquals(7, counts.get(p).getCount());
+        assertEquals(1, counts.get(Point.emptyPoint()).getCount());
+
+        assertTrue(receiver.getSnapshot().getMapForMetric("counter").isEmpty(), "values are moved to the snapshot");
+        assertThrows(IllegalArgumentException.class, () -> receiver.bindGauge("counter", p));
+    }
+
+    @Test
+    void bound_metric_of_other_type_than_declared_metric_is_ignored() {
+        receiver.declareGauge("mixed").sample(3);
+        receiver.bindCounter("mixed").add();
+
+        Map<Point, UntypedMetric> values = receiver.getSnapshot().getMapForMetric("mixed");
+        assertEquals(1, values.size());
+        assertFalse(values.get(Point.emptyPoint()).isCounter());
+        assertEquals(3, values.get(Point.emptyPoint()).getLast(), 0.0);
+    }
+
+    @Test
+    void gauge_samples_are_aggregated_with_histogram() throws InterruptedException {
+        BoundGauge gauge = receiver.bindGauge("gauge", null, new MetricSettings.Builder().histogram(true).build());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 1; j <= 100; j++)
+                    gauge.sample(j);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        UntypedMetric value = receiver.getSnapshot().getMapForMetric("gauge").get(Point.emptyPoint());
+        assertEquals(400, value.getCount());
+        assertEquals(4 * 5050, value.getSum(), 0.0);
+        assertEquals(1, value.getMin(), 0.0);
+        assertEquals(100, value.getMax(), 0.0);
+        assertEquals(100, value.getLast(), 0.0);
+        assertNotNull(value.getHistogram());
+        assertEquals(50, value.getHistogram().getValueAtPercentile(50), 1);
+
+        gauge.sample(0.5);
+        value = receiver.getSnapshot().getMapForMetric("gauge").get(Point.emptyPoint());
+        assertEquals(1, value.getCount());
+        assertEquals(0.5, value.getMin(), 0.0);
+        assertEquals(0.5, value.getMax(), 0.0);
+    }
+
+    @Test
+    void null_receiver_binds_metrics_which_do_nothing() {
+        MetricReceiver.nullImplementation.bindCounter("counter").add();
+        MetricReceiver.nullImplementation.bindGauge("gauge", null, null).sample(1);
+        assertEquals(Optional.empty(), Optional.ofNullable(MetricReceiver.nullImplementation.getSnapshot()));
+    }
+
+}
@@ -51,6 +51,8 @@ import com.yahoo.yolean.Exceptions;
 import com.yahoo.yolean.UncheckedInterruptedException;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
 import java.security.Provider;
 import java.security.Security;
 import java.time.Duration;
@@ -180,6 +182,19 @@ public final class ConfiguredApplication implements Application {
         portWatcher.setDaemon(true);
         portWatcher.start();
         setupRpc(qrConfig);
+        logStartupTime();
+    }
+
+    /** Logs the time from the JVM started until this can serve requests, to measure the effect of startup tuning */
+    private static void logStartupTime() {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        List<String> arguments = runtime.getInputArguments();
+        String classDataSharing = arguments.stream().anyMatch(argument -> argument.startsWith("-XX:SharedArchiveFile=")) ? "using an archive"
+                                : arguments.stream().anyMatch(argument -> argument.startsWith("-XX:ArchiveClassesAtExit=")) ? "creating an archive on exit"
+                                : "default";
+        log.log(Level.INFO, "Ready to serve requests " + runtime.getUptime() + " ms after JVM start, having loaded " +
+                            ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount() + " classes, class data sharing: " +
+                            classDataSharing);
     }
 
     private synchronized void setupRpc(QrConfig cfg) {
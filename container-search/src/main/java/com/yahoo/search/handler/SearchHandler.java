@@ -37,6 +37,8 @@ import com.yahoo.search.query.profile.compiled.CompiledQueryProfileRegistry;
 import com.yahoo.search.query.properties.DefaultProperties;
 import com.yahoo.search.query.ranking.SoftTimeout;
 import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.searchchain.ChainProfile;
+import com.yahoo.search.searchchain.ChainProfiler;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.searchchain.ExecutionFactory;
 import com.yahoo.search.searchchain.SearchChainRegistry;
@@ -79,6 +81,7 @@ public class SearchHandler extends LoggingRequestHandler {
 
     private static final CompoundName DETAILED_TIMING_LOGGING = CompoundName.from("trace.timingDetails");
     private static final CompoundName FORCE_TIMESTAMPS = CompoundName.from("trace.timestamps");
+    private static final CompoundName PROFILE_SEARCHERS = CompoundName.from("trace.profileSearchers");
 
     /** Event name for number of connections to the search subsystem */
     private static final String SEARCH_CONNECTIONS = ContainerMetrics.SEARCH_CONNECTIONS.baseName();
@@ -99,6 +102,7 @@ public class SearchHandler extends LoggingRequestHandler {
     private final Map<String, Embedder> embedders;
     private final ExecutionFactory executionFactory;
     private final AtomicLong numRequestsLeftToTrace;
+    private final ChainProfiler chainProfiler;
 
     private final ZoneInfo zoneInfo;
 
@@ -117,6 +121,7 @@ public class SearchHandler extends LoggingRequestHandler {
         this(metric, threadpool.executor(), queryProfileRegistry, embedders, executionFactory,
              config.numQueriesToTraceOnDebugAfterConstruction(),
                 config.hostResponseHeaderKey().isEmpty() ? Optional.empty() : Optional.of(config.hostResponseHeaderKey()),
+             config.searcherProfilingSampleRate(),
              zoneInfo);
     }
 
@@ -127,6 +132,7 @@ public class SearchHandler extends LoggingRequestHandler {
                           ExecutionFactory executionFactory,
                           long numQueriesToTraceOnDebugAfterStartup,
                           Optional<String> hostResponseHeaderKey,
+                          double searcherProfilingSampleRate,
                           ZoneInfo zoneInfo) {
         super(executor, metric, true);
 
@@ -139,6 +145,7 @@ public class SearchHandler extends LoggingRequestHandler {
 
         this.hostResponseHeaderKey = hostResponseHeaderKey;
         this.numRequestsLeftToTrace = new AtomicLong(numQueriesToTraceOnDebugAfterStartup);
+        this.chainProfiler = new ChainProfiler(searcherProfilingSampleRate, metric);
         metric.set(SEARCH_CONNECTIONS, 0.0d, null);
         this.zoneInfo = zoneInfo;
 
@@ -147,6 +154,9 @@ public class SearchHandler extends LoggingRequestHandler {
 
     Metric metric() { return metric; }
 
+    /** Returns the profiler recording what is spent in each searcher for a sample of the queries handled by this */
+    public ChainProfiler chainProfiler() { return chainProfiler; }
+
     private static int examineExecutor(Executor executor) {
         if (executor instanceof ThreadPoolExecutor) {
             return ((ThreadPoolExecutor) executor).getMaximumPoolSize();
@@ -345,11 +355,22 @@ public class SearchHandler extends LoggingRequestHandler {
             // check and set (instead of set directly) to avoid overwriting stuff from prepareForBreakdownAnalysis()
             execution.context().setDetailedDiagnostics(true);
         }
+        boolean profilingRequested = query.properties().getBoolean(PROFILE_SEARCHERS, false);
+        if (profilingRequested)
+            query.setTraceLevel(Math.max(1, query.getTraceLevel()));
+        Optional<ChainProfile> profile = chainProfiler.profile(profilingRequested);
+        profile.ifPresent(execution.context()::setProfile);
         Result result = execution.search(query);
 
         ensureQuerySet(result, query);
         execution.fill(result, result.getQuery().getPresentation().getSummary());
 
+        if (profile.isPresent()) {
+            chainProfiler.record(searchChain.getId().stringValue(), profile.get());
+            if (profilingRequested)
+                query.trace(profile.get().toString(), false, 1);
+        }
+
         traceExecutionTimes(query, result);
         traceVespaVersion(query);
         traceRequestAttributes(query);
@@ -2,9 +2,11 @@
 package com.yahoo.search.handler.observability;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.yahoo.container.handler.observability.ApplicationStatusHandler;
 import com.yahoo.jdisc.handler.RequestHandler;
 import com.yahoo.search.handler.SearchHandler;
+import com.yahoo.search.searchchain.ChainProfiler;
 import com.yahoo.search.searchchain.SearchChainRegistry;
 
 import java.util.Map;
@@ -16,7 +18,8 @@ public class SearchStatusExtension implements ApplicationStatusHandler.Extension
 
     @Override
     public Map<String, ? extends JsonNode> produceExtraFields(ApplicationStatusHandler statusHandler) {
-        return Map.of("searchChains", renderSearchChains(statusHandler));
+        return Map.of("searchChains", renderSearchChains(statusHandler),
+                      "searcherProfiles", renderSearcherProfiles(statusHandler));
     }
 
     private static JsonNode renderSearchChains(ApplicationStatusHandler statusHandler) {
@@ -29,4 +32,34 @@ public class SearchStatusExtension implements ApplicationStatusHandler.Extension
         return statusHandler.jsonMapper().createObjectNode();
     }
 
+    private static JsonNode renderSearcherProfiles(ApplicationStatusHandler statusHandler) {
+        ObjectNode profiles = statusHandler.jsonMapper().createObjectNode();
+        for (RequestHandler h : statusHandler.requestHandlers()) {
+            if (h instanceof SearchHandler) {
+                ChainProfiler profiler = ((SearchHandler) h).chainProfiler();
+                profiles.put("sampleRate", profiler.sampleRate());
+                ObjectNode chains = profiles.putObject("chains");
+                profiler.statistics().forEach((chain, searchers) -> {
+                    ObjectNode chainNode = chains.putObject(chain);
+                    searchers.forEach((searcher, statistics) -> renderStatistics(statistics, chainNode.putObject(searcher)));
+                });
+                return profiles;
+            }
+        }
+        return profiles;
+    }
+
+    private static void renderStatistics(ChainProfiler.Statistics statistics, ObjectNode node) {
+        long count = statistics.count();
+        node.put("count", count);
+        if (count == 0) return;
+        node.put("meanMillis", statistics.nanos() / 1e6 / count);
+        node.put("p50Millis", statistics.nanosQuantile(0.5) / 1e6);
+        node.put("p99Millis", statistics.nanosQuantile(0.99) / 1e6);
+        node.put("maxMillis", statistics.maxNanos() / 1e6);
+        node.put("meanCpuMillis", statistics.cpuNanos() / 1e6 / count);
+        node.put("meanAllocatedBytes", statistics.allocatedBytes() / count);
+        node.put("p99AllocatedBytes", statistics.allocatedBytesQuantile(0.99));
+    }
+
 }
@@ -0,0 +1,147 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchchain;
+
+import com.yahoo.api.annotations.Beta;
+import com.yahoo.processing.Processor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The wall clock time, CPU time and allocated bytes spent in each searcher during the execution of a query.
+ * A searcher is charged for what happens from it is invoked until it invokes the next searcher, and from the
+ * next searcher returns until it returns itself, so nothing is counted twice, also with nested executions.
+ * Only what happens in the thread which created this profile is recorded.
+ * <p>
+ * Set a profile on the context of an execution to have it recorded, see {@link Execution.Context#setProfile}.
+ */
+@Beta
+public final class ChainProfile {
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final boolean cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+    private static final MethodHandle currentThreadAllocatedBytes = currentThreadAllocatedBytesHandle();
+
+    private final Thread thread = Thread.currentThread();
+    private final Deque<Searcher> invoked = new ArrayDeque<>();
+    private final Map<String, Searcher> searchers = new LinkedHashMap<>();
+    private long lastNanos;
+    private long lastCpuNanos;
+    private long lastAllocatedBytes;
+
+    /** Called when the given processor is about to be invoked */
+    void invoking(Processor processor) {
+        if (Thread.currentThread() != thread) return;
+        charge();
+        invoked.push(searchers.computeIfAbsent(processor.getId().stringValue(), Searcher::new));
+        invoked.peek().invocations++;
+    }
+
+    /** Called when the last invoked processor has returned */
+    void returning() {
+        if (Thread.currentThread() != thread) return;
+        charge();
+        invoked.poll();
+    }
+
+    /** Charges what is spent since the last transition to the searcher currently executing, if any */
+    private void charge() {
+        long nanos = System.nanoTime();
+        long cpuNanos = cpuTimeSupported ? threads.getCurrentThreadCpuTime() : 0;
+        long allocatedBytes = currentThreadAllocatedBytes();
+        Searcher current = invoked.peek();
+        if (current != null) {
+            current.nanos += nanos - lastNanos;
+            current.cpuNanos += cpuNanos - lastCpuNanos;
+            current.allocatedBytes += allocatedBytes - lastAllocatedBytes;
+        }
+        lastNanos = nanos;
+        lastCpuNanos = cpuNanos;
+        lastAllocatedBytes = allocatedBytes;
+    }
+
+    /** Returns what is spent in each searcher, in the order they were first invoked */
+    public Map<String, Searcher> searchers() { return Collections.unmodifiableMap(searchers); }
+
+    /** Returns whether the CPU time of threads can be measured in this JVM */
+    public static boolean cpuTimeSupported() { return cpuTimeSupported; }
+
+    /** Returns whether the bytes allocated by threads can be measured in this JVM */
+    public static boolean allocatedBytesSupported() { return currentThreadAllocatedBytes != null; }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("Time, CPU time and allocated bytes per searcher: ");
+        String separator = "";
+        for (Searcher searcher : searchers.values()) {
+            b.append(separator).append(searcher);
+            separator = ", ";
+        }
+        return b.toString();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (currentThreadAllocatedBytes == null) return 0;
+        try {
+            return (long) currentThreadAllocatedBytes.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed reading allocated bytes of the current thread", e);
+        }
+    }
+
+    /** Returns a handle to the allocated bytes counter of the current thread, which is not part of the standard API */
+    private static MethodHandle currentThreadAllocatedBytesHandle() {
+        try {
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean", false, ClassLoader.getPlatformClassLoader());
+            if ( ! type.isInstance(threads)) return null;
+            if ( ! (boolean) type.getMethod("isThreadAllocatedMemoryEnabled").invoke(threads)) return null;
+            return MethodHandles.publicLookup()
+                                .findVirtual(type, "getCurrentThreadAllocatedBytes", MethodType.methodType(long.class))
+                                .bindTo(threads);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** What is spent in a searcher during the execution of a query */
+    public static final class Searcher {
+
+        private final String id;
+        private int invocations = 0;
+        private long nanos = 0;
+        private long cpuNanos = 0;
+        private long allocatedBytes = 0;
+
+        private Searcher(String id) { this.id = id; }
+
+        /** Returns the id of this searcher */
+        public String id() { return id; }
+
+        /** Returns the number of times this searcher was invoked, for search, fill or ping */
+        public int invocations() { return invocations; }
+
+        /** Returns the wall clock time spent in this, in nanoseconds */
+        public long nanos() { return nanos; }
+
+        /** Returns the CPU time spent in this, in nanoseconds, or 0 if this cannot be measured */
+        public long cpuNanos() { return cpuNanos; }
+
+        /** Returns the number of bytes allocated in this, or 0 if this cannot be measured */
+        public long allocatedBytes() { return allocatedBytes; }
+
+        @Override
+        public String toString() {
+            return id + " (" + nanos / 1000 + " us, " + cpuNanos / 1000 + " us CPU, " + allocatedBytes + " bytes)";
+        }
+
+    }
+
+}
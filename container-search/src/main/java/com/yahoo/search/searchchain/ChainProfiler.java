@@ -0,0 +1,156 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchchain;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.api.annotations.Beta;
+import com.yahoo.jdisc.Metric;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Profiles a sample of the queries executed, and aggregates what is spent in each searcher of each chain
+ * into metrics, and histograms which can be inspected through {@link #statistics()}.
+ */
+@Beta
+public class ChainProfiler {
+
+    private static final String SEARCHER_TIME = ContainerMetrics.SEARCHER_TIME.baseName();
+    private static final String SEARCHER_CPU_TIME = ContainerMetrics.SEARCHER_CPU_TIME.baseName();
+    private static final String SEARCHER_ALLOCATED_BYTES = ContainerMetrics.SEARCHER_ALLOCATED_BYTES.baseName();
+
+    private final double sampleRate;
+    private final Metric metric;
+    private final Map<String, Map<String, Statistics>> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a profiler
+     *
+     * @param sampleRate the fraction of queries to profile, in [0, 1]
+     * @param metric the metric to report what is spent in each searcher to
+     */
+    public ChainProfiler(double sampleRate, Metric metric) {
+        if (sampleRate < 0 || sampleRate > 1)
+            throw new IllegalArgumentException("Sample rate must be in [0, 1], but was " + sampleRate);
+        this.sampleRate = sampleRate;
+        this.metric = metric;
+    }
+
+    /**
+     * Returns a new profile to set on the execution of a query, if the query is sampled.
+     * This must be called by the thread which will execute the query.
+     *
+     * @param requested whether profiling is requested for this query, in which case it is always profiled
+     */
+    public Optional<ChainProfile> profile(boolean requested) {
+        if (requested || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate))
+            return Optional.of(new ChainProfile());
+        return Optional.empty();
+    }
+
+    /** Adds what is recorded in the given profile of an execution of the given chain to the statistics of this */
+    public void record(String chain, ChainProfile profile) {
+        Map<String, Statistics> chainStatistics = statistics.computeIfAbsent(chain, __ -> new ConcurrentHashMap<>());
+        for (ChainProfile.Searcher searcher : profile.searchers().values()) {
+            Statistics searcherStatistics = chainStatistics.computeIfAbsent(searcher.id(),
+                                                                            id -> new Statistics(metric.createContext(Map.of("chain", chain,
+                                                                                                                             "searcher", id))));
+            searcherStatistics.add(searcher);
+            metric.set(SEARCHER_TIME, searcher.nanos() / 1_000_000.0, searcherStatistics.context);
+            if (ChainProfile.cpuTimeSupported())
+                metric.set(SEARCHER_CPU_TIME, searcher.cpuNanos() / 1_000_000.0, searcherStatistics.context);
+            if (ChainProfile.allocatedBytesSupported())
+                metric.set(SEARCHER_ALLOCATED_BYTES, searcher.allocatedBytes(), searcherStatistics.context);
+        }
+    }
+
+    /** Returns the fraction of queries profiled */
+    public double sampleRate() { return sampleRate; }
+
+    /** Returns the statistics of each searcher by searcher id, by chain id, since this was created */
+    public Map<String, Map<String, Statistics>> statistics() { return Collections.unmodifiableMap(statistics); }
+
+    /** The aggregated time, CPU time and allocated bytes of the profiled executions of a searcher in a chain */
+    public static final class Statistics {
+
+        /** Bucket i counts the values in [2^i, 2^(i+1)), except bucket 0, which also counts 0 */
+        private static final int buckets = 64;
+
+        private final Metric.Context context;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray nanosHistogram = new AtomicLongArray(buckets);
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicLongArray allocatedBytesHistogram = new AtomicLongArray(buckets);
+
+        private Statistics(Metric.Context context) {
+            this.context = context;
+        }
+
+        private void add(ChainProfile.Searcher searcher) {
+            count.increment();
+            nanos.add(searcher.nanos());
+            maxNanos.accumulate(searcher.nanos());
+            nanosHistogram.incrementAndGet(bucketOf(searcher.nanos()));
+            cpuNanos.add(searcher.cpuNanos());
+            allocatedBytes.add(searcher.allocatedBytes());
+            allocatedBytesHistogram.incrementAndGet(bucketOf(searcher.allocatedBytes()));
+        }
+
+        /** Returns the number of profiled executions in which this searcher was invoked */
+        public long count() { return count.sum(); }
+
+        /** Returns the total wall clock time spent in this searcher, in nanoseconds */
+        public long nanos() { return nanos.sum(); }
+
+        /** Returns the max wall clock time spent in this searcher in a single execution, in nanoseconds */
+        public long maxNanos() { return maxNanos.get(); }
+
+        /** Returns the total CPU time spent in this searcher, in nanoseconds */
+        public long cpuNanos() { return cpuNanos.sum(); }
+
+        /** Returns the total number of bytes allocated in this searcher */
+        public long allocatedBytes() { return allocatedBytes.sum(); }
+
+        /**
+         * Returns an upper bound on the given quantile of the wall clock time spent in this searcher
+         * in a single execution, in nanoseconds, which is at most twice the exact quantile.
+         */
+        public long nanosQuantile(double quantile) { return quantileOf(nanosHistogram, quantile); }
+
+        /**
+         * Returns an upper bound on the given quantile of the bytes allocated in this searcher
+         * in a single execution, which is at most twice the exact quantile.
+         */
+        public long allocatedBytesQuantile(double quantile) { return quantileOf(allocatedBytesHistogram, quantile); }
+
+        private static int bucketOf(long value) {
+            return value <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(value);
+        }
+
+        private static long quantileOf(AtomicLongArray histogram, double quantile) {
+            long total = 0;
+            for (int i = 0; i < buckets; i++)
+                total += histogram.get(i);
+            if (total == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < buckets - 1; i++) {
+                seen += histogram.get(i);
+                if (seen >= rank) return (1L << (i + 1)) - 1;
+            }
+            return Long.MAX_VALUE;
+        }
+
+    }
+
+}
@@ -87,6 +87,9 @@ public class Execution extends com.yahoo.processing.execution.Execution {
 
         private Executor executor;
 
+        /** The profile recording what is spent in each searcher, or null if this execution is not profiled */
+        private ChainProfile profile = null;
+
         /** Always set if this context belongs to an execution, never set if it does not. */
         private final Execution owner;
 
@@ -203,6 +206,8 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             if (linguistics == null)
                 linguistics = sourceContext.linguistics;
             executor = sourceContext.executor; // executor will always either be the same, or we're in a test
+            if (profile == null)
+                profile = sourceContext.profile;
         }
 
         /**
@@ -220,6 +225,7 @@ public class Execution extends com.yahoo.processing.execution.Execution {
             breakdown = other.breakdown;
             linguistics = other.linguistics;
             executor = other.executor;
+            profile = other.profile;
         }
 
         public boolean equals(Context other) {
@@ -233,7 +239,8 @@ public class Execution extends com.yahoo.processing.execution.Execution {
                    && other.detailedDiagnostics == detailedDiagnostics
                    && other.breakdown == breakdown
                    && other.linguistics == linguistics
-                   && other.executor == executor;
+                   && other.executor == executor
+                   && other.profile == profile;
         }
 
         @Override
@@ -243,7 +250,8 @@ public class Execution extends com.yahoo.processing.execution.Execution {
                                           rendererRegistry, tokenRegistry, searchChainRegistry,
                                           detailedDiagnostics, breakdown,
                                           linguistics,
-                                          executor);
+                                          executor,
+                                          profile);
         }
 
         @Override
@@ -370,6 +378,15 @@ public class Execution extends com.yahoo.processing.execution.Execution {
          */
         public Executor executor() { return executor; }
 
+        /** Returns the profile recording what is spent in each searcher of this execution, or null if none */
+        public ChainProfile getProfile() { return profile; }
+
+        /**
+         * Sets a profile which will record the time, CPU time and allocated bytes spent in each searcher
+         * invoked from this execution and executions created from it, or null to not profile.
+         */
+        public void setProfile(ChainProfile profile) { this.profile = profile; }
+
         /** Creates a child trace if this has an owner, or a root trace otherwise */
         private Trace createChildTrace() {
             return owner!=null ? owner.trace().createChild() : Trace.createRoot(0);
@@ -604,12 +621,16 @@ public class Execution extends com.yahoo.processing.execution.Execution {
 
     @Override
     protected void previousProcessor() {
+        if (context.profile != null)
+            context.profile.returning();
         super.previousProcessor();
         popContext();
     }
 
     @Override
     protected void nextProcessor() {
+        if (context.profile != null)
+            context.profile.invoking(next());
         pushContext();
         super.nextProcessor();
     }
@@ -0,0 +1,116 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchchain.test;
+
+import com.yahoo.component.ComponentId;
+import com.yahoo.component.chain.Chain;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.searchchain.ChainProfile;
+import com.yahoo.search.searchchain.ChainProfiler;
+import com.yahoo.search.searchchain.Execution;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests profiling of what is spent in each searcher of a chain.
+ */
+public class ChainProfileTestCase {
+
+    @Test
+    void testProfilingChain() {
+        Chain<Searcher> inner = new Chain<>(new ComponentId("inner"), List.of(new SleepingSearcher("nested", 0)));
+        Chain<Searcher> chain = new Chain<>(new ComponentId("outer"),
+                                            List.of(new SleepingSearcher("first", 0),
+                                                    new InvokingSearcher("invoking", inner),
+                                                    new SleepingSearcher("sleeping", 20)));
+        ChainProfile profile = new ChainProfile();
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        execution.context().setProfile(profile);
+        Result result = execution.search(new Query("?query=test"));
+        execution.fill(result);
+
+        Map<String, ChainProfile.Searcher> searchers = profile.searchers();
+        assertEquals(List.of("first", "invoking", "nested", "sleeping"), List.copyOf(searchers.keySet()));
+        assertEquals(2, searchers.get("first").invocations(), "Invoked for search and fill");
+        assertEquals(1, searchers.get("nested").invocations());
+        assertTrue(searchers.get("sleeping").nanos() >= 20_000_000, profile.toString());
+        assertTrue(searchers.get("first").nanos() < searchers.get("sleeping").nanos(), profile.toString());
+        assertTrue(searchers.get("invoking").nanos() < searchers.get("sleeping").nanos(),
+                   "Time spent in the nested execution is not charged to the invoking searcher: " + profile);
+        if (ChainProfile.allocatedBytesSupported())
+            assertTrue(searchers.get("invoking").allocatedBytes() > 0, profile.toString());
+    }
+
+    @Test
+    void testProfiler() {
+        MockMetric metric = new MockMetric();
+        ChainProfiler profiler = new ChainProfiler(0, metric);
+        assertFalse(profiler.profile(false).isPresent());
+        ChainProfile profile = profiler.profile(true).get();
+
+        Chain<Searcher> chain = new Chain<>(new ComponentId("outer"), List.of(new SleepingSearcher("sleeping", 2)));
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        execution.context().setProfile(profile);
+        execution.search(new Query());
+        profiler.record("outer", profile);
+        profiler.record("outer", profile);
+
+        ChainProfiler.Statistics statistics = profiler.statistics().get("outer").get("sleeping");
+        assertEquals(2, statistics.count());
+        assertTrue(statistics.nanosQuantile(0.5) >= 2_000_000, "Upper bound of the median");
+        assertTrue(statistics.nanosQuantile(0.5) < 2 * statistics.maxNanos() + 1);
+        assertTrue(metric.metrics().get("searcher.time").get(Map.of("chain", "outer", "searcher", "sleeping")) >= 2);
+
+        assertThrows(IllegalArgumentException.class, () -> new ChainProfiler(1.5, metric));
+    }
+
+    private static class SleepingSearcher extends Searcher {
+
+        private final long millis;
+
+        SleepingSearcher(String id, long millis) {
+            super(new ComponentId(id));
+            this.millis = millis;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return execution.search(query);
+        }
+
+    }
+
+    private static class InvokingSearcher extends Searcher {
+
+        private final Chain<Searcher> chain;
+
+        InvokingSearcher(String id, Chain<Searcher> chain) {
+            super(new ComponentId(id));
+            this.chain = chain;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            Result nested = new Execution(chain, execution.context()).search(query.clone());
+            Result result = execution.search(query);
+            result.hits().addAll(nested.hits().asList());
+            return result;
+        }
+
+    }
+
+}
@@ -12,6 +12,7 @@ import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentTypeManager;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -41,6 +42,8 @@ public class DocprocService extends AbstractComponent {
     /** The processings currently in progress at this service */
     private final LinkedBlockingQueue<Processing> queue;
     private final ThreadPoolExecutor threadPool;
+    /** Runs each processing on a thread of its own, instead of the thread pool, if set */
+    private final ThreadPerProcessingExecutor threadPerProcessing;
     /** The current state of this service */
     private boolean inService = false;
     /** The current state of this service */
@@ -48,7 +51,7 @@ public class DocprocService extends AbstractComponent {
     public static SchemaMap schemaMap = new SchemaMap();
     private DocumentTypeManager documentTypeManager = null;
 
-    private DocprocService(ComponentId id, int numThreads) {
+    private DocprocService(ComponentId id, int numThreads, int maxConcurrentProcessings) {
         super(id);
         queue = new LinkedBlockingQueue<>();
         threadPool = new ThreadPoolExecutor(numThreads,
@@ -56,6 +59,13 @@ public class DocprocService extends AbstractComponent {
                 0, TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>(),
                 new DaemonThreadFactory("docproc-" + id.stringValue() + "-"));
+        threadPerProcessing = maxConcurrentProcessings > 0
+                              ? new ThreadPerProcessingExecutor("docproc-" + id.stringValue() + "-", maxConcurrentProcessings)
+                              : null;
+    }
+
+    private DocprocService(ComponentId id, int numThreads) {
+        this(id, numThreads, 0);
     }
 
     public DocprocService(ComponentId id) {
@@ -71,7 +81,21 @@ public class DocprocService extends AbstractComponent {
      * @param numThreads to have in the thread pool
      */
     public DocprocService(ComponentId id, CallStack stack, DocumentTypeManager mgr, int numThreads) {
-        this(id, numThreads);
+        this(id, stack, mgr, numThreads, 0);
+    }
+
+    /**
+     * Creates a new docproc service, which is set to be in service.
+     *
+     * @param id the component id of the new service.
+     * @param stack the call stack to use.
+     * @param mgr the document type manager to use.
+     * @param numThreads to have in the thread pool
+     * @param maxConcurrentProcessings if positive, each processing runs on a thread of its own instead of
+     *                                 in the thread pool, and at most this many processings run at the same time
+     */
+    public DocprocService(ComponentId id, CallStack stack, DocumentTypeManager mgr, int numThreads, int maxConcurrentProcessings) {
+        this(id, numThreads, maxConcurrentProcessings);
         setCallStack(stack);
         setDocumentTypeManager(mgr);
         setInService(true);
@@ -89,6 +113,8 @@ public class DocprocService extends AbstractComponent {
     @Override
     public void deconstruct() {
         threadPool.shutdown();
+        if (threadPerProcessing != null)
+            threadPerProcessing.shutdown();
     }
 
     public DocumentTypeManager getDocumentTypeManager() {
@@ -117,6 +143,15 @@ public class DocprocService extends AbstractComponent {
         return threadPool;
     }
 
+    /**
+     * Returns the executor to run processings of this service on. This is the thread pool, unless this is
+     * set up to run each processing on a thread of its own, in which case processings submitted while the
+     * max number of processings are already running are rejected with a {@link RejectedExecutionException}.
+     */
+    public Executor getProcessingExecutor() {
+        return threadPerProcessing != null ? threadPerProcessing : threadPool;
+    }
+
     private void setExecutor(DocprocExecutor executor) {
         this.executor = executor;
     }
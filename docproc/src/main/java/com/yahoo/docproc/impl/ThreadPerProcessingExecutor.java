@@ -0,0 +1,99 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc.impl;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.concurrent.ThreadFactoryFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor which runs each task on a new thread, with a bound on the number of tasks running at the same time.
+ * Tasks submitted when the bound is reached are rejected rather than queued, so the caller may push back on
+ * its clients. This suits chains with processors which block, e.g., on calls to other services, where a fixed
+ * size thread pool would sit idle waiting, while its queue grows. Tasks which were admitted before, and resume
+ * after waiting, are run with {@link #executeAdmitted}, which does not reject on the bound.
+ * <p>
+ * Threads are virtual when the running JVM provides virtual threads, and daemon platform threads otherwise.
+ *
+ * @see DocprocService
+ */
+public class ThreadPerProcessingExecutor implements Executor {
+
+    private final int maxConcurrent;
+    private final AtomicInteger running = new AtomicInteger();
+    private final ThreadFactory threadFactory;
+    private volatile boolean shutdown = false;
+
+    public ThreadPerProcessingExecutor(String name, int maxConcurrent) {
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("Max concurrent processings must be positive, but got " + maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.threadFactory = ThreadFactoryFactory.getVirtualThreadFactory(name).orElseGet(() -> new DaemonThreadFactory(name));
+    }
+
+    /**
+     * Runs the given task on a new thread.
+     *
+     * @throws RejectedExecutionException if the max number of tasks are already running, or this is shut down
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown)
+            throw new RejectedExecutionException("Executor is shut down");
+        int current;
+        do {
+            current = running.get();
+            if (current >= maxConcurrent)
+                throw new RejectedExecutionException("Already running " + maxConcurrent + " processings");
+        } while ( ! running.compareAndSet(current, current + 1));
+        start(task);
+    }
+
+    /**
+     * Runs the given task on a new thread, also when the max number of tasks are already running.
+     * This is for tasks which were admitted by {@link #execute} before, and now resume after waiting,
+     * as rejecting those would fail work which is already in progress.
+     *
+     * @throws RejectedExecutionException if this is shut down, or a thread could not be started
+     */
+    public void executeAdmitted(Runnable task) {
+        if (shutdown)
+            throw new RejectedExecutionException("Executor is shut down");
+        running.incrementAndGet();
+        start(task);
+    }
+
+    private void start(Runnable task) {
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }).start();
+        } catch (RuntimeException | OutOfMemoryError e) { // Thread creation failed; undo the count and push back
+            running.decrementAndGet();
+            throw new RejectedExecutionException("Failed starting processing thread", e);
+        }
+    }
+
+    /** Makes this reject all tasks submitted after this call. Running tasks are left to complete. */
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /** Returns the number of tasks currently running. */
+    public int running() {
+        return running.get();
+    }
+
+    /** Returns whether this runs tasks on virtual threads. */
+    public boolean isVirtual() {
+        return ! (threadFactory instanceof DaemonThreadFactory);
+    }
+
+}
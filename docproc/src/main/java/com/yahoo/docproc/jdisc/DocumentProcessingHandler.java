@@ -54,6 +54,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
                                       ComponentRegistry<DocumentProcessor> documentProcessorComponentRegistry,
                                       ComponentRegistry<AbstractConcreteDocumentFactory> docFactoryRegistry,
                                       int numThreads,
+                                      int maxConcurrentProcessings,
                                       DocumentTypeManager documentTypeManager,
                                       ChainsModel chainsModel, SchemaMap schemaMap,
                                       Metric metric,
@@ -71,7 +72,8 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
 
             for (Chain<DocumentProcessor> chain : chainRegistry.allComponents()) {
                 log.config("Setting up call stack for chain " + chain.getId());
-                DocprocService service = new DocprocService(chain.getId(), convertToCallStack(chain, metric), documentTypeManager, computeNumThreads(numThreads));
+                DocprocService service = new DocprocService(chain.getId(), convertToCallStack(chain, metric), documentTypeManager,
+                                                            computeNumThreads(numThreads), maxConcurrentProcessings);
                 service.setInService(true);
                 docprocServiceRegistry.register(service.getId(), service);
             }
@@ -82,12 +84,20 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
         return (maxThreads > 0) ? maxThreads : Runtime.getRuntime().availableProcessors();
     }
 
+    /** Returns the max number of concurrent processings per chain, or 0 if processings should use the thread pool. */
+    private static int computeMaxConcurrentProcessings(DocumentProcessingHandlerParameters params) {
+        if ( ! params.getThreadPerProcessing()) return 0;
+        return (params.getMaxConcurrentProcessings() > 0) ? params.getMaxConcurrentProcessings()
+                                                           : 64 * Runtime.getRuntime().availableProcessors();
+    }
+
     DocumentProcessingHandler(ComponentRegistry<DocprocService> docprocServiceRegistry,
                               ComponentRegistry<DocumentProcessor> documentProcessorComponentRegistry,
                               ComponentRegistry<AbstractConcreteDocumentFactory> docFactoryRegistry,
                               DocumentProcessingHandlerParameters params) {
         this(docprocServiceRegistry, documentProcessorComponentRegistry, docFactoryRegistry,
              params.getMaxNumThreads(),
+             computeMaxConcurrentProcessings(params),
              params.getDocumentTypeManager(), params.getChainsModel(), params.getSchemaMap(),
              params.getMetric(),
              params.getContainerDocConfig());
@@ -106,6 +116,8 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
              documentProcessorComponentRegistry, docFactoryRegistry,
                 new DocumentProcessingHandlerParameters()
                      .setMaxNumThreads(docprocConfig.numthreads())
+                     .setThreadPerProcessing(docprocConfig.threadperprocessing())
+                     .setMaxConcurrentProcessings(docprocConfig.maxconcurrentprocessings())
                      .setDocumentTypeManager(documentTypeManager)
                      .setChainsModel(buildFromConfig(chainsConfig)).setSchemaMap(configureMapping(mappingConfig))
                      .setMetric(metric)
@@ -177,7 +189,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
             return null;
         }
 
-        DocumentProcessingTask task = new DocumentProcessingTask(requestContext, this, service, service.getThreadPoolExecutor());
+        DocumentProcessingTask task = new DocumentProcessingTask(requestContext, this, service, service.getProcessingExecutor());
         task.submit();
         return null;
     }
@@ -200,7 +212,7 @@ public class DocumentProcessingHandler extends AbstractRequestHandler {
         @Override
         public void run() {
             log.log(Level.FINE, () -> "Submitting after having waited " + delay + " ms in LATER queue: " + processingTask);
-            processingTask.submit();
+            processingTask.resubmit();
         }
     }
 
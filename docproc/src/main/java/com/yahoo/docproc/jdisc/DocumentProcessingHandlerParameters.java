@@ -17,6 +17,8 @@ import com.yahoo.jdisc.Metric;
 public class DocumentProcessingHandlerParameters {
 
     private int maxNumThreads = 0;
+    private boolean threadPerProcessing = false;
+    private int maxConcurrentProcessings = 0;
     private DocumentTypeManager documentTypeManager = null;
     private ChainsModel chainsModel = null;
     private SchemaMap schemaMap = null;
@@ -48,6 +50,29 @@ public class DocumentProcessingHandlerParameters {
         return this;
     }
 
+    /** Returns whether each processing runs on a thread of its own, rather than in a fixed size thread pool. */
+    public boolean getThreadPerProcessing() {
+        return threadPerProcessing;
+    }
+
+    public DocumentProcessingHandlerParameters setThreadPerProcessing(boolean threadPerProcessing) {
+        this.threadPerProcessing = threadPerProcessing;
+        return this;
+    }
+
+    /**
+     * Returns the max number of processings in progress per chain, when each runs on a thread of its own.
+     * Non-positive values means this is determined by the number of cpus.
+     */
+    public int getMaxConcurrentProcessings() {
+        return maxConcurrentProcessings;
+    }
+
+    public DocumentProcessingHandlerParameters setMaxConcurrentProcessings(int maxConcurrentProcessings) {
+        this.maxConcurrentProcessings = maxConcurrentProcessings;
+        return this;
+    }
+
     public DocumentTypeManager getDocumentTypeManager() {
         return documentTypeManager;
     }
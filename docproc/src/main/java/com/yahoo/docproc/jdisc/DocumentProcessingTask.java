@@ -8,6 +8,7 @@ import com.yahoo.docproc.impl.DocprocExecutor;
 import com.yahoo.docproc.impl.DocprocService;
 import com.yahoo.docproc.DocumentProcessor;
 import com.yahoo.docproc.impl.HandledProcessingException;
+import com.yahoo.docproc.impl.ThreadPerProcessingExecutor;
 import com.yahoo.docproc.Processing;
 import java.util.logging.Level;
 import com.yahoo.yolean.Exceptions;
@@ -17,8 +18,8 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.logging.Logger;
 
 /**
@@ -34,10 +35,10 @@ public class DocumentProcessingTask implements Runnable {
     private final RequestContext requestContext;
 
     private final DocprocService service;
-    private final ThreadPoolExecutor executor;
+    private final Executor executor;
 
     public DocumentProcessingTask(RequestContext requestContext, DocumentProcessingHandler docprocHandler,
-                                  DocprocService service, ThreadPoolExecutor executor) {
+                                  DocprocService service, Executor executor) {
         this.requestContext = requestContext;
         this.docprocHandler = docprocHandler;
         this.service = service;
@@ -52,6 +53,18 @@ public class DocumentProcessingTask implements Runnable {
         }
     }
 
+    /** Submits this again after it returned LATER. This is not rejected by the limit on concurrent processings. */
+    void resubmit() {
+        try {
+            if (executor instanceof ThreadPerProcessingExecutor threadPerProcessing)
+                threadPerProcessing.executeAdmitted(this);
+            else
+                executor.execute(this);
+        } catch (RejectedExecutionException ree) {
+            queueFull();
+        }
+    }
+
     @Override
     public void run() {
         try {
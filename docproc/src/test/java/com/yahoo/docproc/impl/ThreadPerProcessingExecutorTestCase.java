@@ -0,0 +1,97 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc.impl;
+
+import com.yahoo.component.ComponentId;
+import com.yahoo.docproc.CallStack;
+import com.yahoo.document.DocumentTypeManager;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ThreadPerProcessingExecutorTestCase {
+
+    @Test
+    public void tasks_beyond_the_limit_are_rejected_until_running_ones_complete() throws InterruptedException {
+        ThreadPerProcessingExecutor executor = new ThreadPerProcessingExecutor("test-", 2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch blocked = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            started.countDown();
+            try { blocked.await(); } catch (InterruptedException e) { throw new RuntimeException(e); }
+        };
+        executor.execute(blocking);
+        executor.execute(blocking);
+        assertTrue(started.await(60, TimeUnit.SECONDS));
+        assertEquals(2, executor.running());
+        assertRejected(executor);
+
+        blocked.countDown();
+        CountDownLatch done = new CountDownLatch(1);
+        long timeoutNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (true) {
+            try {
+                executor.execute(done::countDown);
+                break;
+            } catch (RejectedExecutionException e) {
+                if (System.nanoTime() > timeoutNanos) throw e;
+                Thread.sleep(1);
+            }
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void admitted_tasks_are_run_also_beyond_the_limit() throws InterruptedException {
+        ThreadPerProcessingExecutor executor = new ThreadPerProcessingExecutor("test-", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try { blocked.await(); } catch (InterruptedException e) { throw new RuntimeException(e); }
+        });
+        assertTrue(started.await(60, TimeUnit.SECONDS));
+        assertRejected(executor);
+
+        CountDownLatch resumed = new CountDownLatch(1);
+        executor.executeAdmitted(resumed::countDown);
+        assertTrue(resumed.await(60, TimeUnit.SECONDS));
+        blocked.countDown();
+    }
+
+    @Test
+    public void tasks_are_rejected_after_shutdown() {
+        ThreadPerProcessingExecutor executor = new ThreadPerProcessingExecutor("test-", 2);
+        executor.shutdown();
+        assertRejected(executor);
+        assertEquals(0, executor.running());
+    }
+
+    @Test
+    public void service_uses_thread_per_processing_only_when_limit_is_set() {
+        DocprocService pooled = new DocprocService(new ComponentId("pooled"), new CallStack(), new DocumentTypeManager(), 1);
+        assertSame(pooled.getThreadPoolExecutor(), pooled.getProcessingExecutor());
+        assertTrue(pooled.getProcessingExecutor() instanceof ThreadPoolExecutor);
+        pooled.deconstruct();
+
+        DocprocService perProcessing = new DocprocService(new ComponentId("per-processing"), new CallStack(), new DocumentTypeManager(), 1, 8);
+        assertTrue(perProcessing.getProcessingExecutor() instanceof ThreadPerProcessingExecutor);
+        perProcessing.deconstruct();
+        assertRejected((ThreadPerProcessingExecutor) perProcessing.getProcessingExecutor());
+    }
+
+    private static void assertRejected(ThreadPerProcessingExecutor executor) {
+        try {
+            executor.execute(() -> { });
+            fail("Expected rejection");
+        } catch (RejectedExecutionException expected) { }
+    }
+
+}
@@ -79,6 +79,7 @@ public class ScriptManager {
         for (IlscriptsConfig.Ilscript ilscript : config.ilscript()) {
             DocumentType documentType = documentTypes.getDocumentType(ilscript.doctype());
             InputExpression.FieldPathOptimizer fieldPathOptimizer = new InputExpression.FieldPathOptimizer(documentType);
+            OutputExpression.FieldOptimizer outputFieldOptimizer = new OutputExpression.FieldOptimizer(documentType);
             List<StatementExpression> allStatements = new ArrayList<>(ilscript.content().size());
             Map<String, DocumentScript> fieldScripts = new HashMap<>(ilscript.content().size());
             for (String content : ilscript.content()) {
@@ -88,6 +89,7 @@ public class ScriptManager {
                 OutputExpression.OutputFieldNameExtractor outputFieldNameExtractor = new OutputExpression.OutputFieldNameExtractor();
                 statement.select(outputFieldNameExtractor, outputFieldNameExtractor);
                 statement.select(fieldPathOptimizer, fieldPathOptimizer);
+                statement.select(outputFieldOptimizer, outputFieldOptimizer);
                 if ( ! outputFieldNameExtractor.getOutputFieldNames().isEmpty()) {
                     String outputFieldName = outputFieldNameExtractor.getOutputFieldNames().get(0);
                     statement.setStatementOutput(documentType, documentType.getField(outputFieldName));
@@ -123,9 +123,13 @@ public class Document extends StructuredFieldValue {
     }
 
     public int getSerializedSize() throws SerializationException {
-        DocumentSerializer data = DocumentSerializerFactory.createHead(new GrowableByteBuffer(8 * 1024, 2.0f));
-        data.write(this);
-        return data.getBuf().position();
+        DocumentSerializer data = DocumentSerializerFactory.createPooledHead();
+        try {
+            data.write(this);
+            return data.getBuf().position();
+        } finally {
+            DocumentSerializerFactory.release(data);
+        }
     }
 
     /**
@@ -1,8 +1,11 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.serialization;
 
+import com.yahoo.io.ByteArrayPool;
 import com.yahoo.io.GrowableByteBuffer;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Factory for creating document serializers tied to a document format.
  *
@@ -10,6 +13,15 @@ import com.yahoo.io.GrowableByteBuffer;
  */
 public class DocumentSerializerFactory {
 
+    /**
+     * Running estimate of the size of documents and updates serialized through {@link #createPooledHead()}.
+     * This follows increases immediately, and decays slowly towards smaller sizes, such that the first buffer
+     * drawn from the pool is usually large enough to hold the whole serialized form. Sizes larger than the
+     * largest size class of the pool are left out, as such buffers are not pooled anyway, and a single huge
+     * document would otherwise make every following serialization allocate a buffer of that size.
+     */
+    private static final AtomicInteger sizeEstimate = new AtomicInteger(8 * 1024);
+
     /**
      * Creates a serializer for the current head document format.
      * This format is an extension of the 6.x format.
@@ -34,4 +46,27 @@ public class DocumentSerializerFactory {
         return new VespaDocumentSerializer6(new GrowableByteBuffer(8 * 1024, 2.0f));
     }
 
+    /**
+     * Creates a serializer for the current head document format, which writes into a buffer drawn
+     * from the shared {@link ByteArrayPool}. The buffer is sized by an estimate based on earlier
+     * serializations, and must be returned with {@link #release(DocumentSerializer)} once the
+     * serialized data has been consumed.
+     */
+    public static DocumentSerializer createPooledHead() {
+        return new VespaDocumentSerializerHead(ByteArrayPool.shared().acquireBuffer(sizeEstimate.get()));
+    }
+
+    /**
+     * Returns the buffer of a serializer created by {@link #createPooledHead()} to the pool, and updates the
+     * size estimate used for subsequent serializers with the position of its buffer, which must therefore not
+     * have been flipped. Neither the serializer nor its buffer may be used after this.
+     */
+    public static void release(DocumentSerializer serializer) {
+        GrowableByteBuffer buffer = serializer.getBuf();
+        int size = buffer.position();
+        if (size <= ByteArrayPool.shared().maxPooledSize())
+            sizeEstimate.accumulateAndGet(size, (estimate, latest) -> latest >= estimate ? latest : estimate - ((estimate - latest) >> 4));
+        ByteArrayPool.shared().release(buffer);
+    }
+
 }
@@ -192,11 +192,19 @@ abstract class RoutableFactories80 {
         return fieldSet.getSpec();
     }
 
-    private static ByteBuffer serializeDoc(Document doc) {
-        var buf = new GrowableByteBuffer(8 * 1024, 2.0f);
-        doc.serialize(DocumentSerializerFactory.createHead(buf));
-        buf.flip();
-        return buf.getByteBuffer();
+    private static ByteString serializeDoc(Document doc) {
+        var serializer = DocumentSerializerFactory.createPooledHead();
+        try {
+            doc.serialize(serializer);
+            return copyOf(serializer.getBuf());
+        } finally {
+            DocumentSerializerFactory.release(serializer);
+        }
+    }
+
+    /** Copies the data written to the given (pooled) buffer, so that the buffer may be returned to its pool. */
+    private static ByteString copyOf(GrowableByteBuffer buf) {
+        return ByteString.copyFrom(buf.array(), buf.arrayOffset(), buf.position());
     }
 
     private static DocapiCommon.Document toProtoDocument(Document doc) {
@@ -205,9 +213,9 @@ abstract class RoutableFactories80 {
         return toProtoDocument(serializeDoc(doc));
     }
 
-    private static DocapiCommon.Document toProtoDocument(ByteBuffer rawDocData) {
+    private static DocapiCommon.Document toProtoDocument(ByteString rawDocData) {
         return DocapiCommon.Document.newBuilder()
-                .setPayload(ByteString.copyFrom(rawDocData))
+                .setPayload(rawDocData)
                 .build();
     }
 
@@ -247,17 +255,20 @@ abstract class RoutableFactories80 {
         return TestAndSetCondition.NOT_PRESENT_CONDITION;
     }
 
-    private static ByteBuffer serializeUpdate(DocumentUpdate update) {
-        var buf = new GrowableByteBuffer(4 * 1024, 2.0f);
-        update.serialize(DocumentSerializerFactory.createHead(buf));
-        buf.flip();
-        return buf.getByteBuffer();
+    private static ByteString serializeUpdate(DocumentUpdate update) {
+        var serializer = DocumentSerializerFactory.createPooledHead();
+        try {
+            update.serialize(serializer);
+            return copyOf(serializer.getBuf());
+        } finally {
+            DocumentSerializerFactory.release(serializer);
+        }
     }
 
     private static DocapiFeed.DocumentUpdate toProtoUpdate(DocumentUpdate update) {
         // TODO also consider DocumentUpdate serialization directly to OutputStream to avoid unneeded copying
         return DocapiFeed.DocumentUpdate.newBuilder()
-                .setPayload(ByteString.copyFrom(serializeUpdate(update)))
+                .setPayload(serializeUpdate(update))
                 .build();
     }
 
@@ -0,0 +1,182 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.vespa.filedistribution.FileChunks.Chunk;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * An index of the chunks (see {@link FileChunks}) of file references already downloaded, which are advertised
+ * to the file server when downloading, so it only needs to send the chunks which are not already available here.
+ * The most recently downloaded file references are indexed in the background when starting, and when a download
+ * completes, and downloaded chunked file references are added when they are received. Chunk content is verified
+ * when read, and chunks which have changed or disappeared are removed from the index.
+ */
+public class ChunkIndex {
+
+    private static final Logger log = Logger.getLogger(ChunkIndex.class.getName());
+
+    static final int maxReferencesToIndex = 10;
+    static final int maxChunks = 1 << 17;
+
+    private final File downloadDirectory;
+    private final XXHash64 hasher = XXHashFactory.fastestInstance().hash64();
+    private final Map<Long, Location> chunks = new HashMap<>();
+    private final Set<String> indexedReferences = new HashSet<>();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(new DaemonThreadFactory("chunk indexer"));
+    private final AtomicBoolean updatePending = new AtomicBoolean(false);
+    /** The hashes of all chunks, or null if the index has changed since they were last returned */
+    private long[] hashes = null;
+
+    private record Location(File file, long offset, int length) { }
+
+    public ChunkIndex(File downloadDirectory) {
+        this.downloadDirectory = downloadDirectory;
+    }
+
+    /**
+     * Returns the hashes of the chunks indexed so far, without waiting for file references which are being indexed.
+     * The returned array must not be modified.
+     */
+    public synchronized long[] chunks() {
+        if (hashes == null)
+            hashes = chunks.keySet().stream().mapToLong(Long::longValue).toArray();
+        return hashes;
+    }
+
+    /** Updates this with {@link #update()} in the background, unless such an update is already pending */
+    public void updateInBackground() {
+        if (updatePending.compareAndSet(false, true))
+            indexer.execute(() -> {
+                updatePending.set(false);
+                update();
+            });
+    }
+
+    /**
+     * Indexes the most recent file references in the download directory which are not yet indexed, and removes
+     * the file references which are no longer there. Each file reference is chunked only once, when it is among
+     * the most recent ones the first time this is called after it is downloaded.
+     */
+    void update() {
+        File[] references = downloadDirectory.listFiles(file -> file.isDirectory() && isFileReference(file.getName()));
+        if (references == null) return;
+
+        removeAllBut(Arrays.stream(references).map(File::getName).collect(Collectors.toSet()));
+        Arrays.stream(references)
+              .sorted(Comparator.comparingLong(File::lastModified).reversed())
+              .limit(maxReferencesToIndex)
+              .sorted(Comparator.comparingLong(File::lastModified))
+              .filter(reference -> ! isIndexed(reference.getName()))
+              .forEach(this::index);
+    }
+
+    public void close() {
+        indexer.shutdownNow();
+    }
+
+    /** Reads the content of the chunk with the given hash and length into the given buffer, returns whether it was available */
+    synchronized boolean read(long hash, byte[] buffer, int length) {
+        Location location = chunks.get(hash);
+        if (location == null || location.length() != length) return false;
+
+        try (RandomAccessFile file = new RandomAccessFile(location.file(), "r")) {
+            file.seek(location.offset());
+            file.readFully(buffer, 0, length);
+        }
+        catch (IOException e) {
+            log.log(Level.FINE, () -> "Failed reading chunk from " + location.file() + ": " + e.getMessage());
+            remove(hash);
+            return false;
+        }
+        if (hasher.hash(buffer, 0, length, 0) != hash) {
+            log.log(Level.FINE, () -> "Chunk in " + location.file() + " has changed");
+            remove(hash);
+            return false;
+        }
+        return true;
+    }
+
+    /** Adds the chunks of the files of a received file reference, with paths relative to the given directory */
+    synchronized void add(FileReference reference, File directory, Map<String, List<Chunk>> files) {
+        indexedReferences.add(reference.value());
+        files.forEach((path, fileChunks) -> fileChunks.forEach(chunk -> add(new File(directory, path), chunk)));
+    }
+
+    synchronized int size() { return chunks.size(); }
+
+    private void remove(long hash) {
+        if (chunks.remove(hash) != null)
+            hashes = null;
+    }
+
+    // Newer locations replace older ones, as newer file references are kept longer
+    private void add(File file, Chunk chunk) {
+        if (chunks.size() < maxChunks || chunks.containsKey(chunk.hash())) {
+            if (chunks.put(chunk.hash(), new Location(file, chunk.offset(), chunk.length())) == null)
+                hashes = null;
+        }
+    }
+
+    private synchronized boolean isIndexed(String reference) {
+        return indexedReferences.contains(reference);
+    }
+
+    /** Removes the given file references, and the chunks in them, unless they are among the given ones */
+    private synchronized void removeAllBut(Set<String> references) {
+        Set<Path> removed = new HashSet<>();
+        for (String reference : indexedReferences)
+            if ( ! references.contains(reference))
+                removed.add(new File(downloadDirectory, reference).toPath());
+        if (removed.isEmpty()) return;
+
+        indexedReferences.retainAll(references);
+        if (chunks.values().removeIf(location -> removed.stream().anyMatch(location.file().toPath()::startsWith)))
+            hashes = null;
+    }
+
+    // Files are chunked without holding the lock, so the index is available while this is done
+    private void index(File reference) {
+        try (var files = Files.walk(reference.toPath())) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                List<Chunk> fileChunks = FileChunks.chunk(file.toFile()).chunks();
+                synchronized (this) {
+                    fileChunks.forEach(chunk -> add(file.toFile(), chunk));
+                }
+            }
+        }
+        catch (IOException e) {
+            log.log(Level.FINE, () -> "Failed indexing chunks of " + reference + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            indexedReferences.add(reference.getName());
+        }
+    }
+
+    // Temporary directories used by FileReceiver are created in the download directory as well
+    private static boolean isFileReference(String name) {
+        return ! name.startsWith("inprogress") && ! name.startsWith("archive");
+    }
+
+}
@@ -0,0 +1,41 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.vespa.filedistribution.FileChunks.ChunkedFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The chunks (see {@link FileChunks}) of the files of the most recently served file references.
+ * The content of a file reference never changes, so each is chunked once, rather than once per client it is served to.
+ */
+public class ChunkedFileReferences {
+
+    static final int maxReferences = 16;
+
+    private final Map<FileReference, Map<File, ChunkedFile>> references = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FileReference, Map<File, ChunkedFile>> eldest) {
+            return size() > maxReferences;
+        }
+    };
+
+    /** Returns the chunks of each regular file of the given file reference, which is stored in the given file or directory */
+    public Map<File, ChunkedFile> get(FileReference reference, File fileOrDirectory) throws IOException {
+        synchronized (references) {
+            Map<File, ChunkedFile> chunks = references.get(reference);
+            if (chunks != null) return chunks;
+        }
+        // Chunked without holding the lock, so other references may be served meanwhile
+        Map<File, ChunkedFile> chunks = FileReferenceCompressor.chunk(fileOrDirectory);
+        synchronized (references) {
+            references.put(reference, chunks);
+        }
+        return chunks;
+    }
+
+}
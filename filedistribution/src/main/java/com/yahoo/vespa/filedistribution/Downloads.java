@@ -26,6 +26,7 @@ public class Downloads {
 
     private final Map<FileReference, FileReferenceDownload> downloads = new ConcurrentHashMap<>();
     private final DownloadStatuses downloadStatuses = new DownloadStatuses();
+    private final Map<FileReference, String> expectedDigests = new ConcurrentHashMap<>();
 
     public DownloadStatuses downloadStatuses() { return downloadStatuses; }
 
@@ -71,6 +72,19 @@ public class Downloads {
         return Optional.ofNullable(downloads.get(fileReference));
     }
 
+    /** Makes file references received until cleared be rejected unless their content has the given SHA-256 digest */
+    void expectDigest(FileReference fileReference, String digest) {
+        expectedDigests.put(fileReference, digest);
+    }
+
+    void clearExpectedDigest(FileReference fileReference) {
+        expectedDigests.remove(fileReference);
+    }
+
+    Optional<String> expectedDigest(FileReference fileReference) {
+        return Optional.ofNullable(expectedDigests.get(fileReference));
+    }
+
     /* Status for ongoing and completed downloads, keeps at most status for 100 last downloads */
     static class DownloadStatuses {
 
@@ -11,7 +11,8 @@ public enum FileApiErrorCodes {
     OK(0, "OK"),
     NOT_FOUND(1, "File reference not found"),
     TIMEOUT(2, "Timeout"),
-    TRANSFER_FAILED(3, "Failed transferring file");
+    TRANSFER_FAILED(3, "Failed transferring file"),
+    NOT_AUTHORIZED(4, "Not a source of this file reference for this node");
     private final int code;
     private final String description;
 
@@ -0,0 +1,207 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Splits files into content-defined chunks, and writes and reads files as a stream of chunks where
+ * the content of chunks the receiver already has is left out.
+ *
+ * Chunk boundaries are found with a gear hash over the content, so an insertion or change in a file only
+ * changes the chunks around it, and chunks are identified by the xxhash64 of their content.
+ * The stream is a version number, followed by each file as its path, xxhash64 and chunks, where each chunk is
+ * its xxhash64, its length, and a flag telling whether its content follows.
+ */
+public class FileChunks {
+
+    static final int minChunkSize = 64 * 1024;
+    static final int maxChunkSize = 4 * 1024 * 1024;
+    private static final int boundaryShift = 64 - 19; // Average chunk size of about 512 kB above the minimum
+    private static final int version = 1;
+    private static final long[] gear = new SplittableRandom(0x6765617263686e6bL).longs(256).toArray();
+
+    /** A chunk of a file, identified by the xxhash64 of its content */
+    public record Chunk(long hash, long offset, int length) { }
+
+    /** The chunks of a file, and the xxhash64 of its full content */
+    public record ChunkedFile(long hash, List<Chunk> chunks) { }
+
+    private FileChunks() { }
+
+    /** Returns the chunks of the given file */
+    public static ChunkedFile chunk(File file) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        XXHashFactory factory = XXHashFactory.fastestInstance();
+        try (InputStream in = new FileInputStream(file);
+             StreamingXXHash64 chunkHasher = factory.newStreamingHash64(0);
+             StreamingXXHash64 fileHasher = factory.newStreamingHash64(0)) {
+            byte[] buffer = new byte[1 << 16];
+            long offset = 0;
+            int length = 0;
+            long rolling = 0;
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    rolling = (rolling << 1) + gear[buffer[i] & 0xff];
+                    if (++length >= maxChunkSize || (length >= minChunkSize && (rolling >>> boundaryShift) == 0)) {
+                        chunkHasher.update(buffer, start, i + 1 - start);
+                        chunks.add(new Chunk(chunkHasher.getValue(), offset, length));
+                        chunkHasher.reset();
+                        offset += length;
+                        length = 0;
+                        rolling = 0;
+                        start = i + 1;
+                    }
+                }
+                chunkHasher.update(buffer, start, read - start);
+                fileHasher.update(buffer, 0, read);
+            }
+            if (length > 0)
+                chunks.add(new Chunk(chunkHasher.getValue(), offset, length));
+            return new ChunkedFile(fileHasher.getValue(), chunks);
+        }
+    }
+
+    /** Returns the chunks of each regular file in the given file or directory, in path order */
+    public static Map<File, ChunkedFile> chunkAll(File fileOrDirectory, int maxDepth) throws IOException {
+        List<File> files;
+        try (var paths = Files.find(fileOrDirectory.toPath(), maxDepth, (p, attributes) -> attributes.isRegularFile())) {
+            files = paths.map(Path::toFile).sorted().toList();
+        }
+        Map<File, ChunkedFile> chunked = new LinkedHashMap<>();
+        for (File file : files)
+            chunked.put(file, chunk(file));
+        return chunked;
+    }
+
+    /** Returns whether any of the chunks of the given files are among the given known chunks */
+    public static boolean containsAny(Map<File, ChunkedFile> files, Set<Long> knownChunks) {
+        if (knownChunks.isEmpty()) return false;
+        for (ChunkedFile file : files.values())
+            for (Chunk chunk : file.chunks())
+                if (knownChunks.contains(chunk.hash())) return true;
+        return false;
+    }
+
+    /**
+     * Writes the given chunked files, with paths relative to the given base directory, as a chunk stream,
+     * leaving out the content of the given known chunks.
+     *
+     * @return the number of bytes of content left out
+     */
+    public static long write(File baseDir, Map<File, ChunkedFile> files, Set<Long> knownChunks, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(version);
+        byte[] buffer = new byte[maxChunkSize];
+        long leftOut = 0;
+        for (Map.Entry<File, ChunkedFile> entry : files.entrySet()) {
+            File file = entry.getKey();
+            ChunkedFile chunked = entry.getValue();
+            data.writeBoolean(true);
+            data.writeUTF(baseDir.toPath().relativize(file.toPath()).toString());
+            data.writeLong(chunked.hash());
+            data.writeInt(chunked.chunks().size());
+            try (RandomAccessFile content = new RandomAccessFile(file, "r")) {
+                for (Chunk chunk : chunked.chunks()) {
+                    boolean known = knownChunks.contains(chunk.hash());
+                    data.writeLong(chunk.hash());
+                    data.writeInt(chunk.length());
+                    data.writeBoolean( ! known);
+                    if (known) {
+                        leftOut += chunk.length();
+                    } else {
+                        content.seek(chunk.offset());
+                        content.readFully(buffer, 0, chunk.length());
+                        data.write(buffer, 0, chunk.length());
+                    }
+                }
+            }
+        }
+        data.writeBoolean(false);
+        data.flush();
+        return leftOut;
+    }
+
+    /**
+     * Reads a chunk stream into the given directory, taking the content of chunks left out of the stream
+     * from the given index.
+     *
+     * @return the chunks of each file written, by path relative to the output directory
+     * @throws IllegalArgumentException if the stream is invalid, a chunk is not available or a checksum does not match
+     */
+    public static Map<String, List<Chunk>> read(InputStream in, File outputDir, ChunkIndex index) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int streamVersion = data.readInt();
+        if (streamVersion != version)
+            throw new IllegalArgumentException("Unsupported chunk stream version " + streamVersion);
+
+        XXHash64 hasher = XXHashFactory.fastestInstance().hash64();
+        byte[] buffer = new byte[maxChunkSize];
+        Path root = outputDir.toPath().normalize();
+        Map<String, List<Chunk>> files = new LinkedHashMap<>();
+        while (data.readBoolean()) {
+            String path = data.readUTF();
+            Path file = root.resolve(path).normalize();
+            if ( ! file.startsWith(root) || file.equals(root))
+                throw new IllegalArgumentException("Illegal path '" + path + "' in chunk stream");
+
+            long fileHash = data.readLong();
+            int chunkCount = data.readInt();
+            List<Chunk> chunks = new ArrayList<>();
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = new FileOutputStream(file.toFile());
+                 StreamingXXHash64 fileHasher = XXHashFactory.fastestInstance().newStreamingHash64(0)) {
+                long offset = 0;
+                for (int i = 0; i < chunkCount; i++) {
+                    long hash = data.readLong();
+                    int length = data.readInt();
+                    if (length <= 0 || length > maxChunkSize)
+                        throw new IllegalArgumentException("Illegal chunk length " + length + " in '" + path + "'");
+
+                    if (data.readBoolean()) {
+                        data.readFully(buffer, 0, length);
+                        if (hasher.hash(buffer, 0, length, 0) != hash)
+                            throw new IllegalArgumentException("Checksum mismatch for chunk " + Long.toHexString(hash) + " of '" + path + "'");
+                    }
+                    else if ( ! index.read(hash, buffer, length)) {
+                        throw new IllegalArgumentException("Chunk " + Long.toHexString(hash) + " of '" + path + "' is not available");
+                    }
+                    out.write(buffer, 0, length);
+                    fileHasher.update(buffer, 0, length);
+                    chunks.add(new Chunk(hash, offset, length));
+                    offset += length;
+                }
+                if (fileHasher.getValue() != fileHash)
+                    throw new IllegalArgumentException("Checksum mismatch for '" + path + "'");
+            }
+            files.put(root.relativize(file).toString(), chunks);
+        }
+        if (files.isEmpty())
+            throw new IllegalArgumentException("Not able to read any files from chunk stream");
+
+        return files;
+    }
+
+}
@@ -38,7 +38,9 @@ public class FileDownloader implements AutoCloseable {
     private final File downloadDirectory;
     private final Duration timeout;
     private final FileReferenceDownloader fileReferenceDownloader;
+    private final ChunkIndex chunkIndex;
     private final Downloads downloads = new Downloads();
+    private Optional<PeerFileServer> peerFileServer = Optional.empty();
 
     static {
         // Undocumented on purpose, might change or be removed at any time
@@ -64,12 +66,15 @@ public class FileDownloader implements AutoCloseable {
         this.downloadDirectory = downloadDirectory;
         this.timeout = timeout;
         // Needed to receive RPC receiveFile* calls from server after starting download of file reference
-        new FileReceiver(supervisor, downloads, downloadDirectory);
+        this.chunkIndex = new ChunkIndex(downloadDirectory);
+        chunkIndex.updateInBackground();
+        new FileReceiver(supervisor, downloads, downloadDirectory, chunkIndex);
         this.fileReferenceDownloader = new FileReferenceDownloader(connectionPool,
                                                                    downloads,
                                                                    timeout,
                                                                    backoffInitialTime,
-                                                                   downloadDirectory);
+                                                                   downloadDirectory,
+                                                                   chunkIndex);
         if (forceDownload)
             log.log(Level.INFO, "Force download of file references (download even if file reference exists on disk)");
     }
@@ -119,7 +124,7 @@ public class FileDownloader implements AutoCloseable {
         return getFileFromFileSystem(fileReference, downloadDirectory);
     }
 
-    private static Optional<File> getFileFromFileSystem(FileReference fileReference, File downloadDirectory) {
+    static Optional<File> getFileFromFileSystem(FileReference fileReference, File downloadDirectory) {
         if (forceDownload) return Optional.empty();
 
         File[] files = new File(downloadDirectory, fileReference.value()).listFiles();
@@ -156,6 +161,21 @@ public class FileDownloader implements AutoCloseable {
         return true;
     }
 
+    /**
+     * Downloads file references from other nodes which have them, when the config server says so, and serves
+     * file references downloaded here to other nodes, on the supervisor of this.
+     *
+     * @param ownSpec the spec other nodes can use to connect to the supervisor of this
+     */
+    public synchronized void enablePeerDownloads(Spec ownSpec) {
+        if (peerFileServer.isPresent()) return;
+
+        PeerDownloads peerDownloads = new PeerDownloads(supervisor, ownSpec);
+        peerFileServer = Optional.of(new PeerFileServer(supervisor, downloadDirectory, peerDownloads, FilePeerTracker.defaultFanOut));
+        fileReferenceDownloader.enablePeerDownloads(peerDownloads);
+        log.log(Level.INFO, "Downloading file references from peers, serving file references to peers on " + ownSpec);
+    }
+
     /** Start downloading, the future returned will be complete()d by receiving method in {@link FileReceiver} */
     private synchronized CompletableFuture<Optional<File>> startDownload(FileReferenceDownload fileReferenceDownload) {
         return fileReferenceDownloader.startDownload(fileReferenceDownload);
@@ -163,6 +183,8 @@ public class FileDownloader implements AutoCloseable {
 
     public void close() {
         fileReferenceDownloader.close();
+        chunkIndex.close();
+        peerFileServer.ifPresent(PeerFileServer::close);
         supervisor.transport().shutdown().join();
     }
 
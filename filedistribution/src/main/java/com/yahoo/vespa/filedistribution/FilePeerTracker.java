@@ -0,0 +1,154 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Spec;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps track of which nodes have downloaded each file reference, and tells nodes where to download file
+ * references from: A node which already has it, or the config server itself. Each source is given at most
+ * a fixed number of concurrent downloads, so the nodes having a file reference form a tree with a bounded
+ * fan-out, and the number of nodes having a file reference grows exponentially during deployment.
+ * Nodes are identified by the spec they serve file references on, with the host of the connection they call from.
+ */
+public class FilePeerTracker {
+
+    public static final String GET_FILE_SOURCE_METHOD = "filedistribution.getFileSource";
+    public static final String FILE_DOWNLOADED_METHOD = "filedistribution.fileDownloaded";
+    public static final String VERIFY_FILE_SOURCE_METHOD = "filedistribution.verifyFileSource";
+
+    /** Where a node should download a file reference from */
+    public enum SourceType {
+        /** The config server which was asked */
+        server,
+        /** The peer node with the given spec */
+        peer,
+        /** All sources are busy, ask again later */
+        busy
+    }
+
+    public record Source(SourceType type, String peer) {
+        public static Source server() { return new Source(SourceType.server, ""); }
+        public static Source peer(String peer) { return new Source(SourceType.peer, peer); }
+        public static Source busy() { return new Source(SourceType.busy, ""); }
+    }
+
+    /** The default max number of concurrent downloads from each source */
+    public static final int defaultFanOut = 4;
+
+    private static final String server = "";
+
+    private final int fanOut;
+    private final Duration downloadTime;
+    private final Duration holderTime;
+    private final Clock clock;
+    private final Map<FileReference, Peers> references = new HashMap<>();
+
+    public FilePeerTracker() {
+        this(defaultFanOut, Duration.ofMinutes(5), Duration.ofHours(1), Clock.systemUTC());
+    }
+
+    /**
+     * @param fanOut the max number of concurrent downloads from each source
+     * @param downloadTime the time after which a download which is not reported as done no longer counts against its source
+     * @param holderTime how long a node which has downloaded a file reference is used as a source for it
+     */
+    FilePeerTracker(int fanOut, Duration downloadTime, Duration holderTime, Clock clock) {
+        this.fanOut = fanOut;
+        this.downloadTime = downloadTime;
+        this.holderTime = holderTime;
+        this.clock = clock;
+    }
+
+    /** Returns where the given client should download the given file reference from */
+    public synchronized Source source(FileReference reference, String client) {
+        Instant now = clock.instant();
+        expire(now);
+        Peers peers = references.computeIfAbsent(reference, __ -> new Peers());
+        // Asking again means any earlier download failed, and that the client does not have the file reference
+        peers.removeDownload(client);
+        peers.holders.remove(client);
+
+        Optional<String> peer = peers.holders.keySet().stream()
+                                             .filter(holder -> peers.load(holder) < fanOut)
+                                             .min(Comparator.comparingInt(peers::load));
+        String source = peer.orElse(server);
+        if (peers.load(source) >= fanOut) return Source.busy();
+
+        peers.downloads.put(client, new Download(source, now.plus(downloadTime)));
+        peers.loads.merge(source, 1, Integer::sum);
+        return source.equals(server) ? Source.server() : Source.peer(source);
+    }
+
+    /** Registers that the given client has downloaded the given file reference, and can be used as a source for it */
+    public synchronized void downloaded(FileReference reference, String client) {
+        Peers peers = references.computeIfAbsent(reference, __ -> new Peers());
+        peers.removeDownload(client);
+        peers.holders.put(client, clock.instant().plus(holderTime));
+    }
+
+    /**
+     * Returns whether a client on the given host has been told to download the given file reference from the given holder,
+     * and has not yet reported it as downloaded, so the holder should serve it to that client
+     */
+    public synchronized boolean isSourceFor(FileReference reference, String holder, String clientHost) {
+        expire(clock.instant());
+        Peers peers = references.get(reference);
+        if (peers == null) return false;
+        return peers.downloads.entrySet().stream()
+                              .anyMatch(download -> download.getValue().source().equals(holder) &&
+                                                    clientHost.equals(new Spec(download.getKey()).host()));
+    }
+
+    synchronized int downloads(FileReference reference) {
+        Peers peers = references.get(reference);
+        return peers == null ? 0 : peers.downloads.size();
+    }
+
+    private void expire(Instant now) {
+        for (Iterator<Peers> it = references.values().iterator(); it.hasNext(); ) {
+            Peers peers = it.next();
+            peers.holders.values().removeIf(expiry -> expiry.isBefore(now));
+            peers.downloads.entrySet().stream()
+                           .filter(download -> download.getValue().expiry().isBefore(now))
+                           .map(Map.Entry::getKey)
+                           .toList()
+                           .forEach(peers::removeDownload);
+            if (peers.holders.isEmpty() && peers.downloads.isEmpty())
+                it.remove();
+        }
+    }
+
+    private record Download(String source, Instant expiry) { }
+
+    private static class Peers {
+
+        /** Expiry time of each node having the file reference */
+        final Map<String, Instant> holders = new HashMap<>();
+
+        /** Ongoing downloads, by client */
+        final Map<String, Download> downloads = new HashMap<>();
+
+        /** Number of ongoing downloads from each source */
+        final Map<String, Integer> loads = new HashMap<>();
+
+        int load(String source) { return loads.getOrDefault(source, 0); }
+
+        void removeDownload(String client) {
+            Download download = downloads.remove(client);
+            if (download != null)
+                loads.computeIfPresent(download.source(), (__, load) -> load > 1 ? load - 1 : null);
+        }
+
+    }
+
+}
@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,6 +46,7 @@ public class FileReceiver {
     private final Supervisor supervisor;
     private final Downloads downloads;
     private final File downloadDirectory;
+    private final ChunkIndex chunkIndex;
     private final AtomicInteger nextSessionId = new AtomicInteger(1);
     private final Map<Integer, Session> sessions = new HashMap<>();
 
@@ -63,6 +65,8 @@ public class FileReceiver {
         private final File tmpDir;
         private final File inProgressDir;
         private final File file;
+        private final ChunkIndex chunkIndex;
+        private final Optional<String> expectedDigest;
 
         Session(File downloadDirectory,
                 int sessionId,
@@ -70,7 +74,20 @@ public class FileReceiver {
                 Type fileType,
                 FileReferenceData.CompressionType compressionType,
                 String fileName,
-                long fileSize) {
+                long fileSize,
+                ChunkIndex chunkIndex) {
+            this(downloadDirectory, sessionId, reference, fileType, compressionType, fileName, fileSize, chunkIndex, Optional.empty());
+        }
+
+        Session(File downloadDirectory,
+                int sessionId,
+                FileReference reference,
+                Type fileType,
+                FileReferenceData.CompressionType compressionType,
+                String fileName,
+                long fileSize,
+                ChunkIndex chunkIndex,
+                Optional<String> expectedDigest) {
             this.hasher = XXHashFactory.fastestInstance().newStreamingHash64(0);
             this.sessionId = sessionId;
             this.reference = reference;
@@ -83,6 +100,8 @@ public class FileReceiver {
             currentHash = 0;
             fileReferenceDir = new File(downloadDirectory, reference.value());
             this.tmpDir = downloadDirectory;
+            this.chunkIndex = chunkIndex;
+            this.expectedDigest = expectedDigest;
 
             try {
                 inProgressDir = Files.createTempDirectory(tmpDir.toPath(), "inprogress").toFile();
@@ -124,13 +143,22 @@ public class FileReceiver {
             try {
                 if (fileType == Type.file) {
                     log.log(Level.FINE, () -> "Uncompressed file, moving to " + file.getAbsolutePath());
+                    verifyDigest(file);
                     moveFileToDestination(inProgressDir, fileReferenceDir);
+                } else if (fileType == Type.chunked) {
+                    decompressedDir = Files.createTempDirectory(tmpDir.toPath(), "archive").toFile();
+                    var files = new FileReferenceCompressor(fileType, compressionType).decompressChunks(file, decompressedDir, chunkIndex);
+                    verifyDigest(new File(decompressedDir, fileName));
+                    moveFileToDestination(decompressedDir, fileReferenceDir);
+                    chunkIndex.add(reference, fileReferenceDir, files);
                 } else {
                     decompressedDir = Files.createTempDirectory(tmpDir.toPath(), "archive").toFile();
                     log.log(Level.FINEST, () -> "compression type to use=" + compressionType);
                     new FileReferenceCompressor(fileType, compressionType).decompress(file, decompressedDir);
+                    verifyDigest(new File(decompressedDir, fileName));
                     moveFileToDestination(decompressedDir, fileReferenceDir);
                 }
+                chunkIndex.updateInBackground();
             } catch (IOException e) {
                 log.log(Level.SEVERE, "Failed writing file: " + e.getMessage(), e);
                 throw new RuntimeException("Failed writing file: ", e);
@@ -150,12 +178,23 @@ public class FileReceiver {
                 throw new RuntimeException("xxhash from content (" + currentHash + ") is not equal to xxhash in request (" + hash + ")");
         }
 
+        // Content received from a peer must be what the config server has, before it is moved into place
+        private void verifyDigest(File content) {
+            if (expectedDigest.isEmpty()) return;
+
+            String digest = FileReferenceDigest.sha256(content);
+            if ( ! digest.equals(expectedDigest.get()))
+                throw new RuntimeException("SHA-256 of received " + reference + " (" + digest + ") is not equal to " +
+                                           "that of the config server's copy (" + expectedDigest.get() + ")");
+        }
+
     }
 
-    FileReceiver(Supervisor supervisor, Downloads downloads, File downloadDirectory) {
+    FileReceiver(Supervisor supervisor, Downloads downloads, File downloadDirectory, ChunkIndex chunkIndex) {
         this.supervisor = supervisor;
         this.downloads = downloads;
         this.downloadDirectory = downloadDirectory;
+        this.chunkIndex = chunkIndex;
         registerMethods();
     }
 
@@ -171,7 +210,7 @@ public class FileReceiver {
                 .requireCapabilities(Capability.CLIENT__FILERECEIVER_API)
                 .paramDesc(0, "filereference", "file reference to download")
                 .paramDesc(1, "filename", "filename")
-                .paramDesc(2, "type", "'file' or 'compressed'")
+                .paramDesc(2, "type", "'file', 'compressed' or 'chunked'")
                 .paramDesc(3, "filelength", "length in bytes of file")
                 .paramDesc(3, "compressionType", "compression type: gzip, lz4, zstd")
                 .returnDesc(0, "ret", "0 if success, 1 otherwise")
@@ -243,7 +282,8 @@ public class FileReceiver {
             } else {
                 try {
                     sessions.put(sessionId, new Session(downloadDirectory, sessionId, reference,
-                                                        type, compressionType, fileName, fileSize));
+                                                        type, compressionType, fileName, fileSize, chunkIndex,
+                                                        downloads.expectedDigest(reference)));
                 } catch (Exception e) {
                     retval = 1;
                 }
@@ -283,8 +323,15 @@ public class FileReceiver {
         long xxhash = req.parameters().get(2).asInt64();
         Session session = getSession(sessionId);
         int retval = verifySession(session, sessionId, reference);
-        File file = session.close(xxhash);
-        downloads.completedDownloading(reference, file);
+        if (retval == 0) {
+            try {
+                File file = session.close(xxhash);
+                downloads.completedDownloading(reference, file);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed receiving " + reference + ": " + e.getMessage());
+                retval = 2;
+            }
+        }
         synchronized (sessions) {
             sessions.remove(sessionId);
         }
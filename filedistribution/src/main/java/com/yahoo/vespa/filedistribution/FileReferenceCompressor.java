@@ -18,7 +18,9 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
@@ -57,6 +59,48 @@ public class FileReferenceCompressor {
         }
     }
 
+    /**
+     * Writes the given file or directory as a compressed chunk stream (see {@link FileChunks}),
+     * leaving out the content of the given chunks, which the receiver already has.
+     *
+     * @return the number of bytes of content left out
+     */
+    public long compressChunks(File fileOrDirectory, Set<Long> knownChunks, File outputFile) throws IOException {
+        return compressChunks(fileOrDirectory, chunk(fileOrDirectory), knownChunks, outputFile);
+    }
+
+    /**
+     * Writes the given file or directory, with the given chunks, as a compressed chunk stream (see {@link FileChunks}),
+     * leaving out the content of the given chunks, which the receiver already has.
+     *
+     * @return the number of bytes of content left out
+     */
+    public long compressChunks(File fileOrDirectory, Map<File, FileChunks.ChunkedFile> files, Set<Long> knownChunks,
+                               File outputFile) throws IOException {
+        requireChunked();
+        try (OutputStream out = compressedOutputStream(outputFile)) {
+            return FileChunks.write(fileOrDirectory.getParentFile(), files, knownChunks, out);
+        }
+    }
+
+    /** Returns the chunks of each regular file in the given file or directory, in path order */
+    public static Map<File, FileChunks.ChunkedFile> chunk(File fileOrDirectory) throws IOException {
+        return FileChunks.chunkAll(fileOrDirectory, recurseDepth);
+    }
+
+    /**
+     * Reads a compressed chunk stream into the given directory, taking chunks left out of the stream from the given index.
+     *
+     * @return the chunks of each file written, by path relative to the output directory
+     */
+    public Map<String, List<FileChunks.Chunk>> decompressChunks(File inputFile, File outputDir, ChunkIndex chunkIndex) throws IOException {
+        requireChunked();
+        log.log(Level.FINEST, () -> "Decompressing chunks in '" + inputFile + "' into '" + outputDir + "'");
+        try (InputStream in = decompressedInputStream(inputFile)) {
+            return FileChunks.read(in, outputDir, chunkIndex);
+        }
+    }
+
     public void decompress(File inputFile, File outputDir) throws IOException {
         log.log(Level.FINEST, () -> "Decompressing '" + inputFile + "' into '" + outputDir + "'");
         try (TarArchiveInputStream ais = new TarArchiveInputStream(decompressedInputStream(inputFile))) {
@@ -115,9 +159,14 @@ public class FileReferenceCompressor {
         taos.closeArchiveEntry();
     }
 
+    private void requireChunked() {
+        if (type != FileReferenceData.Type.chunked)
+            throw new IllegalStateException("Chunk streams require type " + FileReferenceData.Type.chunked + ", but type is " + type);
+    }
+
     private OutputStream compressedOutputStream(File outputFile) throws IOException {
         return switch (type) {
-            case compressed -> switch (compressionType) {
+            case compressed, chunked -> switch (compressionType) {
                 case gzip -> new GZIPOutputStream(new FileOutputStream(outputFile));
                 case lz4 -> new LZ4BlockOutputStream(new FileOutputStream(outputFile));
                 case zstd -> new ZstdOutputStream(new FileOutputStream(outputFile));
@@ -128,7 +177,7 @@ public class FileReferenceCompressor {
 
     private InputStream decompressedInputStream(File inputFile) throws IOException {
         return switch (type) {
-            case compressed -> switch (compressionType) {
+            case compressed, chunked -> switch (compressionType) {
                 case gzip -> new GZIPInputStream(new FileInputStream(inputFile));
                 case lz4 -> new LZ4BlockInputStream(new FileInputStream(inputFile));
                 case zstd -> new ZstdInputStream(new FileInputStream(inputFile));
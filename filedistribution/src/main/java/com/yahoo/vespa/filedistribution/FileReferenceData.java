@@ -12,7 +12,7 @@ import java.nio.ByteBuffer;
  */
 public abstract class FileReferenceData implements AutoCloseable {
 
-    public enum Type { file, compressed }
+    public enum Type { file, compressed, chunked }
     public enum CompressionType { gzip, lz4, zstd }
 
     private final FileReference fileReference;
@@ -0,0 +1,58 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Computes a SHA-256 digest of the content of a file reference, i.e., of a file, or of the relative paths, sizes
+ * and contents of all regular files in a directory. This is the same however the file reference was transferred,
+ * so nodes can verify a file reference downloaded from a peer against the digest of the config server's copy.
+ */
+public class FileReferenceDigest {
+
+    private FileReferenceDigest() { }
+
+    public static String sha256(File file) {
+        MessageDigest digest = newDigest();
+        Path root = file.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            List<Path> files = paths.filter(Files::isRegularFile).sorted().toList();
+            byte[] buffer = new byte[1 << 16];
+            for (Path path : files) {
+                digest.update(root.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(ByteBuffer.allocate(Long.BYTES).putLong(Files.size(path)).array());
+                try (InputStream in = Files.newInputStream(path)) {
+                    for (int read; (read = in.read(buffer)) > 0; )
+                        digest.update(buffer, 0, read);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed computing digest of " + file, e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -4,6 +4,7 @@ package com.yahoo.vespa.filedistribution;
 import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.config.FileReference;
 import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Array;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.Spec;
 import com.yahoo.jrt.StringArray;
@@ -11,6 +12,7 @@ import com.yahoo.jrt.StringValue;
 import com.yahoo.vespa.config.Connection;
 import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.config.JRTConnectionPool;
+import com.yahoo.vespa.filedistribution.FilePeerTracker.SourceType;
 
 import java.io.File;
 import java.time.Duration;
@@ -20,6 +22,8 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -39,60 +43,95 @@ public class FileReferenceDownloader {
 
     private static final Logger log = Logger.getLogger(FileReferenceDownloader.class.getName());
     private static final Set<CompressionType> defaultAcceptedCompressionTypes = Set.of(gzip, lz4, zstd);
+    private static final Duration maxBusyWait = Duration.ofSeconds(30);
 
     private final ExecutorService downloadExecutor =
             Executors.newFixedThreadPool(Math.max(8, Runtime.getRuntime().availableProcessors()),
                                          new DaemonThreadFactory("filereference downloader"));
+    private final ScheduledExecutorService retryExecutor =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("filereference downloader retry"));
     private final ConnectionPool connectionPool;
     private final Downloads downloads;
     private final Duration downloadTimeout;
     private final Duration backoffInitialTime;
     private final Duration rpcTimeout;
     private final File downloadDirectory;
+    private final ChunkIndex chunkIndex;
     private final AtomicBoolean shutDown = new AtomicBoolean(false);
+    private volatile Optional<PeerDownloads> peerDownloads = Optional.empty();
 
     FileReferenceDownloader(ConnectionPool connectionPool,
                             Downloads downloads,
                             Duration timeout,
                             Duration backoffInitialTime,
-                            File downloadDirectory) {
+                            File downloadDirectory,
+                            ChunkIndex chunkIndex) {
         this.connectionPool = connectionPool;
         this.downloads = downloads;
         this.downloadTimeout = timeout;
         this.backoffInitialTime = backoffInitialTime;
         this.downloadDirectory = downloadDirectory;
+        this.chunkIndex = chunkIndex;
         // Undocumented on purpose, might change or be removed at any time
         String timeoutString = System.getenv("VESPA_FILE_DOWNLOAD_RPC_TIMEOUT");
         this.rpcTimeout = Duration.ofSeconds(timeoutString == null ? 30 : Integer.parseInt(timeoutString));
     }
 
     private void waitUntilDownloadStarted(FileReferenceDownload fileReferenceDownload) {
-        Instant end = Instant.now().plus(downloadTimeout);
-        FileReference fileReference = fileReferenceDownload.fileReference();
-        int retryCount = 0;
-        Connection connection = connectionPool.getCurrent();
-        do {
-            if (retryCount > 0)
-                backoff(retryCount, end);
+        Instant now = Instant.now();
+        waitUntilDownloadStarted(fileReferenceDownload, 0, connectionPool.getCurrent(), now.plus(downloadTimeout), now.plus(maxBusyWait));
+    }
 
+    private void waitUntilDownloadStarted(FileReferenceDownload fileReferenceDownload, int retryCount, Connection connection,
+                                          Instant end, Instant busyEnd) {
+        FileReference fileReference = fileReferenceDownload.fileReference();
+        while (true) {
             if (shutDown.get())
                 return;
             if (FileDownloader.fileReferenceExists(fileReference, downloadDirectory))
                 return;
-            if (startDownloadRpc(fileReferenceDownload, retryCount, connection))
+            Optional<PeerDownloads> peers = peerDownloads;
+            if (peers.isPresent()) {
+                PeerDownloads.Source source = peers.get().source(fileReference, connection);
+                // Ask again later when all sources are busy, for a while, without holding on to a download thread
+                if (source.type() == SourceType.busy && Instant.now().plus(backoffInitialTime).isBefore(min(end, busyEnd))) {
+                    int count = retryCount;
+                    Connection current = connection;
+                    retryExecutor.schedule(() -> retry(() -> waitUntilDownloadStarted(fileReferenceDownload, count, current, end, busyEnd)),
+                                           backoffInitialTime.toMillis(), TimeUnit.MILLISECONDS);
+                    return;
+                }
+                if (source.type() == SourceType.peer && startPeerDownload(fileReferenceDownload, source, retryCount, connection, peers.get()))
+                    return;
+            }
+            if (startDownloadRpc(fileReferenceDownload, retryCount, connection)) {
+                if (peers.isPresent())
+                    peers.get().downloaded(fileReference, connection);
                 return;
+            }
 
             retryCount++;
             // There might not be one connection that works for all file references (each file reference might
             // exist on just one config server, and which one could be different for each file reference), so
             // switch to a new connection for every retry
             connection = connectionPool.switchConnection(connection);
-        } while (Instant.now().isBefore(end));
+            if ( ! Instant.now().isBefore(end))
+                break;
+            backoff(retryCount, end);
+        }
 
         fileReferenceDownload.future().completeExceptionally(new RuntimeException("Failed getting " + fileReference));
         downloads.remove(fileReference);
     }
 
+    private void retry(Runnable attempt) {
+        try {
+            downloadExecutor.execute(attempt);
+        } catch (RejectedExecutionException e) {
+            log.log(Level.FINE, () -> "Not retrying download, shutting down");
+        }
+    }
+
     private void backoff(int retryCount, Instant end) {
         try {
             long sleepTime = Math.min(120_000,
@@ -140,6 +179,28 @@ public class FileReferenceDownloader {
         }
     }
 
+    /** Download file references from peers which have them, as told by the config server, when possible */
+    void enablePeerDownloads(PeerDownloads peerDownloads) {
+        this.peerDownloads = Optional.of(peerDownloads);
+    }
+
+    // Downloads from the given peer, rejecting content which differs from the config server's copy, so the
+    // caller falls back to the config server if this fails
+    private boolean startPeerDownload(FileReferenceDownload fileReferenceDownload, PeerDownloads.Source source, int retryCount,
+                                      Connection connection, PeerDownloads peers) {
+        FileReference fileReference = fileReferenceDownload.fileReference();
+        downloads.expectDigest(fileReference, source.digest());
+        try {
+            if ( ! peers.download(createRequest(fileReferenceDownload), source.peer(), rpcTimeout(retryCount)))
+                return false;
+        }
+        finally {
+            downloads.clearExpectedDigest(fileReference);
+        }
+        peers.downloaded(fileReference, connection);
+        return true;
+    }
+
     void failedDownloading(FileReference fileReference) {
         downloads.remove(fileReference);
     }
@@ -179,9 +240,15 @@ public class FileReferenceDownloader {
         String[] temp = new String[defaultAcceptedCompressionTypes.size()];
         defaultAcceptedCompressionTypes.stream().map(Enum::name).toList().toArray(temp);
         request.parameters().add(new StringArray(temp));
+        // Chunks indexed locally so far, which the server can leave out when sending the file reference
+        long[] chunks = chunkIndex.chunks();
+        if (chunks.length > 0)
+            request.parameters().add(new Int64Array(chunks));
         return request;
     }
 
+    private static Instant min(Instant a, Instant b) { return a.isBefore(b) ? a : b; }
+
     private Duration rpcTimeout(int retryCount) {
         return Duration.ofSeconds(rpcTimeout.getSeconds()).plus(Duration.ofSeconds(retryCount * 5L));
     }
@@ -200,6 +267,7 @@ public class FileReferenceDownloader {
 
     public void close() {
         shutDown.set(true);
+        retryExecutor.shutdownNow();
         downloadExecutor.shutdown();
         try {
             if (!downloadExecutor.awaitTermination(30, TimeUnit.SECONDS))
@@ -0,0 +1,113 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
+import com.yahoo.vespa.config.Connection;
+import com.yahoo.vespa.filedistribution.FilePeerTracker.SourceType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.yahoo.vespa.filedistribution.FilePeerTracker.FILE_DOWNLOADED_METHOD;
+import static com.yahoo.vespa.filedistribution.FilePeerTracker.GET_FILE_SOURCE_METHOD;
+import static com.yahoo.vespa.filedistribution.FilePeerTracker.VERIFY_FILE_SOURCE_METHOD;
+
+/**
+ * Downloads file references from peer nodes which already have them, as told by the config server
+ * (see {@link FilePeerTracker}), and tells the config server when this node has a file reference,
+ * so it can be used as a source by other nodes.
+ */
+class PeerDownloads {
+
+    private static final Logger log = Logger.getLogger(PeerDownloads.class.getName());
+    private static final Duration rpcTimeout = Duration.ofSeconds(10);
+
+    /** Where to download a file reference from, with the SHA-256 digest of the config server's copy if from a peer */
+    record Source(SourceType type, String peer, String digest) {
+        static Source server() { return new Source(SourceType.server, "", ""); }
+    }
+
+    private final Supervisor supervisor;
+    private final Spec ownSpec;
+    /** The config server each file reference was reported as downloaded to, which is the only one using this as a source for it */
+    private final Map<FileReference, Connection> reportedTo = new ConcurrentHashMap<>();
+
+    PeerDownloads(Supervisor supervisor, Spec ownSpec) {
+        this.supervisor = supervisor;
+        this.ownSpec = ownSpec;
+    }
+
+    /** Asks the given config server where to download the given file reference from */
+    Source source(FileReference reference, Connection configServer) {
+        Request request = new Request(GET_FILE_SOURCE_METHOD);
+        request.parameters().add(new StringValue(reference.value()));
+        request.parameters().add(new StringValue(ownSpec.toString()));
+        configServer.invokeSync(request, rpcTimeout);
+        if (request.isError() || ! request.checkReturnTypes("iss")) {
+            log.log(Level.FINE, () -> "Could not get source of " + reference + " from " + configServer.getAddress() +
+                                      ": " + request.errorMessage());
+            return Source.server();
+        }
+
+        int type = request.returnValues().get(0).asInt32();
+        String digest = request.returnValues().get(2).asString();
+        if (type < 0 || type >= SourceType.values().length) return Source.server();
+        if (type == SourceType.peer.ordinal() && digest.isEmpty()) return Source.server();
+        return new Source(SourceType.values()[type], request.returnValues().get(1).asString(), digest);
+    }
+
+    /** Sends the given serve file request to the given peer, and returns whether the file reference was received */
+    boolean download(Request request, String peer, Duration timeout) {
+        Target target = supervisor.connect(new Spec(peer));
+        try {
+            target.invokeSync(request, timeout);
+            boolean ok = ! request.isError() && request.checkReturnTypes("is") && request.returnValues().get(0).asInt32() == 0;
+            log.log(Level.FINE, () -> ok ? "Downloaded " + request.parameters().get(0).asString() + " from peer " + peer
+                                         : "Downloading " + request.parameters().get(0).asString() + " from peer " + peer + " failed: " +
+                                           (request.isError() ? request.errorMessage() : request.returnValues().get(1).asString()));
+            return ok;
+        }
+        finally {
+            target.close();
+        }
+    }
+
+    /** Tells the given config server that this node now has the given file reference */
+    void downloaded(FileReference reference, Connection configServer) {
+        reportedTo.put(reference, configServer);
+        Request request = new Request(FILE_DOWNLOADED_METHOD);
+        request.parameters().add(new StringValue(reference.value()));
+        request.parameters().add(new StringValue(ownSpec.toString()));
+        configServer.invokeSync(request, rpcTimeout);
+        if (request.isError())
+            log.log(Level.FINE, () -> "Failed reporting " + reference + " as downloaded to " + configServer.getAddress() +
+                                      ": " + request.errorMessage());
+    }
+
+    /** Returns whether the config server has told a node on the given host to download the given file reference from this */
+    boolean isSourceFor(FileReference reference, String clientHost) {
+        Connection configServer = reportedTo.get(reference);
+        if (configServer == null) return false;
+
+        Request request = new Request(VERIFY_FILE_SOURCE_METHOD);
+        request.parameters().add(new StringValue(reference.value()));
+        request.parameters().add(new StringValue(ownSpec.toString()));
+        request.parameters().add(new StringValue(clientHost));
+        configServer.invokeSync(request, rpcTimeout);
+        if (request.isError() || ! request.checkReturnTypes("i")) {
+            log.log(Level.FINE, () -> "Could not verify that " + clientHost + " may download " + reference + " from this: " +
+                                      request.errorMessage());
+            return false;
+        }
+        return request.returnValues().get(0).asInt32() == 1;
+    }
+
+}
@@ -0,0 +1,116 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.security.tls.Capability;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.NOT_AUTHORIZED;
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.NOT_FOUND;
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.OK;
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.TRANSFER_FAILED;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.gzip;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.lz4;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.zstd;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.chunked;
+
+/**
+ * Serves file references this node has already downloaded to peer nodes, using the same protocol as
+ * the file server in config servers, so peers download from this just like from a config server.
+ * File references are always sent as chunks, as peers always advertise the chunks they have, and are never
+ * downloaded from other sources. A file reference is only served to nodes the config server has told to
+ * download it from this.
+ */
+public class PeerFileServer {
+
+    private static final Logger log = Logger.getLogger(PeerFileServer.class.getName());
+    private static final List<CompressionType> compressionTypes = List.of(zstd, lz4, gzip); // In preferred order
+
+    private final File downloadDirectory;
+    private final PeerDownloads peers;
+    private final ExecutorService executor;
+    private final ChunkedFileReferences chunkedReferences = new ChunkedFileReferences();
+
+    PeerFileServer(Supervisor supervisor, File downloadDirectory, PeerDownloads peers, int maxConcurrentTransfers) {
+        this.downloadDirectory = downloadDirectory;
+        this.peers = peers;
+        this.executor = Executors.newFixedThreadPool(maxConcurrentTransfers, new DaemonThreadFactory("peer-file-server-"));
+        supervisor.addMethod(new Method("filedistribution.serveFile", "si*", "is", this::serveFile)
+                                     .requireCapabilities(Capability.CONFIGPROXY__FILEDISTRIBUTION_API)
+                                     .methodDesc("serve a file reference this node has downloaded")
+                                     .paramDesc(0, "filereference", "file reference to serve")
+                                     .returnDesc(0, "error code", "0 if success")
+                                     .returnDesc(1, "error description", "description of error"));
+    }
+
+    private void serveFile(Request request) {
+        request.detach();
+        executor.execute(() -> {
+            FileApiErrorCodes result = serveFile(new FileReference(request.parameters().get(0).asString()), request);
+            request.returnValues()
+                   .add(new Int32Value(result.code()))
+                   .add(new StringValue(result.description()));
+            request.returnRequest();
+        });
+    }
+
+    private FileApiErrorCodes serveFile(FileReference reference, Request request) {
+        Optional<File> file = FileDownloader.getFileFromFileSystem(reference, downloadDirectory);
+        if (file.isEmpty()) return NOT_FOUND;
+        if ( ! peers.isSourceFor(reference, request.target().peerSpec().host())) {
+            log.log(Level.FINE, () -> "Not serving " + reference + " to " + request.target() + ", which was not told to download it from this");
+            return NOT_AUTHORIZED;
+        }
+
+        Path tempFile = null;
+        try {
+            Set<CompressionType> accepted = Arrays.stream(request.parameters().get(2).asStringArray())
+                                                  .map(CompressionType::valueOf)
+                                                  .collect(Collectors.toSet());
+            CompressionType compressionType = compressionTypes.stream().filter(accepted::contains).findFirst().orElse(gzip);
+            Set<Long> knownChunks = request.parameters().size() > 3
+                                    ? LongStream.of(request.parameters().get(3).asInt64Array()).boxed().collect(Collectors.toSet())
+                                    : Set.of();
+            tempFile = Files.createTempFile("peerfilereferencedata", reference.value());
+            new FileReferenceCompressor(chunked, compressionType).compressChunks(file.get(), chunkedReferences.get(reference, file.get()),
+                                                                                  knownChunks, tempFile.toFile());
+            try (var fileData = new LazyTemporaryStorageFileReferenceData(reference, file.get().getName(), chunked,
+                                                                          tempFile.toFile(), compressionType)) {
+                new FileReferenceSender(request.target()).send(fileData, 0, "OK");
+            }
+            log.log(Level.FINE, () -> "Served " + reference + " to " + request.target());
+            return OK;
+        }
+        catch (Exception e) {
+            log.log(Level.INFO, "Failed serving " + reference + " to " + request.target() + ": " + e.getMessage());
+            if (tempFile != null)
+                tempFile.toFile().delete();
+            return TRANSFER_FAILED;
+        }
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+
+}
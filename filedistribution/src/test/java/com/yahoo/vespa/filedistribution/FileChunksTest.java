@@ -0,0 +1,168 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.vespa.filedistribution.FileChunks.Chunk;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.zstd;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.chunked;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileChunksTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void chunks_are_defined_by_content() throws IOException {
+        byte[] content = randomBytes(3 * 1024 * 1024, 1);
+        List<Chunk> chunks = FileChunks.chunk(write("original", content)).chunks();
+        assertTrue(chunks.size() > 2);
+        assertEquals(content.length, chunks.stream().mapToLong(Chunk::length).sum());
+        for (Chunk chunk : chunks)
+            assertTrue(chunk.length() <= FileChunks.maxChunkSize);
+
+        // Inserting bytes at the start only changes the first chunk
+        byte[] inserted = new byte[content.length + 100];
+        System.arraycopy(content, 0, inserted, 100, content.length);
+        List<Chunk> insertedChunks = FileChunks.chunk(write("inserted", inserted)).chunks();
+        assertEquals(hashes(chunks.subList(1, chunks.size())), hashes(insertedChunks.subList(1, insertedChunks.size())));
+    }
+
+    @Test
+    public void only_unknown_chunks_are_sent() throws IOException {
+        File oldReference = temporaryFolder.newFolder("download", "old-ref");
+        byte[] model = randomBytes(2 * 1024 * 1024, 2);
+        writeTo(new File(oldReference, "app/model.onnx"), model);
+        ChunkIndex index = new ChunkIndex(oldReference.getParentFile());
+        assertEquals(0, index.chunks().length);
+        index.update();
+        Set<Long> known = LongStream.of(index.chunks()).boxed().collect(Collectors.toSet());
+        assertTrue(known.size() > 1);
+
+        File newReference = temporaryFolder.newFolder("new", "app");
+        writeTo(new File(newReference, "model.onnx"), model);
+        writeTo(new File(newReference, "services.xml"), "<services/>".getBytes());
+
+        File stream = temporaryFolder.newFile();
+        FileReferenceCompressor compressor = new FileReferenceCompressor(chunked, zstd);
+        assertEquals(model.length, compressor.compressChunks(newReference, known, stream));
+        assertTrue(stream.length() < 1000);
+
+        File output = temporaryFolder.newFolder("output");
+        Map<String, List<Chunk>> files = compressor.decompressChunks(stream, output, index);
+        assertEquals(Set.of("app/model.onnx", "app/services.xml"), files.keySet());
+        assertArrayEquals(model, Files.readAllBytes(new File(output, "app/model.onnx").toPath()));
+        assertEquals("<services/>", Files.readString(new File(output, "app/services.xml").toPath()));
+
+        index.add(new FileReference("new-ref"), output, files);
+        Files.delete(new File(oldReference, "app/model.onnx").toPath());
+        File again = temporaryFolder.newFolder("again");
+        compressor.decompressChunks(stream, again, index);
+        assertArrayEquals("Chunks are read from the new reference", model, Files.readAllBytes(new File(again, "app/model.onnx").toPath()));
+    }
+
+    @Test
+    public void missing_or_changed_chunks_fail_the_transfer() throws IOException {
+        File reference = temporaryFolder.newFolder("download", "ref");
+        byte[] model = randomBytes(512 * 1024, 3);
+        File modelFile = new File(reference, "model.onnx");
+        writeTo(modelFile, model);
+        ChunkIndex index = new ChunkIndex(reference.getParentFile());
+        index.update();
+        Set<Long> known = LongStream.of(index.chunks()).boxed().collect(Collectors.toSet());
+
+        File stream = temporaryFolder.newFile();
+        FileReferenceCompressor compressor = new FileReferenceCompressor(chunked, zstd);
+        compressor.compressChunks(modelFile, known, stream);
+
+        model[1000] ^= 1;
+        writeTo(modelFile, model);
+        try {
+            compressor.decompressChunks(stream, temporaryFolder.newFolder("output"), index);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("is not available"));
+        }
+        assertTrue("Changed chunk is removed from the index", index.size() < known.size());
+    }
+
+    @Test
+    public void chunks_are_computed_once_per_reference_and_index_change() throws IOException {
+        File reference = temporaryFolder.newFolder("download", "ref");
+        writeTo(new File(reference, "model.onnx"), randomBytes(512 * 1024, 4));
+        ChunkIndex index = new ChunkIndex(reference.getParentFile());
+        index.update();
+        long[] hashes = index.chunks();
+        assertSame(hashes, index.chunks());
+        index.update();
+        assertSame("Indexed references are not chunked again", hashes, index.chunks());
+
+        ChunkedFileReferences references = new ChunkedFileReferences();
+        Map<File, FileChunks.ChunkedFile> chunks = references.get(new FileReference("ref"), reference);
+        assertSame(chunks, references.get(new FileReference("ref"), reference));
+        assertTrue(FileChunks.containsAny(chunks, LongStream.of(hashes).boxed().collect(Collectors.toSet())));
+        assertFalse(FileChunks.containsAny(chunks, Set.of(hashes[0] + 1)));
+        assertFalse(FileChunks.containsAny(chunks, Set.of()));
+    }
+
+    @Test
+    public void references_removed_from_the_download_directory_are_removed_from_the_index() throws IOException {
+        File kept = temporaryFolder.newFolder("download", "kept");
+        File removed = temporaryFolder.newFolder("download", "removed");
+        writeTo(new File(kept, "model.onnx"), randomBytes(256 * 1024, 5));
+        writeTo(new File(removed, "model.onnx"), randomBytes(256 * 1024, 6));
+        ChunkIndex index = new ChunkIndex(kept.getParentFile());
+        index.update();
+        int all = index.size();
+
+        Files.delete(new File(removed, "model.onnx").toPath());
+        Files.delete(removed.toPath());
+        index.update();
+        assertTrue(index.size() > 0);
+        assertTrue(index.size() < all);
+        Set<Long> keptChunks = hashes(FileChunks.chunk(new File(kept, "model.onnx")).chunks());
+        assertEquals(keptChunks, LongStream.of(index.chunks()).boxed().collect(Collectors.toSet()));
+    }
+
+    private static Set<Long> hashes(List<Chunk> chunks) {
+        return chunks.stream().map(Chunk::hash).collect(Collectors.toSet());
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(temporaryFolder.getRoot(), name);
+        writeTo(file, content);
+        return file;
+    }
+
+    private static void writeTo(File file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+
+}
@@ -290,7 +290,7 @@ public class FileDownloaderTest {
 
     private void receiveFile(FileReference fileReference, String filename, Type type, byte[] content) {
         XXHash64 hasher = XXHashFactory.fastestInstance().hash64();
-        var session = new FileReceiver.Session(downloadDir, 1, fileReference, type, gzip, filename, content.length);
+        var session = new FileReceiver.Session(downloadDir, 1, fileReference, type, gzip, filename, content.length, new ChunkIndex(downloadDir));
         session.addPart(0, content);
         File file = session.close(hasher.hash(ByteBuffer.wrap(content), 0));
         fileDownloader.downloads().completedDownloading(fileReference, file);
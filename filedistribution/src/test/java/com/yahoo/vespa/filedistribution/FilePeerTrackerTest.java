@@ -0,0 +1,117 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.vespa.filedistribution.FilePeerTracker.Source;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.yahoo.vespa.filedistribution.FilePeerTracker.SourceType.busy;
+import static com.yahoo.vespa.filedistribution.FilePeerTracker.SourceType.peer;
+import static com.yahoo.vespa.filedistribution.FilePeerTracker.SourceType.server;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FilePeerTrackerTest {
+
+    private final FileReference reference = new FileReference("ref");
+    private final MutableClock clock = new MutableClock();
+    private final FilePeerTracker tracker = new FilePeerTracker(2, Duration.ofMinutes(5), Duration.ofHours(1), clock);
+
+    @Test
+    public void downloads_from_each_source_are_bounded() {
+        assertEquals(Source.server(), tracker.source(reference, "a"));
+        assertEquals(Source.server(), tracker.source(reference, "b"));
+        assertEquals(busy, tracker.source(reference, "c").type());
+
+        tracker.downloaded(reference, "a");
+        assertEquals(Source.peer("a"), tracker.source(reference, "c"));
+        assertEquals(Source.peer("a"), tracker.source(reference, "d"));
+        assertEquals(Source.server(), tracker.source(reference, "e"));
+        assertEquals(busy, tracker.source(reference, "f").type());
+
+        tracker.downloaded(reference, "c");
+        assertEquals(Source.peer("c"), tracker.source(reference, "f"));
+        assertEquals("Asking again releases the earlier download", Source.peer("c"), tracker.source(reference, "f"));
+        assertEquals(peer, tracker.source(reference, "g").type());
+        assertEquals(peer, tracker.source(reference, "h").type());
+        assertEquals(busy, tracker.source(reference, "i").type());
+    }
+
+    @Test
+    public void downloads_and_holders_expire() {
+        tracker.source(reference, "a");
+        tracker.source(reference, "b");
+        assertEquals(busy, tracker.source(reference, "c").type());
+        clock.advance(Duration.ofMinutes(6));
+        assertEquals(Source.server(), tracker.source(reference, "c"));
+
+        tracker.downloaded(reference, "c");
+        assertEquals(Source.peer("c"), tracker.source(reference, "d"));
+        clock.advance(Duration.ofMinutes(61));
+        assertEquals(Source.server(), tracker.source(reference, "d"));
+        assertEquals(1, tracker.downloads(reference));
+    }
+
+    @Test
+    public void holders_serve_only_to_nodes_told_to_download_from_them() {
+        tracker.downloaded(reference, "tcp/10.0.0.1:19090");
+        assertEquals(Source.peer("tcp/10.0.0.1:19090"), tracker.source(reference, "tcp/10.0.0.2:19090"));
+        assertTrue(tracker.isSourceFor(reference, "tcp/10.0.0.1:19090", "10.0.0.2"));
+        assertFalse(tracker.isSourceFor(reference, "tcp/10.0.0.1:19090", "10.0.0.3"));
+        assertFalse(tracker.isSourceFor(reference, "tcp/10.0.0.3:19090", "10.0.0.2"));
+        assertFalse(tracker.isSourceFor(new FileReference("other"), "tcp/10.0.0.1:19090", "10.0.0.2"));
+
+        tracker.downloaded(reference, "tcp/10.0.0.2:19090");
+        assertFalse("Download is complete", tracker.isSourceFor(reference, "tcp/10.0.0.1:19090", "10.0.0.2"));
+    }
+
+    @Test
+    public void nodes_with_the_file_reference_grow_exponentially() {
+        FilePeerTracker tracker = new FilePeerTracker(4, Duration.ofMinutes(5), Duration.ofHours(1), clock);
+        List<String> waiting = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            waiting.add("node" + i);
+
+        int rounds = 0;
+        while ( ! waiting.isEmpty()) {
+            rounds++;
+            List<String> downloading = new ArrayList<>();
+            for (String node : List.copyOf(waiting))
+                if (tracker.source(reference, node).type() != busy) {
+                    downloading.add(node);
+                    waiting.remove(node);
+                }
+            downloading.forEach(node -> tracker.downloaded(reference, node));
+        }
+        assertEquals(server, tracker.source(new FileReference("other"), "node0").type());
+        assertEquals(peer, tracker.source(reference, "node1000").type());
+        assertEquals(5, rounds); // 4, 24, 124, 624 and 1000 nodes have it after each round
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.ofEpochMilli(0);
+
+        void advance(Duration duration) { now = now.plus(duration); }
+
+        @Override
+        public ZoneId getZone() { return ZoneOffset.UTC; }
+
+        @Override
+        public Clock withZone(ZoneId zone) { return this; }
+
+        @Override
+        public Instant instant() { return now; }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.config.subscription.ConfigSourceSet;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Transport;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PeerDownloadsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Supervisor server = new Supervisor(new Transport("server"));
+    private final Supervisor peer = new Supervisor(new Transport("peer"));
+    private final Supervisor client = new Supervisor(new Transport("client"));
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final FileReference reference = new FileReference("ref");
+    private File clientDirectory;
+    private PeerFileServer peerFileServer;
+    private FileDownloader downloader;
+
+    @After
+    public void shutdown() {
+        if (downloader != null) downloader.close();
+        if (peerFileServer != null) peerFileServer.close();
+        server.transport().shutdown().join();
+        peer.transport().shutdown().join();
+    }
+
+    @Test
+    public void file_reference_is_downloaded_from_peer() throws IOException, ListenFailedException, InterruptedException {
+        File peerDirectory = createPeer();
+        int serverPort = startServer(FileReferenceDigest.sha256(new File(peerDirectory, "ref/app")), true);
+
+        Optional<File> file = download(serverPort, Duration.ofSeconds(30));
+        assertTrue(file.isPresent());
+        assertEquals("<services/>", Files.readString(new File(file.get(), "services.xml").toPath()));
+
+        // The config server is told about the download after the transfer is complete
+        for (int i = 0; i < 100 && calls.size() < 3; i++)
+            Thread.sleep(100);
+        assertEquals(List.of(FilePeerTracker.GET_FILE_SOURCE_METHOD + " tcp/client-host:19090",
+                             FilePeerTracker.VERIFY_FILE_SOURCE_METHOD + " tcp/peer-host:19090",
+                             FilePeerTracker.FILE_DOWNLOADED_METHOD + " ref"),
+                     calls);
+    }
+
+    @Test
+    public void file_reference_which_differs_from_config_servers_copy_is_rejected() throws IOException, ListenFailedException {
+        createPeer();
+        int serverPort = startServer(FileReferenceDigest.sha256(temporaryFolder.newFile("other")), true);
+
+        assertTrue(download(serverPort, Duration.ofSeconds(2)).isEmpty());
+        assertTrue(calls.contains(FilePeerTracker.VERIFY_FILE_SOURCE_METHOD + " tcp/peer-host:19090"));
+        assertTrue(calls.contains("filedistribution.serveFile"));
+        assertFalse(calls.contains(FilePeerTracker.FILE_DOWNLOADED_METHOD + " ref"));
+        assertFalse(new File(clientDirectory, "ref").exists());
+    }
+
+    @Test
+    public void file_reference_is_not_served_to_nodes_which_were_not_told_to_download_it_from_peer() throws IOException, ListenFailedException {
+        File peerDirectory = createPeer();
+        int serverPort = startServer(FileReferenceDigest.sha256(new File(peerDirectory, "ref/app")), false);
+
+        assertTrue(download(serverPort, Duration.ofSeconds(2)).isEmpty());
+        assertTrue(calls.contains(FilePeerTracker.VERIFY_FILE_SOURCE_METHOD + " tcp/peer-host:19090"));
+        assertTrue(calls.contains("filedistribution.serveFile"));
+        assertFalse(new File(clientDirectory, "ref").exists());
+    }
+
+    private File createPeer() throws IOException {
+        File peerDirectory = temporaryFolder.newFolder("peer");
+        Files.createDirectories(new File(peerDirectory, "ref/app").toPath());
+        Files.writeString(new File(peerDirectory, "ref/app/services.xml").toPath(), "<services/>");
+        return peerDirectory;
+    }
+
+    // Config server which tells clients to download from the peer, and does not have the file reference itself
+    private int startServer(String digest, boolean isSource) throws ListenFailedException {
+        int peerPort = peer.listen(new Spec(0)).port();
+        server.addMethod(new Method(FilePeerTracker.GET_FILE_SOURCE_METHOD, "ss", "iss", request -> {
+            calls.add(request.methodName() + " " + request.parameters().get(1).asString());
+            request.returnValues().add(new Int32Value(FilePeerTracker.SourceType.peer.ordinal()));
+            request.returnValues().add(new StringValue(new Spec("localhost", peerPort).toString()));
+            request.returnValues().add(new StringValue(digest));
+        }));
+        server.addMethod(new Method(FilePeerTracker.VERIFY_FILE_SOURCE_METHOD, "sss", "i", request -> {
+            calls.add(request.methodName() + " " + request.parameters().get(1).asString());
+            request.returnValues().add(new Int32Value(isSource ? 1 : 0));
+        }));
+        server.addMethod(new Method(FilePeerTracker.FILE_DOWNLOADED_METHOD, "ss", "i", request -> {
+            if (request.parameters().get(1).asString().equals("tcp/client-host:19090"))
+                calls.add(request.methodName() + " " + request.parameters().get(0).asString());
+            request.returnValues().add(new Int32Value(0));
+        }));
+        server.addMethod(new Method("filedistribution.serveFile", "si*", "is", request -> {
+            calls.add(request.methodName());
+            request.returnValues().add(new Int32Value(FileApiErrorCodes.NOT_FOUND.code()));
+            request.returnValues().add(new StringValue(FileApiErrorCodes.NOT_FOUND.description()));
+        }));
+        int serverPort = server.listen(new Spec(0)).port();
+
+        // The peer has told the config server it has the file reference, and verifies requests with that config server
+        PeerDownloads peerDownloads = new PeerDownloads(peer, new Spec("peer-host", 19090));
+        peerDownloads.downloaded(reference, new FileDistributionConnectionPool(configServer(serverPort), peer).getCurrent());
+        peerFileServer = new PeerFileServer(peer, new File(temporaryFolder.getRoot(), "peer"), peerDownloads, 2);
+        return serverPort;
+    }
+
+    private Optional<File> download(int serverPort, Duration timeout) throws IOException {
+        clientDirectory = temporaryFolder.newFolder("client");
+        downloader = new FileDownloader(new FileDistributionConnectionPool(configServer(serverPort), client),
+                                        client, clientDirectory, timeout, Duration.ofMillis(100));
+        downloader.enablePeerDownloads(new Spec("client-host", 19090));
+        return downloader.getFile(new FileReferenceDownload(reference, "test"));
+    }
+
+    private static ConfigSourceSet configServer(int port) {
+        return new ConfigSourceSet("tcp/localhost:" + port);
+    }
+
+}
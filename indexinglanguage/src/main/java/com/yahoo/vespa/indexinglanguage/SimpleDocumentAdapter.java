@@ -5,6 +5,7 @@ import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
+import com.yahoo.document.FieldPathEntry;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
 import com.yahoo.vespa.indexinglanguage.expressions.VerificationException;
@@ -56,6 +57,8 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
 
     @Override
     public FieldValue getInputValue(FieldPath fieldPath) {
+        if (fieldPath.size() == 1 && fieldPath.get(0).getType() == FieldPathEntry.Type.STRUCT_FIELD)
+            return input.getFieldValue(fieldPath.get(0).getFieldRef()); // Same as below, but without iterating
         try {
             return input.getRecursiveValue(fieldPath);
         } catch (IllegalArgumentException e) {
@@ -87,4 +90,11 @@ public class SimpleDocumentAdapter implements DocumentAdapter {
         return this;
     }
 
+    /** Sets the given field directly, without looking it up by name. The field must be a field of the output document type. */
+    @Override
+    public SimpleDocumentAdapter setOutputValue(Expression exp, Field field, FieldValue fieldValue) {
+        output.setFieldValue(field, fieldValue);
+        return this;
+    }
+
 }
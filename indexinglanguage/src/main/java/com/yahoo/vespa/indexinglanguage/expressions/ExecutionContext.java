@@ -2,6 +2,7 @@
 package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.collections.LazyMap;
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.language.Language;
@@ -59,6 +60,11 @@ public class ExecutionContext {
         return this;
     }
 
+    public ExecutionContext setFieldValue(Field field, FieldValue fieldValue, Expression expression) {
+        this.fieldValue.setOutputValue(expression, field, fieldValue);
+        return this;
+    }
+
     public FieldValueAdapter getFieldValue() { return fieldValue; }
 
     public FieldValue getVariable(String name) {
@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.indexinglanguage.expressions;
 
+import com.yahoo.document.Field;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldValue;
 
@@ -14,6 +15,11 @@ public interface FieldValueAdapter extends FieldTypeAdapter {
 
     FieldValueAdapter setOutputValue(Expression expression, String fieldName, FieldValue fieldValue);
 
+    /** Sets an output value of a field resolved in advance from the document type of the output of this. */
+    default FieldValueAdapter setOutputValue(Expression expression, Field field, FieldValue fieldValue) {
+        return setOutputValue(expression, field.getName(), fieldValue);
+    }
+
     /** Returns true if this has values for all possibly existing inputs, or represents a partial set of values. */
     boolean isComplete();
 
@@ -2,6 +2,8 @@
 package com.yahoo.vespa.indexinglanguage.expressions;
 
 import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
 import com.yahoo.vespa.objects.ObjectOperation;
 import com.yahoo.vespa.objects.ObjectPredicate;
 
@@ -15,6 +17,7 @@ public abstract class OutputExpression extends Expression {
 
     private final String image;
     private final String fieldName;
+    private Field field;
 
     public OutputExpression(String image, String fieldName) {
         super(UnresolvedDataType.INSTANCE);
@@ -42,7 +45,10 @@ public abstract class OutputExpression extends Expression {
 
     @Override
     protected void doExecute(ExecutionContext context) {
-        context.setFieldValue(fieldName, context.getCurrentValue(), this);
+        if (field != null)
+            context.setFieldValue(field, context.getCurrentValue(), this);
+        else
+            context.setFieldValue(fieldName, context.getCurrentValue(), this);
     }
 
     @Override
@@ -70,6 +76,28 @@ public abstract class OutputExpression extends Expression {
         return getClass().hashCode() + (fieldName != null ? fieldName.hashCode() : 0);
     }
 
+    /** Resolves the fields written by output expressions in advance, for scripts which write to documents of the given type. */
+    public static class FieldOptimizer implements ObjectOperation, ObjectPredicate {
+
+        private final DocumentType documentType;
+
+        public FieldOptimizer(DocumentType documentType) {
+            this.documentType = documentType;
+        }
+
+        @Override
+        public void execute(Object obj) {
+            OutputExpression exp = (OutputExpression) obj;
+            exp.field = documentType.getField(exp.getFieldName());
+        }
+
+        @Override
+        public boolean check(Object obj) {
+            return obj instanceof OutputExpression;
+        }
+
+    }
+
     public static class OutputFieldNameExtractor implements ObjectOperation, ObjectPredicate {
 
         private final List<String> outputFieldNames = new ArrayList<>(1);
@@ -0,0 +1,93 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.indexinglanguage;
+
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.vespa.indexinglanguage.expressions.InputExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.OutputExpression;
+import com.yahoo.vespa.indexinglanguage.expressions.ScriptExpression;
+import com.yahoo.vespa.indexinglanguage.parser.ParseException;
+
+/**
+ * Measures the wall clock time per document of executing a typical indexing script in a single thread,
+ * like the indexing docproc does, both as parsed, and with its field references bound to the document type
+ * in advance, as the docproc does.
+ * Run with the main method; this is not a unit test.
+ */
+public class IndexingScriptBenchmark {
+
+    private static final String script =
+            "{ input title | lowercase | summary title_lc | attribute title_lc; }" +
+            "{ input title | summary title; }" +
+            "{ input body | summary body; }" +
+            "{ input title . \" \" . input body | set_var all; }" +
+            "{ get_var all | lowercase | summary all; }" +
+            "{ input year | attribute year; }" +
+            "{ input year | to_string | summary year_string; }" +
+            "{ input tags | for_each { lowercase } | attribute tags; }" +
+            "{ input category | lowercase | set_var category; }" +
+            "{ get_var category | attribute category; }";
+
+    private static final int documents = 5_000_000;
+
+    public static void main(String[] args) throws ParseException {
+        DocumentType type = new DocumentType("benchmark");
+        type.addField("title", DataType.STRING);
+        type.addField("title_lc", DataType.STRING);
+        type.addField("body", DataType.STRING);
+        type.addField("all", DataType.STRING);
+        type.addField("year", DataType.INT);
+        type.addField("year_string", DataType.STRING);
+        type.addField("tags", new ArrayDataType(DataType.STRING));
+        type.addField("category", DataType.STRING);
+
+        ScriptExpression unbound = ScriptExpression.fromString(script);
+        unbound.verify(type);
+
+        ScriptExpression bound = ScriptExpression.fromString(script);
+        InputExpression.FieldPathOptimizer fieldPathOptimizer = new InputExpression.FieldPathOptimizer(type);
+        bound.select(fieldPathOptimizer, fieldPathOptimizer);
+        OutputExpression.FieldOptimizer fieldOptimizer = new OutputExpression.FieldOptimizer(type);
+        bound.select(fieldOptimizer, fieldOptimizer);
+        bound.verify(type);
+
+        for (int i = 0; i < 5; i++) {
+            run("unbound", unbound, type, i == 4);
+            run("bound  ", bound, type, i == 4);
+        }
+    }
+
+    private static void run(String name, ScriptExpression expression, DocumentType type, boolean print) {
+        Document[] inputs = new Document[1024];
+        for (int i = 0; i < inputs.length; i++)
+            inputs[i] = createDocument(type, i);
+        SimpleAdapterFactory adapterFactory = new SimpleAdapterFactory();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < documents; i++)
+            expression.execute(adapterFactory, inputs[i & 1023]);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (print)
+            System.out.printf("%s: %,10.0f documents/s, %6.0f ns/document%n", name,
+                              documents * 1e9 / elapsedNanos, elapsedNanos / (double) documents);
+    }
+
+    private static Document createDocument(DocumentType type, int i) {
+        Document document = new Document(type, "id:test:benchmark::" + i);
+        document.setFieldValue("title", new StringFieldValue("The Title of Document " + i));
+        document.setFieldValue("body", new StringFieldValue("Some Body text which is somewhat longer than the title."));
+        document.setFieldValue("year", new IntegerFieldValue(1970 + (i & 63)));
+        Array<StringFieldValue> tags = new Array<>(type.getField("tags").getDataType());
+        tags.add(new StringFieldValue("Red"));
+        tags.add(new StringFieldValue("Green"));
+        tags.add(new StringFieldValue("Blue"));
+        document.setFieldValue("tags", tags);
+        document.setFieldValue("category", new StringFieldValue("Books"));
+        return document;
+    }
+
+}
@@ -236,4 +236,26 @@ public class ScriptTestCase {
         assertEquals(13.0f, ((FloatFieldValue)adapter.values.get("myFloat")).getFloat(), 0.000001);
     }
 
+    @Test
+    public void requireThatScriptBoundToDocumentTypeProducesSameOutput() throws ParseException {
+        String script = "{ input in-1 | lowercase | attribute out-1; input in-2 | summary out-2; }";
+        Expression unbound = Expression.fromString(script);
+        Expression bound = Expression.fromString(script);
+        InputExpression.FieldPathOptimizer fieldPathOptimizer = new InputExpression.FieldPathOptimizer(type);
+        bound.select(fieldPathOptimizer, fieldPathOptimizer);
+        OutputExpression.FieldOptimizer fieldOptimizer = new OutputExpression.FieldOptimizer(type);
+        bound.select(fieldOptimizer, fieldOptimizer);
+        unbound.verify(type);
+        bound.verify(type);
+
+        Document input = new Document(type, "id:scheme:mytype::");
+        input.setFieldValue("in-1", new StringFieldValue("FOO"));
+        input.setFieldValue("in-2", new StringFieldValue("bar"));
+        Document expected = Expression.execute(unbound, input.clone());
+        Document actual = Expression.execute(bound, input.clone());
+        assertEquals(new StringFieldValue("foo"), actual.getFieldValue("out-1"));
+        assertEquals(new StringFieldValue("bar"), actual.getFieldValue("out-2"));
+        assertEquals(expected, actual);
+    }
+
 }
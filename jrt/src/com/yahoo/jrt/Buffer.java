@@ -6,6 +6,7 @@ import java.nio.ByteBuffer;
 
 
 class Buffer {
+    private final DirectBufferPool pool;
     private ByteBuffer buf;
     private int        readPos;
     private int        writePos;
@@ -55,18 +56,50 @@ class Buffer {
             if (buf.capacity() + free < minFree) {
                 size = buf.capacity() + minFree;
             }
-            ByteBuffer tmp = ByteBuffer.allocate(size);
+            ByteBuffer tmp = allocate(size);
             tmp.order(buf.order());
             buf.position(readPos);
             buf.limit(writePos);
             tmp.put(buf);
-            buf = tmp;
+            replace(tmp);
             readPos = 0;
         }
     }
 
+    private ByteBuffer allocate(int size) {
+        return (pool != null) ? pool.allocate(size) : ByteBuffer.allocate(size);
+    }
+
+    private void replace(ByteBuffer tmp) {
+        if (pool != null) {
+            pool.release(buf);
+        }
+        buf = tmp;
+    }
+
     public Buffer(int size) {
-        buf = ByteBuffer.allocate(size);
+        this(size, null);
+    }
+
+    /**
+     * Creates a buffer which allocates its backing storage from the given
+     * pool, and returns it there when replaced, or when this is released.
+     * Heap buffers are used if the pool is null.
+     **/
+    public Buffer(int size, DirectBufferPool pool) {
+        this.pool = pool;
+        buf = allocate(size);
+        readPos = 0;
+        writePos = 0;
+        readMode = false;
+    }
+
+    /**
+     * Returns the backing storage of this to its pool, and replaces it
+     * with an empty buffer. Any content of this buffer is discarded.
+     **/
+    public void release() {
+        replace(ByteBuffer.allocate(0));
         readPos = 0;
         writePos = 0;
         readMode = false;
@@ -76,15 +109,15 @@ class Buffer {
         int rpos = readMode? buf.position() : readPos;
         int wpos = readMode? writePos : buf.position();
         int used = wpos - rpos;
-        if (used > size || buf.capacity() <= size) {
+        if (used > size || buf.capacity() <= ((pool != null) ? pool.capacityFor(size) : size)) {
             return false;
         }
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = allocate(size);
         tmp.order(buf.order());
         buf.position(rpos);
         buf.limit(wpos);
         tmp.put(buf);
-        buf = tmp;
+        replace(tmp);
         readPos = 0;
         writePos = used;
         buf.position(readMode? readPos : writePos);
@@ -34,8 +34,9 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(0); // Start off with empty buffer.
-    private final Buffer output  = new Buffer(0); // Start off with empty buffer.
+    private final Buffer input;
+    private final Buffer output;
+    private final OutputSegments segments;
     private final int maxInputSize;
     private final int maxOutputSize;
     private final boolean dropEmptyBuffers;
@@ -53,6 +54,7 @@ class Connection extends Target {
     private final AtomicLong requestId = new AtomicLong(0);
     private SelectionKey selectionKey;
     private Exception lostReason = null;
+    private final TransportMetrics metrics = TransportMetrics.getInstance();
 
     private void setState(int state) {
         if (state <= this.state) {
@@ -92,6 +94,10 @@ class Connection extends Target {
         this.socket = parent.transport().createServerCryptoSocket(channel);
         this.spec = null;
         this.tcpNoDelay = tcpNoDelay;
+        DirectBufferPool pool = owner.getUseDirectBuffers() ? DirectBufferPool.getInstance() : null;
+        input = new Buffer(0, pool); // Start off with empty buffer.
+        output = new Buffer(0, pool); // Start off with empty buffer.
+        segments = (pool != null) ? new OutputSegments() : null;
         maxInputSize = owner.getMaxInputBufferSize();
         maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
@@ -104,6 +110,10 @@ class Connection extends Target {
         this.owner = owner;
         this.spec = spec;
         this.tcpNoDelay = tcpNoDelay;
+        DirectBufferPool pool = owner.getUseDirectBuffers() ? DirectBufferPool.getInstance() : null;
+        input = new Buffer(0, pool); // Start off with empty buffer.
+        output = new Buffer(0, pool); // Start off with empty buffer.
+        segments = (pool != null) ? new OutputSegments() : null;
         maxInputSize = owner.getMaxInputBufferSize();
         maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
@@ -320,28 +330,13 @@ class Connection extends Target {
         synchronized (this) {
             queue.flush(myQueue);
         }
-        for (int i = 0; i < WRITE_REDO; i++) {
-            while (output.bytes() < WRITE_SIZE) {
-                Packet packet = (Packet) myQueue.dequeue();
-                if (packet == null) {
-                    break;
-                }
-                PacketInfo info = packet.getPacketInfo();
-                ByteBuffer wb = output.getWritable(info.packetLength());
-                owner.writePacket(info);
-                info.encodePacket(packet, wb);
-            }
-            ByteBuffer rb = output.getReadable();
-            if (rb.remaining() == 0) {
-                break;
-            }
-            socket.write(rb);
-            if (rb.remaining() > 0) {
-                break;
-            }
+        if (segments != null) {
+            writeSegments();
+        } else {
+            writeBuffer();
         }
         int myWriteWork = 0;
-        if (output.bytes() > 0) {
+        if (output.bytes() > 0 || (segments != null && segments.hasRemaining())) {
             myWriteWork++;
         }
         if (socket.flush() == CryptoSocket.FlushResult.NEED_WRITE) {
@@ -357,6 +352,9 @@ class Connection extends Target {
         if (disableWrite) {
             disableWrite();
         }
+        if (segments != null && segments.hasRemaining()) {
+            return; // the output buffer is still referenced by the segments
+        }
         if (dropEmptyBuffers) {
             socket.dropEmptyBuffers();
             output.shrink(0);
@@ -366,6 +364,67 @@ class Connection extends Target {
         }
     }
 
+    private void writeBuffer() throws IOException {
+        for (int i = 0; i < WRITE_REDO; i++) {
+            while (output.bytes() < WRITE_SIZE) {
+                Packet packet = (Packet) myQueue.dequeue();
+                if (packet == null) {
+                    break;
+                }
+                PacketInfo info = packet.getPacketInfo();
+                ByteBuffer wb = output.getWritable(info.packetLength());
+                owner.writePacket(info);
+                info.encodePacket(packet, wb);
+            }
+            ByteBuffer rb = output.getReadable();
+            if (rb.remaining() == 0) {
+                break;
+            }
+            socket.write(rb);
+            if (rb.remaining() > 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Writes packets with their large data values as separate
+     * segments, gathered with the rest of the packets in the output
+     * buffer. The output buffer must not change while segments
+     * referring to it remain to be written, so no more packets are
+     * encoded until all segments are written.
+     **/
+    private void writeSegments() throws IOException {
+        for (int i = 0; i < WRITE_REDO; i++) {
+            if ( ! segments.hasRemaining()) {
+                int inlineBytes = 0;
+                while (inlineBytes < WRITE_SIZE) {
+                    Packet packet = (Packet) myQueue.dequeue();
+                    if (packet == null) {
+                        break;
+                    }
+                    PacketInfo info = packet.getPacketInfo();
+                    int packetBytes = info.packetLength() - packet.segmentedBytes();
+                    ByteBuffer wb = output.getWritable(packetBytes);
+                    owner.writePacket(info);
+                    info.encodePacket(packet, wb, segments);
+                    inlineBytes += packetBytes;
+                }
+                ByteBuffer rb = output.getReadable();
+                if (rb.remaining() == 0) {
+                    break;
+                }
+                metrics.addGatheredPayloadBytes(segments.complete(rb));
+            }
+            segments.write(socket);
+            if (segments.hasRemaining()) {
+                break;
+            }
+            ByteBuffer rb = output.getReadable();
+            rb.position(rb.limit());
+        }
+    }
+
     public void handleWriteEvent() throws IOException {
         if (state == CONNECTED) {
             write();
@@ -381,6 +440,8 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        input.release();
+        output.release();
     }
 
     public boolean isClosed() {
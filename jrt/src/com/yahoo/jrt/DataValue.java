@@ -41,6 +41,15 @@ public class DataValue extends Value
         dst.putInt(value.length);
         dst.put(value);
     }
+    @Override
+    void encode(ByteBuffer dst, OutputSegments segments) {
+        if (value.length < OutputSegments.MIN_SEGMENT_SIZE) {
+            encode(dst);
+            return;
+        }
+        dst.putInt(value.length);
+        segments.add(dst.position(), value);
+    }
 
     public byte[] asData() { return value; }
 
@@ -0,0 +1,85 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+/**
+ * A pool of direct byte buffers in power-of-two size classes, shared by the connections which
+ * use direct buffers for their input and output. Direct buffers are expensive to allocate, and
+ * are only freed when garbage collected, so they are returned here when a connection replaces
+ * or no longer needs one. Buffers outside the size classes are neither allocated nor pooled here.
+ **/
+class DirectBufferPool {
+
+    private static final int MIN_SHIFT = 12; // 4 KiB
+    private static final int MAX_SHIFT = 24; // 16 MiB
+    private static final int BUFFERS_PER_CLASS = 32;
+
+    private static final DirectBufferPool instance = new DirectBufferPool();
+
+    private final TransportMetrics metrics = TransportMetrics.getInstance();
+    private final List<ArrayBlockingQueue<ByteBuffer>> queues = new ArrayList<>();
+
+    private DirectBufferPool() {
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            queues.add(new ArrayBlockingQueue<>(BUFFERS_PER_CLASS));
+        }
+    }
+
+    static DirectBufferPool getInstance() { return instance; }
+
+    /**
+     * Returns a cleared buffer with at least the given capacity. This is a direct buffer from
+     * this pool unless the size is 0, or larger than the largest size class.
+     **/
+    ByteBuffer allocate(int minSize) {
+        int shift = shiftFor(minSize);
+        if (minSize == 0 || shift > MAX_SHIFT) {
+            return ByteBuffer.allocate(minSize);
+        }
+        ByteBuffer buf = queues.get(shift - MIN_SHIFT).poll();
+        if (buf != null) {
+            metrics.incrementDirectBufferReuses();
+            return buf.clear().order(ByteOrder.BIG_ENDIAN);
+        }
+        metrics.incrementDirectBufferAllocations(1L << shift);
+        return ByteBuffer.allocateDirect(1 << shift);
+    }
+
+    /** Returns the capacity of a buffer allocated with the given minimum size. */
+    int capacityFor(int minSize) {
+        int shift = shiftFor(minSize);
+        return (minSize == 0 || shift > MAX_SHIFT) ? minSize : 1 << shift;
+    }
+
+    private static int shiftFor(int minSize) {
+        return Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(minSize - 1));
+    }
+
+    /** Returns the given buffer to this pool, if it is a direct buffer allocated here. */
+    void release(ByteBuffer buf) {
+        if ( ! buf.isDirect() || Integer.bitCount(buf.capacity()) != 1) {
+            return;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(buf.capacity());
+        if (shift < MIN_SHIFT || shift > MAX_SHIFT) {
+            return;
+        }
+        queues.get(shift - MIN_SHIFT).offer(buf);
+    }
+
+    /** Returns the number of buffers currently in this pool. */
+    int size() {
+        int size = 0;
+        for (ArrayBlockingQueue<ByteBuffer> queue : queues) {
+            size += queue.size();
+        }
+        return size;
+    }
+}
@@ -29,9 +29,21 @@ class InvocationServer {
     }
 
     public void invoke() {
+        invoke(null);
+    }
+
+    /**
+     * Invokes the method, on a thread from the given dispatcher, if
+     * not null, or on the calling thread otherwise.
+     **/
+    void invoke(MethodDispatcher dispatcher) {
         if (method != null) {
             if (method.checkParameters(request)) {
                 if (method.requestAccessFilter().allow(request)) {
+                    if (dispatcher != null) {
+                        dispatch(dispatcher);
+                        return;
+                    }
                     method.invoke(request);
                 } else {
                     request.setError(ErrorCode.PERMISSION_DENIED, "Permission denied");
@@ -47,6 +59,30 @@ class InvocationServer {
         }
     }
 
+    private void dispatch(MethodDispatcher dispatcher) {
+        if ( ! method.tryStartInvocation()) {
+            request.setError(ErrorCode.OVERLOAD, "Already running " + method.maxConcurrency() + " invocations of " + method.name());
+            returnRequest();
+            return;
+        }
+        try {
+            dispatcher.dispatch(() -> {
+                try {
+                    method.invoke(request);
+                } finally {
+                    method.invocationDone();
+                }
+                if (!request.isDetached()) {
+                    returnRequest();
+                }
+            });
+        } catch (RuntimeException | OutOfMemoryError e) { // thread creation failed
+            method.invocationDone();
+            request.setError(ErrorCode.OVERLOAD, "Could not start invocation of " + method.name() + ": " + e);
+            returnRequest();
+        }
+    }
+
     public void returnRequest() {
         if (!conn.completeRequest(done)) {
             throw new IllegalStateException("Request already returned");
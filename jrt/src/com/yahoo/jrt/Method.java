@@ -6,6 +6,7 @@ import com.yahoo.security.tls.Capability;
 import com.yahoo.security.tls.CapabilitySet;
 
 import java.util.Objects;
+import java.util.concurrent.Semaphore;
 
 /**
  * <p>A Method encapsulates the reflective information about a single RPC
@@ -50,6 +51,9 @@ public class Method {
 
     private static final String undocumented = "???";
 
+    private Semaphore invocations = null;
+    private int maxConcurrency = 0;
+
 
     private void init(String name, String paramTypes, String returnTypes) {
         this.name = name;
@@ -163,6 +167,36 @@ public class Method {
 
     public RequestAccessFilter requestAccessFilter() { return filter; }
 
+    /**
+     * Limits the number of invocations of this method which may run
+     * at the same time, when invocations are run on threads of their
+     * own; see {@link Supervisor#setUseVirtualThreads}. Invocations
+     * beyond the limit fail with {@link ErrorCode#OVERLOAD}.
+     *
+     * @param maxConcurrency the max number of concurrent invocations, or 0 for no limit
+     * @return this Method, to allow chaining
+     **/
+    public Method maxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 0) throw new IllegalArgumentException("Max concurrency must be non-negative, but got " + maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.invocations = (maxConcurrency > 0) ? new Semaphore(maxConcurrency) : null;
+        return this;
+    }
+
+    int maxConcurrency() { return maxConcurrency; }
+
+    /** Reserves room for one more concurrent invocation, and returns whether there was room. */
+    boolean tryStartInvocation() {
+        return invocations == null || invocations.tryAcquire();
+    }
+
+    /** Releases the room reserved by {@link #tryStartInvocation}. */
+    void invocationDone() {
+        if (invocations != null) {
+            invocations.release();
+        }
+    }
+
     /**
      * Obtain the name of a parameter
      *
@@ -0,0 +1,34 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.concurrent.ThreadFactoryFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs method invocations on a new thread each, instead of on the
+ * transport thread. Threads are virtual when the running JVM
+ * provides virtual threads, and daemon platform threads otherwise.
+ *
+ * @see Supervisor#setUseVirtualThreads
+ **/
+class MethodDispatcher {
+
+    private final ThreadFactory threadFactory;
+
+    MethodDispatcher(String name) {
+        threadFactory = ThreadFactoryFactory.getVirtualThreadFactory(name).orElseGet(() -> new DaemonThreadFactory(name));
+    }
+
+    /** Starts a new thread running the given invocation. */
+    void dispatch(Runnable invocation) {
+        threadFactory.newThread(invocation).start();
+    }
+
+    /** Returns whether this runs invocations on virtual threads. */
+    boolean isVirtual() {
+        return ! (threadFactory instanceof DaemonThreadFactory);
+    }
+
+}
@@ -0,0 +1,118 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Packets encoded for a gathering write, where large data values are
+ * not copied into the output buffer, but written straight from their
+ * arrays, between the ranges of the output buffer holding the
+ * remaining parts of the packets. Positions in the output buffer are
+ * recorded while encoding, and turned into buffer views only when
+ * all packets are encoded, since the output buffer may be replaced
+ * by a larger one as it grows.
+ **/
+class OutputSegments {
+
+    /** Data values at least this large are written straight from their arrays. */
+    static final int MIN_SEGMENT_SIZE = 8 * 1024;
+
+    private final List<Integer> splits = new ArrayList<>();
+    private final List<byte[]> payloads = new ArrayList<>();
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    private int first = 0;
+    private int count = 0;
+
+    /**
+     * Returns the number of bytes of the given values which will not
+     * be encoded into the output buffer.
+     **/
+    static int segmentedBytes(Values values) {
+        int bytes = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) instanceof DataValue data && data.asData().length >= MIN_SEGMENT_SIZE) {
+                bytes += data.asData().length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Records that the given payload follows the content of the output
+     * buffer up to the given position.
+     **/
+    void add(int position, byte[] payload) {
+        splits.add(position);
+        payloads.add(payload);
+    }
+
+    /** Returns a mark to {@link #truncate} to, to discard segments added after this. */
+    int mark() {
+        return splits.size();
+    }
+
+    /** Discards the segments added after the given mark. */
+    void truncate(int mark) {
+        while (splits.size() > mark) {
+            payloads.remove(payloads.size() - 1);
+            splits.remove(splits.size() - 1);
+        }
+    }
+
+    /**
+     * Completes the encoding of packets, given the readable content of
+     * the output buffer, and prepares the segments for writing.
+     *
+     * @return the total size of the payloads written from their arrays
+     **/
+    long complete(ByteBuffer output) {
+        int start = output.position();
+        int end = output.limit();
+        List<ByteBuffer> list = new ArrayList<>(2 * splits.size() + 1);
+        int pos = start;
+        long payloadBytes = 0;
+        for (int i = 0; i < splits.size(); i++) {
+            if (splits.get(i) > pos) {
+                list.add(view(output, pos, splits.get(i)));
+            }
+            list.add(ByteBuffer.wrap(payloads.get(i)));
+            payloadBytes += payloads.get(i).length;
+            pos = splits.get(i);
+        }
+        if (end > pos) {
+            list.add(view(output, pos, end));
+        }
+        segments = list.toArray(segments);
+        first = 0;
+        count = list.size();
+        splits.clear();
+        payloads.clear();
+        return payloadBytes;
+    }
+
+    private static ByteBuffer view(ByteBuffer output, int start, int end) {
+        ByteBuffer view = output.duplicate();
+        view.limit(end);
+        view.position(start);
+        return view;
+    }
+
+    /** Writes as much as possible of the prepared segments to the given socket. */
+    long write(CryptoSocket socket) throws IOException {
+        long written = socket.write(segments, first, count - first);
+        while (first < count && ! segments[first].hasRemaining()) {
+            segments[first++] = null;
+        }
+        return written;
+    }
+
+    /** Returns whether there are prepared segments not yet written. */
+    boolean hasRemaining() {
+        return first < count;
+    }
+}
@@ -44,6 +44,19 @@ abstract class Packet
     public abstract int packetCode();
     public abstract void encode(ByteBuffer dst);
 
+    /**
+     * Encodes this packet, except for large payloads, which are added to the given segments.
+     * Packets without such payloads encode everything into the given buffer.
+     */
+    void encode(ByteBuffer dst, OutputSegments segments) {
+        encode(dst);
+    }
+
+    /** Returns the number of bytes of this which are added to segments, rather than encoded into the buffer. */
+    int segmentedBytes() {
+        return 0;
+    }
+
     public PacketInfo getPacketInfo() {
         return new PacketInfo(bytes(), flags, packetCode(), requestId);
     }
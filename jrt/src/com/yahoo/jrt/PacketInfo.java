@@ -85,9 +85,18 @@ class PacketInfo
     }
 
     public void encodePacket(Packet packet, ByteBuffer dst) {
+        encodePacket(packet, dst, null);
+    }
+
+    /**
+     * Encodes the given packet into the given buffer, except for any large
+     * payloads, which are added to the given segments, if not null.
+     **/
+    void encodePacket(Packet packet, ByteBuffer dst, OutputSegments segments) {
         int pos = dst.position();
-        int end = pos + packetLength;
+        int end = pos + packetLength - ((segments != null) ? packet.segmentedBytes() : 0);
         int limit = dst.limit();
+        int mark = (segments != null) ? segments.mark() : 0;
         try {
             dst.limit(end);
             dst.putInt(packetLength - 4);
@@ -97,9 +106,16 @@ class PacketInfo
             if (reverseByteOrder()) {
                 dst.order(ByteOrder.LITTLE_ENDIAN);
             }
-            packet.encode(dst);
+            if (segments != null) {
+                packet.encode(dst, segments);
+            } else {
+                packet.encode(dst);
+            }
         } catch (RuntimeException e) {
             dst.position(pos);
+            if (segments != null) {
+                segments.truncate(mark);
+            }
             throw e;
         } finally {
             dst.order(ByteOrder.BIG_ENDIAN);
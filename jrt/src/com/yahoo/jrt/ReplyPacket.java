@@ -36,6 +36,16 @@ class ReplyPacket extends Packet
         returnValues.encode(dst);
     }
 
+    @Override
+    void encode(ByteBuffer dst, OutputSegments segments) {
+        returnValues.encode(dst, segments);
+    }
+
+    @Override
+    int segmentedBytes() {
+        return OutputSegments.segmentedBytes(returnValues);
+    }
+
     public Values returnValues() {
         return returnValues;
     }
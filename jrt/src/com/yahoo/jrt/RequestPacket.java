@@ -42,6 +42,17 @@ class RequestPacket extends Packet
         parameters.encode(dst);
     }
 
+    @Override
+    void encode(ByteBuffer dst, OutputSegments segments) {
+        methodName.encode(dst);
+        parameters.encode(dst, segments);
+    }
+
+    @Override
+    int segmentedBytes() {
+        return OutputSegments.segmentedBytes(parameters);
+    }
+
     public String methodName() {
         return methodName.asString();
     }
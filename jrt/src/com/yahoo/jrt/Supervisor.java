@@ -21,6 +21,8 @@ public class Supervisor {
     private int                     maxInputBufferSize  = 64*1024;
     private int                     maxOutputBufferSize = 64*1024;
     private boolean                 dropEmptyBuffers = false;
+    private boolean                 useDirectBuffers = false;
+    private MethodDispatcher        dispatcher = null;
 
     /**
      * Creates a new Supervisor based on the given {@link Transport}
@@ -46,6 +48,38 @@ public class Supervisor {
     }
     boolean getDropEmptyBuffers() { return dropEmptyBuffers; }
 
+    /**
+     * Makes connections use pooled direct buffers for input and
+     * output, and write large data values straight from their arrays,
+     * rather than copying them into the output buffer first. This
+     * reduces copying for connections carrying big payloads, at the
+     * cost of keeping a pool of direct buffers.
+     *
+     * @param value true means use direct buffers
+     */
+    public Supervisor setUseDirectBuffers(boolean value) {
+        useDirectBuffers = value;
+        return this;
+    }
+    boolean getUseDirectBuffers() { return useDirectBuffers; }
+
+    /**
+     * Makes invoked methods run on a new virtual thread each, rather
+     * than on the transport thread, so method handlers which block
+     * do not stall other connections. Platform threads are used if
+     * the JVM does not provide virtual threads. Requests on the same
+     * connection may then complete in any order. The number of
+     * concurrent invocations of each method may be limited with
+     * {@link Method#maxConcurrency}.
+     *
+     * @param value true means run each invocation on its own thread
+     */
+    public Supervisor setUseVirtualThreads(boolean value) {
+        dispatcher = value ? new MethodDispatcher(transport.getName() + ".jrt-method-") : null;
+        return this;
+    }
+    MethodDispatcher getDispatcher() { return dispatcher; }
+
     /**
      * Sets maximum input buffer size. This value will only affect
      * connections that use a common input buffer when decoding
@@ -193,7 +227,7 @@ public class Supervisor {
         Method method = methodMap().get(req.methodName());
         new InvocationServer(conn, req, method,
                              packet.requestId(),
-                             packet.noReply()).invoke();
+                             packet.noReply()).invoke(dispatcher);
     }
 
 }
@@ -26,6 +26,8 @@ public final class Transport {
     private final CryptoEngine      cryptoEngine;
     private final Connector         connector;
     private final Worker            worker;
+    private final List<Worker>      handshakeWorkers = new ArrayList<>();
+    private final AtomicInteger     handshakeCnt = new AtomicInteger(0);
     private final AtomicInteger     runCnt;
     private final boolean tcpNoDelay;
     private final int eventsBeforeWakeup;
@@ -45,8 +47,10 @@ public final class Transport {
      * @param cryptoEngine crypto engine to use
      * @param numThreads number of {@link TransportThread}s.
      * @param eventsBeforeWakeup number write events in Q before waking thread up
+     * @param numHandshakeWorkers number of threads doing handshake work, like TLS handshakes, for connections
      */
-    public Transport(String name, FatalErrorHandler fatalHandler, CryptoEngine cryptoEngine, int numThreads, boolean tcpNoDelay, int eventsBeforeWakeup) {
+    public Transport(String name, FatalErrorHandler fatalHandler, CryptoEngine cryptoEngine, int numThreads, boolean tcpNoDelay,
+                     int eventsBeforeWakeup, int numHandshakeWorkers) {
         this.name = name;
         this.fatalHandler = fatalHandler; // NB: this must be set first
         this.cryptoEngine = cryptoEngine;
@@ -54,11 +58,18 @@ public final class Transport {
         this.eventsBeforeWakeup = Math.max(1, eventsBeforeWakeup);
         connector = new Connector();
         worker = new Worker(this);
+        handshakeWorkers.add(worker);
+        for (int i = 1; i < numHandshakeWorkers; ++i) {
+            handshakeWorkers.add(new Worker(this, name + ".jrt-handshake-worker-" + i));
+        }
         runCnt = new AtomicInteger(numThreads);
         for (int i = 0; i < numThreads; ++i) {
             threads.add(new TransportThread(this, i));
         }
     }
+    public Transport(String name, FatalErrorHandler fatalHandler, CryptoEngine cryptoEngine, int numThreads, boolean tcpNoDelay, int eventsBeforeWakeup) {
+        this(name, fatalHandler, cryptoEngine, numThreads, tcpNoDelay, eventsBeforeWakeup, 1);
+    }
     public Transport(String name, CryptoEngine cryptoEngine, int numThreads, int eventsBeforeWakeup) {
         this(name, null, cryptoEngine, numThreads, true, eventsBeforeWakeup);
     }
@@ -169,7 +180,8 @@ public final class Transport {
      * @param conn the connection needing handshake work
      */
     void doHandshakeWork(Connection conn) {
-        worker.doHandshakeWork(conn);
+        int idx = Math.floorMod(handshakeCnt.getAndIncrement(), handshakeWorkers.size());
+        handshakeWorkers.get(idx).doHandshakeWork(conn);
     }
 
     /**
@@ -214,7 +226,12 @@ public final class Transport {
 
     void notifyDone(TransportThread self) {
         if (runCnt.decrementAndGet() == 0) {
-            worker.shutdown().join();
+            for (Worker w : handshakeWorkers) {
+                w.shutdown();
+            }
+            for (Worker w : handshakeWorkers) {
+                w.join();
+            }
             try { cryptoEngine.close(); } catch (Exception e) {}
         }
     }
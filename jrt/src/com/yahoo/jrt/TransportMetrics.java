@@ -19,6 +19,10 @@ public class TransportMetrics {
     private final AtomicLong clientTlsConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong serverUnencryptedConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong clientUnencryptedConnectionsEstablished = new AtomicLong(0);
+    private final AtomicLong directBufferAllocations = new AtomicLong(0);
+    private final AtomicLong directBufferBytesAllocated = new AtomicLong(0);
+    private final AtomicLong directBufferReuses = new AtomicLong(0);
+    private final AtomicLong gatheredPayloadBytes = new AtomicLong(0);
 
     private TransportMetrics() {}
 
@@ -48,6 +52,26 @@ public class TransportMetrics {
         return clientUnencryptedConnectionsEstablished.get();
     }
 
+    /** Returns the number of direct buffers allocated for connection input and output. */
+    public long directBufferAllocations() {
+        return directBufferAllocations.get();
+    }
+
+    /** Returns the total size of the direct buffers allocated for connection input and output. */
+    public long directBufferBytesAllocated() {
+        return directBufferBytesAllocated.get();
+    }
+
+    /** Returns the number of times a pooled direct buffer was reused instead of allocated. */
+    public long directBufferReuses() {
+        return directBufferReuses.get();
+    }
+
+    /** Returns the number of payload bytes written straight from their arrays, without copying them to the output buffer. */
+    public long gatheredPayloadBytes() {
+        return gatheredPayloadBytes.get();
+    }
+
     public Snapshot snapshot() { return new Snapshot(this); }
 
     void incrementTlsCertificateVerificationFailures() {
@@ -74,6 +98,19 @@ public class TransportMetrics {
         clientUnencryptedConnectionsEstablished.incrementAndGet();
     }
 
+    void incrementDirectBufferAllocations(long bytes) {
+        directBufferAllocations.incrementAndGet();
+        directBufferBytesAllocated.addAndGet(bytes);
+    }
+
+    void incrementDirectBufferReuses() {
+        directBufferReuses.incrementAndGet();
+    }
+
+    void addGatheredPayloadBytes(long bytes) {
+        gatheredPayloadBytes.addAndGet(bytes);
+    }
+
     @Override
     public String toString() {
         return "TransportMetrics{" +
@@ -83,11 +120,15 @@ public class TransportMetrics {
                 ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                 ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                 ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                ", directBufferAllocations=" + directBufferAllocations +
+                ", directBufferBytesAllocated=" + directBufferBytesAllocated +
+                ", directBufferReuses=" + directBufferReuses +
+                ", gatheredPayloadBytes=" + gatheredPayloadBytes +
                 '}';
     }
 
     public static class Snapshot {
-        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
 
         private final long tlsCertificateVerificationFailures;
         private final long peerAuthorizationFailures;
@@ -95,6 +136,10 @@ public class TransportMetrics {
         private final long clientTlsConnectionsEstablished;
         private final long serverUnencryptedConnectionsEstablished;
         private final long clientUnencryptedConnectionsEstablished;
+        private final long directBufferAllocations;
+        private final long directBufferBytesAllocated;
+        private final long directBufferReuses;
+        private final long gatheredPayloadBytes;
 
         private Snapshot(TransportMetrics metrics) {
             this(metrics.tlsCertificateVerificationFailures.get(),
@@ -102,7 +147,11 @@ public class TransportMetrics {
                  metrics.serverTlsConnectionsEstablished.get(),
                  metrics.clientTlsConnectionsEstablished.get(),
                  metrics.serverUnencryptedConnectionsEstablished.get(),
-                 metrics.clientUnencryptedConnectionsEstablished.get());
+                 metrics.clientUnencryptedConnectionsEstablished.get(),
+                 metrics.directBufferAllocations.get(),
+                 metrics.directBufferBytesAllocated.get(),
+                 metrics.directBufferReuses.get(),
+                 metrics.gatheredPayloadBytes.get());
         }
 
         private Snapshot(long tlsCertificateVerificationFailures,
@@ -110,13 +159,21 @@ public class TransportMetrics {
                         long serverTlsConnectionsEstablished,
                         long clientTlsConnectionsEstablished,
                         long serverUnencryptedConnectionsEstablished,
-                        long clientUnencryptedConnectionsEstablished) {
+                        long clientUnencryptedConnectionsEstablished,
+                        long directBufferAllocations,
+                        long directBufferBytesAllocated,
+                        long directBufferReuses,
+                        long gatheredPayloadBytes) {
             this.tlsCertificateVerificationFailures = tlsCertificateVerificationFailures;
             this.peerAuthorizationFailures = peerAuthorizationFailures;
             this.serverTlsConnectionsEstablished = serverTlsConnectionsEstablished;
             this.clientTlsConnectionsEstablished = clientTlsConnectionsEstablished;
             this.serverUnencryptedConnectionsEstablished = serverUnencryptedConnectionsEstablished;
             this.clientUnencryptedConnectionsEstablished = clientUnencryptedConnectionsEstablished;
+            this.directBufferAllocations = directBufferAllocations;
+            this.directBufferBytesAllocated = directBufferBytesAllocated;
+            this.directBufferReuses = directBufferReuses;
+            this.gatheredPayloadBytes = gatheredPayloadBytes;
         }
 
         public long tlsCertificateVerificationFailures() { return tlsCertificateVerificationFailures; }
@@ -125,6 +182,10 @@ public class TransportMetrics {
         public long clientTlsConnectionsEstablished() { return clientTlsConnectionsEstablished; }
         public long serverUnencryptedConnectionsEstablished() { return serverUnencryptedConnectionsEstablished; }
         public long clientUnencryptedConnectionsEstablished() { return clientUnencryptedConnectionsEstablished; }
+        public long directBufferAllocations() { return directBufferAllocations; }
+        public long directBufferBytesAllocated() { return directBufferBytesAllocated; }
+        public long directBufferReuses() { return directBufferReuses; }
+        public long gatheredPayloadBytes() { return gatheredPayloadBytes; }
 
         public Snapshot changesSince(Snapshot base) {
             return new Snapshot(
@@ -133,7 +194,11 @@ public class TransportMetrics {
                 changesSince(base, Snapshot::serverTlsConnectionsEstablished),
                 changesSince(base, Snapshot::clientTlsConnectionsEstablished),
                 changesSince(base, Snapshot::serverUnencryptedConnectionsEstablished),
-                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished));
+                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished),
+                changesSince(base, Snapshot::directBufferAllocations),
+                changesSince(base, Snapshot::directBufferBytesAllocated),
+                changesSince(base, Snapshot::directBufferReuses),
+                changesSince(base, Snapshot::gatheredPayloadBytes));
         }
 
         private long changesSince(Snapshot base, ToLongFunction<Snapshot> metricProperty) {
@@ -149,6 +214,10 @@ public class TransportMetrics {
                     ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                     ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                     ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                ", directBufferAllocations=" + directBufferAllocations +
+                ", directBufferBytesAllocated=" + directBufferBytesAllocated +
+                ", directBufferReuses=" + directBufferReuses +
+                ", gatheredPayloadBytes=" + gatheredPayloadBytes +
                     '}';
         }
     }
@@ -100,6 +100,17 @@ public abstract class Value
      **/
     abstract void encode(ByteBuffer dst);
 
+    /**
+     * Encode this value into the given buffer, except for any large
+     * payload which is instead added to the given output segments.
+     *
+     * @param dst where to encode this value
+     * @param segments where to add large payloads
+     **/
+    void encode(ByteBuffer dst, OutputSegments segments) {
+        encode(dst);
+    }
+
     /**
      * Decode a value from the given buffer. This method also acts as
      * a factory for value objects
@@ -99,6 +99,17 @@ public class Values
      * @param dst where to encode this value sequence
      **/
     void encode(ByteBuffer dst) {
+        encode(dst, null);
+    }
+
+    /**
+     * Encode this value sequence into the given buffer, except for
+     * large payloads, which are added to the given segments, if any.
+     *
+     * @param dst where to encode this value sequence
+     * @param segments where to add large payloads, or null to encode everything into dst
+     **/
+    void encode(ByteBuffer dst, OutputSegments segments) {
         byte[] types = new byte[values.size()];
         for (int i = 0; i < types.length; i++) {
             types[i] = get(i).type();
@@ -106,7 +117,11 @@ public class Values
         dst.putInt(types.length);
         dst.put(types);
         for (int i = 0; i < types.length; i++) {
-            get(i).encode(dst);
+            if (segments != null) {
+                get(i).encode(dst, segments);
+            } else {
+                get(i).encode(dst);
+            }
         }
     }
 
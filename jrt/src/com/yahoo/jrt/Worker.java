@@ -45,8 +45,12 @@ class Worker {
     private final ThreadQueue workQueue = new ThreadQueue();
 
     public Worker(Transport parent) {
+        this(parent, parent.getName() + ".jrt-worker");
+    }
+
+    Worker(Transport parent, String name) {
         preloadClassRequiredAtShutDown();
-        thread = new Thread(new Run(), parent.getName() + ".jrt-worker");
+        thread = new Thread(new Run(), name);
         this.parent = parent;
         thread.setDaemon(true);
         thread.start();
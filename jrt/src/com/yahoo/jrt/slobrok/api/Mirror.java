@@ -41,7 +41,7 @@ public class Mirror implements IMirror {
     private volatile long iterations = 0;
     private boolean requestDone = false;
     private boolean logOnSuccess = true;
-    private final AtomicReference<Entry[]> specs = new AtomicReference<>(new Entry[0]);
+    private final AtomicReference<MirrorIndex> specs = new AtomicReference<>(new MirrorIndex(new Entry[0]));
     private int specsGeneration = 0;
     private final TransportThread transportThread;
     private final Task updateTask;
@@ -96,14 +96,7 @@ public class Mirror implements IMirror {
 
     @Override
     public List<Entry> lookup(String pattern) {
-        ArrayList<Entry> found = new ArrayList<>();
-        char[] p = pattern.toCharArray();
-        for (Entry specEntry : specs.get()) {
-            if (match(specEntry.getNameArray(), p)) {
-                found.add(specEntry);
-            }
-        }
-        return found;
+        return new ArrayList<>(specs.get().lookup(pattern));
     }
 
     @Override
@@ -251,7 +244,7 @@ public class Mirror implements IMirror {
                 }
             } else {
                 Map<String, Entry> map = new HashMap<>();
-                for (Entry e : specs.get()) {
+                for (Entry e : specs.get().entries()) {
                     map.put(e.getName(), e);
                 }
                 for (String rem : r) {
@@ -272,7 +265,7 @@ public class Mirror implements IMirror {
             } else {
                 log.fine(() -> "successfully updated from location broker "+currSlobrok+" (now "+newSpecs.length+" service names)");
             }
-            specs.set(newSpecs);
+            specs.set(new MirrorIndex(newSpecs));
 
             specsGeneration = diffToGeneration;
             int u = (updates + 1);
@@ -299,7 +292,7 @@ public class Mirror implements IMirror {
             target.close();
             target = null;
         }
-        specs.set(new Entry[0]);
+        specs.set(new MirrorIndex(new Entry[0]));
     }
 
     /**
@@ -346,7 +339,7 @@ public class Mirror implements IMirror {
         log.log(Level.INFO, "location broker mirror state: " +
                 " iterations: " + iterations +
                 ", connected to: " + target +
-                ", number of service specs: " + specs.get().length +
+                ", number of service specs: " + specs.get().entries().length +
                 ", seen " + updates + " updates" +
                 ", current server: "+ currSlobrok +
                 ", list of servers: " + slobroks);
@@ -0,0 +1,116 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt.slobrok.api;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable index over the entries of one generation of a {@link Mirror}, used to
+ * look up entries without matching the pattern against every name.
+ *
+ * Names are kept in a trie keyed by their '/' separated segments. Pattern segments
+ * without '*' are looked up directly, segments with '*' are matched against the
+ * names at that level, and a segment with '**' is matched against all names below it.
+ * Results are returned in the order of the entries given, like a linear scan would,
+ * and are cached per pattern, up to a limit. A new index is made for each generation,
+ * so the cache never holds results from an older one.
+ */
+class MirrorIndex {
+
+    private static final int MAX_CACHED_PATTERNS = 1024;
+
+    private final Mirror.Entry[] entries;
+    private final Node root = new Node(new char[0]);
+    private final Map<String, List<Mirror.Entry>> cache = new ConcurrentHashMap<>();
+
+    MirrorIndex(Mirror.Entry[] entries) {
+        this.entries = entries;
+        for (int i = 0; i < entries.length; i++) {
+            Node node = root;
+            for (String segment : entries[i].getName().split("/", -1)) {
+                node = node.children.computeIfAbsent(segment, s -> new Node(s.toCharArray()));
+            }
+            node.positions.add(i);
+        }
+    }
+
+    /** Returns the entries this indexes */
+    Mirror.Entry[] entries() { return entries; }
+
+    /**
+     * Returns the entries with names matching the given pattern, as defined by {@link IMirror#lookup}.
+     * The returned list is shared, and must not be modified.
+     */
+    List<Mirror.Entry> lookup(String pattern) {
+        List<Mirror.Entry> found = cache.get(pattern);
+        if (found == null) {
+            found = find(pattern);
+            if (cache.size() >= MAX_CACHED_PATTERNS) {
+                cache.clear();
+            }
+            cache.put(pattern, found);
+        }
+        return found;
+    }
+
+    private List<Mirror.Entry> find(String pattern) {
+        BitSet positions = new BitSet(entries.length);
+        collect(root, pattern.split("/", -1), 0, pattern.toCharArray(), positions);
+        List<Mirror.Entry> found = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+            found.add(entries[i]);
+        }
+        return List.copyOf(found);
+    }
+
+    private void collect(Node node, String[] segments, int level, char[] pattern, BitSet positions) {
+        if (level == segments.length) {
+            node.positions.forEach(positions::set);
+            return;
+        }
+        String segment = segments[level];
+        if (segment.contains("**")) { // matches across separators, so resort to matching all names below
+            collectMatching(node, pattern, positions);
+        } else if (segment.indexOf('*') < 0) {
+            Node child = node.children.get(segment);
+            if (child != null) {
+                collect(child, segments, level + 1, pattern, positions);
+            }
+        } else {
+            char[] segmentPattern = segment.toCharArray();
+            for (Node child : node.children.values()) {
+                if (Mirror.match(child.segment, segmentPattern)) {
+                    collect(child, segments, level + 1, pattern, positions);
+                }
+            }
+        }
+    }
+
+    private void collectMatching(Node node, char[] pattern, BitSet positions) {
+        for (int position : node.positions) {
+            if (Mirror.match(entries[position].getNameArray(), pattern)) {
+                positions.set(position);
+            }
+        }
+        for (Node child : node.children.values()) {
+            collectMatching(child, pattern, positions);
+        }
+    }
+
+    private static class Node {
+
+        final char[] segment;
+        final Map<String, Node> children = new HashMap<>();
+        final List<Integer> positions = new ArrayList<>(1);
+
+        Node(char[] segment) {
+            this.segment = segment;
+        }
+
+    }
+
+}
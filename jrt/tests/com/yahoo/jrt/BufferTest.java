@@ -222,4 +222,32 @@ public class BufferTest {
         }
     }
 
+    @org.junit.Test
+    public void testPooledBuffer() {
+        DirectBufferPool pool = DirectBufferPool.getInstance();
+        Buffer buf = new Buffer(0, pool);
+        ByteBuffer b = buf.getWritable(5000);
+        assertTrue(b.isDirect());
+        assertEquals(8192, b.capacity());
+        for (int i = 0; i < 5000; i++) {
+            b.put((byte)i);
+        }
+        b = buf.getWritable(10000);
+        assertTrue(b.isDirect());
+        assertEquals(16384, b.capacity());
+        b = buf.getReadable();
+        for (int i = 0; i < 5000; i++) {
+            assertEquals((byte)i, b.get());
+        }
+        assertTrue(buf.shrink(0));
+        assertFalse(buf.getWritable(0).isDirect());
+
+        int pooled = pool.size();
+        buf.getWritable(10000);
+        assertEquals(pooled - 1, pool.size());
+        buf.release();
+        assertEquals(pooled, pool.size());
+        assertEquals(0, buf.bytes());
+    }
+
 }
@@ -0,0 +1,154 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import com.yahoo.security.tls.ConnectionAuthContext;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.yahoo.jrt.CryptoUtils.createTestTlsContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DispatchTest {
+
+    Supervisor     server;
+    Acceptor       acceptor;
+    Supervisor     client;
+    Target         target;
+    CountDownLatch blocked  = new CountDownLatch(1);
+    CountDownLatch entered  = new CountDownLatch(2);
+    Set<String>    handshakeThreads = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport("server", null, new HandshakeRecordingEngine(new TlsCryptoEngine(createTestTlsContext()), handshakeThreads), 1, true, 1, 4))
+                .setUseVirtualThreads(true);
+        client   = new Supervisor(new Transport("client", new TlsCryptoEngine(createTestTlsContext()), 1));
+        acceptor = server.listen(new Spec(0));
+        target   = client.connect(new Spec("localhost", acceptor.port()));
+        server.addMethod(new Method("block", "", "", this::rpc_block).maxConcurrency(2));
+        server.addMethod(new Method("echo", "i", "i", this::rpc_echo));
+    }
+
+    @After
+    public void tearDown() {
+        blocked.countDown();
+        target.close();
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private void rpc_block(Request req) {
+        entered.countDown();
+        try {
+            blocked.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void rpc_echo(Request req) {
+        req.returnValues().add(req.parameters().get(0));
+    }
+
+    private Request echo(Target target, int value) {
+        Request req = new Request("echo");
+        req.parameters().add(new Int32Value(value));
+        target.invokeSync(req, Duration.ofSeconds(60));
+        return req;
+    }
+
+    @org.junit.Test
+    public void testBlockingMethodsDoNotStallOthersAndAreLimited() throws InterruptedException {
+        Test.Waiter first = new Test.Waiter();
+        Test.Waiter second = new Test.Waiter();
+        Request firstReq = new Request("block");
+        Request secondReq = new Request("block");
+        target.invokeAsync(firstReq, Duration.ofSeconds(60), first);
+        target.invokeAsync(secondReq, Duration.ofSeconds(60), second);
+        assertTrue(entered.await(60, TimeUnit.SECONDS));
+
+        Request rejected = new Request("block");
+        target.invokeSync(rejected, Duration.ofSeconds(60));
+        assertEquals(ErrorCode.OVERLOAD, rejected.errorCode());
+
+        Request req = echo(target, 17);
+        assertFalse(req.errorMessage(), req.isError());
+        assertEquals(17, req.returnValues().get(0).asInt32());
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        blocked.countDown();
+        first.waitDone();
+        second.waitDone();
+        assertFalse(firstReq.errorMessage(), firstReq.isError());
+        assertFalse(secondReq.errorMessage(), secondReq.isError());
+
+        Request again = new Request("block");
+        target.invokeSync(again, Duration.ofSeconds(60));
+        assertFalse(again.errorMessage(), again.isError());
+    }
+
+    @org.junit.Test
+    public void testHandshakesAreSpreadOverWorkers() {
+        List<Target> targets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            targets.add(client.connect(new Spec("localhost", acceptor.port())));
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            Request req = echo(targets.get(i), i);
+            assertFalse(req.errorMessage(), req.isError());
+            assertEquals(i, req.returnValues().get(0).asInt32());
+            targets.get(i).close();
+        }
+        assertTrue("Handshake work was done by " + handshakeThreads, handshakeThreads.size() > 1);
+        for (String thread : handshakeThreads)
+            assertTrue(thread, thread.startsWith("server.jrt-"));
+    }
+
+    /** Records the names of the threads doing handshake work for server sockets. */
+    private record HandshakeRecordingEngine(CryptoEngine engine, Set<String> threads) implements CryptoEngine {
+
+        @Override
+        public CryptoSocket createClientCryptoSocket(SocketChannel channel, Spec spec) {
+            return engine.createClientCryptoSocket(channel, spec);
+        }
+
+        @Override
+        public CryptoSocket createServerCryptoSocket(SocketChannel channel) {
+            CryptoSocket socket = engine.createServerCryptoSocket(channel);
+            return new CryptoSocket() {
+                @Override public SocketChannel channel() { return socket.channel(); }
+                @Override public HandshakeResult handshake() throws IOException { return socket.handshake(); }
+                @Override public void doHandshakeWork() {
+                    threads.add(Thread.currentThread().getName());
+                    socket.doHandshakeWork();
+                }
+                @Override public int getMinimumReadBufferSize() { return socket.getMinimumReadBufferSize(); }
+                @Override public int read(ByteBuffer dst) throws IOException { return socket.read(dst); }
+                @Override public int drain(ByteBuffer dst) throws IOException { return socket.drain(dst); }
+                @Override public int write(ByteBuffer src) throws IOException { return socket.write(src); }
+                @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException { return socket.write(srcs, offset, length); }
+                @Override public FlushResult flush() throws IOException { return socket.flush(); }
+                @Override public void dropEmptyBuffers() { socket.dropEmptyBuffers(); }
+                @Override public ConnectionAuthContext connectionAuthContext() { return socket.connectionAuthContext(); }
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.yahoo.jrt.CryptoUtils.createTestTlsContext;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class GatheringWriteTest {
+
+    Supervisor server;
+    Acceptor   acceptor;
+    Supervisor client;
+    Target     target;
+
+    @Parameter public CryptoEngine crypto;
+
+    @Parameters(name = "{0}") public static Object[] engines() {
+        return new Object[] { new NullCryptoEngine(), new TlsCryptoEngine(createTestTlsContext()) };
+    }
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport("server", crypto, 1)).setUseDirectBuffers(true);
+        client   = new Supervisor(new Transport("client", crypto, 1)).setUseDirectBuffers(true);
+        acceptor = server.listen(new Spec(0));
+        target   = client.connect(new Spec("localhost", acceptor.port()));
+        server.addMethod(new Method("echo", "*", "*", this::rpc_echo));
+    }
+
+    @After
+    public void tearDown() {
+        target.close();
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private void rpc_echo(Request req) {
+        Values p = req.parameters();
+        Values r = req.returnValues();
+        for (int i = 0; i < p.size(); i++) {
+            r.add(p.get(i));
+        }
+    }
+
+    private static byte[] data(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte)(i * 31 + seed);
+        }
+        return data;
+    }
+
+    @org.junit.Test
+    public void testLargeDataValuesAreEchoed() {
+        long gatheredBefore = TransportMetrics.getInstance().gatheredPayloadBytes();
+        int[] sizes = { 0, 100, OutputSegments.MIN_SEGMENT_SIZE - 1, OutputSegments.MIN_SEGMENT_SIZE, 100_000, 1_000_000 };
+        List<Request> requests = new ArrayList<>();
+        List<SingleRequestWaiter> waiters = new ArrayList<>();
+        for (int n = 0; n < 8; n++) {
+            Request req = new Request("echo");
+            req.parameters().add(new StringValue("request " + n));
+            for (int size : sizes) {
+                req.parameters().add(new DataValue(data(size, n)));
+                req.parameters().add(new Int32Value(size));
+            }
+            SingleRequestWaiter waiter = new SingleRequestWaiter();
+            target.invokeAsync(req, Duration.ofSeconds(60), waiter);
+            requests.add(req);
+            waiters.add(waiter);
+        }
+        for (int n = 0; n < requests.size(); n++) {
+            waiters.get(n).waitDone();
+            Request req = requests.get(n);
+            assertTrue(req.errorMessage(), ! req.isError());
+            assertTrue(Test.equals(req.parameters(), req.returnValues()));
+            assertEquals("request " + n, req.returnValues().get(0).asString());
+            for (int i = 0; i < sizes.length; i++) {
+                assertArrayEquals(data(sizes[i], n), req.returnValues().get(1 + 2 * i).asData());
+                assertEquals(sizes[i], req.returnValues().get(2 + 2 * i).asInt32());
+            }
+        }
+        // Both directions write their large values straight from their arrays, also when encrypting
+        long gathered = TransportMetrics.getInstance().gatheredPayloadBytes() - gatheredBefore;
+        assertTrue(gathered >= 2L * 8 * (OutputSegments.MIN_SEGMENT_SIZE + 100_000 + 1_000_000));
+    }
+
+}
@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt.slobrok.api;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MirrorIndexTest {
+
+    private static final String[] names = {
+            "storage/cluster.music/storage/0", "storage/cluster.music/storage/1", "storage/cluster.music/distributor/0",
+            "storage/cluster.books/storage/0", "storage/cluster.books/distributor/0/default",
+            "docproc/cluster.default/0/chain.indexing", "docproc/cluster.default/1/chain.indexing",
+            "search/cluster.music/0/realtimecontroller", "foo", "foo/", "foo//bar", "", "A", "A/B", "AB/C",
+            "foo/bar.foo/qux.bar/bar123/nop000", "foo/bar./qux./bar/nop", "foo/bar/qux", "foo/bar/bar/qux"
+    };
+
+    private static final String[] patterns = {
+            "storage/cluster.music/storage/0", "storage/cluster.music/*/*", "storage/cluster.*/distributor/*",
+            "storage/*/distributor/*/default", "storage/**", "storage/cluster.music**", "docproc/cluster.default/*/chain.indexing",
+            "*", "*/*", "*/*/*/*", "**", "f**", "foo", "foo/*", "foo/", "foo//bar", "foo/*/bar", "", "A**", "A/**", "A*/*",
+            "foo/bar.*/qux.*/bar*/nop*", "foo/*/qux", "a*b", "*/**", "search/cluster.music/0/*", "nothing/*", "storage/cluster.music"
+    };
+
+    private static Mirror.Entry[] entries() {
+        Mirror.Entry[] entries = new Mirror.Entry[names.length];
+        for (int i = 0; i < names.length; i++) {
+            entries[i] = new Mirror.Entry(names[i], "tcp/host" + i + ":4711");
+        }
+        return entries;
+    }
+
+    private static List<Mirror.Entry> scan(Mirror.Entry[] entries, String pattern) {
+        List<Mirror.Entry> found = new ArrayList<>();
+        for (Mirror.Entry entry : entries) {
+            if (Mirror.match(entry.getNameArray(), pattern.toCharArray())) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void requireThatIndexFindsSameEntriesInSameOrderAsScan() {
+        Mirror.Entry[] entries = entries();
+        MirrorIndex index = new MirrorIndex(entries);
+        for (String pattern : patterns) {
+            assertEquals(pattern, scan(entries, pattern), index.lookup(pattern));
+        }
+        assertEquals(3, index.lookup("storage/cluster.music/*/*").size());
+        assertEquals(names.length, index.lookup("**").size());
+    }
+
+    @Test
+    public void requireThatResultsAreCachedPerIndex() {
+        Mirror.Entry[] entries = entries();
+        MirrorIndex index = new MirrorIndex(entries);
+        List<Mirror.Entry> found = index.lookup("storage/*/storage/*");
+        assertSame(found, index.lookup("storage/*/storage/*"));
+        for (int i = 0; i < 2000; i++) {
+            index.lookup("storage/cluster.music/storage/" + i);
+        }
+        assertEquals(found, index.lookup("storage/*/storage/*"));
+
+        MirrorIndex next = new MirrorIndex(entries);
+        assertNotSame(found, next.lookup("storage/*/storage/*"));
+        assertEquals(found, next.lookup("storage/*/storage/*"));
+    }
+
+    @Test
+    public void requireThatEmptyIndexFindsNothing() {
+        MirrorIndex index = new MirrorIndex(new Mirror.Entry[0]);
+        for (String pattern : patterns) {
+            assertEquals(List.of(), index.lookup(pattern));
+        }
+    }
+
+}
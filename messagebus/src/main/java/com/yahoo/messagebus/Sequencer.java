@@ -1,8 +1,8 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,13 +13,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
  *
+ * The sequencing state is split into a fixed number of stripes by sequencing id, each guarded by its own lock, so
+ * that threads sending messages with different sequencing ids rarely contend. All state for one id is in one stripe,
+ * so the ordering guarantees are the same as with a single lock.
+ *
  * @author Simon Thoresen Hult
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPES];
     private final Messenger msn;
     private final static ThreadLocal<Boolean> isSending = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
@@ -31,6 +38,9 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     public Sequencer(MessageHandler sender, Messenger msn) {
         this.sender = sender;
         this.msn = msn;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
     }
     public Sequencer(MessageHandler sender) {
         this(sender, null);
@@ -44,15 +54,17 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    for (Queue<Message> queue : stripe.seqMap.values()) {
+                        if (queue != null) {
+                            for (Message msg : queue) {
+                                msg.discard();
+                            }
                         }
                     }
+                    stripe.seqMap.clear();
                 }
-                seqMap.clear();
             }
             return true;
         }
@@ -71,9 +83,11 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            Map<Long, Queue<Message>> seqMap = stripe.seqMap;
             if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.computeIfAbsent(seqId, k -> new LinkedList<>());
+                Queue<Message> queue = seqMap.computeIfAbsent(seqId, k -> new ArrayDeque<>());
                 if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
                     msg.getTrace().trace(TraceLevel.COMPONENT,
                                          "Sequencer queued message with sequence id '" + seqId + "'.");
@@ -144,6 +158,16 @@ public class Sequencer implements MessageHandler, ReplyHandler {
         handler.handleReply(reply);
     }
 
+    private Stripe stripeOf(long seqId) {
+        long hash = seqId * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads sequential ids over the high bits.
+        return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    /** The sequencing state of the ids mapping to one stripe, guarded by the stripe itself. */
+    private static class Stripe {
+        private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    }
+
     private class SequencedSendTask implements Messenger.Task {
         private Message msg;
         SequencedSendTask(Message msg) { this.msg = msg; }
@@ -153,7 +177,9 @@ public class Sequencer implements MessageHandler, ReplyHandler {
 
     private void sendNextInSequence(long seqId) {
         Message msg = null;
-        synchronized (this) {
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            Map<Long, Queue<Message>> seqMap = stripe.seqMap;
             Queue<Message> queue = seqMap.get(seqId);
             if (queue == null || queue.isEmpty()) {
                 seqMap.remove(seqId);
@@ -62,6 +62,7 @@ public class RPCNetwork implements Network, MethodHandler {
     private final Supervisor orb;
     private final RPCTargetPool targetPool;
     private final RPCServicePool servicePool;
+    private final int maxMessagesPerBatch;
     private final Acceptor listener;
     private final Mirror mirror;
     private final Register register;
@@ -100,6 +101,7 @@ public class RPCNetwork implements Network, MethodHandler {
         orb.setMaxOutputBufferSize(params.getMaxOutputBufferSize());
         targetPool = new RPCTargetPool(params.getConnectionExpireSecs(), params.getNumTargetsPerSpec());
         servicePool = new RPCServicePool(4096);
+        maxMessagesPerBatch = params.getMaxMessagesPerBatch();
 
         Method method = new Method("mbus.getVersion", "", "s", this);
         method.requireCapabilities(CapabilitySet.none());
@@ -203,7 +205,9 @@ public class RPCNetwork implements Network, MethodHandler {
         }
         this.owner = owner;
 
-        sendAdapters.put(new Version(6,149), new RPCSendV2(this));
+        RPCSendV2 single = new RPCSendV2(this);
+        RPCSendBatch batch = new RPCSendBatch(this, single, maxMessagesPerBatch);
+        sendAdapters.put(new Version(6,149), maxMessagesPerBatch > 1 ? batch : single);
     }
 
     @Override
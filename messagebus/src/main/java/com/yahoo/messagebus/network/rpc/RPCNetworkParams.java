@@ -21,6 +21,7 @@ public class RPCNetworkParams {
     private double connectionExpireSecs = 30;
     private int numTargetsPerSpec = 1;
     private int numNetworkThreads = 2;
+    private int maxMessagesPerBatch = 1;
 
     private int transportEventsBeforeWakeup = 1;
     public enum Optimization {LATENCY, THROUGHPUT}
@@ -48,6 +49,7 @@ public class RPCNetworkParams {
         maxOutputBufferSize = params.maxOutputBufferSize;
         numTargetsPerSpec = params.numTargetsPerSpec;
         numNetworkThreads = params.numNetworkThreads;
+        maxMessagesPerBatch = params.maxMessagesPerBatch;
         optimization = params.optimization;
     }
 
@@ -167,6 +169,22 @@ public class RPCNetworkParams {
         return numNetworkThreads;
     }
 
+    /**
+     * Sets the maximum number of messages to the same target which may be sent together in a single RPC request,
+     * to peers which support this. Replies to batched messages are returned together, once all are ready.
+     * The default is 1, which disables batching.
+     *
+     * @param maxMessagesPerBatch The maximum number of messages per batch.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setMaxMessagesPerBatch(int maxMessagesPerBatch) {
+        this.maxMessagesPerBatch = maxMessagesPerBatch;
+        return this;
+    }
+    int getMaxMessagesPerBatch() {
+        return maxMessagesPerBatch;
+    }
+
     public RPCNetworkParams setOptimization(Optimization optimization) {
         this.optimization = optimization;
         return this;
@@ -23,6 +23,8 @@ import com.yahoo.messagebus.routing.Route;
 import com.yahoo.messagebus.routing.RoutingNode;
 import com.yahoo.text.Utf8Array;
 
+import java.util.function.Function;
+
 /**
  * Implements the request adapter for method "mbus.send1/mbus.slime".
  *
@@ -119,17 +121,8 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         Reply reply;
         Error error = null;
         if (!req.checkReturnTypes(getReturnSpec())) {
-            // Map all known JRT errors to the appropriate message bus error.
             reply = new EmptyReply();
-            error = switch (req.errorCode()) {
-                case com.yahoo.jrt.ErrorCode.TIMEOUT -> new Error(ErrorCode.TIMEOUT,
-                        "A timeout occurred while waiting for '" + serviceName + "' (" +
-                                ctx.timeout + " seconds expired); " + req.errorMessage());
-                case com.yahoo.jrt.ErrorCode.CONNECTION -> new Error(ErrorCode.CONNECTION_ERROR,
-                        "A connection error occurred for '" + serviceName + "'; " + req.errorMessage());
-                default -> new Error(ErrorCode.NETWORK_ERROR,
-                        "A network error occurred for '" + serviceName + "'; " + req.errorMessage());
-            };
+            error = toError(req, serviceName, ctx.timeout);
         } else {
             reply = createReply(req.returnValues(), serviceName, ctx.trace);
         }
@@ -144,6 +137,22 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         ctx.recipient.handleReply(reply);
     }
 
+    /** Maps all known JRT errors of the given failed request to the appropriate message bus error. */
+    static Error toError(Request req, String serviceName, double timeout) {
+        return switch (req.errorCode()) {
+            case com.yahoo.jrt.ErrorCode.TIMEOUT -> new Error(ErrorCode.TIMEOUT,
+                    "A timeout occurred while waiting for '" + serviceName + "' (" +
+                            timeout + " seconds expired); " + req.errorMessage());
+            case com.yahoo.jrt.ErrorCode.CONNECTION -> new Error(ErrorCode.CONNECTION_ERROR,
+                    "A connection error occurred for '" + serviceName + "'; " + req.errorMessage());
+            default -> new Error(ErrorCode.NETWORK_ERROR,
+                    "A network error occurred for '" + serviceName + "'; " + req.errorMessage());
+        };
+    }
+
+    /** Returns the identity of this as a sender, for tracing. */
+    final String clientIdent() { return clientIdent; }
+
     protected static final class Params {
         Version version;
         String route;
@@ -167,23 +176,32 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
 
         request.discardParameters(); // allow garbage collection of request parameters
 
+        deliver(p, this, protocol -> new ReplyContext(request, p.version, protocol));
+    }
+
+    /**
+     * Decodes the message of the given parameters and delivers it to the owner of the network, or replies
+     * to the given handler with an error if this fails. Replies to the delivered message are passed to the
+     * given handler, with a context created from the protocol of the message, which may be null on error.
+     */
+    final void deliver(Params p, ReplyHandler handler, Function<Protocol, Object> contextFactory) {
         // Make sure that the owner understands the protocol.
         Protocol protocol = net.getOwner().getProtocol(p.protocolName);
         if (protocol == null) {
-            replyError(request, p.version, protocol, p.traceLevel,
+            replyError(handler, contextFactory.apply(null), p.traceLevel,
                     new Error(ErrorCode.UNKNOWN_PROTOCOL,
                             "Protocol '" + p.protocolName + "' is not known by " + serverIdent + "."));
             return;
         }
         Routable routable = protocol.decode(p.version, p.payload);
         if (routable == null) {
-            replyError(request, p.version, protocol, p.traceLevel,
+            replyError(handler, contextFactory.apply(protocol), p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Protocol '" + protocol.getName() + "' failed to decode routable."));
             return;
         }
         if (routable instanceof Reply) {
-            replyError(request, p.version, protocol, p.traceLevel,
+            replyError(handler, contextFactory.apply(protocol), p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Payload decoded to a reply when expecting a message."));
             return;
@@ -192,8 +210,8 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         if (p.route != null && !p.route.isEmpty()) {
             msg.setRoute(net.getRoute(p.route));
         }
-        msg.setContext(new ReplyContext(request, p.version, protocol));
-        msg.pushHandler(this);
+        msg.setContext(contextFactory.apply(protocol));
+        msg.pushHandler(handler);
         msg.setRetryEnabled(p.retryEnabled);
         msg.setRetry(p.retry);
         msg.setTimeReceivedNow();
@@ -211,42 +229,51 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         ReplyContext ctx = (ReplyContext)reply.getContext();
         reply.setContext(null);
 
+        // Encode and return the reply through the RPC request.
+        byte[] payload = encodeReply(reply, ctx.version, ctx.protocol);
+        createResponse(ctx.request.returnValues(), reply, ctx.version, payload);
+        ctx.request.returnRequest();
+    }
+
+    /**
+     * Traces the sending of the given reply, and encodes it with the given protocol, which may be null.
+     * If the reply could not be encoded, an error is added to it, and an empty payload returned.
+     */
+    final byte[] encodeReply(Reply reply, Version version, Protocol protocol) {
         // Add trace information.
         if (reply.getTrace().shouldTrace(TraceLevel.SEND_RECEIVE)) {
             reply.getTrace().trace(TraceLevel.SEND_RECEIVE,
-                    "Sending reply (version " + ctx.version + ") from " + serverIdent + ".");
+                    "Sending reply (version " + version + ") from " + serverIdent + ".");
         }
 
-        // Encode and return the reply through the RPC request.
         byte[] payload = new byte[0];
         if (reply.getType() != 0) {
-            if (ctx.protocol != null) {
-                payload = ctx.protocol.encode(ctx.version, reply);
+            if (protocol != null) {
+                payload = protocol.encode(version, reply);
             }
             if (payload == null || payload.length == 0) {
                 reply.addError(new Error(ErrorCode.ENCODE_ERROR,
                         "An error occurred while encoding the reply."));
+                payload = new byte[0];
             }
         }
-        createResponse(ctx.request.returnValues(), reply, ctx.version, payload);
-        ctx.request.returnRequest();
+        return payload;
     }
 
     /**
-     * Send an error reply for a given request.
+     * Send an error reply to a given handler.
      *
-     * @param request    The JRT request to reply to.
-     * @param version    The version to serialize for.
+     * @param handler    The handler to reply to.
+     * @param context    The context to set in the reply.
      * @param traceLevel The trace level to set in the reply.
-     * @param protocol   The message protocol to serialize with.
      * @param err        The error to reply with.
      */
-    private void replyError(Request request, Version version, Protocol protocol, int traceLevel, Error err) {
+    private static void replyError(ReplyHandler handler, Object context, int traceLevel, Error err) {
         Reply reply = new EmptyReply();
-        reply.setContext(new ReplyContext(request, version, protocol));
+        reply.setContext(context);
         reply.getTrace().setLevel(traceLevel);
         reply.addError(err);
-        handleReply(reply);
+        handler.handleReply(reply);
     }
 
     private static class SendContext {
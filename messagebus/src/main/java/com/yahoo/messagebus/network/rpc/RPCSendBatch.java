@@ -0,0 +1,319 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import com.yahoo.component.Version;
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+import com.yahoo.io.ByteArrayPool;
+import com.yahoo.jrt.DataValue;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int8Value;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.MethodHandler;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.jrt.Values;
+import com.yahoo.messagebus.EmptyReply;
+import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Protocol;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.ReplyHandler;
+import com.yahoo.messagebus.Trace;
+import com.yahoo.messagebus.TraceLevel;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.routing.RoutingNode;
+import com.yahoo.security.tls.Capability;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implements the request adapter for method "mbus.slime.batch". Messages sent to the same target while an earlier
+ * message to that target is waiting to be sent are coalesced into a single RPC request, where the slime encoded
+ * messages, including their payloads, are compressed together. The receiver delivers each message on its own, and
+ * returns all their replies in a single response once the last one is ready, where they are listed in the same
+ * order as the messages they reply to.
+ *
+ * Since the replies to a batch are returned together, a slow message delays the replies to all messages batched
+ * with it. Batching is therefore opt-in on the sending side, through {@link RPCNetworkParams#setMaxMessagesPerBatch},
+ * while all networks accept batches from peers. Only messages with similar deadlines are batched together, and the
+ * batch times out at the earliest of these, so no message waits for its reply past its own deadline. Batches are
+ * only sent to targets which implement this method, which is resolved when first sending to each target; lone
+ * messages, messages with ignored results, and messages to other targets are sent with {@link RPCSendV2}.
+ */
+public class RPCSendBatch implements MethodHandler, ReplyHandler, RequestWaiter, RPCSendAdapter {
+
+    private final static String METHOD_NAME = "mbus.slime.batch";
+    private final static String METHOD_PARAMS = "bix";
+    private final static String METHOD_RETURN = "bix";
+    private final static String MESSAGES_F = "messages";
+    private final static String REPLIES_F = "replies";
+    private final static int HEADER_SIZE_ESTIMATE = 256;
+    private final static Duration METHOD_RESOLVE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final RPCNetwork net;
+    private final RPCSendV2 single;
+    private final int maxMessagesPerBatch;
+    private final Compressor compressor = new Compressor(CompressionType.LZ4, 3, 0.90, 1024);
+    private final Map<RPCTarget, List<Pending>> pending = new HashMap<>();
+
+    RPCSendBatch(RPCNetwork net, RPCSendV2 single, int maxMessagesPerBatch) {
+        this.net = net;
+        this.single = single;
+        this.maxMessagesPerBatch = maxMessagesPerBatch;
+        net.getSupervisor().addMethod(buildMethod());
+    }
+
+    private Method buildMethod() {
+        Method method = new Method(METHOD_NAME, METHOD_PARAMS, METHOD_RETURN, this)
+                .requireCapabilities(Capability.CONTAINER__DOCUMENT_API);
+        method.methodDesc("Send a batch of message bus requests and get their replies back.");
+        method.paramDesc(0, "encoding", "Encoding type of messages.")
+              .paramDesc(1, "decoded_size", "Number of bytes after messages decoding.")
+              .paramDesc(2, "payload", "Slime encoded messages.");
+        method.returnDesc(0, "encoding", "Encoding type of replies.")
+              .returnDesc(1, "decoded_size", "Number of bytes after replies decoding.")
+              .returnDesc(2, "payload", "Slime encoded replies, in the order of the messages.");
+        return method;
+    }
+
+    @Override
+    public void send(RoutingNode recipient, Version version, byte[] payload, long timeRemaining) {
+        if (recipient.getRoute().getHop(0).getIgnoreResult()) {
+            single.send(recipient, version, payload, timeRemaining);
+            return;
+        }
+        RPCTarget target = ((RPCServiceAddress) recipient.getServiceAddress()).getTarget();
+        if ( ! target.hasMethod(METHOD_NAME, METHOD_RESOLVE_TIMEOUT)) {
+            single.send(recipient, version, payload, timeRemaining);
+            return;
+        }
+        Pending message = new Pending(recipient, version, payload, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeRemaining));
+        List<Pending> full = null;
+        boolean first;
+        boolean batched;
+        synchronized (pending) {
+            List<Pending> batch = pending.computeIfAbsent(target, __ -> new ArrayList<>());
+            first = batch.isEmpty();
+            batched = first || hasSimilarDeadline(batch.get(0), message, timeRemaining);
+            if (batched)
+                batch.add(message);
+            if (batch.size() >= maxMessagesPerBatch)
+                full = pending.remove(target);
+        }
+        if ( ! batched)
+            single.send(recipient, version, payload, timeRemaining);
+        if (full != null)
+            send(target, full);
+        else if (first) // Messages to this target sent before the flush task runs are added to the batch.
+            net.getExecutor().execute(() -> flush(target));
+    }
+
+    /** Returns whether the deadlines of the given messages differ by at most a tenth of the given time remaining. */
+    private static boolean hasSimilarDeadline(Pending first, Pending message, long timeRemaining) {
+        return Math.abs(message.deadlineNanos - first.deadlineNanos) <= TimeUnit.MILLISECONDS.toNanos(timeRemaining) / 10;
+    }
+
+    private void flush(RPCTarget target) {
+        List<Pending> batch;
+        synchronized (pending) {
+            batch = pending.remove(target);
+        }
+        if (batch != null)
+            send(target, batch);
+    }
+
+    private void send(RPCTarget target, List<Pending> batch) {
+        long now = System.nanoTime();
+        for (Pending message : batch)
+            if (message.deadlineNanos <= now)
+                replyTimeout(message.recipient, "Aborting transmission because zero time remains.");
+        batch.removeIf(message -> message.deadlineNanos <= now);
+        if (batch.isEmpty()) return;
+        if (batch.size() == 1) {
+            Pending lone = batch.get(0);
+            single.send(lone.recipient, lone.version, lone.payload, Math.max(1, TimeUnit.NANOSECONDS.toMillis(lone.deadlineNanos - now)));
+            return;
+        }
+        Slime slime = new Slime();
+        Cursor messages = slime.setObject().setArray(MESSAGES_F);
+        List<SendContext> contexts = new ArrayList<>(batch.size());
+        double timeout = Double.MAX_VALUE;
+        int sizeHint = 0;
+        for (Pending message : batch) {
+            SendContext ctx = new SendContext(message.recipient, new Trace(message.recipient.getTrace().getLevel()),
+                                              (message.deadlineNanos - now) * 1e-9, message.deadlineNanos);
+            RPCServiceAddress address = (RPCServiceAddress) message.recipient.getServiceAddress();
+            Route route = new Route(message.recipient.getRoute());
+            route.removeHop(0);
+            single.encodeMessage(messages.addObject(), message.version, route, address,
+                                 message.recipient.getMessage(), message.payload, ctx.trace.getLevel());
+            if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
+                ctx.trace.trace(TraceLevel.SEND_RECEIVE,
+                        "Sending message (version " + message.version + ") from " + single.clientIdent() + " to '" +
+                                address.getServiceName() + "' with " + ctx.timeout + " seconds timeout, in a batch of " +
+                                batch.size() + " messages.");
+            }
+            contexts.add(ctx);
+            timeout = Math.min(timeout, ctx.timeout);
+            sizeHint += message.payload.length + HEADER_SIZE_ESTIMATE;
+        }
+        Compressor.Compression compression = BinaryFormat.encode_and_compress(slime, compressor, ByteArrayPool.shared(), sizeHint);
+
+        Request req = new Request(METHOD_NAME);
+        req.parameters().add(new Int8Value(compression.type().getCode()));
+        req.parameters().add(new Int32Value(compression.uncompressedSize()));
+        req.parameters().add(new DataValue(compression.data()));
+        req.setContext(new BatchContext(contexts));
+        target.getJRTTarget().invokeAsync(req, timeout, this);
+        req.discardParameters(); // allow garbage collection of request parameters
+    }
+
+    @Override
+    public void handleRequestDone(Request req) {
+        net.getExecutor().execute(() -> doRequestDone(req));
+    }
+
+    private static void replyTimeout(RoutingNode recipient, String message) {
+        Reply reply = new EmptyReply();
+        reply.getTrace().setLevel(recipient.getTrace().getLevel());
+        reply.addError(new Error(ErrorCode.TIMEOUT, message));
+        recipient.handleReply(reply);
+    }
+
+    private void doRequestDone(Request req) {
+        List<SendContext> contexts = ((BatchContext) req.getContext()).messages;
+        long now = System.nanoTime();
+        Inspector replies = req.checkReturnTypes(METHOD_RETURN) ? decode(req.returnValues()).field(REPLIES_F) : null;
+        for (int i = 0; i < contexts.size(); i++) {
+            SendContext ctx = contexts.get(i);
+            String serviceName = ((RPCServiceAddress) ctx.recipient.getServiceAddress()).getServiceName();
+            Reply reply;
+            Error error = null;
+            if (replies == null) {
+                reply = new EmptyReply();
+                error = RPCSend.toError(req, serviceName, ctx.timeout);
+            } else if (i >= replies.entries()) {
+                reply = new EmptyReply();
+                error = new Error(ErrorCode.NETWORK_ERROR, "Got " + replies.entries() + " replies from '" + serviceName +
+                                                          "' to a batch of " + contexts.size() + " messages.");
+            } else if (ctx.deadlineNanos < now) {
+                reply = new EmptyReply();
+                error = new Error(ErrorCode.TIMEOUT, "The reply from '" + serviceName + "' arrived after the message timed out (" +
+                                                     ctx.timeout + " seconds expired).");
+            } else {
+                reply = single.decodeReply(replies.entry(i), serviceName, ctx.trace);
+            }
+            if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
+                ctx.trace.trace(TraceLevel.SEND_RECEIVE,
+                        "Reply (type " + reply.getType() + ") received at " + single.clientIdent() + ".");
+            }
+            reply.getTrace().swap(ctx.trace);
+            if (error != null) {
+                reply.addError(error);
+            }
+            ctx.recipient.handleReply(reply);
+        }
+    }
+
+    @Override
+    public void invoke(Request request) {
+        request.detach();
+        net.getExecutor().execute(() -> doInvoke(request));
+    }
+
+    private void doInvoke(Request request) {
+        Inspector messages = decode(request.parameters()).field(MESSAGES_F);
+        request.discardParameters(); // allow garbage collection of request parameters
+
+        ReplyBatch batch = new ReplyBatch(request, messages.entries());
+        if (messages.entries() == 0) {
+            returnReplies(batch);
+            return;
+        }
+        for (int i = 0; i < messages.entries(); i++) {
+            RPCSend.Params p = single.decodeMessage(messages.entry(i));
+            int index = i;
+            single.deliver(p, this, protocol -> new ReplyContext(batch, index, p.version, protocol));
+        }
+    }
+
+    @Override
+    public void handleReply(Reply reply) {
+        ReplyContext ctx = (ReplyContext) reply.getContext();
+        reply.setContext(null);
+
+        byte[] payload = single.encodeReply(reply, ctx.version, ctx.protocol);
+        if (ctx.batch.complete(ctx.index, reply, ctx.version, payload))
+            returnReplies(ctx.batch);
+    }
+
+    private void returnReplies(ReplyBatch batch) {
+        Slime slime = new Slime();
+        Cursor replies = slime.setObject().setArray(REPLIES_F);
+        int sizeHint = 0;
+        for (int i = 0; i < batch.replies.length; i++) {
+            single.encodeReply(replies.addObject(), batch.replies[i], batch.versions[i], batch.payloads[i]);
+            sizeHint += batch.payloads[i].length + HEADER_SIZE_ESTIMATE;
+        }
+        Compressor.Compression compression = BinaryFormat.encode_and_compress(slime, compressor, ByteArrayPool.shared(), sizeHint);
+
+        Values ret = batch.request.returnValues();
+        ret.add(new Int8Value(compression.type().getCode()));
+        ret.add(new Int32Value(compression.uncompressedSize()));
+        ret.add(new DataValue(compression.data()));
+        batch.request.returnRequest();
+    }
+
+    private Inspector decode(Values values) {
+        CompressionType compression = CompressionType.valueOf(values.get(0).asInt8());
+        byte[] slimeBytes = compressor.decompress(values.get(2).asData(), compression, values.get(1).asInt32());
+        return BinaryFormat.decode(slimeBytes).get();
+    }
+
+    private record Pending(RoutingNode recipient, Version version, byte[] payload, long deadlineNanos) { }
+
+    private record SendContext(RoutingNode recipient, Trace trace, double timeout, long deadlineNanos) { }
+
+    private record BatchContext(List<SendContext> messages) { }
+
+    private record ReplyContext(ReplyBatch batch, int index, Version version, Protocol protocol) { }
+
+    /** The replies to a received batch of messages, which are returned once all are complete. */
+    private static class ReplyBatch {
+
+        final Request request;
+        final Reply[] replies;
+        final Version[] versions;
+        final byte[][] payloads;
+        final AtomicInteger remaining;
+
+        ReplyBatch(Request request, int size) {
+            this.request = request;
+            this.replies = new Reply[size];
+            this.versions = new Version[size];
+            this.payloads = new byte[size][];
+            this.remaining = new AtomicInteger(size);
+        }
+
+        /** Sets the reply at the given index, and returns whether this was the last reply of this batch. */
+        boolean complete(int index, Reply reply, Version version, byte[] payload) {
+            replies[index] = reply;
+            versions[index] = version;
+            payloads[index] = payload;
+            return remaining.decrementAndGet() == 0;
+        }
+
+    }
+
+}
@@ -4,6 +4,7 @@ package com.yahoo.messagebus.network.rpc;
 import com.yahoo.component.Version;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
+import com.yahoo.io.ByteArrayPool;
 import com.yahoo.jrt.DataValue;
 import com.yahoo.jrt.Int32Value;
 import com.yahoo.jrt.Int8Value;
@@ -34,6 +35,7 @@ public class RPCSendV2 extends RPCSend {
     private final static String METHOD_NAME = "mbus.slime";
     private final static String METHOD_PARAMS = "bixbix";
     private final static String METHOD_RETURN = "bixbix";
+    private final static int HEADER_SIZE_ESTIMATE = 256;
     private final Compressor compressor = new Compressor(CompressionType.LZ4, 3, 0.90, 1024);
 
     protected RPCSendV2(RPCNetwork net) { super(net); }
@@ -90,19 +92,9 @@ public class RPCSendV2 extends RPCSend {
         v.add(new DataValue(new byte[0]));
 
         Slime slime = new Slime();
-        Cursor root = slime.setObject();
+        encodeMessage(slime.setObject(), version, route, address, msg, payload, traceLevel);
 
-        root.setString(VERSION_F, version.toUtf8().getBytes());
-        root.setString(ROUTE_F, route.toString());
-        root.setString(SESSION_F, address.getSessionName());
-        root.setString(PROTOCOL_F, msg.getProtocol().toString());
-        root.setBool(USERETRY_F, msg.getRetryEnabled());
-        root.setLong(RETRY_F, msg.getRetry());
-        root.setLong(TIMEREMAINING_F, msg.getTimeRemaining());
-        root.setLong(TRACELEVEL_F, traceLevel);
-        root.setData(BLOB_F, payload);
-
-        Compressor.Compression compressionResult = BinaryFormat.encode_and_compress(slime, compressor);
+        Compressor.Compression compressionResult = encodeAndCompress(slime, payload);
 
         v.add(new Int8Value(compressionResult.type().getCode()));
         v.add(new Int32Value(compressionResult.uncompressedSize()));
@@ -115,9 +107,11 @@ public class RPCSendV2 extends RPCSend {
     protected Reply createReply(Values ret, String serviceName, Trace trace) {
         CompressionType compression = CompressionType.valueOf(ret.get(3).asInt8());
         byte[] slimeBytes = compressor.decompress(ret.get(5).asData(), compression, ret.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return decodeReply(BinaryFormat.decode(slimeBytes).get(), serviceName, trace);
+    }
 
+    /** Decodes a reply from the given slime object, as written by {@link #encodeReply(Cursor, Reply, Version, byte[])}. */
+    Reply decodeReply(Inspector root, String serviceName, Trace trace) {
         Version version = new Version(new Utf8Array(root.field(VERSION_F).asUtf8()));
         byte[] payload = root.field(BLOB_F).asData();
 
@@ -156,8 +150,11 @@ public class RPCSendV2 extends RPCSend {
     protected Params toParams(Values args) {
         CompressionType compression = CompressionType.valueOf(args.get(3).asInt8());
         byte[] slimeBytes = compressor.decompress(args.get(5).asData(), compression, args.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return decodeMessage(BinaryFormat.decode(slimeBytes).get());
+    }
+
+    /** Decodes the parameters of a message from the given slime object, as written by {@link #encodeMessage}. */
+    Params decodeMessage(Inspector root) {
         Params p = new Params();
         p.version = new Version(new Utf8Array(root.field(VERSION_F).asUtf8()));
         p.route = root.field(ROUTE_F).asString();
@@ -178,8 +175,32 @@ public class RPCSendV2 extends RPCSend {
         ret.add(new DataValue(new byte[0]));
 
         Slime slime = new Slime();
-        Cursor root = slime.setObject();
+        encodeReply(slime.setObject(), reply, version, payload);
+
+        Compressor.Compression compressionResult = encodeAndCompress(slime, payload);
+
+        ret.add(new Int8Value(compressionResult.type().getCode()));
+        ret.add(new Int32Value(compressionResult.uncompressedSize()));
+        ret.add(new DataValue(compressionResult.data()));
+    }
+
+    /** Writes the given message, with its encoded payload, to the given slime object. */
+    void encodeMessage(Cursor root, Version version, Route route, RPCServiceAddress address, Message msg,
+                       byte[] payload, int traceLevel)
+    {
+        root.setString(VERSION_F, version.toUtf8().getBytes());
+        root.setString(ROUTE_F, route.toString());
+        root.setString(SESSION_F, address.getSessionName());
+        root.setString(PROTOCOL_F, msg.getProtocol().toString());
+        root.setBool(USERETRY_F, msg.getRetryEnabled());
+        root.setLong(RETRY_F, msg.getRetry());
+        root.setLong(TIMEREMAINING_F, msg.getTimeRemaining());
+        root.setLong(TRACELEVEL_F, traceLevel);
+        root.setData(BLOB_F, payload);
+    }
 
+    /** Writes the given reply, with its encoded payload, to the given slime object. */
+    void encodeReply(Cursor root, Reply reply, Version version, byte[] payload) {
         root.setString(VERSION_F, version.toUtf8().getBytes());
         root.setDouble(RETRYDELAY_F, reply.getRetryDelay());
         root.setString(PROTOCOL_F, reply.getProtocol().getBytes());
@@ -200,12 +221,11 @@ public class RPCSendV2 extends RPCSend {
                 }
             }
         }
+    }
 
-        Compressor.Compression compressionResult = BinaryFormat.encode_and_compress(slime, compressor);
-
-        ret.add(new Int8Value(compressionResult.type().getCode()));
-        ret.add(new Int32Value(compressionResult.uncompressedSize()));
-        ret.add(new DataValue(compressionResult.data()));
+    /** Encodes and compresses the given slime, using a pooled buffer sized for the given payload for the encoding. */
+    private Compressor.Compression encodeAndCompress(Slime slime, byte[] payload) {
+        return BinaryFormat.encode_and_compress(slime, compressor, ByteArrayPool.shared(), payload.length + HEADER_SIZE_ESTIMATE);
     }
 
 }
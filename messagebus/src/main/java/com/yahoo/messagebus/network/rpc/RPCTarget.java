@@ -2,9 +2,11 @@
 package com.yahoo.messagebus.network.rpc;
 
 import com.yahoo.component.Version;
+import com.yahoo.jrt.ErrorCode;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.RequestWaiter;
 import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Target;
 
@@ -14,6 +16,8 @@ import com.yahoo.text.Utf8Array;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -33,6 +37,7 @@ public class RPCTarget implements RequestWaiter {
     private boolean targetInvoked = false;
     private Version version = null;
     private List<VersionHandler> versionHandlers = new LinkedList<>();
+    private final Map<String, Boolean> methods = new ConcurrentHashMap<>();
 
     /**
      * <p>Constructs a new instance of this class.</p>
@@ -129,6 +134,31 @@ public class RPCTarget implements RequestWaiter {
         }
     }
 
+    /**
+     * <p>Returns whether this target is known to implement the RPC method with
+     * the given name. The first time this is called for a method, this is
+     * resolved in the background, and false is returned until the target
+     * responds.</p>
+     *
+     * @param method  The name of the method.
+     * @param timeout The timeout for resolving this.
+     * @return Whether the method is known to be implemented by this target.
+     */
+    boolean hasMethod(String method, Duration timeout) {
+        Boolean known = methods.putIfAbsent(method, false);
+        if (known != null) return known;
+
+        Request req = new Request("frt.rpc.getMethodInfo");
+        req.parameters().add(new StringValue(method));
+        target.invokeAsync(req, timeout, done -> {
+            if (done.checkReturnTypes("sssSSSS"))
+                methods.put(method, true);
+            else if (done.errorCode() != ErrorCode.METHOD_FAILED) // Not a missing method, so try again later
+                methods.remove(method);
+        });
+        return false;
+    }
+
     @Override
     public void handleRequestDone(Request req) {
         List<VersionHandler> handlers;
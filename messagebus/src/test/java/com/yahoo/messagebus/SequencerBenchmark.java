@@ -0,0 +1,74 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.test.SimpleMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures throughput of sequenced sends through a {@link Sequencer} shared by 1 to 64 sending threads,
+ * where each message is replied to immediately by the sending thread, as when a send fails fast.
+ * Run with the main method; this is not a unit test.
+ */
+public class SequencerBenchmark {
+
+    private static final int messagesPerThread = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int warmup = 0; warmup < 3; warmup++)
+            run(8, false);
+        for (int threads = 1; threads <= 64; threads *= 2)
+            run(threads, true);
+    }
+
+    private static void run(int threads, boolean print) throws InterruptedException {
+        MessageHandler sender = message -> {
+            Reply reply = new EmptyReply();
+            reply.swapState(message);
+            reply.popHandler().handleReply(reply);
+        };
+        ReplyHandler handler = reply -> { };
+        Sequencer sequencer = new Sequencer(sender);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * messagesPerThread;
+            Thread worker = new Thread(() -> {
+                try { start.await(); } catch (InterruptedException e) { throw new RuntimeException(e); }
+                for (int i = 0; i < messagesPerThread; i++) {
+                    Message message = new SequencedMessage(base + (i & 1023));
+                    message.pushHandler(handler);
+                    sequencer.handleMessage(message);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (print)
+            System.out.printf("%2d threads: %,12.0f messages/s, %6.1f ns/message%n", threads,
+                              threads * (double) messagesPerThread * 1e9 / elapsedNanos,
+                              elapsedNanos / (threads * (double) messagesPerThread));
+    }
+
+    private static class SequencedMessage extends SimpleMessage {
+
+        private final long seqId;
+
+        SequencedMessage(long seqId) {
+            super("benchmark");
+            this.seqId = seqId;
+        }
+
+        @Override public boolean hasSequenceId() { return true; }
+        @Override public long getSequenceId() { return seqId; }
+
+    }
+
+}
@@ -6,12 +6,16 @@ import org.junit.jupiter.api.Test;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -156,6 +160,63 @@ public class SequencerTestCase {
         messenger.destroy();
     }
 
+    @Test
+    void testConcurrentSendingKeepsOrderPerId() throws InterruptedException {
+        int threads = 8, messagesPerThread = 2000, ids = 16;
+        ExecutorService replier = Executors.newFixedThreadPool(4);
+        Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        Map<String, Integer> lastSent = new ConcurrentHashMap<>();
+        AtomicInteger violations = new AtomicInteger();
+        MessageHandler sender = message -> {
+            if (inFlight.computeIfAbsent(message.getSequenceId(), __ -> new AtomicInteger()).incrementAndGet() > 1)
+                violations.incrementAndGet();
+            OrderedMessage ordered = (OrderedMessage) message;
+            Integer previous = lastSent.put(ordered.sender + "/" + ordered.getSequenceId(), ordered.index);
+            if (previous != null && previous > ordered.index)
+                violations.incrementAndGet();
+            replier.execute(() -> {
+                inFlight.get(message.getSequenceId()).decrementAndGet();
+                Reply reply = new EmptyReply();
+                reply.swapState(message);
+                reply.setMessage(message);
+                reply.popHandler().handleReply(reply);
+            });
+        };
+
+        CountDownLatch latch = new CountDownLatch(threads * messagesPerThread);
+        ReplyHandler handler = reply -> latch.countDown();
+
+        Sequencer sequencer = new Sequencer(sender);
+        ExecutorService senders = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            senders.execute(() -> {
+                for (int i = 0; i < messagesPerThread; i++) {
+                    Message message = new OrderedMessage(thread, i, (thread + i) % ids);
+                    message.pushHandler(handler);
+                    sequencer.handleMessage(message);
+                }
+            });
+        }
+        assertTrue(latch.await(60, TimeUnit.SECONDS), "All messages should obtain a reply within 60s");
+        assertEquals(0, violations.get());
+        senders.shutdown();
+        replier.shutdown();
+    }
+
+    private static class OrderedMessage extends MyMessage {
+
+        final int sender;
+        final int index;
+
+        OrderedMessage(int sender, int index, long seqId) {
+            super(true, seqId);
+            this.sender = sender;
+            this.index = index;
+        }
+
+    }
+
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
         void checkReply(boolean hasSeqId, long seqId) {
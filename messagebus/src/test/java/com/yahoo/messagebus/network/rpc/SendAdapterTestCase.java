@@ -27,6 +27,9 @@ import org.junit.jupiter.api.Test;
 
 import java.net.UnknownHostException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -100,6 +103,84 @@ public class SendAdapterTestCase {
         }
     }
 
+    @Test
+    void requireThatBatchedMessagesAreRepliedToIndividually() throws InterruptedException {
+        TestServer batchServer = new TestServer(
+                new MessageBusParams().addProtocol(new TestProtocol()),
+                new RPCNetworkParams().setMaxMessagesPerBatch(16).setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok)));
+        Receptor replies = new Receptor();
+        SourceSession batchSession = batchServer.mb.createSourceSession(
+                new SourceSessionParams().setTimeout(600.0).setReplyHandler(replies));
+        try {
+            assertTrue(srcServer.net.getSendAdapter(new Version(8, 310)) instanceof RPCSendV2);
+            assertTrue(batchServer.net.getSendAdapter(new Version(8, 310)) instanceof RPCSendBatch);
+            assertTrue(batchServer.waitSlobrok("dst/session", 1));
+
+            // Send a single message first, so the version of the destination, and that it accepts batches, is known
+            // when sending the batch.
+            Receptor handler = (Receptor) dstSession.getMessageHandler();
+            assertTrue(batchSession.send(new SimpleMessage("first"), Route.parse("dst/session")).isAccepted());
+            Message first = handler.getMessage(60);
+            assertNotNull(first);
+            Reply firstReply = new SimpleReply("first");
+            firstReply.swapState(first);
+            dstSession.reply(firstReply);
+            assertNotNull(replies.getReply(60));
+
+            assertBatched(batchServer, batchSession, replies, 10, 0);
+            assertBatched(batchServer, batchSession, replies, 5, 5);
+        }
+        finally {
+            batchSession.destroy();
+            batchServer.destroy();
+        }
+    }
+
+    /** Sends the given numbers of messages with a long and then a short timeout, and checks that only the former were batched. */
+    private void assertBatched(TestServer batchServer, SourceSession batchSession, Receptor replies, int longTimeouts, int shortTimeouts)
+            throws InterruptedException {
+        // Occupy all network threads, so the messages below are queued until they are released.
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) batchServer.net.getExecutor();
+        CountDownLatch started = new CountDownLatch(executor.getMaximumPoolSize());
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < executor.getMaximumPoolSize(); i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try { release.await(); } catch (InterruptedException e) { throw new RuntimeException(e); }
+            });
+        }
+        assertTrue(started.await(60, TimeUnit.SECONDS));
+        int count = longTimeouts + shortTimeouts;
+        for (int i = 0; i < count; i++) {
+            Message msg = new SimpleMessage("msg" + i);
+            msg.getTrace().setLevel(9);
+            msg.setContext("msg" + i);
+            if (i >= longTimeouts)
+                msg.setTimeRemaining(60_000);
+            assertTrue(batchSession.send(msg, Route.parse("dst/session")).isAccepted());
+        }
+        release.countDown();
+
+        Receptor handler = (Receptor) dstSession.getMessageHandler();
+        for (int i = 0; i < count; i++) {
+            Message msg = handler.getMessage(60);
+            assertNotNull(msg);
+            Reply reply = new SimpleReply("re:" + ((SimpleMessage) msg).getValue());
+            reply.swapState(msg);
+            dstSession.reply(reply);
+        }
+        for (int i = 0; i < count; i++) {
+            Reply reply = replies.getReply(60);
+            assertNotNull(reply);
+            assertFalse(reply.hasErrors(), reply.getTrace().toString());
+            assertEquals("re:" + reply.getContext(), ((SimpleReply) reply).getValue());
+            if (Integer.parseInt(((String) reply.getContext()).substring(3)) < longTimeouts)
+                assertTrue(reply.getTrace().toString().contains("in a batch of " + longTimeouts + " messages"), reply.getTrace().toString());
+            else
+                assertFalse(reply.getTrace().toString().contains("in a batch"), reply.getTrace().toString());
+        }
+    }
+
     private void assertVersionedSend(Version srcVersion, Version itrVersion, Version dstVersion) {
         srcServer.net.setVersion(srcVersion);
         itrServer.net.setVersion(itrVersion);
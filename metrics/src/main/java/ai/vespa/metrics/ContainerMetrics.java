@@ -77,6 +77,12 @@ public enum ContainerMetrics implements VespaMetrics {
     JETTY_THREADPOOL_IDLE_THREADS("jdisc.http.jetty.threadpool.thread.idle", Unit.THREAD, "Number of idle threads"),
     JETTY_THREADPOOL_TOTAL_THREADS("jdisc.http.jetty.threadpool.thread.total", Unit.THREAD, "Current number of threads"),
     JETTY_THREADPOOL_QUEUE_SIZE("jdisc.http.jetty.threadpool.queue.size", Unit.THREAD, "Current size of the job queue"),
+    JDISC_HTTP_CONCURRENCY_LIMIT("jdisc.http.concurrency.limit", Unit.REQUEST, "Current adaptive limit for the number of concurrent requests"),
+    JDISC_HTTP_CONCURRENCY_IN_FLIGHT("jdisc.http.concurrency.in_flight", Unit.REQUEST, "Number of requests currently counting against the concurrency limit"),
+    JDISC_HTTP_CONCURRENCY_SHED("jdisc.http.concurrency.shed", Unit.REQUEST, "Number of requests rejected because the concurrency limit was reached"),
+    JDISC_HTTP_ACCESS_LOG_DROPPED("jdisc.http.access_log.dropped", Unit.REQUEST, "Number of access log entries dropped because the access log queue was full"),
+    JDISC_HTTP_ACCESS_LOG_LAG("jdisc.http.access_log.lag", Unit.MILLISECOND, "Max time access log entries waited in the queue before being written"),
+    JDISC_HTTP_ACCESS_LOG_QUEUE_SIZE("jdisc.http.access_log.queue_size", Unit.REQUEST, "Number of access log entries waiting to be written"),
 
     SERVER_NUM_OPEN_CONNECTIONS("serverNumOpenConnections", Unit.CONNECTION, "The number of currently open connections"),
     SERVER_NUM_CONNECTIONS("serverNumConnections", Unit.CONNECTION, "The total number of connections opened"),
@@ -137,6 +143,9 @@ public enum ContainerMetrics implements VespaMetrics {
     DOCUMENTS_TARGET_TOTAL("documents_target_total", Unit.DOCUMENT, "The target number of total documents to be evaluated when when all data is in sync"),
     JDISC_RENDER_LATENCY("jdisc.render.latency", Unit.NANOSECOND, "The time used by the container to render responses"),
     QUERY_ITEM_COUNT("query_item_count", Unit.ITEM, "The number of query items (terms, phrases, etc)"),
+    SEARCHER_TIME("searcher.time", Unit.MILLISECOND, "Wall clock time spent in a searcher of a search chain, for the profiled queries"),
+    SEARCHER_CPU_TIME("searcher.cpu_time", Unit.MILLISECOND, "CPU time spent in a searcher of a search chain, for the profiled queries"),
+    SEARCHER_ALLOCATED_BYTES("searcher.allocated_bytes", Unit.BYTE, "Bytes allocated in a searcher of a search chain, for the profiled queries"),
     DOCPROC_PROC_TIME("docproc.proctime", Unit.MILLISECOND, "Time spent processing document"),
     DOCPROC_DOCUMENTS("docproc.documents", Unit.DOCUMENT, "Number of processed documents"),
     
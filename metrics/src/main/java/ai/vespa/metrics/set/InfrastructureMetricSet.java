@@ -114,6 +114,8 @@ public class InfrastructureMetricSet {
         addMetric(metrics, ConfigServerMetrics.HOSTED_VESPA_PARKED_NODES.max());
 
         addMetric(metrics, ConfigServerMetrics.RPC_SERVER_WORK_QUEUE_SIZE.average());
+        addMetric(metrics, ConfigServerMetrics.DELTA_RESPONSES.last());
+        addMetric(metrics, ConfigServerMetrics.DELTA_BYTES_SAVED.last());
         addMetric(metrics, ConfigServerMetrics.DEPLOYMENT_ACTIVATE_MILLIS.max());
         addMetric(metrics, ConfigServerMetrics.DEPLOYMENT_PREPARE_MILLIS.max());
 
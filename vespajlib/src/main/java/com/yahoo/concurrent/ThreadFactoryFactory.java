@@ -3,14 +3,19 @@ package com.yahoo.concurrent;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * @author baldersheim
  */
 public class ThreadFactoryFactory {
 
+    private static final Logger log = Logger.getLogger(ThreadFactoryFactory.class.getName());
+
     static private final Map<String, PooledFactory> factory = new HashMap<>();
 
     static public synchronized ThreadFactory getThreadFactory(String name) {
@@ -31,6 +36,22 @@ public class ThreadFactoryFactory {
         return p.getFactory(true);
     }
 
+    /**
+     * Returns a factory of virtual threads named by the given prefix followed by a sequence number,
+     * or empty if the running JVM does not provide virtual threads.
+     */
+    public static Optional<ThreadFactory> getVirtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.log(Level.FINE, () -> "Virtual threads are not available: " + e);
+            return Optional.empty();
+        }
+    }
+
     private static class PooledFactory {
 
         private final String name;
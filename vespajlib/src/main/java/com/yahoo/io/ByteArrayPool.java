@@ -0,0 +1,113 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A pool of byte arrays in power-of-two size classes, for buffers which are short-lived, but large enough
+ * that allocating one for each use shows up in allocation profiles, e.g., when serializing documents for feeding.
+ * <p>
+ * Each thread keeps one array of each of the smaller size classes to itself, which makes the common case of
+ * acquiring and releasing a buffer on the same thread free of synchronization. Other arrays are shared between
+ * threads through a bounded queue per size class. Arrays which are smaller than the smallest, or larger than
+ * the largest, size class are never pooled, and are left to the garbage collector.
+ * <p>
+ * Arrays are not cleared when released, and must not be used by the releasing party after they are released.
+ */
+public class ByteArrayPool {
+
+    /** The pool shared by all users which do not need one of their own; this caches at most 124 KiB per thread. */
+    private static final ByteArrayPool shared = new ByteArrayPool(12, 22, 16, 16);
+
+    private final int minShift;
+    private final int maxShift;
+    private final int maxThreadLocalShift;
+    private final List<ArrayBlockingQueue<byte[]>> queues;
+    private final ThreadLocal<byte[][]> local;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param minShift log2 of the size of the smallest size class
+     * @param maxShift log2 of the size of the largest size class
+     * @param arraysPerClass the number of arrays of each size class kept in the shared part of the pool
+     * @param maxThreadLocalShift log2 of the size of the largest size class cached per thread
+     */
+    public ByteArrayPool(int minShift, int maxShift, int arraysPerClass, int maxThreadLocalShift) {
+        if (minShift < 4 || maxShift > 30 || minShift > maxShift)
+            throw new IllegalArgumentException("Size classes must be within [2^4, 2^30], but got [2^" +
+                                               minShift + ", 2^" + maxShift + "]");
+        this.minShift = minShift;
+        this.maxShift = maxShift;
+        this.maxThreadLocalShift = Math.min(maxThreadLocalShift, maxShift);
+        this.queues = new ArrayList<>();
+        for (int shift = minShift; shift <= maxShift; shift++)
+            queues.add(new ArrayBlockingQueue<>(Math.max(1, arraysPerClass)));
+        this.local = ThreadLocal.withInitial(() -> new byte[Math.max(0, this.maxThreadLocalShift - minShift + 1)][]);
+    }
+
+    /** Returns the pool shared by users which do not need one of their own. */
+    public static ByteArrayPool shared() { return shared; }
+
+    /** Returns the size of the arrays of the largest size class; larger arrays are not pooled. */
+    public int maxPooledSize() { return 1 << maxShift; }
+
+    /** Returns an array of at least the given size, which should be released to this when no longer used. */
+    public byte[] acquire(int minSize) {
+        int shift = Math.max(minShift, 32 - Integer.numberOfLeadingZeros(Math.max(minSize, 1) - 1));
+        if (shift > maxShift) return new byte[minSize];
+
+        int sizeClass = shift - minShift;
+        if (shift <= maxThreadLocalShift) {
+            byte[][] cached = local.get();
+            byte[] array = cached[sizeClass];
+            if (array != null) {
+                cached[sizeClass] = null;
+                return array;
+            }
+        }
+        byte[] array = queues.get(sizeClass).poll();
+        return array != null ? array : new byte[1 << shift];
+    }
+
+    /** Returns the given array to this pool, if it fits one of its size classes. */
+    public void release(byte[] array) {
+        if (array == null || array.length < (1 << minShift)) return;
+
+        int shift = 31 - Integer.numberOfLeadingZeros(array.length);
+        if (shift > maxShift) return;
+
+        int sizeClass = shift - minShift;
+        if (shift <= maxThreadLocalShift) {
+            byte[][] cached = local.get();
+            if (cached[sizeClass] == null) {
+                cached[sizeClass] = array;
+                return;
+            }
+        }
+        queues.get(sizeClass).offer(array);
+    }
+
+    /** Returns a growable buffer backed by an array from this pool, which should be released with {@link #release(GrowableByteBuffer)}. */
+    public GrowableByteBuffer acquireBuffer(int minSize) {
+        return new GrowableByteBuffer(ByteBuffer.wrap(acquire(minSize)));
+    }
+
+    /** Returns the array currently backing the given buffer to this pool. The buffer must not be used after this. */
+    public void release(GrowableByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0)
+            release(buffer.array());
+    }
+
+    /** Returns the number of arrays currently in the shared part of this pool, for testing and monitoring. */
+    public int sharedSize() {
+        int size = 0;
+        for (ArrayBlockingQueue<byte[]> queue : queues)
+            size += queue.size();
+        return size;
+    }
+
+}
@@ -2,6 +2,7 @@
 package com.yahoo.slime;
 
 import com.yahoo.compress.Compressor;
+import com.yahoo.io.ByteArrayPool;
 
 /**
  * Class for serializing Slime data into binary format, or deserializing
@@ -56,6 +57,28 @@ public class BinaryFormat {
         return new BinaryEncoder().encode(slime).compress(compressor);
     }
 
+    /**
+     * Take a Slime object and serialize it into binary format, and compresses it,
+     * using a buffer from the given pool for the uncompressed encoding.
+     * @param slime the object which is to be serialized.
+     * @param compressor the compressor to use.
+     * @param pool the pool to draw the encoding buffer from, and return it to.
+     * @param sizeHint the expected size of the uncompressed encoding.
+     * @return the encoded and compressed slime, in an array which is not shared with the pool.
+     **/
+    public static Compressor.Compression encode_and_compress(Slime slime, Compressor compressor, ByteArrayPool pool, int sizeHint) {
+        BufferedOutput output = new BinaryEncoder(new BufferedOutput(pool.acquire(sizeHint))).encode(slime);
+        try {
+            Compressor.Compression compression = output.compress(compressor);
+            if (compression.data() == output.array()) // Not compressed, and exactly filling the buffer
+                compression = new Compressor.Compression(compression.type(), compression.uncompressedSize(), output.toArray());
+            return compression;
+        }
+        finally {
+            pool.release(output.array());
+        }
+    }
+
     /**
      * Take binary data and deserialize it into a Slime object.
      * The data is assumed to be the binary representation
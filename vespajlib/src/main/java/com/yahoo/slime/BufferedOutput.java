@@ -20,6 +20,12 @@ final class BufferedOutput {
         this(4096);
     }
 
+    /** Creates an output which writes into the given array until it needs to grow */
+    BufferedOutput(byte[] initial) {
+        buf = initial;
+        capacity = initial.length;
+    }
+
     void reset() {
         pos = 0;
     }
@@ -64,4 +70,7 @@ final class BufferedOutput {
     Compressor.Compression compress(Compressor compressor) {
         return compressor.compress(buf, pos);
     }
+
+    /** Returns the array currently backing this output */
+    byte[] array() { return buf; }
 }
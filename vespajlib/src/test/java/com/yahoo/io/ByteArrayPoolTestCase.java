@@ -0,0 +1,98 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.io;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Slime;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests ByteArrayPool.
+ */
+public class ByteArrayPoolTestCase {
+
+    @Test
+    public void arrays_are_rounded_up_to_size_classes() {
+        ByteArrayPool pool = new ByteArrayPool(4, 10, 2, 6);
+        assertEquals(16, pool.acquire(0).length);
+        assertEquals(16, pool.acquire(16).length);
+        assertEquals(32, pool.acquire(17).length);
+        assertEquals(1024, pool.acquire(1000).length);
+        assertEquals(1025, pool.acquire(1025).length);
+    }
+
+    @Test
+    public void released_arrays_are_reused_by_same_thread() {
+        ByteArrayPool pool = new ByteArrayPool(4, 10, 2, 6);
+        byte[] small = pool.acquire(50);
+        pool.release(small);
+        assertSame(small, pool.acquire(40));
+        assertEquals(0, pool.sharedSize());
+
+        byte[] large = pool.acquire(500);
+        pool.release(large);
+        assertEquals(1, pool.sharedSize());
+        assertSame(large, pool.acquire(300));
+        assertEquals(0, pool.sharedSize());
+    }
+
+    @Test
+    public void released_arrays_are_shared_between_threads() throws Exception {
+        ByteArrayPool pool = new ByteArrayPool(4, 10, 2, 6);
+        byte[] first = pool.acquire(64);
+        byte[] second = pool.acquire(64);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.sharedSize());
+        assertSame(second, CompletableFuture.supplyAsync(() -> pool.acquire(64)).get());
+    }
+
+    @Test
+    public void shared_part_is_bounded_and_odd_sizes_are_classified_by_capacity() {
+        ByteArrayPool pool = new ByteArrayPool(4, 10, 2, 4);
+        pool.release(new byte[100]);
+        pool.release(new byte[100]);
+        pool.release(new byte[100]);
+        pool.release(new byte[10]);
+        pool.release(new byte[2048]);
+        assertEquals(2, pool.sharedSize());
+        assertEquals(100, pool.acquire(64).length);
+        assertEquals(128, pool.acquire(65).length);
+    }
+
+    @Test
+    public void grown_buffers_are_returned_to_pool() {
+        ByteArrayPool pool = new ByteArrayPool(4, 10, 2, 10);
+        GrowableByteBuffer buffer = pool.acquireBuffer(16);
+        for (int i = 0; i < 10; i++)
+            buffer.putLong(i);
+        byte[] grown = buffer.array();
+        assertTrue(grown.length >= 80);
+        pool.release(buffer);
+        assertSame(grown, pool.acquire(100));
+    }
+
+    @Test
+    public void pooled_slime_encoding_does_not_leak_pooled_array() {
+        ByteArrayPool pool = new ByteArrayPool(4, 10, 2, 10);
+        Compressor compressor = new Compressor(CompressionType.NONE);
+        Slime slime = new Slime();
+        slime.setData(new byte[14]); // Encodes to exactly 16 bytes
+        byte[] expected = BinaryFormat.encode(slime);
+        assertEquals(16, expected.length);
+
+        Compressor.Compression compression = BinaryFormat.encode_and_compress(slime, compressor, pool, 16);
+        assertArrayEquals(expected, compression.data());
+        assertNotSame(compression.data(), pool.acquire(16));
+    }
+
+}